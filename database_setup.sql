@@ -4,6 +4,9 @@ create database if not exists csx370_mb_platform;
 -- Use the created database.
 use csx370_mb_platform;
 
+-- Note: Schema changes made after this script are versioned migrations in
+-- src/main/resources/db/migration. The app applies them on startup.
+
 -- Create the user table.
 create table if not exists user (
     userId int auto_increment,
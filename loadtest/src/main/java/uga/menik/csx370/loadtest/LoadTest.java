@@ -0,0 +1,215 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.loadtest;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a running instance of the application the way its users do and
+ * reports the latency of each kind of request.
+ *
+ * The load is an open model: sessions arrive at --rate per second, with
+ * exponential gaps between arrivals, whether or not earlier sessions have
+ * finished. A slow application therefore builds up sessions in flight
+ * instead of being sent less work, as with real users. See Session for
+ * what a session does and how latency is measured.
+ *
+ * Usage: java -jar loadtest/target/csx370-loadtest-1.0-SNAPSHOT.jar [--name=value ...]
+ * See Options for the options and scripts/load-test.sh for running it
+ * against a freshly started local instance.
+ */
+public final class LoadTest {
+    private final Options options;
+    private final Site site;
+    private final Route[] mixRoutes;
+    private final int[] mixWeights;
+    private final int mixTotal;
+    private final Map<Route, RouteStats> stats = new EnumMap<>(Route.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    // Requests that should start before this are warmup and not recorded.
+    private volatile long measureFromNanos = Long.MAX_VALUE;
+
+    private LoadTest(Options options) {
+        this.options = options;
+        this.site = new Site(options.baseUrl, Duration.ofMillis(options.timeoutMillis));
+        this.mixRoutes = options.mix.keySet().toArray(new Route[0]);
+        this.mixWeights = new int[mixRoutes.length];
+        int total = 0;
+        for (int i = 0; i < mixRoutes.length; i++) {
+            total += options.mix.get(mixRoutes[i]);
+            mixWeights[i] = total;
+        }
+        this.mixTotal = total;
+        for (Route route : Route.values()) {
+            stats.put(route, new RouteStats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(Options.USAGE);
+            System.exit(2);
+            return;
+        }
+        LoadTest test = new LoadTest(options);
+        Seeder.Population population = new Seeder(test.site, options).run();
+        test.run(population);
+        test.report();
+    }
+
+    Options options() {
+        return options;
+    }
+
+    Site site() {
+        return site;
+    }
+
+    /**
+     * Picks the route of the next action by the --mix weights.
+     */
+    Route pickRoute() {
+        int pick = ThreadLocalRandom.current().nextInt(mixTotal);
+        for (int i = 0; i < mixRoutes.length; i++) {
+            if (pick < mixWeights[i]) return mixRoutes[i];
+        }
+        return mixRoutes[mixRoutes.length - 1];
+    }
+
+    /**
+     * Records a finished request. status is -1 if no response arrived.
+     */
+    void record(Route route, long intendedNanos, long sentNanos, int status) {
+        if (intendedNanos < measureFromNanos) return;
+        long now = System.nanoTime();
+        RouteStats routeStats = stats.get(route);
+        if (status == 429) {
+            routeStats.limited.incrementAndGet();
+        } else if (status < 200 || status >= 400) {
+            routeStats.errors.incrementAndGet();
+            routeStats.errorsByStatus.computeIfAbsent(status, s -> new AtomicLong()).incrementAndGet();
+        }
+        if (status > 0) {
+            routeStats.latency.record((now - intendedNanos) / 1000);
+            routeStats.serviceTime.record((now - sentNanos) / 1000);
+        } else {
+            routeStats.noResponse.incrementAndGet();
+        }
+    }
+
+    /**
+     * Starts sessions at the arrival rate for the warmup and the duration,
+     * then waits for the sessions in flight to finish.
+     */
+    private void run(Seeder.Population population) throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(options.warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+        measureFromNanos = measureFrom;
+        System.out.printf("Starting %.1f sessions/s for %d s after %d s of warmup%n",
+                options.rate, options.durationSeconds, options.warmupSeconds);
+
+        double meanGapNanos = 1e9 / options.rate;
+        long arrival = start;
+        long started = 0;
+        long nextProgress = start + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            arrival += (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanGapNanos);
+            if (arrival >= end) break;
+            long wait = arrival - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+
+            if (inFlight.get() >= options.maxSessions) {
+                if (arrival >= measureFrom) dropped.incrementAndGet();
+                continue;
+            }
+            inFlight.incrementAndGet();
+            if (arrival >= measureFrom) started++;
+            new Session(this, population).run(arrival)
+                    .whenComplete((done, error) -> inFlight.decrementAndGet());
+
+            if (System.nanoTime() >= nextProgress) {
+                nextProgress += TimeUnit.SECONDS.toNanos(10);
+                System.out.printf("  %d s: %d sessions in flight%n",
+                        TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start), inFlight.get());
+            }
+        }
+        System.out.printf("Started %d measured sessions (%.1f/s), dropped %d; waiting for %d in flight%n",
+                started, started / (double) Math.max(1, options.durationSeconds), dropped.get(), inFlight.get());
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(
+                (options.actions + 1) * options.timeoutMillis + options.actions * options.thinkMillis * 5);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+    }
+
+    /**
+     * Prints the latency percentiles of each route in milliseconds, from
+     * the intended start of the requests. The last column is the 99th
+     * percentile from sending the request, which leaves out queueing in
+     * the driver and shows how much the correction adds.
+     */
+    private void report() {
+        System.out.println();
+        System.out.printf("%-10s %8s %7s %7s %9s %9s %9s %9s %9s %12s%n", "route", "count", "errors",
+                "limited", "p50", "p90", "p99", "p99.9", "max", "p99 sent");
+        long total = 0;
+        for (Map.Entry<Route, RouteStats> entry : stats.entrySet()) {
+            RouteStats routeStats = entry.getValue();
+            LatencyHistogram latency = routeStats.latency;
+            long count = latency.count() + routeStats.noResponse.get();
+            if (count == 0) continue;
+            total += count;
+            System.out.printf("%-10s %8d %7d %7d %9s %9s %9s %9s %9s %12s%n", entry.getKey().key, count,
+                    routeStats.errors.get(), routeStats.limited.get(),
+                    millis(latency.percentile(50)), millis(latency.percentile(90)),
+                    millis(latency.percentile(99)), millis(latency.percentile(99.9)),
+                    millis(latency.max()), millis(routeStats.serviceTime.percentile(99)));
+        }
+        System.out.printf("%d requests, %.1f/s%n", total, total / (double) Math.max(1, options.durationSeconds));
+
+        for (Map.Entry<Route, RouteStats> entry : stats.entrySet()) {
+            Map<Integer, AtomicLong> errors = new TreeMap<>(entry.getValue().errorsByStatus);
+            if (errors.isEmpty()) continue;
+            StringBuilder line = new StringBuilder("  " + entry.getKey().key + " errors:");
+            errors.forEach((status, count) -> line.append(' ')
+                    .append(status < 0 ? "no response" : String.valueOf(status)).append('=').append(count.get()));
+            System.out.println(line);
+        }
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.1f", micros / 1000.0);
+    }
+
+    /**
+     * What was recorded for one route.
+     */
+    private static final class RouteStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LatencyHistogram serviceTime = new LatencyHistogram();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong limited = new AtomicLong();
+        final Map<Integer, AtomicLong> errorsByStatus = new ConcurrentHashMap<>();
+        // Errors without a response are counted but have no latency.
+        final AtomicLong noResponse = new AtomicLong();
+    }
+}
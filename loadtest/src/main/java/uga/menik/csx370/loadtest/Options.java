@@ -0,0 +1,95 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Command line options of the driver, given as --name=value.
+ */
+final class Options {
+    static final String USAGE = """
+        Options (--name=value):
+          base-url            the application, default http://localhost:8080
+          seed                register users and create their posts and follows first, default true
+          users               seeded users, default 200
+          posts-per-user      posts each seeded user writes, default 5
+          follows-per-user    users each seeded user follows, default 10
+          seed-concurrency    parallel requests while seeding, default 16
+          rate                new sessions per second, default 20
+          duration            seconds to start sessions for, default 60
+          warmup              seconds to run before measuring, default 10
+          actions             actions per session after logging in, default 8
+          think-ms            mean pause between actions, default 1000
+          max-sessions        sessions in flight before new ones are dropped, default 10000
+          timeout-ms          request timeout, default 30000
+          mix                 weights of the actions, default
+                              home=30,post=25,heart=15,comment=10,hashtag=10,follow=10
+        """;
+
+    String baseUrl = "http://localhost:8080";
+    boolean seed = true;
+    int users = 200;
+    int postsPerUser = 5;
+    int followsPerUser = 10;
+    int seedConcurrency = 16;
+    double rate = 20;
+    int durationSeconds = 60;
+    int warmupSeconds = 10;
+    int actions = 8;
+    long thinkMillis = 1000;
+    int maxSessions = 10000;
+    long timeoutMillis = 30000;
+    final Map<Route, Integer> mix = new EnumMap<>(Route.class);
+
+    static Options parse(String[] args) {
+        Options options = new Options();
+        options.setMix("home=30,post=25,heart=15,comment=10,hashtag=10,follow=10");
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            String value = arg.substring(equals + 1);
+            switch (arg.substring(2, equals)) {
+                case "base-url" -> options.baseUrl = value.replaceAll("/+$", "");
+                case "seed" -> options.seed = Boolean.parseBoolean(value);
+                case "users" -> options.users = Integer.parseInt(value);
+                case "posts-per-user" -> options.postsPerUser = Integer.parseInt(value);
+                case "follows-per-user" -> options.followsPerUser = Integer.parseInt(value);
+                case "seed-concurrency" -> options.seedConcurrency = Integer.parseInt(value);
+                case "rate" -> options.rate = Double.parseDouble(value);
+                case "duration" -> options.durationSeconds = Integer.parseInt(value);
+                case "warmup" -> options.warmupSeconds = Integer.parseInt(value);
+                case "actions" -> options.actions = Integer.parseInt(value);
+                case "think-ms" -> options.thinkMillis = Long.parseLong(value);
+                case "max-sessions" -> options.maxSessions = Integer.parseInt(value);
+                case "timeout-ms" -> options.timeoutMillis = Long.parseLong(value);
+                case "mix" -> options.setMix(value);
+                default -> throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Sets the weights of the actions from route=weight pairs. Routes that
+     * are not listed are not used. Logging in starts every session and has
+     * no weight.
+     */
+    private void setMix(String value) {
+        mix.clear();
+        for (String pair : value.split(",")) {
+            String[] parts = pair.trim().split("=");
+            Route route = Route.byKey(parts[0]);
+            if (route == Route.LOGIN) {
+                throw new IllegalArgumentException("Every session logs in once; login has no weight");
+            }
+            mix.put(route, Integer.parseInt(parts[1]));
+        }
+    }
+}
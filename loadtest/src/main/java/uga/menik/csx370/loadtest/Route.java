@@ -0,0 +1,33 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.loadtest;
+
+/**
+ * The user actions a session is made of. Each has its own latencies in
+ * the report. The key is the name used by --mix.
+ */
+enum Route {
+    LOGIN("login"),
+    HOME("home"),
+    OPEN_POST("post"),
+    HEART("heart"),
+    COMMENT("comment"),
+    HASHTAG_SEARCH("hashtag"),
+    FOLLOW("follow");
+
+    final String key;
+
+    Route(String key) {
+        this.key = key;
+    }
+
+    static Route byKey(String key) {
+        for (Route route : values()) {
+            if (route.key.equals(key)) return route;
+        }
+        throw new IllegalArgumentException("Unknown route in --mix: " + key);
+    }
+}
@@ -0,0 +1,168 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Creates the users, posts and follows the sessions work with, through
+ * the same pages a user would use. Users are named loaduser0, loaduser1
+ * and so on, so a later run with --seed=false finds them again.
+ * Seeding is not measured.
+ */
+final class Seeder {
+    static final String PASSWORD = "loadtest-password";
+    static final String[] TAGS = {
+        "coffee", "music", "travel", "food", "sports", "books", "movies", "art",
+        "science", "gaming", "photography", "nature", "tech", "fitness", "news", "dogs",
+    };
+    private static final String[] WORDS = {
+        "today", "finally", "great", "new", "weekend", "morning", "really", "loved",
+        "the", "a", "best", "trying", "out", "with", "friends", "again",
+    };
+    private static final Pattern USER_IDS = Pattern.compile("/people/(\\d+)/follow/");
+    static final Pattern POST_IDS = Pattern.compile("href=\"/post/(\\d+)\"");
+
+    /**
+     * The seeded users and the ids sessions pick from.
+     */
+    record Population(List<String> usernames, long[] userIds, long[] postIds) {
+    }
+
+    private final Site site;
+    private final Options options;
+
+    Seeder(Site site, Options options) {
+        this.site = site;
+        this.options = options;
+    }
+
+    static String username(int index) {
+        return "loaduser" + index;
+    }
+
+    /**
+     * Seeds the data if --seed is true and finds the ids of the users and
+     * their posts.
+     */
+    Population run() throws Exception {
+        List<String> usernames = new ArrayList<>();
+        for (int i = 0; i < options.users; i++) {
+            usernames.add(username(i));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(options.seedConcurrency);
+        try {
+            if (options.seed) {
+                long start = System.nanoTime();
+                forEachUser(pool, this::register);
+                long[] userIds = findUserIds();
+                forEachUser(pool, index -> writePostsAndFollow(index, userIds));
+                System.out.printf("Seeded %d users with %d posts and %d follows each in %.1f s%n",
+                        options.users, options.postsPerUser, options.followsPerUser,
+                        (System.nanoTime() - start) / 1e9);
+            }
+
+            long[] userIds = findUserIds();
+            Set<Long> postIds = ConcurrentHashMap.newKeySet();
+            forEachUser(pool, index -> postIds.addAll(Site.findIds(POST_IDS, home(index))));
+            if (postIds.isEmpty()) throw new IllegalStateException("No posts found; run with --seed=true");
+            System.out.printf("Found %d users and %d posts%n", userIds.length, postIds.size());
+            return new Population(usernames, userIds,
+                    postIds.stream().mapToLong(Long::longValue).toArray());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void register(int index) {
+        // Fails harmlessly if the user exists from an earlier run.
+        site.post("/register", null, Site.form(
+                "username", username(index),
+                "password", PASSWORD,
+                "passwordRepeat", PASSWORD,
+                "firstName", "Load",
+                "lastName", "User" + index)).join();
+    }
+
+    private void writePostsAndFollow(int index, long[] userIds) {
+        Random random = new Random(index);
+        String cookie = login(index);
+        for (int i = 0; i < options.postsPerUser; i++) {
+            site.post("/createpost", cookie, Site.form("posttext", postText(random))).join();
+        }
+        for (int i = 0; i < options.followsPerUser && userIds.length > 0; i++) {
+            long userId = userIds[random.nextInt(userIds.length)];
+            site.get("/people/" + userId + "/follow/true", cookie, false).join();
+        }
+    }
+
+    /**
+     * Returns the ids on the people page of the first user, who sees
+     * everyone else.
+     */
+    private long[] findUserIds() {
+        String html = site.get("/people", login(0), true).join().body();
+        return Site.findIds(USER_IDS, html).stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private String home(int index) {
+        return site.get("/", login(index), true).join().body();
+    }
+
+    private String login(int index) {
+        String cookie = site.login(username(index), PASSWORD).join();
+        if (cookie == null) throw new IllegalStateException("Could not log in as " + username(index));
+        return cookie;
+    }
+
+    static String postText(Random random) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 6 + random.nextInt(10); i++) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        text.append('#').append(TAGS[random.nextInt(TAGS.length)]);
+        if (random.nextBoolean()) text.append(" #").append(TAGS[random.nextInt(TAGS.length)]);
+        return text.toString();
+    }
+
+    private void forEachUser(ExecutorService pool, UserTask task) throws Exception {
+        AtomicInteger failures = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < options.users; i++) {
+            int index = i;
+            futures.add(pool.submit(() -> {
+                try {
+                    task.run(index);
+                } catch (RuntimeException e) {
+                    if (failures.getAndIncrement() == 0) {
+                        System.err.println("Seeding failed for " + username(index) + ": " + e);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        if (failures.get() > 0) {
+            throw new IllegalStateException(failures.get() + " users failed while seeding");
+        }
+    }
+
+    @FunctionalInterface
+    private interface UserTask {
+        void run(int index);
+    }
+}
@@ -0,0 +1,119 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.loadtest;
+
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One virtual user: logs in as a random seeded user and then performs
+ * --actions actions picked by the --mix weights, pausing for a random
+ * think time in between. Each step is a callback on the previous
+ * response, so a waiting session holds no thread.
+ *
+ * Every request has an intended start: the arrival time of the session
+ * for the login, and the end of the previous step plus the think time for
+ * the others. Latency is measured from the intended start, so time spent
+ * waiting for a late scheduler or a busy client counts against the
+ * application as it would for a user (the coordinated omission
+ * correction). The time from actually sending the request is recorded
+ * next to it.
+ */
+final class Session {
+    private final LoadTest test;
+    private final Seeder.Population population;
+    private String cookie;
+    // Posts seen on this session's home page, preferred when opening posts.
+    private List<Long> seenPostIds = List.of();
+
+    Session(LoadTest test, Seeder.Population population) {
+        this.test = test;
+        this.population = population;
+    }
+
+    /**
+     * Runs the session. The future completes when it is over.
+     */
+    CompletableFuture<Void> run(long arrivalNanos) {
+        String username = population.usernames().get(random().nextInt(population.usernames().size()));
+        long sentNanos = System.nanoTime();
+        return test.site().login(username, Seeder.PASSWORD).handle((sessionCookie, error) -> {
+            boolean ok = error == null && sessionCookie != null;
+            test.record(Route.LOGIN, arrivalNanos, sentNanos, ok ? 200 : -1);
+            cookie = sessionCookie;
+            return ok;
+        }).thenCompose(ok -> ok ? step(test.options().actions) : CompletableFuture.completedFuture(null));
+    }
+
+    private CompletableFuture<Void> step(int remaining) {
+        if (remaining == 0) return CompletableFuture.completedFuture(null);
+
+        long thinkNanos = (long) (-Math.log(1 - random().nextDouble()) * test.options().thinkMillis * 1_000_000);
+        long intendedNanos = System.nanoTime() + thinkNanos;
+        Executor later = CompletableFuture.delayedExecutor(thinkNanos, TimeUnit.NANOSECONDS);
+        Route route = test.pickRoute();
+        return CompletableFuture.supplyAsync(() -> send(route, intendedNanos), later)
+                .thenCompose(response -> response)
+                .thenCompose(done -> step(remaining - 1));
+    }
+
+    /**
+     * Sends the request of a route and records it when it completes.
+     */
+    private CompletableFuture<Void> send(Route route, long intendedNanos) {
+        long sentNanos = System.nanoTime();
+        CompletableFuture<HttpResponse<String>> response = switch (route) {
+            case HOME -> test.site().get("/", cookie, true);
+            case OPEN_POST -> test.site().get("/post/" + postId(), cookie, false);
+            case HEART -> test.site().get("/post/" + postId() + "/heart/true", cookie, false);
+            case COMMENT -> test.site().post("/post/" + postId() + "/comment", cookie,
+                    Map.of("comment", Seeder.postText(random())));
+            case HASHTAG_SEARCH -> test.site().get("/hashtagsearch?hashtags="
+                    + Site.encode("#" + Seeder.TAGS[random().nextInt(Seeder.TAGS.length)]), cookie, false);
+            case FOLLOW -> test.site().get("/people/" + pick(population.userIds()) + "/follow/true",
+                    cookie, false);
+            case LOGIN -> throw new IllegalArgumentException("Sessions log in once");
+        };
+        return response.handle((result, error) -> {
+            int status = error == null ? status(result) : -1;
+            test.record(route, intendedNanos, sentNanos, status);
+            if (route == Route.HOME && status == 200) {
+                seenPostIds = Site.findIds(Seeder.POST_IDS, result.body());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Returns the status of a response. A redirect to the login page means
+     * the session was lost, which counts as an error.
+     */
+    private static int status(HttpResponse<String> response) {
+        String location = response.headers().firstValue("Location").orElse("");
+        if (response.statusCode() == 302 && location.contains("/login")) return 401;
+        return response.statusCode();
+    }
+
+    private long postId() {
+        if (!seenPostIds.isEmpty() && random().nextInt(4) != 0) {
+            return seenPostIds.get(random().nextInt(seenPostIds.size()));
+        }
+        return pick(population.postIds());
+    }
+
+    private static long pick(long[] ids) {
+        return ids[random().nextInt(ids.length)];
+    }
+
+    private static ThreadLocalRandom random() {
+        return ThreadLocalRandom.current();
+    }
+}
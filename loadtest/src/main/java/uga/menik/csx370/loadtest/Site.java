@@ -0,0 +1,116 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Sends requests to the application. Requests are asynchronous, so a
+ * session waiting for a response holds no thread. Redirects are not
+ * followed; the application answers form posts and toggles with one.
+ */
+final class Site {
+    private static final Pattern SESSION_COOKIE = Pattern.compile("(JSESSIONID=[^;]+)");
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final Duration timeout;
+
+    Site(String baseUrl, Duration timeout) {
+        this.client = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(timeout)
+                .build();
+        this.baseUrl = baseUrl;
+        this.timeout = timeout;
+    }
+
+    /**
+     * GETs a page. The body is only kept if keepBody is true, otherwise
+     * it is read and dropped.
+     */
+    CompletableFuture<HttpResponse<String>> get(String path, String cookie, boolean keepBody) {
+        HttpRequest.Builder request = request(path, cookie).GET();
+        return client.sendAsync(request.build(), keepBody
+                ? HttpResponse.BodyHandlers.ofString() : HttpResponse.BodyHandlers.replacing(""));
+    }
+
+    /**
+     * POSTs a form.
+     */
+    CompletableFuture<HttpResponse<String>> post(String path, String cookie, Map<String, String> form) {
+        String body = form.entrySet().stream()
+                .map(field -> encode(field.getKey()) + "=" + encode(field.getValue()))
+                .collect(Collectors.joining("&"));
+        HttpRequest.Builder request = request(path, cookie)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        return client.sendAsync(request.build(), HttpResponse.BodyHandlers.replacing(""));
+    }
+
+    /**
+     * Logs a user in. The future holds the session cookie, or null if the
+     * login was refused.
+     */
+    CompletableFuture<String> login(String username, String password) {
+        return post("/login", null, form("username", username, "password", password))
+                .thenApply(Site::sessionCookie);
+    }
+
+    /**
+     * Returns the session cookie set by a successful login, or null.
+     */
+    static String sessionCookie(HttpResponse<?> response) {
+        String location = response.headers().firstValue("Location").orElse("");
+        if (response.statusCode() != 302 || location.contains("/login")) return null;
+        for (String header : response.headers().allValues("Set-Cookie")) {
+            Matcher matcher = SESSION_COOKIE.matcher(header);
+            if (matcher.find()) return matcher.group(1);
+        }
+        return null;
+    }
+
+    static Map<String, String> form(String... namesAndValues) {
+        Map<String, String> form = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            form.put(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return form;
+    }
+
+    /**
+     * Returns the numbers captured by the first group of pattern in html.
+     */
+    static List<Long> findIds(Pattern pattern, String html) {
+        return pattern.matcher(html).results()
+                .map(match -> Long.parseLong(match.group(1)))
+                .distinct()
+                .toList();
+    }
+
+    static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private HttpRequest.Builder request(String path, String cookie) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(timeout);
+        if (cookie != null) request.header("Cookie", cookie);
+        return request;
+    }
+}
@@ -0,0 +1,54 @@
+#!/usr/bin/env bash
+#
+# Starts the application on the MySQL database in application.properties,
+# seeds it and runs the load test driver in loadtest/ against it:
+#
+#   scripts/load-test.sh [driver options, e.g. --rate=50 --duration=120]
+#
+# See loadtest/src/main/java/uga/menik/csx370/loadtest/Options.java for the
+# driver options. The data is kept, and a second run with --seed=false
+# reuses the users and posts of the first. LOAD_TEST_ENGINE=memory runs
+# against a fresh in-memory store instead.
+# The rate limits are raised so that the driver, which sends everything
+# from one address, measures the application rather than the limiter.
+
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+PORT=${LOAD_TEST_PORT:-18095}
+ENGINE=${LOAD_TEST_ENGINE:-jdbc}
+WORK=$(mktemp -d)
+LOG="$WORK/app.log"
+APP_ARGS=(
+    --server.port="$PORT"
+    --app.storage.engine="$ENGINE"
+    --app.storage.memory.snapshot-path="$WORK/memory-snapshot.bin"
+    --app.spool.path="$WORK/write-spool.log"
+)
+if [ "$ENGINE" = memory ]; then
+    APP_ARGS+=(--app.migrations.enabled=false)
+fi
+for route in create-post comment toggle; do
+    APP_ARGS+=(--app.rate-limit.$route.per-minute=1000000 --app.rate-limit.$route.burst=1000000)
+done
+
+mvn -B -q compile dependency:build-classpath -Dmdep.outputFile="$WORK/classpath.txt"
+mvn -B -q -f loadtest/pom.xml package
+
+java -cp "target/classes:$(cat "$WORK/classpath.txt")" uga.menik.csx370.App "${APP_ARGS[@]}" > "$LOG" 2>&1 &
+pid=$!
+trap 'kill -TERM "$pid" 2> /dev/null; wait "$pid" || true' EXIT
+
+for i in $(seq 1 600); do
+    if curl -sf -o /dev/null "http://localhost:$PORT/login"; then
+        break
+    fi
+    if ! kill -0 "$pid" 2> /dev/null; then
+        echo "The application stopped before serving a request, see $LOG" >&2
+        exit 1
+    fi
+    sleep 0.1
+done
+
+java -jar loadtest/target/csx370-loadtest-1.0-SNAPSHOT.jar --base-url="http://localhost:$PORT" "$@"
+echo "Application log: $LOG"
@@ -0,0 +1,126 @@
+#!/usr/bin/env bash
+#
+# Compares the startup of the application with and without the
+# AOT-processed context and the class data sharing archive.
+# Run by the fast-startup profile in pom.xml after the jar is built:
+#
+#   scripts/startup-check.sh target/csx370-starter-1.0-SNAPSHOT.jar [storage engine]
+#
+# 1. A training run with -XX:ArchiveClassesAtExit serves one request and
+#    stops, which writes the classes it loaded to target/app-cds.jsa.
+# 2. The plain jar and the jar with AOT and the archive are each started
+#    STARTUP_CHECK_RUNS times. Startup and first request times are read
+#    from the lines logged by StartupTimer.
+# 3. Fails if the median startup time or the median first request time
+#    with AOT and the archive is more than STARTUP_CHECK_MAX_RATIO of the
+#    plain median.
+#
+# Fails as well if a run does not answer within 60 seconds.
+# The application is started with the memory storage engine by default,
+# so no database is needed or changed. The AOT-processed context fixes
+# the engine at build time; pass the one it was built for.
+
+set -euo pipefail
+# Failures inside $(measure) stop the script too.
+shopt -s inherit_errexit
+
+JAR=${1:?usage: startup-check.sh <application jar>}
+ENGINE=${2:-memory}
+DIR=$(dirname "$JAR")
+ARCHIVE="$DIR/app-cds.jsa"
+PORT=${STARTUP_CHECK_PORT:-18090}
+RUNS=${STARTUP_CHECK_RUNS:-3}
+MAX_RATIO=${STARTUP_CHECK_MAX_RATIO:-0.9}
+APP_ARGS=(--app.storage.engine="$ENGINE" --app.migrations.enabled=false --server.port="$PORT")
+FAST_FLAGS=(-XX:SharedArchiveFile="$ARCHIVE" -Dspring.aot.enabled=true)
+
+# Starts the application with the given JVM flags, requests the login page
+# once it is up and stops it. The log is written to $LOG.
+run() {
+    java "$@" -jar "$JAR" "${APP_ARGS[@]}" > "$LOG" 2>&1 &
+    local pid=$!
+
+    local deadline=$((SECONDS + 60))
+    until curl -sf -o /dev/null "http://localhost:$PORT/login"; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "The application stopped before serving a request, see $LOG" >&2
+            return 1
+        fi
+        if [ "$SECONDS" -ge "$deadline" ]; then
+            kill -KILL "$pid"
+            wait "$pid" || true
+            echo "The application did not answer within 60 seconds, see $LOG" >&2
+            return 1
+        fi
+        sleep 0.1
+    done
+
+    # Give the log writer time to write the first request line.
+    sleep 0.5
+    kill -TERM "$pid"
+    wait "$pid" || true
+}
+
+# Prints the value of a numeric field of the last StartupTimer line in $LOG.
+# Fails if there is none.
+field() {
+    local value
+    value=$(grep -o "\"$1\":[0-9]*" "$LOG" | tail -n 1 | cut -d: -f2)
+    if [ -z "$value" ]; then
+        echo "No $1 was logged, see $LOG" >&2
+        return 1
+    fi
+    echo "$value"
+}
+
+median() {
+    sort -n | awk '{ values[NR] = $1 } END { print values[int((NR + 1) / 2)] }'
+}
+
+# Measures RUNS starts with the given JVM flags.
+# Prints the median startup and first request times.
+measure() {
+    local startups=() firstRequests=() i
+    for i in $(seq 1 "$RUNS"); do
+        run "$@"
+        startups+=("$(field startupMs)")
+        firstRequests+=("$(field firstRequestMs)")
+    done
+    echo "$(printf '%s\n' "${startups[@]}" | median) $(printf '%s\n' "${firstRequests[@]}" | median)"
+}
+
+LOG="$DIR/startup-training.log"
+rm -f "$ARCHIVE"
+run -XX:ArchiveClassesAtExit="$ARCHIVE" -Dspring.aot.enabled=true
+if [ ! -f "$ARCHIVE" ]; then
+    echo "The training run did not write $ARCHIVE, see $LOG" >&2
+    exit 1
+fi
+
+LOG="$DIR/startup-plain.log"
+plain=$(measure)
+read -r plainStartup plainFirstRequest <<< "$plain"
+
+LOG="$DIR/startup-fast.log"
+fast=$(measure "${FAST_FLAGS[@]}")
+read -r fastStartup fastFirstRequest <<< "$fast"
+
+echo "Startup with the $ENGINE engine (median of $RUNS, ms from JVM start):"
+echo "  plain:          startup ${plainStartup}, first request ${plainFirstRequest}"
+echo "  AOT + CDS:      startup ${fastStartup}, first request ${fastFirstRequest}"
+
+# Succeeds if fast is at most MAX_RATIO of plain.
+within() {
+    awk -v fast="$1" -v plain="$2" -v ratio="$MAX_RATIO" 'BEGIN { exit !(fast <= plain * ratio) }'
+}
+
+status=0
+if ! within "$fastStartup" "$plainStartup"; then
+    echo "Startup with AOT and CDS is not below ${MAX_RATIO} of the plain startup" >&2
+    status=1
+fi
+if ! within "$fastFirstRequest" "$plainFirstRequest"; then
+    echo "First request with AOT and CDS is not below ${MAX_RATIO} of the plain first request" >&2
+    status=1
+fi
+exit $status
@@ -0,0 +1,56 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.components;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.resource.ResourceUrlProvider;
+
+import com.samskivert.mustache.Mustache;
+import com.samskivert.mustache.Template;
+
+/**
+ * This is a mustache lambda that turns a static asset path into its
+ * fingerprinted URL, for example /css/styles.css into
+ * /css/styles-5f1c...e2.css. Templates use it as {{#asset}}/css/styles.css{{/asset}}.
+ * Fingerprinted URLs change whenever the file changes, so browsers can
+ * cache them forever. See WebConfig.addResourceHandlers.
+ */
+@Component
+public class AssetUrlLambda implements Mustache.Lambda {
+
+    // Looked up on first use since it is created after this component.
+    private final ObjectProvider<ResourceUrlProvider> resourceUrlProvider;
+    // Resolved URLs by asset path. Assets do not change while the app runs.
+    private final Map<String, String> urls = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AssetUrlLambda(ObjectProvider<ResourceUrlProvider> resourceUrlProvider) {
+        this.resourceUrlProvider = resourceUrlProvider;
+    }
+
+    @Override
+    public void execute(Template.Fragment frag, Writer out) throws IOException {
+        out.write(getUrl(frag.execute().trim()));
+    }
+
+    /**
+     * Returns the fingerprinted URL of an asset path, or the path itself
+     * if it is not a known static asset.
+     */
+    public String getUrl(String path) {
+        return urls.computeIfAbsent(path, p -> {
+            String url = resourceUrlProvider.getObject().getForLookupPath(p);
+            return url != null ? url : p;
+        });
+    }
+}
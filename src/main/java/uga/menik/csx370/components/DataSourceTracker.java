@@ -0,0 +1,96 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.components;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+/**
+ * This component wraps the application DataSource so that connection
+ * checkouts, executed statements and the time spent in them are recorded
+ * in QueryTracker. The services are unaware of the wrapping.
+ */
+@Component
+public class DataSourceTracker implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof TrackingDataSource)) {
+            return new TrackingDataSource(dataSource);
+        }
+        return bean;
+    }
+
+    /**
+     * DataSource that hands out tracked connections.
+     */
+    static class TrackingDataSource extends DelegatingDataSource {
+
+        TrackingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            QueryTracker.recordConnection();
+            return track(super.getConnection(), Connection.class, null);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            QueryTracker.recordConnection();
+            return track(super.getConnection(username, password), Connection.class, null);
+        }
+    }
+
+    /**
+     * Wraps a JDBC object in a proxy. Statements created from a tracked
+     * connection are tracked too. sql is the statement text of prepared
+     * statements.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T track(T target, Class<T> type, String sql) {
+        InvocationHandler handler = (proxy, method, args) -> invoke(target, method, args, sql);
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args, String sql) throws Throwable {
+        String name = method.getName();
+        boolean isExecute = name.startsWith("execute") && target instanceof Statement;
+        long start = isExecute ? System.nanoTime() : 0;
+
+        Object result;
+        try {
+            result = method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+
+        if (isExecute) {
+            // Plain statements carry their SQL as the first argument.
+            String executed = sql != null ? sql
+                    : args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+            QueryTracker.recordStatement(executed, System.nanoTime() - start);
+        } else if (result instanceof PreparedStatement pstmt && name.equals("prepareStatement")) {
+            return track(pstmt, PreparedStatement.class, (String) args[0]);
+        } else if (result instanceof Statement stmt && name.equals("createStatement")) {
+            return track(stmt, Statement.class, null);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,71 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.components;
+
+import java.nio.file.Path;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import uga.menik.csx370.services.DataTransferService;
+import uga.menik.csx370.utility.EventLog;
+
+/**
+ * This component runs data export and import commands given on the
+ * command line, then shuts the application down. Examples:
+ *
+ * java -jar app.jar --spring.main.web-application-type=none --export=dump.ndjson.gz
+ * java -jar app.jar --spring.main.web-application-type=none --export=dump.ndjson.gz --export-user=7
+ * java -jar app.jar --spring.main.web-application-type=none --import=dump.ndjson.gz --batch-size=1000 --threads=4
+ *
+ * Without these options the application starts normally.
+ */
+@Component
+public class DataTransferRunner implements ApplicationRunner {
+
+    private final DataTransferService dataTransferService;
+    private final ApplicationContext context;
+
+    @Autowired
+    public DataTransferRunner(DataTransferService dataTransferService, ApplicationContext context) {
+        this.dataTransferService = dataTransferService;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (args.containsOption("export")) {
+            Path file = Path.of(getOption(args, "export", null));
+            String userId = getOption(args, "export-user", null);
+
+            long rows = userId == null
+                    ? dataTransferService.exportAll(file)
+                    : dataTransferService.exportUser(userId, file);
+            EventLog.info("transfer", "Exported rows", "rows", rows, "file", file);
+        } else if (args.containsOption("import")) {
+            Path file = Path.of(getOption(args, "import", null));
+            int batchSize = Integer.parseInt(getOption(args, "batch-size", "1000"));
+            int threads = Integer.parseInt(getOption(args, "threads", "4"));
+
+            DataTransferService.ImportResult result = dataTransferService.importFile(file, batchSize, threads);
+            EventLog.info("transfer", "Imported rows", "rows", result.rows(), "rejected", result.rejected(),
+                    "file", file);
+        } else {
+            return;
+        }
+
+        System.exit(SpringApplication.exit(context));
+    }
+
+    private String getOption(ApplicationArguments args, String name, String defaultValue) {
+        var values = args.getOptionValues(name);
+        return values == null || values.isEmpty() ? defaultValue : values.get(0);
+    }
+}
@@ -0,0 +1,72 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.components;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import uga.menik.csx370.utility.EventLog;
+
+/**
+ * This component applies the app.log.* properties to EventLog at startup.
+ * Per category settings look like:
+ *
+ * app.log.level.post=DEBUG
+ * app.log.sample.access=0.1
+ */
+@Component
+public class EventLogConfigurer implements InitializingBean {
+
+    private final Environment environment;
+    private final String defaultLevel;
+    private final String redactedKeys;
+    private final int maxValueLength;
+
+    @Autowired
+    public EventLogConfigurer(Environment environment,
+            @Value("${app.log.default-level:INFO}") String defaultLevel,
+            @Value("${app.log.redact:content,comment,body,password,posttext}") String redactedKeys,
+            @Value("${app.log.max-value-length:200}") int maxValueLength) {
+        this.environment = environment;
+        this.defaultLevel = defaultLevel;
+        this.redactedKeys = redactedKeys;
+        this.maxValueLength = maxValueLength;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Binder binder = Binder.get(environment);
+
+        Map<String, EventLog.Level> levels = new HashMap<>();
+        binder.bind("app.log.level", Bindable.mapOf(String.class, String.class))
+                .orElse(Map.of())
+                .forEach((category, level) -> levels.put(category, toLevel(level)));
+
+        Map<String, Double> sampleRates = binder.bind("app.log.sample", Bindable.mapOf(String.class, Double.class))
+                .orElse(Map.of());
+
+        Set<String> redacted = new HashSet<>();
+        for (String key : redactedKeys.split(",")) {
+            if (!key.isBlank()) redacted.add(key.trim().toLowerCase());
+        }
+
+        EventLog.configure(toLevel(defaultLevel), levels, sampleRates, redacted, maxValueLength);
+    }
+
+    private EventLog.Level toLevel(String level) {
+        return EventLog.Level.valueOf(level.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,202 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.components;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.samskivert.mustache.Mustache;
+import com.samskivert.mustache.Template;
+
+import uga.menik.csx370.models.Post;
+import uga.menik.csx370.models.User;
+import uga.menik.csx370.services.OutboxEvent;
+import uga.menik.csx370.services.Projection;
+
+/**
+ * This component renders fragments/post.mustache for post lists and caches
+ * the parts of the HTML that are the same for every viewer.
+ * The "reposted by" line, the heart, bookmark and repost toggles and the
+ * delete button depend on the viewer. They are rendered separately from their own small partials
+ * and spliced into the cached HTML at the offsets where the shared render
+ * reached each partial, so nothing in a post can move the splice points.
+ * A cached entry is reused while the post's content, author and counters
+ * are unchanged.
+ * Deleted posts are evicted as their events come through the outbox, on
+ * every node.
+ */
+@Component
+public class PostFragmentCache implements Projection {
+
+    // Viewer specific partials of post.mustache, in the order they appear.
+    private static final String[] TOGGLES = {
+        "fragments/repost_attribution",
+        "fragments/heart_toggle",
+        "fragments/bookmark_toggle",
+        "fragments/repost_toggle",
+        "fragments/delete_toggle",
+    };
+
+    // Lambda that stands in for a toggle partial while rendering the shared HTML.
+    private static final String SLOT = "postFragmentCacheSlot";
+
+    // Post template rendered with markers instead of the toggles.
+    private final Template sharedTemplate;
+    // Toggle templates rendered for each viewer.
+    private final Template[] toggleTemplates;
+    // Property the post template expects from the page model.
+    private final AssetUrlLambda assetUrlLambda;
+    // Cached shared HTML by post id, split where the toggles go.
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    private final int maxEntries;
+
+    @Autowired
+    public PostFragmentCache(Mustache.Compiler compiler, Mustache.TemplateLoader templateLoader,
+            AssetUrlLambda assetUrlLambda,
+            @Value("${app.post-cache.max-entries:10000}") int maxEntries) throws Exception {
+        this.maxEntries = maxEntries;
+        this.assetUrlLambda = assetUrlLambda;
+
+        Mustache.Compiler sharedCompiler = compiler.withLoader(name -> {
+            for (String toggle : TOGGLES) {
+                if (toggle.equals(name)) return new StringReader("{{#" + SLOT + "}}{{/" + SLOT + "}}");
+            }
+            return templateLoader.getTemplate(name);
+        });
+        try (Reader post = templateLoader.getTemplate("fragments/post")) {
+            this.sharedTemplate = sharedCompiler.compile(post);
+        }
+
+        this.toggleTemplates = new Template[TOGGLES.length];
+        for (int i = 0; i < TOGGLES.length; i++) {
+            try (Reader toggle = templateLoader.getTemplate(TOGGLES[i])) {
+                toggleTemplates[i] = compiler.compile(toggle);
+            }
+        }
+    }
+
+    /**
+     * Renders each post of the list to HTML.
+     */
+    public List<String> render(List<? extends Post> posts) {
+        List<String> output = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            output.add(render(post));
+        }
+        return output;
+    }
+
+    /**
+     * Renders a post to HTML, reusing the cached shared HTML if possible.
+     */
+    public String render(Post post) {
+        long countersVersion = ((long) post.getHeartsCount() << 32) | post.getCommentsCount();
+
+        Entry entry = cache.get(post.getPostId());
+        if (entry == null || !entry.isFor(post, countersVersion)) {
+            entry = new Entry(post.getContent(), post.getCreatedAt(), post.getUser(), countersVersion,
+                    renderShared(post));
+            evictIfFull();
+            cache.put(post.getPostId(), entry);
+        }
+
+        String[] segments = entry.segments();
+        StringBuilder html = new StringBuilder(segments[0].length() * 2);
+        html.append(segments[0]);
+        for (int i = 0; i < toggleTemplates.length; i++) {
+            html.append(toggleTemplates[i].execute(post));
+            html.append(segments[i + 1]);
+        }
+        return html.toString();
+    }
+
+    /**
+     * Renders the HTML of a post that is the same for every viewer and
+     * cuts it where the toggles go.
+     */
+    private String[] renderShared(Post post) {
+        StringWriter shared = new StringWriter();
+        List<Integer> slots = new ArrayList<>(TOGGLES.length);
+        Mustache.Lambda slot = (frag, out) -> slots.add(shared.getBuffer().length());
+        sharedTemplate.execute(post, Map.of("asset", assetUrlLambda, SLOT, slot), shared);
+        if (slots.size() != TOGGLES.length) {
+            throw new IllegalStateException("fragments/post must include each toggle partial once.");
+        }
+
+        String html = shared.toString();
+        String[] segments = new String[TOGGLES.length + 1];
+        int start = 0;
+        for (int i = 0; i < TOGGLES.length; i++) {
+            segments[i] = html.substring(start, slots.get(i));
+            start = slots.get(i);
+        }
+        segments[TOGGLES.length] = html.substring(start);
+        return segments;
+    }
+
+    /**
+     * Drops the cached HTML of a post.
+     */
+    public void evict(String postId) {
+        cache.remove(postId);
+    }
+
+    @Override
+    public String getName() {
+        return "post-fragment-cache";
+    }
+
+    @Override
+    public void apply(Connection conn, List<OutboxEvent> events) {
+        for (OutboxEvent event : events) {
+            if (event.type() == OutboxEvent.Type.POST_DELETED) evict(event.aggregateId());
+        }
+    }
+
+    /**
+     * Keeps the cache bounded by dropping about a tenth of the entries
+     * once it is full. Popular posts are put back on their next render.
+     */
+    private void evictIfFull() {
+        if (cache.size() < maxEntries) return;
+        int toRemove = Math.max(1, maxEntries / 10);
+        Iterator<String> keys = cache.keySet().iterator();
+        while (toRemove-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    /**
+     * Shared HTML of a post and what it was rendered from. The fields are
+     * compared as they are since a hash of them could collide.
+     */
+    private record Entry(String content, long createdAt, User author, long countersVersion,
+            String[] segments) {
+
+        boolean isFor(Post post, long countersVersion) {
+            User user = post.getUser();
+            return this.countersVersion == countersVersion
+                    && createdAt == post.getCreatedAt()
+                    && content.equals(post.getContent())
+                    && (author == user || author.getId() == user.getId()
+                            && author.getFirstName().equals(user.getFirstName())
+                            && author.getLastName().equals(user.getLastName())
+                            && author.getProfileImagePath().equals(user.getProfileImagePath()));
+        }
+    }
+}
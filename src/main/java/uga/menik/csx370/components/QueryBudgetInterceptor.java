@@ -0,0 +1,126 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.components;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import uga.menik.csx370.utility.EventLog;
+
+/**
+ * This class tracks the database work done by each request.
+ * The number of statements, connection checkouts and the database time
+ * are added to the response as X-DB-* headers and written to the access
+ * log, along with the memory the request thread allocated. Requests
+ * over the configured budget and statements repeated within one request
+ * (a sign of N+1 queries) are flagged in the log.
+ * With app.db-budget.fail-on-exceed=true such requests fail instead,
+ * which is meant for integration test runs.
+ * See WebConfig.java for where this is registered.
+ */
+@Component
+public class QueryBudgetInterceptor implements AsyncHandlerInterceptor {
+
+    private final int maxStatements;
+    private final int repeatThreshold;
+    private final boolean failOnExceed;
+
+    @Autowired
+    public QueryBudgetInterceptor(
+            @Value("${app.db-budget.max-statements:10}") int maxStatements,
+            @Value("${app.db-budget.repeat-threshold:3}") int repeatThreshold,
+            @Value("${app.db-budget.fail-on-exceed:false}") boolean failOnExceed) {
+        this.maxStatements = maxStatements;
+        this.repeatThreshold = repeatThreshold;
+        this.failOnExceed = failOnExceed;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request,
+            HttpServletResponse response, Object handler) {
+        QueryTracker.start();
+        return true;
+    }
+
+    /**
+     * Runs after the controller and before the view is rendered,
+     * so the headers can still be set.
+     */
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response,
+            Object handler, ModelAndView modelAndView) {
+        QueryTracker.Stats stats = QueryTracker.current();
+        if (stats == null) return;
+
+        response.setHeader("X-DB-Statements", String.valueOf(stats.getStatements()));
+        response.setHeader("X-DB-Connections", String.valueOf(stats.getConnections()));
+        response.setHeader("X-DB-Time-Ms", String.valueOf(stats.getDbMillis()));
+
+        if (failOnExceed) {
+            String violation = getViolation(stats);
+            if (violation != null) {
+                throw new IllegalStateException("Database budget exceeded for "
+                        + request.getRequestURI() + ": " + violation);
+            }
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+            Object handler, Exception ex) {
+        QueryTracker.Stats stats = QueryTracker.current();
+        QueryTracker.stop();
+        if (stats == null) return;
+
+        String violation = getViolation(stats);
+        if (violation == null) {
+            EventLog.info("access", request.getMethod() + " " + request.getRequestURI(),
+                    "status", response.getStatus(), "ms", stats.getElapsedMillis(),
+                    "dbStatements", stats.getStatements(), "dbConnections", stats.getConnections(),
+                    "dbMs", stats.getDbMillis(), "allocatedKb", stats.getAllocatedBytes() / 1024);
+        } else {
+            EventLog.warn("access", request.getMethod() + " " + request.getRequestURI(),
+                    "status", response.getStatus(), "ms", stats.getElapsedMillis(),
+                    "dbStatements", stats.getStatements(), "dbConnections", stats.getConnections(),
+                    "dbMs", stats.getDbMillis(), "allocatedKb", stats.getAllocatedBytes() / 1024,
+                    "overBudget", violation);
+        }
+    }
+
+    /**
+     * Async requests such as the live feed leave the request thread here
+     * without calling postHandle or afterCompletion.
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request,
+            HttpServletResponse response, Object handler) {
+        QueryTracker.stop();
+    }
+
+    /**
+     * Describes how the request broke the budget, or returns null.
+     */
+    private String getViolation(QueryTracker.Stats stats) {
+        StringBuilder violation = new StringBuilder();
+        if (stats.getStatements() > maxStatements) {
+            violation.append(stats.getStatements()).append(" statements > ").append(maxStatements);
+        }
+        for (Map.Entry<String, Integer> repeated : stats.getRepeatedShapes(repeatThreshold).entrySet()) {
+            if (violation.length() > 0) violation.append("; ");
+            violation.append("repeated ").append(repeated.getValue())
+                    .append("x: ").append(repeated.getKey());
+        }
+        return violation.length() == 0 ? null : violation.toString();
+    }
+}
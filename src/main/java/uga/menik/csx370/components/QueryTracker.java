@@ -0,0 +1,136 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.components;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * This class keeps database statistics for the request being handled by
+ * the current thread. DataSourceTracker records into it and
+ * QueryBudgetInterceptor starts, reports and clears it.
+ * Work done outside of a request is not recorded.
+ */
+public final class QueryTracker {
+
+    private static final ThreadLocal<Stats> CURRENT = new ThreadLocal<>();
+
+    // Collapses whitespace so the same statement always has the same shape.
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    // Collapses IN lists of placeholders so (?, ?) and (?, ?, ?) have the same shape.
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+
+    // Counts the bytes allocated by each thread, if the JVM supports it.
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    private QueryTracker() {
+    }
+
+    /**
+     * Starts recording for the current thread.
+     */
+    public static Stats start() {
+        Stats stats = new Stats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    /**
+     * Returns the statistics of the current request or null.
+     */
+    public static Stats current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Stops recording for the current thread.
+     */
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    static void recordConnection() {
+        Stats stats = CURRENT.get();
+        if (stats != null) stats.connections++;
+    }
+
+    static void recordStatement(String sql, long nanos) {
+        Stats stats = CURRENT.get();
+        if (stats == null) return;
+        stats.statements++;
+        stats.dbNanos += nanos;
+        if (sql != null) stats.shapes.merge(shapeOf(sql), 1, Integer::sum);
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads;
+        }
+        return null;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    static String shapeOf(String sql) {
+        String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        return PLACEHOLDER_LIST.matcher(shape).replaceAll("(?)");
+    }
+
+    /**
+     * Database statistics of a single request.
+     */
+    public static final class Stats {
+        private final long startNanos = System.nanoTime();
+        private final long startAllocatedBytes = allocatedBytes();
+        private int statements;
+        private int connections;
+        private long dbNanos;
+        // Number of executions by statement shape.
+        private final Map<String, Integer> shapes = new HashMap<>();
+
+        public int getStatements() {
+            return statements;
+        }
+
+        public int getConnections() {
+            return connections;
+        }
+
+        public long getDbMillis() {
+            return dbNanos / 1_000_000;
+        }
+
+        public long getElapsedMillis() {
+            return (System.nanoTime() - startNanos) / 1_000_000;
+        }
+
+        /**
+         * Returns the bytes allocated by the request thread so far,
+         * including the rendering of the view once it is done.
+         * 0 if the JVM does not count allocations.
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes() - startAllocatedBytes;
+        }
+
+        /**
+         * Returns the statement shapes executed at least threshold times.
+         * These usually mean a query is run once per row of another query.
+         */
+        public Map<String, Integer> getRepeatedShapes(int threshold) {
+            Map<String, Integer> repeated = new HashMap<>();
+            shapes.forEach((shape, count) -> {
+                if (count >= threshold) repeated.put(shape, count);
+            });
+            return repeated;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.components;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import uga.menik.csx370.models.User;
+import uga.menik.csx370.services.UserService;
+import uga.menik.csx370.utility.EventLog;
+
+/**
+ * This class limits how often a user and an IP address can create posts,
+ * comment and toggle hearts, bookmarks and reposts. Each route has its own
+ * rate and burst (see app.rate-limit.* in application.properties).
+ * A request over the limit gets a plain 429 response before reaching the
+ * controller or the database.
+ * Buckets that have refilled completely are dropped every minute, so
+ * memory only grows with the number of recently active clients.
+ * See WebConfig.java for where this is registered.
+ */
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private static final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    // This service enables user services.
+    private final UserService userService;
+    private final List<Route> routes;
+
+    @Autowired
+    public RateLimitInterceptor(UserService userService,
+            @Value("${app.rate-limit.create-post.per-minute:6}") int postRate,
+            @Value("${app.rate-limit.create-post.burst:3}") int postBurst,
+            @Value("${app.rate-limit.comment.per-minute:20}") int commentRate,
+            @Value("${app.rate-limit.comment.burst:5}") int commentBurst,
+            @Value("${app.rate-limit.toggle.per-minute:120}") int toggleRate,
+            @Value("${app.rate-limit.toggle.burst:20}") int toggleBurst) {
+        this.userService = userService;
+        this.routes = List.of(
+                new Route("create-post", "/createpost", postRate, postBurst),
+                new Route("comment", "/post/*/comment", commentRate, commentBurst),
+                new Route("toggle", "/post/*/{type:heart|bookmark|repost}/*", toggleRate, toggleBurst));
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request,
+            HttpServletResponse response, Object handler) throws Exception {
+        Route route = getRoute(request.getRequestURI());
+        if (route == null) return true;
+
+        long now = System.nanoTime();
+        String ipKey = "ip:" + request.getRemoteAddr();
+        long waitNanos = route.acquire(ipKey, now);
+        if (waitNanos == 0) {
+            User user = userService.getLoggedInUser();
+            if (user != null) waitNanos = route.acquire("user:" + user.getUserId(), now);
+            // A rejected request does not count against the address.
+            if (waitNanos != 0) route.refund(ipKey);
+        }
+        if (waitNanos == 0) return true;
+
+        EventLog.warn("rate-limit", "Request rejected", "route", route.name,
+                "ip", request.getRemoteAddr(), "uri", request.getRequestURI());
+        response.setStatus(429);
+        response.setHeader("Retry-After", String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos))));
+        response.setContentType("text/plain");
+        response.getWriter().write("Too many requests. Please slow down.");
+        return false;
+    }
+
+    /**
+     * Drops the buckets that are full again, which is the same as
+     * not having a bucket.
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        for (Route route : routes) {
+            route.buckets.values().removeIf(bucket -> bucket.isFull(now));
+        }
+    }
+
+    private Route getRoute(String uri) {
+        for (Route route : routes) {
+            if (pathMatcher.match(route.pattern, uri)) return route;
+        }
+        return null;
+    }
+
+    /**
+     * A rate limited route and the buckets of its clients.
+     */
+    private static final class Route {
+        private final String name;
+        private final String pattern;
+        // Time it takes to refill one token.
+        private final long refillNanos;
+        // How far a bucket can be ahead of time when it is empty.
+        private final long burstNanos;
+        private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+        Route(String name, String pattern, int perMinute, int burst) {
+            this.name = name;
+            this.pattern = pattern;
+            this.refillNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(1, perMinute);
+            this.burstNanos = refillNanos * Math.max(1, burst);
+        }
+
+        /**
+         * Takes a token from the client's bucket. Returns 0 on success or
+         * how long the client has to wait for the next token.
+         */
+        long acquire(String key, long now) {
+            return buckets.computeIfAbsent(key, k -> new Bucket(now)).acquire(now, refillNanos, burstNanos);
+        }
+
+        /**
+         * Puts back a token taken by acquire.
+         */
+        void refund(String key) {
+            Bucket bucket = buckets.get(key);
+            if (bucket != null) bucket.refund(refillNanos);
+        }
+    }
+
+    /**
+     * A token bucket stored as the single time at which it will be full
+     * again. Taking a token moves that time forward by one refill period,
+     * and the bucket is empty when the time is a whole burst ahead of now.
+     * This needs one compare-and-set per request and no lock.
+     */
+    private static final class Bucket {
+        private final AtomicLong fullAt;
+
+        Bucket(long now) {
+            this.fullAt = new AtomicLong(now);
+        }
+
+        long acquire(long now, long refillNanos, long burstNanos) {
+            while (true) {
+                long current = fullAt.get();
+                long next = Math.max(current, now) + refillNanos;
+                if (next - now > burstNanos) return next - now - burstNanos;
+                if (fullAt.compareAndSet(current, next)) return 0;
+            }
+        }
+
+        void refund(long refillNanos) {
+            fullAt.addAndGet(-refillNanos);
+        }
+
+        boolean isFull(long now) {
+            return fullAt.get() - now <= 0;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.components;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import uga.menik.csx370.utility.EventLog;
+
+/**
+ * This component applies versioned schema migrations at startup.
+ * Migrations are SQL files in src/main/resources/db/migration named
+ * V{version}__{description}.sql. Each one is applied once, in version
+ * order, and recorded in the schema_version table together with a checksum
+ * so that edits to an already applied file are detected.
+ * Migrations are applied before the web server starts accepting requests.
+ * The in-memory storage engine has no schema, so this only exists with
+ * the jdbc one.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class SchemaMigrator implements InitializingBean {
+
+    // Where migration files are looked up.
+    private static final String LOCATION = "classpath*:db/migration/V*__*.sql";
+    // Extracts the version and description from a file name.
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+    // Named lock so that only one app node migrates at a time.
+    private static final String LOCK_NAME = "csx370_schema_migration";
+
+    private final DataSource dataSource;
+    private final boolean enabled;
+
+    @Autowired
+    public SchemaMigrator(DataSource dataSource,
+            @Value("${app.migrations.enabled:true}") boolean enabled) {
+        this.dataSource = dataSource;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Called by Spring Boot once this component is initialized.
+     */
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (enabled) migrate();
+    }
+
+    /**
+     * Applies all pending migrations.
+     * Fails if an applied migration has been changed since it was applied.
+     */
+    public void migrate() throws SQLException, IOException {
+        List<Migration> migrations = findMigrations();
+
+        try (Connection conn = dataSource.getConnection()) {
+            acquireLock(conn);
+            try {
+                createVersionTable(conn);
+                Map<Integer, Long> applied = getAppliedChecksums(conn);
+
+                for (Migration migration : migrations) {
+                    Long checksum = applied.get(migration.version());
+                    if (checksum == null) {
+                        apply(conn, migration);
+                    } else if (checksum != migration.checksum()) {
+                        throw new IllegalStateException("Migration V" + migration.version()
+                                + " was changed after it was applied.");
+                    }
+                }
+            } finally {
+                releaseLock(conn);
+            }
+        }
+    }
+
+    /**
+     * Loads migration files from the classpath sorted by version.
+     */
+    private List<Migration> findMigrations() throws IOException {
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources(LOCATION);
+        List<Migration> migrations = new ArrayList<>();
+
+        for (Resource resource : resources) {
+            Matcher matcher = FILE_NAME.matcher(resource.getFilename());
+            if (!matcher.matches()) continue;
+
+            String script;
+            try (InputStream in = resource.getInputStream()) {
+                script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(script.getBytes(StandardCharsets.UTF_8));
+
+            int version = Integer.parseInt(matcher.group(1));
+            String description = matcher.group(2).replace('_', ' ');
+            migrations.add(new Migration(version, description, script, crc.getValue()));
+        }
+
+        migrations.sort(Comparator.comparingInt(Migration::version));
+        return migrations;
+    }
+
+    private void createVersionTable(Connection conn) throws SQLException {
+        final String sql = """
+            create table if not exists schema_version (
+                version int not null,
+                description varchar(255) not null,
+                checksum bigint not null,
+                appliedAt datetime default current_timestamp,
+                primary key (version)
+            )
+        """;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    private Map<Integer, Long> getAppliedChecksums(Connection conn) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) {
+                applied.put(rs.getInt("version"), rs.getLong("checksum"));
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Runs each statement of a migration and records it as applied.
+     * Note: MySQL commits DDL implicitly so a migration that fails halfway
+     * has to be fixed by hand before restarting.
+     */
+    private void apply(Connection conn, Migration migration) throws SQLException {
+        EventLog.info("migration", "Applying schema migration",
+                "version", migration.version(), "description", migration.description());
+
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : splitStatements(migration.script())) {
+                stmt.execute(sql);
+            }
+        }
+
+        final String recordSql = "INSERT INTO schema_version (version, description, checksum) VALUES (?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(recordSql)) {
+            pstmt.setInt(1, migration.version());
+            pstmt.setString(2, migration.description());
+            pstmt.setLong(3, migration.checksum());
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Splits a script into statements on semicolons, dropping comment lines.
+     * Migrations should not use semicolons inside string literals.
+     */
+    static List<String> splitStatements(String script) {
+        StringBuilder withoutComments = new StringBuilder();
+        for (String line : script.split("\\R")) {
+            if (!line.trim().startsWith("--")) withoutComments.append(line).append('\n');
+        }
+        return Arrays.stream(withoutComments.toString().split(";"))
+                .map(String::trim)
+                .filter(sql -> !sql.isEmpty())
+                .toList();
+    }
+
+    private void acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT GET_LOCK(?, 60)")) {
+            pstmt.setString(1, LOCK_NAME);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for the schema migration lock.");
+                }
+            }
+        }
+    }
+
+    private void releaseLock(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.execute();
+        }
+    }
+
+    /**
+     * A single migration file.
+     */
+    private record Migration(int version, String description, String script, long checksum) {
+    }
+}
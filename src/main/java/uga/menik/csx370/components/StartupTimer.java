@@ -0,0 +1,58 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.components;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.aot.AotDetector;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+import uga.menik.csx370.utility.EventLog;
+
+/**
+ * This component logs how long the application took to start and to
+ * serve its first request, both counted from the start of the JVM.
+ * scripts/startup-check.sh reads these lines to compare a plain start
+ * with a start from the AOT-processed context and the class data
+ * sharing archive (see the fast-startup profile in pom.xml).
+ */
+@Component
+public class StartupTimer {
+
+    private final AtomicBoolean firstRequestSeen = new AtomicBoolean();
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent event) {
+        EventLog.info("startup", "Application ready",
+                "startupMs", ManagementFactory.getRuntimeMXBean().getUptime(),
+                "aot", AotDetector.useGeneratedArtifacts(),
+                "cds", isSharedArchiveInUse());
+    }
+
+    @EventListener
+    public void onRequestHandled(ServletRequestHandledEvent event) {
+        if (!firstRequestSeen.get() && firstRequestSeen.compareAndSet(false, true)) {
+            EventLog.info("startup", "First request served",
+                    "firstRequestMs", ManagementFactory.getRuntimeMXBean().getUptime(),
+                    "url", event.getRequestUrl());
+        }
+    }
+
+    /**
+     * Returns whether the JVM was started with a class data sharing
+     * archive of the application classes.
+     */
+    private static boolean isSharedArchiveInUse() {
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith("-XX:SharedArchiveFile=")) return true;
+        }
+        return false;
+    }
+}
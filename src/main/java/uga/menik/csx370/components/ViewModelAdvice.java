@@ -0,0 +1,66 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.components;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ModelAttribute;
+
+import uga.menik.csx370.models.User;
+import uga.menik.csx370.services.NotificationService;
+import uga.menik.csx370.services.UserService;
+
+/**
+ * This class adds properties that every page template can use
+ * to the model of all controllers.
+ */
+@ControllerAdvice
+public class ViewModelAdvice {
+
+    private final AssetUrlLambda assetUrlLambda;
+    private final UserService userService;
+    // Null with the in-memory storage engine, which has no notifications.
+    private final NotificationService notificationService;
+
+    @Autowired
+    public ViewModelAdvice(AssetUrlLambda assetUrlLambda, UserService userService,
+            ObjectProvider<NotificationService> notificationServiceProvider) {
+        this.assetUrlLambda = assetUrlLambda;
+        this.userService = userService;
+        this.notificationService = notificationServiceProvider.getIfAvailable();
+    }
+
+    /**
+     * Makes {{#asset}}...{{/asset}} available in templates.
+     */
+    @ModelAttribute("asset")
+    public AssetUrlLambda asset() {
+        return assetUrlLambda;
+    }
+
+    /**
+     * Adds the unread notification count for the badge in the top bar.
+     * The count comes from memory, see NotificationService.
+     */
+    @ModelAttribute
+    public void notificationBadge(Model model) {
+        User user = userService.getLoggedInUser();
+        int unread = user == null || notificationService == null ? 0
+                : notificationService.getUnreadCount(user.getUserId());
+        model.addAttribute("hasUnreadNotifications", unread > 0);
+        model.addAttribute("unreadNotifications", unread);
+    }
+
+    /**
+     * Adds whether the top bar shows links to admin pages.
+     */
+    @ModelAttribute("isAdmin")
+    public boolean isAdmin() {
+        return userService.isAdmin();
+    }
+}
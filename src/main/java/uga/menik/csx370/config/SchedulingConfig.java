@@ -0,0 +1,25 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * This configuration class enables @Scheduled background jobs
+ * such as post archiving in ArchiveService. They run on a pool of
+ * spring.task.scheduling.pool.size threads, one for each job, since
+ * jobs such as PurgeService and WriteSpool.replay can take seconds and
+ * OutboxService.dispatch must keep running every app.outbox.poll-ms.
+ * Tests that start the application turn them off with
+ * app.scheduling.enabled=false so that they do not touch the test schema.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "app.scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
@@ -5,12 +5,20 @@ This is a project developed by Dr. Menik to give the students an opportunity to
 */
 package uga.menik.csx370.config;
 
+import java.time.Duration;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
 
 import uga.menik.csx370.components.AuthInterceptor;
+import uga.menik.csx370.components.QueryBudgetInterceptor;
+import uga.menik.csx370.components.RateLimitInterceptor;
 
 /**
  * This is a configuration class. See comments in AuthInterceptor.java
@@ -21,14 +29,21 @@ public class WebConfig implements WebMvcConfigurer {
 
     // This is an object that allows redirection if user is logged in.
     private final AuthInterceptor authInterceptor;
+    // This reports the database work done by each request.
+    private final QueryBudgetInterceptor queryBudgetInterceptor;
+    // This limits how often clients can post, comment and toggle.
+    private final RateLimitInterceptor rateLimitInterceptor;
 
     /**
      * An AuthInterceptor will be initialized and provided
      * when a WebConfig is initalized by Spring Boot.
      */
     @Autowired
-    public WebConfig(AuthInterceptor authInterceptor) {
+    public WebConfig(AuthInterceptor authInterceptor, QueryBudgetInterceptor queryBudgetInterceptor,
+            RateLimitInterceptor rateLimitInterceptor) {
         this.authInterceptor = authInterceptor;
+        this.queryBudgetInterceptor = queryBudgetInterceptor;
+        this.rateLimitInterceptor = rateLimitInterceptor;
     }
 
     /**
@@ -37,6 +52,13 @@ public class WebConfig implements WebMvcConfigurer {
      */
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
+        // Registered first so that it sees all database work of the request.
+        registry.addInterceptor(queryBudgetInterceptor)
+                .addPathPatterns("/**")
+                .excludePathPatterns("/css/**")
+                .excludePathPatterns("/js/**")
+                .excludePathPatterns("/avatars/**");
+
         registry.addInterceptor(authInterceptor)
                 // Apply to all paths.
                 .addPathPatterns("/**")
@@ -44,7 +66,32 @@ public class WebConfig implements WebMvcConfigurer {
                 .excludePathPatterns("/login")
                 .excludePathPatterns("/register")
                 .excludePathPatterns("/css/**")
-                .excludePathPatterns("/js/**");
+                .excludePathPatterns("/js/**")
+                .excludePathPatterns("/avatars/**");
+
+        // Registered after auth so the logged in user is known.
+        registry.addInterceptor(rateLimitInterceptor)
+                .addPathPatterns("/createpost", "/post/*/comment")
+                .addPathPatterns("/post/*/heart/*", "/post/*/bookmark/*", "/post/*/repost/*");
+    }
+
+    /**
+     * This is where static assets get long lived caching.
+     * Asset URLs carry a hash of the file content (see AssetUrlLambda), so
+     * a changed file gets a new URL and the old one can be cached forever.
+     * The .gz files made at build time (see pom.xml) are served instead of
+     * the original when the browser accepts gzip.
+     */
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        for (String dir : new String[] { "css", "js", "avatars" }) {
+            registry.addResourceHandler("/" + dir + "/**")
+                    .addResourceLocations("classpath:/static/" + dir + "/")
+                    .setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                    .resourceChain(true)
+                    .addResolver(new EncodedResourceResolver())
+                    .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+        }
     }
 
 }
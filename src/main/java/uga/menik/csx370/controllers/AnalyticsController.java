@@ -0,0 +1,96 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.controllers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.ModelAndView;
+
+import uga.menik.csx370.models.ActivityRollup;
+import uga.menik.csx370.models.TagCount;
+import uga.menik.csx370.services.AnalyticsService;
+import uga.menik.csx370.services.UserService;
+import uga.menik.csx370.utility.EventLog;
+
+/**
+ * Handles /analytics, the activity dashboard for admins.
+ * The page only reads the rollups kept by AnalyticsService.
+ */
+@Controller
+@RequestMapping("/analytics")
+public class AnalyticsController {
+    private final UserService userService;
+    // Null with the in-memory storage engine, which has no analytics.
+    private final AnalyticsService analyticsService;
+    private final int hours;
+    private final int days;
+    private final int tagDays;
+    private final int tagLimit;
+
+    @Autowired
+    public AnalyticsController(UserService userService, ObjectProvider<AnalyticsService> analyticsServiceProvider,
+            @Value("${app.analytics.page.hours:24}") int hours,
+            @Value("${app.analytics.page.days:30}") int days,
+            @Value("${app.analytics.page.tag-days:7}") int tagDays,
+            @Value("${app.analytics.page.tags:10}") int tagLimit) {
+        this.userService = userService;
+        this.analyticsService = analyticsServiceProvider.getIfAvailable();
+        this.hours = hours;
+        this.days = days;
+        this.tagDays = tagDays;
+        this.tagLimit = tagLimit;
+    }
+
+    /**
+     * Serves the /analytics web page.
+     */
+    @GetMapping
+    public ModelAndView webpage() {
+        ModelAndView mv = new ModelAndView("analytics_page");
+
+        if (!userService.isAdmin()) {
+            mv.setStatus(HttpStatus.FORBIDDEN);
+            mv.addObject("errorMessage", "Only admins can see analytics.");
+            return mv;
+        }
+        if (analyticsService == null) {
+            mv.addObject("errorMessage", "Analytics are only kept with the jdbc storage engine.");
+            return mv;
+        }
+
+        List<ActivityRollup> daily = new ArrayList<>();
+        List<ActivityRollup> hourly = new ArrayList<>();
+        List<TagCount> topTags = new ArrayList<>();
+        String errorMessage = null;
+
+        try {
+            daily = analyticsService.getDailyActivity(days);
+            hourly = analyticsService.getHourlyActivity(hours);
+            topTags = analyticsService.getTopTags(tagDays, tagLimit);
+        } catch (Exception e) {
+            errorMessage = "Failed to load analytics. Please try again.";
+            EventLog.warn("analytics", "Failed to load analytics", "error", e);
+        }
+
+        mv.addObject("hasAnalytics", errorMessage == null);
+        mv.addObject("daily", daily);
+        mv.addObject("hourly", hourly);
+        mv.addObject("topTags", topTags);
+        mv.addObject("isNoTags", topTags.isEmpty());
+        mv.addObject("tagDays", tagDays);
+        mv.addObject("errorMessage", errorMessage);
+
+        return mv;
+    }
+}
@@ -14,11 +14,13 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.servlet.ModelAndView;
 
+import uga.menik.csx370.components.PostFragmentCache;
 import uga.menik.csx370.models.ExpandedPost;
 import uga.menik.csx370.models.Post;
 import uga.menik.csx370.utility.Utility;
 import uga.menik.csx370.models.User;
 import uga.menik.csx370.services.PostService;
+import uga.menik.csx370.utility.EventLog;
 import uga.menik.csx370.services.UserService;
 
 /**
@@ -33,11 +35,14 @@ import uga.menik.csx370.services.UserService;
 public class BookmarksController {
     private final PostService postService;
     private final UserService userService;
+    private final PostFragmentCache postFragmentCache;
 
     @Autowired
-    public BookmarksController(PostService postService, UserService userService) {
+    public BookmarksController(PostService postService, UserService userService,
+            PostFragmentCache postFragmentCache) {
         this.postService = postService;
         this.userService = userService;
+        this.postFragmentCache = postFragmentCache;
     }
 
     /**
@@ -61,10 +66,11 @@ public class BookmarksController {
             posts = postService.getBookmarkedPosts(loggedInUserId);
             // Set posts property to the list of posts.
             mv.addObject("posts", posts);
+            mv.addObject("renderedPosts", postFragmentCache.render(posts));
         } catch (Exception e) {
             // Set error message if there was an issue.
             errorMessage = "Failed to load bookmarked posts. Please try again.";
-            System.out.println("Failed to load bookmarked posts: " + e.getMessage());
+            EventLog.warn("bookmarks", "Failed to load bookmarked posts", "error", e);
         }
 
         // If no posts, show no content message.
@@ -15,11 +15,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.ModelAndView;
 
+import uga.menik.csx370.components.PostFragmentCache;
 import uga.menik.csx370.models.Post;
+import uga.menik.csx370.services.HashtagSuggestionService;
 import uga.menik.csx370.services.PostService;
 import uga.menik.csx370.services.UserService;
+import uga.menik.csx370.utility.EventLog;
+import uga.menik.csx370.utility.TextTokens;
 import uga.menik.csx370.utility.Utility;
 
 import org.springframework.web.bind.annotation.RequestParam;
@@ -34,11 +39,16 @@ public class HashtagSearchController {
     
     private final UserService userService;
     private final PostService postService;
+    private final PostFragmentCache postFragmentCache;
+    private final HashtagSuggestionService hashtagSuggestionService;
 
     @Autowired
-    public HashtagSearchController(UserService userService, PostService postService) {
+    public HashtagSearchController(UserService userService, PostService postService,
+            PostFragmentCache postFragmentCache, HashtagSuggestionService hashtagSuggestionService) {
         this.userService = userService;
         this.postService = postService;
+        this.postFragmentCache = postFragmentCache;
+        this.hashtagSuggestionService = hashtagSuggestionService;
     }
 
     /**
@@ -50,7 +60,7 @@ public class HashtagSearchController {
      */
     @GetMapping()
     public ModelAndView webpage(@RequestParam(name = "hashtags") String hashtags) {
-        System.out.println("User is searching: " + hashtags);
+        EventLog.debug("hashtag", "Searching hashtags", "hashtags", hashtags);
 
         ModelAndView mv = new ModelAndView("posts_page");
         List<Post> posts = new ArrayList<>();
@@ -62,35 +72,42 @@ public class HashtagSearchController {
                 return mv;
             }
 
-            // Normalizes input, splits hashtags, and adds them to list that will be passed as input function
-            String[] parts = hashtags.split("\\s+|,");
-            List<String> tags = new ArrayList<>();
-            for (String p : parts) {
-                if (p == null) continue; 
-                String t = p.trim();
-                if (t.startsWith("#")) t = t.substring(1);
-                t = t.toLowerCase();
-                if (!t.isEmpty() && !tags.contains(t) && postService.isHashtagInTable(t)) tags.add(t);
+            // The searched hashtags, normalized as posts store them. Hashtags that
+            // no post uses simply match nothing, so they are not looked up one by one.
+            List<String> tags = TextTokens.searchTerms(hashtags);
+            if (!tags.isEmpty()) {
+                String loggedInUserId = userService.getLoggedInUser().getUserId();
+                posts = postService.getPostsByHashtags(tags.toArray(new String[0]), loggedInUserId);
             }
 
-            // If user searched for empty hashtag --> "#"
-            if (tags.isEmpty()) {
+            // If user searched for empty hashtag --> "#", or for hashtags no post uses
+            if (posts.isEmpty()) {
                 mv.addObject("errorMessage", "No valid hashtags found in the search.");
                 mv.addObject("posts", posts);
                 mv.addObject("isNoContent", true);
                 return mv;
             }
-            
-            String loggedInUserId = userService.getLoggedInUser().getUserId();
-            posts = postService.getPostsByHashtags(tags.toArray(new String[0]), loggedInUserId);
+
             mv.addObject("posts", posts);
+            mv.addObject("renderedPosts", postFragmentCache.render(posts));
         } catch (Exception e) {
             // Display error on page if there was an issue.
             mv.addObject("errorMessage", "There was an error loading hashtag posts! Please try again.");
-            System.out.println("Error loading hashtag posts: " + e.getMessage());
+            EventLog.warn("hashtag", "Failed to load hashtag posts", "hashtags", hashtags, "error", e);
         }
 
         return mv;
     }
+
+    /**
+     * Returns hashtag suggestions as a JSON array for the typeahead in main.js.
+     * An example URL looks like below:
+     * http://localhost:8081/hashtagsearch/suggest?prefix=ja
+     */
+    @GetMapping("/suggest")
+    @ResponseBody
+    public List<String> suggest(@RequestParam(name = "prefix") String prefix) {
+        return hashtagSuggestionService.suggest(prefix);
+    }
     
 }
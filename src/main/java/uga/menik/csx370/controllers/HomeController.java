@@ -11,6 +11,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -19,9 +20,13 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.ModelAndView;
 
+import uga.menik.csx370.components.PostFragmentCache;
 import uga.menik.csx370.models.Post;
+import uga.menik.csx370.repositories.PostRepository.Page;
+import uga.menik.csx370.services.FeedRankingService;
 import uga.menik.csx370.services.PostService;
 import uga.menik.csx370.services.UserService;
+import uga.menik.csx370.utility.EventLog;
 
 /**
  * This controller handles the home page and some of it's sub URLs.
@@ -31,11 +36,17 @@ import uga.menik.csx370.services.UserService;
 public class HomeController {
     private final UserService userService;
     private final PostService postService;
+    private final PostFragmentCache postFragmentCache;
+    // Null with the in-memory storage engine, which only has the latest feed.
+    private final FeedRankingService feedRankingService;
 
     @Autowired
-    public HomeController(UserService userService, PostService postService) {
+    public HomeController(UserService userService, PostService postService,
+            PostFragmentCache postFragmentCache, ObjectProvider<FeedRankingService> feedRankingServiceProvider) {
         this.userService = userService;
         this.postService = postService;
+        this.postFragmentCache = postFragmentCache;
+        this.feedRankingService = feedRankingServiceProvider.getIfAvailable();
     }
     /**
      * This is the specific function that handles the root URL itself.
@@ -43,11 +54,19 @@ public class HomeController {
      * Note that this accepts a URL parameter called error.
      * The value to this parameter can be shown to the user as an error message.
      * See notes in HashtagSearchController.java regarding URL parameters.
+     * With feed=ranked the posts are ordered by FeedRankingService instead
+     * of newest first, if the storage engine keeps scores. Otherwise the
+     * parameter after is the cursor of the page to show.
      */
     @GetMapping
-    public ModelAndView webpage(@RequestParam(name = "error", required = false) String error) {
+    public ModelAndView webpage(@RequestParam(name = "error", required = false) String error,
+            @RequestParam(name = "feed", required = false) String feed,
+            @RequestParam(name = "after", required = false) String after) {
         // See notes on ModelAndView in BookmarksController.java.
         ModelAndView mv = new ModelAndView("home_page");
+        boolean isRanked = "ranked".equals(feed) && feedRankingService != null;
+        mv.addObject("hasRankedFeed", feedRankingService != null);
+        mv.addObject("isRankedFeed", isRanked);
 
         // The list of posts to show on the page.
         List<Post> posts = new ArrayList<>();
@@ -55,17 +74,22 @@ public class HomeController {
         String errorMessage = error;
         
         try {
-            // Get posts from followed users.
+            // Get posts from followed users and the user's own posts.
             final String loggedInUserId = userService.getLoggedInUser().getUserId();
-            posts = postService.getPostsFromFollowedUsers(loggedInUserId);
-            posts.addAll(postService.getPostsByUserId(loggedInUserId, loggedInUserId));
-
-            posts.sort((a, b) -> b.getPostDate().compareTo(a.getPostDate()));
+            if (isRanked) {
+                posts = postService.getPostsByIds(feedRankingService.getRankedPostIds(loggedInUserId),
+                        loggedInUserId);
+            } else {
+                Page page = postService.getHomeFeed(loggedInUserId, after);
+                posts = page.posts();
+                mv.addObject("nextPage", page.next());
+            }
             mv.addObject("posts", posts);
+            mv.addObject("renderedPosts", postFragmentCache.render(posts));
         } catch (SQLException e) {
             // Set error message if there was an issue.
             errorMessage = "Failed to load posts. Please try again.";
-            System.out.println("Failed to load posts: " + e.getMessage());
+            EventLog.warn("home", "Failed to load posts", "error", e);
         }
 
         // If error, set the error message property.
@@ -86,15 +110,21 @@ public class HomeController {
      */
     @PostMapping("/createpost")
     public String createPost(@RequestParam(name = "posttext") String postText) {
-        System.out.println("User is creating post: " + postText);
+        EventLog.debug("home", "Creating post", "content", postText);
 
         try {
-            postService.createPost(postText, userService.getLoggedInUser().getUserId());
+            String postId = postService.createPost(postText, userService.getLoggedInUser().getUserId());
+            if (postId == null) {
+                // The post was spooled and shows up once the database is back.
+                String message = URLEncoder.encode("Your post was saved and will appear shortly.",
+                        StandardCharsets.UTF_8);
+                return "redirect:/?error=" + message;
+            }
             // Redirect the user if the post creation is a success.
             return "redirect:/";
         } catch (SQLException error) {
             // Redirect the user with an error message if there was an issue.
-            System.out.println("Error creating post: " + error.getMessage());
+            EventLog.warn("home", "Failed to create post", "error", error);
             String message = URLEncoder.encode("Failed to create the post. Please try again.",
                     StandardCharsets.UTF_8);
             return "redirect:/?error=" + message;
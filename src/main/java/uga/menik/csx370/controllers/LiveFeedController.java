@@ -0,0 +1,44 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import uga.menik.csx370.services.LiveFeedService;
+import uga.menik.csx370.services.UserService;
+
+/**
+ * This controller handles the /live URL.
+ * The home page opens it with an EventSource (see main.js) and
+ * receives new posts from followed users as they are created.
+ */
+@Controller
+public class LiveFeedController {
+
+    private final UserService userService;
+    private final LiveFeedService liveFeedService;
+
+    @Autowired
+    public LiveFeedController(UserService userService, LiveFeedService liveFeedService) {
+        this.userService = userService;
+        this.liveFeedService = liveFeedService;
+    }
+
+    /**
+     * Returning an SseEmitter keeps the response open after this method
+     * returns and frees the request thread.
+     */
+    @GetMapping(path = "/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter liveFeed() {
+        return liveFeedService.subscribe(userService.getLoggedInUser().getUserId());
+    }
+}
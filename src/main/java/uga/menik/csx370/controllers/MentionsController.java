@@ -0,0 +1,66 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.controllers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.ModelAndView;
+
+import uga.menik.csx370.components.PostFragmentCache;
+import uga.menik.csx370.models.Post;
+import uga.menik.csx370.services.PostService;
+import uga.menik.csx370.services.UserService;
+import uga.menik.csx370.utility.EventLog;
+
+/**
+ * Handles /mentions, the posts that mention the logged in user.
+ */
+@Controller
+@RequestMapping("/mentions")
+public class MentionsController {
+    private final PostService postService;
+    private final UserService userService;
+    private final PostFragmentCache postFragmentCache;
+
+    @Autowired
+    public MentionsController(PostService postService, UserService userService,
+            PostFragmentCache postFragmentCache) {
+        this.postService = postService;
+        this.userService = userService;
+        this.postFragmentCache = postFragmentCache;
+    }
+
+    /**
+     * /mentions URL itself is handled by this.
+     */
+    @GetMapping
+    public ModelAndView webpage() {
+        ModelAndView mv = new ModelAndView("posts_page");
+        List<Post> posts = new ArrayList<>();
+        String errorMessage = null;
+
+        try {
+            String loggedInUserId = userService.getLoggedInUser().getUserId();
+            posts = postService.getMentioningPosts(loggedInUserId);
+            mv.addObject("posts", posts);
+            mv.addObject("renderedPosts", postFragmentCache.render(posts));
+        } catch (Exception e) {
+            errorMessage = "Failed to load mentions. Please try again.";
+            EventLog.warn("mentions", "Failed to load mentions", "error", e);
+        }
+
+        mv.addObject("isNoContent", posts.isEmpty());
+        mv.addObject("errorMessage", errorMessage);
+
+        return mv;
+    }
+
+}
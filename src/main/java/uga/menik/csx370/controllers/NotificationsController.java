@@ -0,0 +1,77 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.controllers;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.ModelAndView;
+
+import uga.menik.csx370.models.Notification;
+import uga.menik.csx370.services.NotificationService;
+import uga.menik.csx370.services.UserService;
+import uga.menik.csx370.utility.EventLog;
+
+/**
+ * Handles /notifications URL.
+ * Opening the page marks the notifications of the user as read.
+ */
+@Controller
+@RequestMapping("/notifications")
+public class NotificationsController {
+    private final UserService userService;
+    // Null with the in-memory storage engine, which has no notifications.
+    private final NotificationService notificationService;
+
+    @Autowired
+    public NotificationsController(UserService userService,
+            ObjectProvider<NotificationService> notificationServiceProvider) {
+        this.userService = userService;
+        this.notificationService = notificationServiceProvider.getIfAvailable();
+    }
+
+    /**
+     * Serves the /notifications web page.
+     */
+    @GetMapping
+    public ModelAndView webpage() {
+        ModelAndView mv = new ModelAndView("notifications_page");
+
+        if (notificationService == null) {
+            mv.addObject("errorMessage", "Notifications are only kept with the jdbc storage engine.");
+            mv.addObject("isNoContent", true);
+            return mv;
+        }
+
+        // The list of notifications to show on the page.
+        List<Notification> notifications = new ArrayList<>();
+        // Error message to show to the user if any.
+        String errorMessage = null;
+
+        try {
+            String loggedInUserId = userService.getLoggedInUser().getUserId();
+            notifications = notificationService.getNotifications(loggedInUserId);
+            notificationService.markAllRead(loggedInUserId);
+        } catch (SQLException e) {
+            errorMessage = "Failed to load notifications. Please try again.";
+            EventLog.warn("notifications", "Failed to load notifications", "error", e);
+        }
+
+        mv.addObject("notifications", notifications);
+        mv.addObject("errorMessage", errorMessage);
+        mv.addObject("isNoContent", notifications.isEmpty());
+        // The notifications are read now, so the badge goes away.
+        mv.addObject("hasUnreadNotifications", false);
+
+        return mv;
+    }
+}
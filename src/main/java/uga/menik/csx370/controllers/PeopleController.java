@@ -22,6 +22,7 @@ import org.springframework.web.servlet.ModelAndView;
 import uga.menik.csx370.models.FollowableUser;
 import uga.menik.csx370.services.PeopleService;
 import uga.menik.csx370.services.UserService;
+import uga.menik.csx370.utility.EventLog;
 
 /**
  * Handles /people URL and its sub URL paths.
@@ -62,7 +63,7 @@ public class PeopleController {
             String loggedInUserId = userService.getLoggedInUser().getUserId();
             followableUsers = peopleService.getFollowableUsers(loggedInUserId);
         } catch (SQLException e) {
-            System.out.println("Failed to load users: " + e.getMessage());
+            EventLog.warn("people", "Failed to load users", "error", e);
             errorMessage = "Failed to load users. Please try again.";
         }
 
@@ -86,9 +87,7 @@ public class PeopleController {
     @GetMapping("{userId}/follow/{isFollow}")
     public String followUnfollowUser(@PathVariable("userId") String userId,
             @PathVariable("isFollow") Boolean isFollow) {
-        System.out.println("User is attempting to follow/unfollow a user:");
-        System.out.println("\tuserId: " + userId);
-        System.out.println("\tisFollow: " + isFollow);
+        EventLog.debug("people", "Toggling follow", "userId", userId, "isFollow", isFollow);
 
         try {
             // Get logged in user's id.
@@ -107,7 +106,7 @@ public class PeopleController {
         } catch (SQLException e) {
             // Redirect the user with an error message if there was an issue.
             String message = URLEncoder.encode("Failed to (un)follow the user. Please try again.", StandardCharsets.UTF_8);
-            System.out.println("Error (un)following user: " + e.getMessage());
+            EventLog.warn("people", "Failed to (un)follow user", "userId", userId, "error", e);
             return "redirect:/people?error=" + message;
         }
     }
@@ -12,6 +12,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -23,6 +24,7 @@ import org.springframework.web.servlet.ModelAndView;
 import uga.menik.csx370.models.ExpandedPost;
 import uga.menik.csx370.services.PostService;
 import uga.menik.csx370.services.UserService;
+import uga.menik.csx370.utility.EventLog;
 
 /**
  * Handles /post URL and its sub urls.
@@ -51,7 +53,7 @@ public class PostController {
     @GetMapping("/{postId}")
     public ModelAndView webpage(@PathVariable("postId") String postId,
             @RequestParam(name = "error", required = false) String error) {
-        System.out.println("The user is attempting to view post with id: " + postId);
+        EventLog.debug("post", "Viewing post", "postId", postId);
         // See notes on ModelAndView in BookmarksController.java.
         ModelAndView mv = new ModelAndView("posts_page");
 
@@ -67,7 +69,7 @@ public class PostController {
         } catch (SQLException e) {
             // Display error on page if there was an issue.
             errorMessage = "Failed to load the requested post. Please try again.";
-            System.out.println("Error loading posts: " + e.getMessage());
+            EventLog.warn("post", "Failed to load post", "postId", postId, "error", e);
         }
 
         // If no posts, show no content message.
@@ -83,29 +85,101 @@ public class PostController {
      * See comments on webpage function to see how path variables work here.
      * This function handles form posts.
      * See comments in HomeController.java regarding form submissions.
+     * Replies to a comment have the id of that comment in parentId.
      */
     @PostMapping("/{postId}/comment")
     public String postComment(@PathVariable("postId") String postId,
-            @RequestParam(name = "comment") String comment) {
-        System.out.println("The user is attempting add a comment:");
-        System.out.println("\tpostId: " + postId);
-        System.out.println("\tcomment: " + comment);
+            @RequestParam(name = "comment") String comment,
+            @RequestParam(name = "parentId", required = false) String parentId) {
+        EventLog.debug("post", "Adding comment", "postId", postId, "parentId", parentId, "comment", comment);
 
         try {
             String loggedInUserId = userService.getLoggedInUser().getUserId();
-            postService.addComment(postId, loggedInUserId, comment);
+            if (!postService.addComment(postId, loggedInUserId, comment, parentId)) {
+                // The comment was spooled and shows up once the database is back.
+                String message = URLEncoder.encode("Your comment was saved and will appear shortly.",
+                        StandardCharsets.UTF_8);
+                return "redirect:/post/" + postId + "?error=" + message;
+            }
             // Redirect the user if the comment adding is a success.
             return "redirect:/post/" + postId;
         } catch (SQLException e) {
             // Redirect the user with an error message if there was an error.
             String message = URLEncoder.encode("Failed to post the comment. Please try again.",
                     StandardCharsets.UTF_8);
-            System.out.println("Error loading posts: " + e.getMessage());
+            EventLog.warn("post", "Failed to add comment", "postId", postId, "error", e);
             return "redirect:/post/" + postId + "?error=" + message;
         }
     }
     
 
+    /**
+     * Serves the replies below a comment that were not shown on the post
+     * page. The response is the comments_container fragment, which the
+     * "show replies" button in main.js inserts below the comment.
+     */
+    @GetMapping("/comments/{commentId}/replies")
+    public ModelAndView commentReplies(@PathVariable("commentId") String commentId) {
+        EventLog.debug("post", "Loading replies", "commentId", commentId);
+        ModelAndView mv = new ModelAndView("fragments/comments_container");
+        mv.addObject("isReplies", true);
+
+        try {
+            String loggedInUserId = userService.getLoggedInUser().getUserId();
+            mv.addObject("comments", postService.getCommentReplies(commentId, loggedInUserId));
+        } catch (SQLException e) {
+            EventLog.warn("post", "Failed to load replies", "commentId", commentId, "error", e);
+            mv.setStatus(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        return mv;
+    }
+
+    /**
+     * Handles deleting a post by its author.
+     * The post disappears right away. See PostService.deletePost.
+     */
+    @PostMapping("/{postId}/delete")
+    public String deletePost(@PathVariable("postId") String postId) {
+        EventLog.debug("post", "Deleting post", "postId", postId);
+
+        try {
+            String loggedInUserId = userService.getLoggedInUser().getUserId();
+            if (postService.deletePost(postId, loggedInUserId)) {
+                return "redirect:/";
+            }
+            String message = URLEncoder.encode("You can only delete your own posts.", StandardCharsets.UTF_8);
+            return "redirect:/post/" + postId + "?error=" + message;
+        } catch (SQLException e) {
+            String message = URLEncoder.encode("Failed to delete the post. Please try again.",
+                    StandardCharsets.UTF_8);
+            EventLog.warn("post", "Failed to delete post", "postId", postId, "error", e);
+            return "redirect:/post/" + postId + "?error=" + message;
+        }
+    }
+
+    /**
+     * Handles deleting a comment by its author or the author of the post.
+     */
+    @PostMapping("/comments/{commentId}/delete")
+    public String deleteComment(@PathVariable("commentId") String commentId) {
+        EventLog.debug("post", "Deleting comment", "commentId", commentId);
+
+        try {
+            String loggedInUserId = userService.getLoggedInUser().getUserId();
+            String postId = postService.deleteComment(commentId, loggedInUserId);
+            if (postId != null) {
+                return "redirect:/post/" + postId;
+            }
+            String message = URLEncoder.encode("The comment could not be deleted.", StandardCharsets.UTF_8);
+            return "redirect:/?error=" + message;
+        } catch (SQLException e) {
+            String message = URLEncoder.encode("Failed to delete the comment. Please try again.",
+                    StandardCharsets.UTF_8);
+            EventLog.warn("post", "Failed to delete comment", "commentId", commentId, "error", e);
+            return "redirect:/?error=" + message;
+        }
+    }
+
     /**
      * Handles likes added on posts.
      * See comments on webpage function to see how path variables work here.
@@ -115,9 +189,7 @@ public class PostController {
     @GetMapping("/{postId}/heart/{isAdd}")
     public String addOrRemoveHeart(@PathVariable("postId") String postId,
             @PathVariable("isAdd") Boolean isAdd) {
-        System.out.println("The user is attempting add or remove a heart:");
-        System.out.println("\tpostId: " + postId);
-        System.out.println("\tisAdd: " + isAdd);
+        EventLog.debug("post", "Toggling heart", "postId", postId, "isAdd", isAdd);
 
         try {
             String loggedInUserId = userService.getLoggedInUser().getUserId();
@@ -128,9 +200,8 @@ public class PostController {
             // Redirect the user if liking is a success.
             return "redirect:/post/" + postId;
         } catch (Exception e) {
-            e.printStackTrace();
             String message = URLEncoder.encode("Failed to (un)like the post. Please try again.", StandardCharsets.UTF_8);
-            System.out.println("Error (un)liking post: " + e.getMessage());
+            EventLog.warn("post", "Failed to (un)like post", "postId", postId, "error", e);
             return "redirect:/post/" + postId + "?error=" + message;
         }
     }
@@ -144,9 +215,7 @@ public class PostController {
     @GetMapping("/{postId}/bookmark/{isAdd}")
     public String addOrRemoveBookmark(@PathVariable("postId") String postId,
             @PathVariable("isAdd") Boolean isAdd) {
-        System.out.println("The user is attempting add or remove a bookmark:");
-        System.out.println("\tpostId: " + postId);
-        System.out.println("\tisAdd: " + isAdd);
+        EventLog.debug("post", "Toggling bookmark", "postId", postId, "isAdd", isAdd);
 
         try {
             final String loggedInUserId = userService.getLoggedInUser().getUserId();
@@ -158,7 +227,7 @@ public class PostController {
             return "redirect:/post/" + postId;
         } catch (SQLException e) {
             String message = URLEncoder.encode("Failed to (un)bookmark the post. Please try again. ", StandardCharsets.UTF_8);
-            System.out.println("Error (un)bookmarking post: " + e.getMessage());
+            EventLog.warn("post", "Failed to (un)bookmark post", "postId", postId, "error", e);
             return "redirect:/post/" + postId + "?error=" + message;
         }
     }
@@ -166,9 +235,7 @@ public class PostController {
      @GetMapping("/{postId}/repost/{isAdd}")
      public String addOrRemoveRepost(@PathVariable("postId") String postId,
             @PathVariable("isAdd") Boolean isAdd) {
-        System.out.println("The user is attempting add or remove a repost:");
-        System.out.println("\tpostId: " + postId);
-        System.out.println("\tisAdd: " + isAdd);
+        EventLog.debug("post", "Toggling repost", "postId", postId, "isAdd", isAdd);
         try {
             final String loggedInUserId = userService.getLoggedInUser().getUserId();
 
@@ -177,7 +244,7 @@ public class PostController {
 
         } catch (Exception e) {
             String message = URLEncoder.encode("Failed to (un)repost the post. Please try again.", StandardCharsets.UTF_8);
-            System.out.println("Error (un)reposting post: " + e.getMessage());
+            EventLog.warn("post", "Failed to (un)repost post", "postId", postId, "error", e);
             return "redirect:/post/" + postId + "?error=" + message;
         }
 
@@ -14,11 +14,15 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.ModelAndView;
 
+import uga.menik.csx370.components.PostFragmentCache;
 import uga.menik.csx370.models.Post;
+import uga.menik.csx370.repositories.PostRepository.Page;
 import uga.menik.csx370.services.PostService;
 import uga.menik.csx370.services.UserService;
+import uga.menik.csx370.utility.EventLog;
 
 /**
  * Handles /profile URL and its sub URLs.
@@ -30,15 +34,18 @@ public class ProfileController {
     // UserService has user login and registration related functions.
     private final UserService userService;
     private final PostService postService;
+    private final PostFragmentCache postFragmentCache;
 
     /**
      * See notes in AuthInterceptor.java regarding how this works 
      * through dependency injection and inversion of control.
      */
     @Autowired
-    public ProfileController(UserService userService, PostService postService) {
+    public ProfileController(UserService userService, PostService postService,
+            PostFragmentCache postFragmentCache) {
         this.userService = userService;
         this.postService = postService;
+        this.postFragmentCache = postFragmentCache;
     }
 
     /**
@@ -46,10 +53,10 @@ public class ProfileController {
      * This serves the webpage that shows posts of the logged in user.
      */
     @GetMapping
-    public ModelAndView profileOfLoggedInUser() {
-        System.out.println("User is attempting to view profile of the logged in user.");
+    public ModelAndView profileOfLoggedInUser(@RequestParam(name = "after", required = false) String after) {
+        EventLog.debug("profile", "Viewing own profile");
         final String loggedInUserId = userService.getLoggedInUser().getUserId();
-        return profileOfSpecificUser(loggedInUserId);
+        return profileOfSpecificUser(loggedInUserId, after);
     }
 
     /**
@@ -57,10 +64,13 @@ public class ProfileController {
      * This serves the webpage that shows posts of a speific user given by userId.
      * See comments in PeopleController.java in followUnfollowUser function regarding 
      * how path variables work.
+     * The page shows app.posts.page-size posts. The "after" URL parameter
+     * is the cursor of the previous page, see PostRepository.Cursor.
      */
     @GetMapping("/{userId}")
-    public ModelAndView profileOfSpecificUser(@PathVariable("userId") String userId) {
-        System.out.println("User is attempting to view profile: " + userId);
+    public ModelAndView profileOfSpecificUser(@PathVariable("userId") String userId,
+            @RequestParam(name = "after", required = false) String after) {
+        EventLog.debug("profile", "Viewing profile", "userId", userId);
         
         ModelAndView mv = new ModelAndView("posts_page");
 
@@ -70,12 +80,15 @@ public class ProfileController {
         try {
             // Get posts by the given user.
             var loggedInUserId = userService.getLoggedInUser().getUserId();
-            posts = postService.getPostsByUserId(userId, loggedInUserId);
+            Page page = postService.getPostsByUserId(userId, loggedInUserId, after);
+            posts = page.posts();
             mv.addObject("posts", posts);
+            mv.addObject("nextPage", page.next());
+            mv.addObject("renderedPosts", postFragmentCache.render(posts));
         } catch (SQLException e) {
             // Display error on page if there was an issue.
             mv.addObject("errorMessage", "There was an error loading profile posts! Please try again.");
-            System.out.println("Error loading profile posts: " + e.getMessage());
+            EventLog.warn("profile", "Failed to load profile posts", "userId", userId, "error", e);
         }
 
         // If no posts, show no content message.
@@ -0,0 +1,81 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.models;
+
+/**
+ * Represents the activity of one hour or day on the analytics page.
+ */
+public class ActivityRollup {
+
+    /**
+     * The hour or day, formatted for display.
+     */
+    private final String period;
+
+    /**
+     * The number of posts created.
+     */
+    private final int posts;
+
+    /**
+     * The number of likes given, less those taken back.
+     */
+    private final int likes;
+
+    /**
+     * The number of comments added.
+     */
+    private final int comments;
+
+    /**
+     * The number of users who posted, or -1 if not known for the period.
+     */
+    private final int activePosters;
+
+    /**
+     * Constructs an ActivityRollup with specified details.
+     *
+     * @param period        the hour or day, formatted for display
+     * @param posts         the number of posts created
+     * @param likes         the net number of likes given
+     * @param comments      the number of comments added
+     * @param activePosters the number of users who posted, or -1
+     */
+    public ActivityRollup(String period, int posts, int likes, int comments, int activePosters) {
+        this.period = period;
+        this.posts = posts;
+        this.likes = likes;
+        this.comments = comments;
+        this.activePosters = activePosters;
+    }
+
+    public String getPeriod() {
+        return period;
+    }
+
+    public int getPosts() {
+        return posts;
+    }
+
+    public int getLikes() {
+        return likes;
+    }
+
+    public int getComments() {
+        return comments;
+    }
+
+    public int getActivePosters() {
+        return activePosters;
+    }
+
+    /**
+     * Returns whether the number of users who posted is known.
+     */
+    public boolean hasActivePosters() {
+        return activePosters >= 0;
+    }
+}
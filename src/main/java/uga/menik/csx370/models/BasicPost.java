@@ -5,6 +5,8 @@ This is a project developed by Dr. Menik to give the students an opportunity to
 */
 package uga.menik.csx370.models;
 
+import uga.menik.csx370.utility.Dates;
+
 /**
  * Represents the basic structure of a post in the micro blogging platform.
  * This class serves as a base for both posts and comments.
@@ -14,7 +16,7 @@ public class BasicPost {
     /**
      * Unique identifier for the post.
      */
-    private final String postId;
+    private final long postId;
 
     /**
      * Text content of the post.
@@ -22,9 +24,10 @@ public class BasicPost {
     private final String content;
 
     /**
-     * Date when the post was created.
+     * When the post was created, in epoch milliseconds. Formatted only
+     * when the date is shown.
      */
-    private final String postDate;
+    private final long createdAt;
 
     /**
      * User who created the post.
@@ -36,13 +39,13 @@ public class BasicPost {
      *
      * @param postId     the unique identifier of the post
      * @param content    the text content of the post
-     * @param postDate   the creation date of the post
+     * @param createdAt  when the post was created, in epoch milliseconds
      * @param user       the user who created the post
      */
-    public BasicPost(String postId, String content, String postDate, User user) {
+    public BasicPost(long postId, String content, long createdAt, User user) {
         this.postId = postId;
         this.content = content;
-        this.postDate = postDate;
+        this.createdAt = createdAt;
         this.user = user;
     }
 
@@ -52,6 +55,15 @@ public class BasicPost {
      * @return the post ID
      */
     public String getPostId() {
+        return Long.toString(postId);
+    }
+
+    /**
+     * Returns the post ID as a number.
+     *
+     * @return the post ID
+     */
+    public long getId() {
         return postId;
     }
 
@@ -70,7 +82,16 @@ public class BasicPost {
      * @return the post creation date
      */
     public String getPostDate() {
-        return postDate;
+        return Dates.format(createdAt);
+    }
+
+    /**
+     * Returns when the post was created.
+     *
+     * @return the creation time in epoch milliseconds
+     */
+    public long getCreatedAt() {
+        return createdAt;
     }
 
     /**
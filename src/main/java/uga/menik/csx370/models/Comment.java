@@ -7,19 +7,111 @@ package uga.menik.csx370.models;
 
 /**
  * Represents a comment made by a user.
- * Inherits all properties from BasicPost without adding new fields.
+ * Inherits all properties from BasicPost.
  */
 public class Comment extends BasicPost {
 
+    /**
+     * Flag indicating whether the current user may delete the comment.
+     */
+    private final boolean isDeletable;
+
+    /**
+     * Identifier of the post the comment was made on.
+     */
+    private final long threadPostId;
+
+    /**
+     * How many replies deep the comment is. Comments on the post itself are 0.
+     */
+    private final int depth;
+
+    /**
+     * Number of replies below the comment that were not loaded.
+     */
+    private final int hiddenReplies;
+
     /**
      * Constructs a Comment with specified details, leveraging the BasicPost structure.
      *
      * @param postId     the unique identifier of the comment
      * @param content    the text content of the comment
-     * @param postDate   the creation date of the comment
+     * @param createdAt  when the comment was made, in epoch milliseconds
      * @param user       the user who made the comment
      */
-    public Comment(String postId, String content, String postDate, User user) {
-        super(postId, content, postDate, user);
+    public Comment(long postId, String content, long createdAt, User user) {
+        this(postId, content, createdAt, user, false);
+    }
+
+    /**
+     * Constructs a Comment that the current user may be allowed to delete.
+     *
+     * @param isDeletable whether the current user may delete the comment
+     * @see #Comment(long, String, long, User)
+     */
+    public Comment(long postId, String content, long createdAt, User user, boolean isDeletable) {
+        this(postId, content, createdAt, user, isDeletable, 0, 0, 0);
+    }
+
+    /**
+     * Constructs a Comment that is part of a thread of replies.
+     *
+     * @param threadPostId  the identifier of the post the comment was made on, or 0
+     * @param depth         how many replies deep the comment is
+     * @param hiddenReplies the number of replies below the comment that were not loaded
+     * @see #Comment(long, String, long, User, boolean)
+     */
+    public Comment(long postId, String content, long createdAt, User user, boolean isDeletable,
+            long threadPostId, int depth, int hiddenReplies) {
+        super(postId, content, createdAt, user);
+        this.isDeletable = isDeletable;
+        this.threadPostId = threadPostId;
+        this.depth = depth;
+        this.hiddenReplies = hiddenReplies;
+    }
+
+    /**
+     * Returns whether the current user may delete the comment.
+     *
+     * @return true if the current user wrote the comment or the post
+     */
+    public boolean isDeletable() {
+        return isDeletable;
+    }
+
+    /**
+     * Returns the identifier of the post the comment was made on.
+     *
+     * @return the post id, or null if the comment cannot be replied to
+     */
+    public String getThreadPostId() {
+        return threadPostId == 0 ? null : Long.toString(threadPostId);
+    }
+
+    /**
+     * Returns how many replies deep the comment is.
+     *
+     * @return 0 for comments on the post itself
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the number of replies below the comment that were not loaded.
+     *
+     * @return the number of hidden replies
+     */
+    public int getHiddenReplies() {
+        return hiddenReplies;
+    }
+
+    /**
+     * Returns whether there are replies below the comment that were not loaded.
+     *
+     * @return true if the replies can be loaded with "show replies"
+     */
+    public boolean hasHiddenReplies() {
+        return hiddenReplies > 0;
     }
 }
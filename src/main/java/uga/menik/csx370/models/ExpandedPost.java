@@ -23,7 +23,7 @@ public class ExpandedPost extends Post {
      *
      * @param postId        the unique identifier of the post
      * @param content       the text content of the post
-     * @param postDate      the creation date of the post
+     * @param createdAt     when the post was created, in epoch milliseconds
      * @param user          the user who created the post
      * @param heartsCount   the number of hearts (likes) the post has received
      * @param commentsCount the number of comments made on the post
@@ -32,8 +32,18 @@ public class ExpandedPost extends Post {
      * @param isReposted      indicates whether the post is a repost
      * @param comments      the list of comments made on the post
      */
-    public ExpandedPost(String postId, String content, String postDate, User user, int heartsCount, int commentsCount, boolean isHearted, boolean isBookmarked, boolean isReposted, List<Comment> comments) {
-        super(postId, content, postDate, user, heartsCount, commentsCount, isHearted, isBookmarked, isReposted); // IS REPOST ADDED
+    public ExpandedPost(long postId, String content, long createdAt, User user, int heartsCount, int commentsCount, boolean isHearted, boolean isBookmarked, boolean isReposted, List<Comment> comments) {
+        this(postId, content, createdAt, user, heartsCount, commentsCount, isHearted, isBookmarked, isReposted, false, comments);
+    }
+
+    /**
+     * Constructs an ExpandedPost that the current user may be allowed to delete.
+     *
+     * @param isDeletable   indicates whether the current user may delete the post
+     * @see #ExpandedPost(long, String, long, User, int, int, boolean, boolean, boolean, List)
+     */
+    public ExpandedPost(long postId, String content, long createdAt, User user, int heartsCount, int commentsCount, boolean isHearted, boolean isBookmarked, boolean isReposted, boolean isDeletable, List<Comment> comments) {
+        super(postId, content, createdAt, user, heartsCount, commentsCount, isHearted, isBookmarked, isReposted, isDeletable);
         this.comments = comments;
         this.isShowComents = true;
     }
@@ -0,0 +1,56 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.models;
+
+/**
+ * Represents a post in the home feed. A post that followed users reposted
+ * shows the latest of them and how many others reposted it.
+ */
+public class FeedPost extends Post {
+
+    /**
+     * The followed user who reposted the post last, or null.
+     */
+    private final User repostedBy;
+
+    /**
+     * The number of followed users who reposted the post.
+     */
+    private final int repostCount;
+
+    /**
+     * Constructs a FeedPost with specified details including who reposted it.
+     *
+     * @param repostedBy    the followed user who reposted the post last, or null
+     * @param repostCount   the number of followed users who reposted the post
+     * @see #Post(long, String, long, User, int, int, boolean, boolean, boolean, boolean)
+     */
+    public FeedPost(long postId, String content, long createdAt, User user, int heartsCount, int commentsCount, boolean isHearted, boolean isBookmarked, boolean isReposted, boolean isDeletable, User repostedBy, int repostCount) {
+        super(postId, content, createdAt, user, heartsCount, commentsCount, isHearted, isBookmarked, isReposted, isDeletable);
+        this.repostedBy = repostedBy;
+        this.repostCount = repostCount;
+    }
+
+    /**
+     * Returns the followed user who reposted the post last.
+     *
+     * @return the user, or null if no followed user reposted the post
+     */
+    public User getRepostedBy() {
+        return repostedBy;
+    }
+
+    /**
+     * Returns the other followed users who reposted the post, such as
+     * "3 others".
+     *
+     * @return the text, or null if no one else reposted the post
+     */
+    public String getOtherReposts() {
+        if (repostCount < 2) return null;
+        return repostCount == 2 ? "1 other" : (repostCount - 1) + " others";
+    }
+}
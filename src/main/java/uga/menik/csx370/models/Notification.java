@@ -0,0 +1,102 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.models;
+
+/**
+ * Represents a notification shown to a user, such as
+ * "Alice and 41 others liked your post".
+ */
+public class Notification {
+
+    /**
+     * The user who acted most recently.
+     */
+    private final User actor;
+
+    /**
+     * The number of other users who did the same.
+     */
+    private final int othersCount;
+
+    /**
+     * What happened, such as "liked your post".
+     */
+    private final String action;
+
+    /**
+     * The post the notification is about, or null for follows.
+     */
+    private final String postId;
+
+    /**
+     * The date and time of the latest event.
+     */
+    private final String date;
+
+    /**
+     * Flag indicating whether the notification has not been seen yet.
+     */
+    private final boolean isUnread;
+
+    /**
+     * Constructs a Notification with specified details.
+     *
+     * @param actor       the user who acted most recently
+     * @param othersCount the number of other users who did the same
+     * @param action      what happened, such as "liked your post"
+     * @param postId      the post the notification is about, or null
+     * @param date        the date and time of the latest event
+     * @param isUnread    whether the notification has not been seen yet
+     */
+    public Notification(User actor, int othersCount, String action, String postId,
+            String date, boolean isUnread) {
+        this.actor = actor;
+        this.othersCount = othersCount;
+        this.action = action;
+        this.postId = postId;
+        this.date = date;
+        this.isUnread = isUnread;
+    }
+
+    public User getActor() {
+        return actor;
+    }
+
+    public int getOthersCount() {
+        return othersCount;
+    }
+
+    /**
+     * Returns whether other users did the same as the actor.
+     */
+    public boolean hasOthers() {
+        return othersCount > 0;
+    }
+
+    /**
+     * Returns whether the count of other users is exactly one,
+     * to choose between "other" and "others".
+     */
+    public boolean isOneOther() {
+        return othersCount == 1;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public String getPostId() {
+        return postId;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public boolean isUnread() {
+        return isUnread;
+    }
+}
@@ -41,12 +41,17 @@ public class Post extends BasicPost {
      */
     private final boolean isReposted;
 
+    /**
+     * Flag indicating whether the current user may delete the post.
+     */
+    private final boolean isDeletable;
+
     /**
      * Constructs a Post with specified details including information from BasicPost.
      *
      * @param postId         the unique identifier of the post
      * @param content        the text content of the post
-     * @param postDate       the creation date of the post
+     * @param createdAt      when the post was created, in epoch milliseconds
      * @param user           the user who created the post
      * @param heartsCount    the number of hearts (likes) the post has received
      * @param commentsCount  the number of comments the post has received
@@ -54,14 +59,25 @@ public class Post extends BasicPost {
      * @param isBookmarked   whether the post is bookmarked by the current user
      * @param isReposted       whether the post is a repost
      */
-    public Post(String postId, String content, String postDate, User user, int heartsCount, int commentsCount, boolean isHearted, boolean isBookmarked, boolean isReposted) {
-        super(postId, content, postDate, user);
+    public Post(long postId, String content, long createdAt, User user, int heartsCount, int commentsCount, boolean isHearted, boolean isBookmarked, boolean isReposted) {
+        this(postId, content, createdAt, user, heartsCount, commentsCount, isHearted, isBookmarked, isReposted, false);
+    }
+
+    /**
+     * Constructs a Post that the current user may be allowed to delete.
+     *
+     * @param isDeletable    whether the current user may delete the post
+     * @see #Post(long, String, long, User, int, int, boolean, boolean, boolean)
+     */
+    public Post(long postId, String content, long createdAt, User user, int heartsCount, int commentsCount, boolean isHearted, boolean isBookmarked, boolean isReposted, boolean isDeletable) {
+        super(postId, content, createdAt, user);
         this.heartsCount = heartsCount;
         this.commentsCount = commentsCount;
         this.isHearted = isHearted;
         this.isBookmarked = isBookmarked;
         this.isShowComents = false;
         this.isReposted = isReposted;
+        this.isDeletable = isDeletable;
     }
 
     /**
@@ -108,4 +124,13 @@ public class Post extends BasicPost {
     public boolean isReposted() {
         return isReposted;
     }
+
+    /**
+     * Returns whether the current user may delete the post.
+     *
+     * @return true if the current user wrote the post, false otherwise
+     */
+    public boolean isDeletable() {
+        return isDeletable;
+    }
 }
@@ -0,0 +1,41 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.models;
+
+/**
+ * Represents a hashtag and how many posts used it on the analytics page.
+ */
+public class TagCount {
+
+    /**
+     * The hashtag without the #.
+     */
+    private final String tag;
+
+    /**
+     * The number of posts that used the hashtag.
+     */
+    private final int posts;
+
+    /**
+     * Constructs a TagCount with specified details.
+     *
+     * @param tag   the hashtag without the #
+     * @param posts the number of posts that used it
+     */
+    public TagCount(String tag, int posts) {
+        this.tag = tag;
+        this.posts = posts;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public int getPosts() {
+        return posts;
+    }
+}
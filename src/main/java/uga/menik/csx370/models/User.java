@@ -5,15 +5,37 @@ This is a project developed by Dr. Menik to give the students an opportunity to
 */
 package uga.menik.csx370.models;
 
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 /**
  * Represents a user of the micro blogging platform.
+ * Users are immutable, so the authors of posts and comments are shared
+ * through of instead of being created for every row.
  */
 public class User {
 
+    // Number of users kept by of, a power of two.
+    private static final int SHARED_SLOTS = 16384;
+    // Users shared by all requests, at slot userId mod SHARED_SLOTS.
+    private static final AtomicReferenceArray<User> SHARED = new AtomicReferenceArray<>(SHARED_SLOTS);
+    // The avatar paths, so users do not each hold a copy.
+    private static final String[] AVATAR_PATHS = new String[20];
+
+    static {
+        for (int i = 0; i < AVATAR_PATHS.length; i++) {
+            AVATAR_PATHS[i] = "/avatars/avatar_" + (i + 1) + ".png";
+        }
+    }
+
     /**
      * Unique identifier for the user.
      */
-    private final String userId;
+    private final long userId;
+
+    /**
+     * The user ID as text, made once since every rendered post asks for it.
+     */
+    private final String userIdText;
 
     /**
      * First name of the user.
@@ -38,8 +60,9 @@ public class User {
      * @param lastName         the last name of the user
      * @param profileImagePath the path of the profile image file for the user
      */
-    public User(String userId, String firstName, String lastName, String profileImagePath) {
+    public User(long userId, String firstName, String lastName, String profileImagePath) {
         this.userId = userId;
+        this.userIdText = Long.toString(userId);
         this.firstName = firstName;
         this.lastName = lastName;
         this.profileImagePath = profileImagePath;
@@ -53,17 +76,38 @@ public class User {
      * @param lastName         the last name of the user
      * @param profileImagePath the path of the profile image file for the user
      */
-    public User(String userId, String firstName, String lastName) {
+    public User(long userId, String firstName, String lastName) {
         this(userId, firstName, lastName, getAvatarPath(userId));
     }
 
+    /**
+     * Returns the shared User with these details, creating it if needed.
+     * The cache is bounded: each id maps to one slot and a user replaces
+     * whoever was there. A user whose name changed is replaced as well.
+     *
+     * @param userId    the unique identifier of the user
+     * @param firstName the first name of the user
+     * @param lastName  the last name of the user
+     * @return a User that may be shared with other callers
+     */
+    public static User of(long userId, String firstName, String lastName) {
+        int slot = Long.hashCode(userId) & (SHARED_SLOTS - 1);
+        User user = SHARED.get(slot);
+        if (user != null && user.userId == userId && user.firstName.equals(firstName)
+                && user.lastName.equals(lastName)) {
+            return user;
+        }
+        user = new User(userId, firstName, lastName);
+        SHARED.set(slot, user);
+        return user;
+    }
+
     /**
      * Given a userId generate a valid avatar path.
+     * floorMod keeps the file number in 1..20 for negative hash codes.
      */
-    private static String getAvatarPath(String userId) {
-        int fileNo = (userId.hashCode() % 20) + 1;
-        String avatarFileName = String.format("avatar_%d.png", fileNo);
-        return "/avatars/" + avatarFileName;
+    private static String getAvatarPath(long userId) {
+        return AVATAR_PATHS[Math.floorMod(Long.toString(userId).hashCode(), AVATAR_PATHS.length)];
     }
 
     /**
@@ -72,6 +116,15 @@ public class User {
      * @return the user ID
      */
     public String getUserId() {
+        return userIdText;
+    }
+
+    /**
+     * Returns the user ID as a number.
+     *
+     * @return the user ID
+     */
+    public long getId() {
         return userId;
     }
 
@@ -0,0 +1,64 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.repositories;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import uga.menik.csx370.models.User;
+
+/**
+ * Stores comments. Comments form threads: a comment may reply to another
+ * comment of the same post. See PostService.
+ */
+public interface CommentRepository {
+
+    /**
+     * A comment as every viewer sees it.
+     *
+     * @param depth         0 for a comment on the post, 1 for a reply to it and so on
+     * @param createdAt     when the comment was made, in epoch milliseconds
+     * @param hiddenReplies the number of replies below the comment that were left out
+     */
+    record CommentRow(long commentId, int depth, String content, long createdAt,
+            User author, int hiddenReplies) {
+    }
+
+    /**
+     * Replies below a comment and the post they belong to.
+     */
+    record Replies(String postId, String postAuthorId, List<CommentRow> comments) {
+    }
+
+    /**
+     * Adds a comment to a post, as a reply to parentCommentId if it is not
+     * null, and returns its id. A reply to a comment at maxDepth becomes a
+     * reply to that comment's parent instead. Fails with
+     * SQLIntegrityConstraintViolationException if the post or the comment
+     * replied to does not exist.
+     */
+    String add(String postId, String authorId, String body, String parentCommentId, int maxDepth)
+            throws SQLException;
+
+    /**
+     * Deletes a comment and the replies below it if userId wrote it or
+     * wrote the post. Returns the id of the post, or null if the comment
+     * does not exist or the user may not delete it.
+     */
+    String delete(String commentId, String userId) throws SQLException;
+
+    /**
+     * Returns the comments of a post in display order, down to levels
+     * levels deep.
+     */
+    List<CommentRow> findThread(String postId, int levels) throws SQLException;
+
+    /**
+     * Returns the replies below a comment in display order, down to levels
+     * levels below it, or null if the comment does not exist.
+     */
+    Replies findReplies(String commentId, int levels) throws SQLException;
+}
@@ -0,0 +1,41 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.repositories;
+
+import java.sql.SQLException;
+
+/**
+ * Stores likes, bookmarks and reposts of posts. See PostService.
+ */
+public interface EngagementRepository {
+
+    /**
+     * Ways a user can engage with a post.
+     */
+    enum Kind {
+        LIKE,
+        BOOKMARK,
+        REPOST
+    }
+
+    /**
+     * Records that userId engaged with postId. Fails with
+     * SQLIntegrityConstraintViolationException if the post does not exist
+     * or the user already did.
+     */
+    void add(Kind kind, String userId, String postId) throws SQLException;
+
+    /**
+     * Removes the engagement. Returns false if there was none.
+     */
+    boolean remove(Kind kind, String userId, String postId) throws SQLException;
+
+    /**
+     * Returns whether the user has liked, bookmarked and reposted the
+     * post, in that order. All false if userId is null.
+     */
+    boolean[] findViewerState(String postId, String userId) throws SQLException;
+}
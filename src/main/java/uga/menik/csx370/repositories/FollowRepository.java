@@ -0,0 +1,38 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.repositories;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import uga.menik.csx370.models.FollowableUser;
+
+/**
+ * Stores who follows whom. See PeopleService.
+ */
+public interface FollowRepository {
+
+    /**
+     * Returns every user except userId, as seen by userId, with the time
+     * of their last post.
+     */
+    List<FollowableUser> findFollowableUsers(String userId) throws SQLException;
+
+    /**
+     * Makes userId follow targetUserId. Returns false if it already did.
+     */
+    boolean follow(String userId, String targetUserId) throws SQLException;
+
+    /**
+     * Makes userId unfollow targetUserId. Returns false if it did not follow.
+     */
+    boolean unfollow(String userId, String targetUserId) throws SQLException;
+
+    /**
+     * Returns the ids of the users following userId.
+     */
+    List<String> findFollowerIds(String userId) throws SQLException;
+}
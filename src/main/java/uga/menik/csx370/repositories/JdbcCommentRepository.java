@@ -0,0 +1,285 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.repositories;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import uga.menik.csx370.models.User;
+import uga.menik.csx370.services.ArchiveService;
+import uga.menik.csx370.services.OutboxEvent;
+import uga.menik.csx370.services.OutboxService;
+
+/**
+ * Stores comments in MySQL. Every comment has a materialized path: the
+ * ids of the comments above it and its own, see V7__comment_threads.sql.
+ * A thread or the replies below a comment are range scans of
+ * comments_post_path.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcCommentRepository implements CommentRepository {
+    // Each level of a comment path is a ten digit id and a '/'.
+    private static final int PATH_SEGMENT_LENGTH = 11;
+
+    private final DataSource dataSource;
+    private final ArchiveService archiveService;
+    private final OutboxService outboxService;
+
+    @Autowired
+    public JdbcCommentRepository(DataSource dataSource, ArchiveService archiveService,
+            OutboxService outboxService) {
+        this.dataSource = dataSource;
+        this.archiveService = archiveService;
+        this.outboxService = outboxService;
+    }
+
+    /**
+     * The path of the comment ends with its own id, which is only known
+     * after the insert, so it is set by a second statement in the same
+     * transaction. Commenting on an archived post restores it first.
+     */
+    @Override
+    public String add(String postId, String authorId, String body, String parentCommentId, int maxDepth)
+            throws SQLException {
+        return add(null, postId, authorId, body, parentCommentId, maxDepth, null);
+    }
+
+    /**
+     * Adds a comment that was accepted while the database was unavailable,
+     * see WriteSpool. The comment keeps the time it was written. writeId
+     * is recorded in spooled_writes in the same transaction, so a comment
+     * that was already replayed is skipped. Returns the new comment id, or
+     * null if it was skipped.
+     */
+    public String addSpooled(String writeId, String postId, String authorId, String body,
+            String parentCommentId, int maxDepth, long createdAt) throws SQLException {
+        return add(writeId, postId, authorId, body, parentCommentId, maxDepth, new Timestamp(createdAt));
+    }
+
+    /**
+     * Adds a comment, recording writeId first if it is not null.
+     * createdAt, null for now, is used for the row and its outbox event.
+     */
+    private String add(String writeId, String postId, String authorId, String body, String parentCommentId,
+            int maxDepth, Timestamp createdAt) throws SQLException {
+        final String sql = """
+            INSERT INTO comments (postId, authorId, body, createdAt)
+            VALUES (?, ?, ?, COALESCE(?, CURRENT_TIMESTAMP))
+        """;
+
+        final String replySql = """
+            INSERT INTO comments (postId, authorId, body, createdAt, path)
+            SELECT postId, ?, ?, COALESCE(?, CURRENT_TIMESTAMP),
+                IF(LENGTH(path) >= ?, LEFT(path, LENGTH(path) - ?), path)
+            FROM comments
+            WHERE commentId = ? AND postId = ? AND deletedAt IS NULL
+        """;
+
+        final String pathSql = """
+            UPDATE comments
+            SET path = CONCAT(path, LPAD(commentId, 10, '0'), '/')
+            WHERE commentId = LAST_INSERT_ID()
+        """;
+
+        return archiveService.writeToPost(postId, () -> outboxService.inTransaction(conn -> {
+            if (writeId != null && !JdbcPostRepository.markSpooledWrite(conn, writeId)) return null;
+            String commentId = null;
+            boolean reply = parentCommentId != null;
+            try (PreparedStatement pstmt = conn.prepareStatement(reply ? replySql : sql,
+                    PreparedStatement.RETURN_GENERATED_KEYS)) {
+                if (reply) {
+                    pstmt.setString(1, authorId);
+                    pstmt.setString(2, body);
+                    pstmt.setTimestamp(3, createdAt);
+                    pstmt.setInt(4, (maxDepth + 1) * PATH_SEGMENT_LENGTH);
+                    pstmt.setInt(5, PATH_SEGMENT_LENGTH);
+                    pstmt.setString(6, parentCommentId);
+                    pstmt.setString(7, postId);
+                } else {
+                    pstmt.setString(1, postId);
+                    pstmt.setString(2, authorId);
+                    pstmt.setString(3, body);
+                    pstmt.setTimestamp(4, createdAt);
+                }
+                pstmt.executeUpdate();
+                try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                    if (rs.next()) commentId = rs.getString(1);
+                }
+            }
+            if (commentId == null) {
+                // The comment replied to is not in the hot tier. Like a
+                // foreign key violation, this lets writeToPost restore
+                // an archived post and try again.
+                throw new SQLIntegrityConstraintViolationException(
+                        "Comment " + parentCommentId + " not found on post " + postId);
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(pathSql)) {
+                pstmt.executeUpdate();
+            }
+            outboxService.append(conn, OutboxEvent.Type.COMMENT_ADDED, postId, authorId, commentId, createdAt);
+            return commentId;
+        }));
+    }
+
+    /**
+     * Like posts, comments are only marked as deleted and purged later.
+     */
+    @Override
+    public String delete(String commentId, String userId) throws SQLException {
+        final String commentSql = """
+            SELECT c.postId, c.path, c.authorId, p.authorId AS postAuthorId
+            FROM comments c
+            JOIN posts p ON p.postId = c.postId
+            WHERE c.commentId = ? AND c.deletedAt IS NULL
+        """;
+
+        final String deleteSql = """
+            UPDATE comments
+            SET deletedAt = NOW()
+            WHERE postId = ? AND path LIKE ? AND deletedAt IS NULL
+        """;
+
+        return outboxService.inTransaction(conn -> {
+            String postId;
+            String path;
+            try (PreparedStatement pstmt = conn.prepareStatement(commentSql)) {
+                pstmt.setString(1, commentId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) return null;
+                    if (!rs.getString("authorId").equals(userId)
+                            && !rs.getString("postAuthorId").equals(userId)) {
+                        return null;
+                    }
+                    postId = rs.getString("postId");
+                    path = rs.getString("path");
+                }
+            }
+
+            try (PreparedStatement pstmt = conn.prepareStatement(deleteSql)) {
+                pstmt.setString(1, postId);
+                pstmt.setString(2, path + "%");
+                if (pstmt.executeUpdate() == 0) return null;
+            }
+            outboxService.append(conn, OutboxEvent.Type.COMMENT_DELETED, postId, userId, commentId);
+            return postId;
+        });
+    }
+
+    @Override
+    public List<CommentRow> findThread(String postId, int levels) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            return loadCommentTree(conn, postId, "", levels);
+        }
+    }
+
+    @Override
+    public Replies findReplies(String commentId, int levels) throws SQLException {
+        final String sql = """
+            SELECT c.postId, c.path, p.authorId
+            FROM comments c
+            JOIN posts p ON p.postId = c.postId
+            WHERE c.commentId = ? AND c.deletedAt IS NULL AND p.deletedAt IS NULL
+        """;
+
+        try (
+            Connection conn = dataSource.getConnection();
+            PreparedStatement pstmt = conn.prepareStatement(sql)
+        ) {
+            pstmt.setString(1, commentId);
+            String postId;
+            String path;
+            String postAuthorId;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) return null;
+                postId = rs.getString("postId");
+                path = rs.getString("path");
+                postAuthorId = rs.getString("authorId");
+            }
+            return new Replies(postId, postAuthorId, loadCommentTree(conn, postId, path, levels));
+        }
+    }
+
+    /**
+     * Loads the comments below the comment with the given path, or all
+     * comments of the post if the path is empty, in display order and at
+     * most levels levels below it. Both queries are range scans of
+     * comments_post_path. Comments at the last level get the number of
+     * replies below them that were left out.
+     */
+    private List<CommentRow> loadCommentTree(Connection conn, String postId, String path, int levels)
+            throws SQLException {
+        final String commentSql = """
+            SELECT c.commentId, c.path, c.body AS content,
+                c.createdAt,
+                u.userId, u.firstName, u.lastName
+            FROM comments c
+            JOIN user u ON u.userId = c.authorId
+            WHERE c.postId = ? AND c.path LIKE ?
+            AND LENGTH(c.path) > ? AND LENGTH(c.path) <= ?
+            AND c.deletedAt IS NULL
+            ORDER BY c.path
+        """;
+
+        final String hiddenSql = """
+            SELECT LEFT(c.path, ?) AS ancestorPath, COUNT(*) AS replies
+            FROM comments c
+            WHERE c.postId = ? AND c.path LIKE ?
+            AND LENGTH(c.path) > ?
+            AND c.deletedAt IS NULL
+            GROUP BY ancestorPath
+        """;
+
+        int maxLength = path.length() + levels * PATH_SEGMENT_LENGTH;
+
+        Map<String, Integer> hiddenReplies = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(hiddenSql)) {
+            pstmt.setInt(1, maxLength);
+            pstmt.setString(2, postId);
+            pstmt.setString(3, path + "%");
+            pstmt.setInt(4, maxLength);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    hiddenReplies.put(rs.getString("ancestorPath"), rs.getInt("replies"));
+                }
+            }
+        }
+
+        List<CommentRow> comments = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(commentSql)) {
+            pstmt.setString(1, postId);
+            pstmt.setString(2, path + "%");
+            pstmt.setInt(3, path.length());
+            pstmt.setInt(4, maxLength);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    User commentAuthor = User.of(rs.getLong("userId"),
+                            rs.getString("firstName"), rs.getString("lastName"));
+                    String commentPath = rs.getString("path");
+                    comments.add(new CommentRow(rs.getLong("commentId"),
+                            commentPath.length() / PATH_SEGMENT_LENGTH - 1,
+                            rs.getString("content"), rs.getTimestamp("createdAt").getTime(), commentAuthor,
+                            hiddenReplies.getOrDefault(commentPath, 0)));
+                }
+            }
+        }
+        return comments;
+    }
+}
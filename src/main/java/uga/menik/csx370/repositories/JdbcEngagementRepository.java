@@ -0,0 +1,189 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.repositories;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import uga.menik.csx370.services.ArchiveService;
+import uga.menik.csx370.services.OutboxEvent;
+import uga.menik.csx370.services.OutboxService;
+
+/**
+ * Stores likes, bookmarks and reposts in MySQL. Writes append their outbox
+ * event in the same transaction if a row changed. Engaging with an
+ * archived post restores it to the hot tier first.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcEngagementRepository implements EngagementRepository {
+
+    private final DataSource dataSource;
+    private final ArchiveService archiveService;
+    private final OutboxService outboxService;
+
+    @Autowired
+    public JdbcEngagementRepository(DataSource dataSource, ArchiveService archiveService,
+            OutboxService outboxService) {
+        this.dataSource = dataSource;
+        this.archiveService = archiveService;
+        this.outboxService = outboxService;
+    }
+
+    @Override
+    public void add(Kind kind, String userId, String postId) throws SQLException {
+        final String sql = switch (kind) {
+            case LIKE -> """
+                INSERT INTO likes (userId, postId)
+                VALUES (?, ?)
+            """;
+            case BOOKMARK -> """
+                INSERT INTO bookmarks (userId, postId)
+                VALUES (?, ?)
+            """;
+            case REPOST -> """
+                INSERT INTO repost (userId, originalPostId, createdAt)
+                VALUES (?, ?, NOW())
+            """;
+        };
+        OutboxEvent.Type type = switch (kind) {
+            case LIKE -> OutboxEvent.Type.LIKE_ADDED;
+            case BOOKMARK -> OutboxEvent.Type.BOOKMARK_ADDED;
+            case REPOST -> OutboxEvent.Type.REPOST_ADDED;
+        };
+
+        archiveService.writeToPost(postId, () -> writeWithEvent(sql, userId, postId, type));
+    }
+
+    @Override
+    public boolean remove(Kind kind, String userId, String postId) throws SQLException {
+        final String sql = switch (kind) {
+            case LIKE -> """
+                DELETE FROM likes
+                WHERE userId = ? AND postId = ?
+            """;
+            case BOOKMARK -> """
+                DELETE FROM bookmarks
+                WHERE userId = ? AND postId = ?
+            """;
+            case REPOST -> """
+                DELETE FROM repost
+                WHERE userId = ? AND originalPostId = ?
+            """;
+        };
+        OutboxEvent.Type type = switch (kind) {
+            case LIKE -> OutboxEvent.Type.LIKE_REMOVED;
+            case BOOKMARK -> OutboxEvent.Type.BOOKMARK_REMOVED;
+            case REPOST -> OutboxEvent.Type.REPOST_REMOVED;
+        };
+
+        return writeWithEvent(sql, userId, postId, type);
+    }
+
+    @Override
+    public boolean[] findViewerState(String postId, String userId) throws SQLException {
+        if (userId == null) return new boolean[3];
+        try (Connection conn = dataSource.getConnection()) {
+            return findViewerState(conn, postId, userId);
+        }
+    }
+
+    /**
+     * Returns whether the user has hearted, bookmarked and reposted the
+     * post, in that order, in a single round trip on conn.
+     */
+    static boolean[] findViewerState(Connection conn, String postId, String userId) throws SQLException {
+        if (userId == null) return new boolean[3];
+
+        final String sql = """
+            SELECT
+                EXISTS (SELECT 1 FROM likes WHERE userId = ? AND postId = ?) AS isHearted,
+                EXISTS (SELECT 1 FROM bookmarks WHERE userId = ? AND postId = ?) AS isBookmarked,
+                EXISTS (SELECT 1 FROM repost WHERE userId = ? AND originalPostId = ?) AS isReposted
+        """;
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < 3; i++) {
+                pstmt.setString(2 * i + 1, userId);
+                pstmt.setString(2 * i + 2, postId);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return new boolean[] {
+                    rs.getBoolean("isHearted"), rs.getBoolean("isBookmarked"), rs.getBoolean("isReposted")
+                };
+            }
+        }
+    }
+
+    /**
+     * Returns the viewer state of each of the posts as findViewerState
+     * does, by post id, in one query per chunk of posts. Posts the user
+     * has not engaged with are left out. Empty if userId is null.
+     */
+    static Map<Long, boolean[]> findViewerStates(Connection conn, List<Long> postIds, String userId)
+            throws SQLException {
+        Map<Long, boolean[]> states = new HashMap<>();
+        if (userId == null) return states;
+
+        // Keeps the three IN lists well below the placeholder limit.
+        final int chunkSize = 1000;
+        for (int from = 0; from < postIds.size(); from += chunkSize) {
+            List<Long> chunk = postIds.subList(from, Math.min(postIds.size(), from + chunkSize));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            final String sql = "SELECT 0 AS kind, postId FROM likes WHERE userId = ? AND postId IN (" + placeholders + ") "
+                    + "UNION ALL "
+                    + "SELECT 1, postId FROM bookmarks WHERE userId = ? AND postId IN (" + placeholders + ") "
+                    + "UNION ALL "
+                    + "SELECT 2, originalPostId FROM repost WHERE userId = ? AND originalPostId IN (" + placeholders + ")";
+
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                int index = 1;
+                for (int i = 0; i < 3; i++) {
+                    pstmt.setString(index++, userId);
+                    for (long postId : chunk) {
+                        pstmt.setLong(index++, postId);
+                    }
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        states.computeIfAbsent(rs.getLong("postId"), k -> new boolean[3])[rs.getInt("kind")] = true;
+                    }
+                }
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Runs an insert or delete of a user's row for a post and appends the
+     * event in the same transaction if a row changed.
+     */
+    private boolean writeWithEvent(String sql, String userId, String postId, OutboxEvent.Type type)
+            throws SQLException {
+        return outboxService.inTransaction(conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, userId);
+                pstmt.setString(2, postId);
+                if (pstmt.executeUpdate() == 0) return false;
+            }
+            outboxService.append(conn, type, postId, userId);
+            return true;
+        });
+    }
+}
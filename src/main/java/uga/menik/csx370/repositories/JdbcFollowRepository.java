@@ -0,0 +1,147 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.repositories;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import uga.menik.csx370.models.FollowableUser;
+import uga.menik.csx370.services.OutboxEvent;
+import uga.menik.csx370.services.OutboxService;
+
+/**
+ * Stores follows in MySQL. Writes append their outbox event in the same
+ * transaction if a row changed.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcFollowRepository implements FollowRepository {
+
+    private final DataSource dataSource;
+    private final OutboxService outboxService;
+
+    @Autowired
+    public JdbcFollowRepository(DataSource dataSource, OutboxService outboxService) {
+        this.dataSource = dataSource;
+        this.outboxService = outboxService;
+    }
+
+    @Override
+    public List<FollowableUser> findFollowableUsers(String userIdToExclude) throws SQLException {
+        // The output list of people.
+        List<FollowableUser> output = new ArrayList<>();
+        // Note the ? placeholder, filled in later, used to avoid problems such as SQL injection.
+        final String sql = """
+            SELECT u.userId, u.firstName, u.lastName,
+                DATE_FORMAT(MAX(p.createdAt), '%b %d, %Y, %l:%i %p') AS lastPostDate,
+                EXISTS (
+                    SELECT 1
+                    FROM follows f
+                    WHERE f.userId = ?
+                    AND f.useridFollowed = u.userId
+                ) as isFollowed
+            FROM user u
+            LEFT JOIN posts p ON p.authorId = u.userId
+            WHERE u.userId != ?
+            GROUP BY u.userId, u.firstName, u.lastName
+            ORDER BY lastPostDate DESC
+        """;
+
+        try (
+            // Connect to database
+            Connection conn = dataSource.getConnection();
+            // Prepare statement
+            PreparedStatement pstmt = conn.prepareStatement(sql)
+        ) {
+            pstmt.setString(1, userIdToExclude);
+            pstmt.setString(2, userIdToExclude);
+            // The results of the query
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    // Extracting data from the result set.
+                    long userId = rs.getLong("userId");
+                    String firstName = rs.getString("firstName");
+                    String lastName = rs.getString("lastName");
+                    String lastPostDate = rs.getString("lastPostDate");
+                    Boolean isFollowed = rs.getBoolean("isFollowed");
+
+                    // If the user has never posted, lastPostDate will be null.
+                    if (lastPostDate == null) lastPostDate = ": Never";
+
+                    // Create FollowableUser object and add to output list.
+                    FollowableUser user = new FollowableUser(userId, firstName, lastName, isFollowed, lastPostDate);
+                    output.add(user);
+                }
+            }
+
+            return output;
+        }
+    }
+
+    @Override
+    public boolean follow(String userId, String targetUserId) throws SQLException {
+        final String sql = """
+            INSERT IGNORE INTO follows (userId, userIdFollowed)
+            VALUES (?, ?)
+        """;
+
+        return writeWithEvent(sql, userId, targetUserId, OutboxEvent.Type.FOLLOW_ADDED);
+    }
+
+    @Override
+    public boolean unfollow(String userId, String targetUserId) throws SQLException {
+        final String sql = """
+            DELETE FROM follows
+            WHERE userId = ? AND userIdFollowed = ?
+        """;
+
+        return writeWithEvent(sql, userId, targetUserId, OutboxEvent.Type.FOLLOW_REMOVED);
+    }
+
+    @Override
+    public List<String> findFollowerIds(String userId) throws SQLException {
+        final String sql = """
+            SELECT userId
+            FROM follows
+            WHERE userIdFollowed = ?
+        """;
+
+        try (Connection conn = dataSource.getConnection();
+            PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, userId);
+            List<String> followerIds = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    followerIds.add(rs.getString("userId"));
+                }
+            }
+            return followerIds;
+        }
+    }
+
+    private boolean writeWithEvent(String sql, String userId, String targetUserId, OutboxEvent.Type type)
+            throws SQLException {
+        return outboxService.inTransaction(conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, userId);
+                pstmt.setString(2, targetUserId);
+                if (pstmt.executeUpdate() == 0) return false;
+            }
+            outboxService.append(conn, type, targetUserId, userId);
+            return true;
+        });
+    }
+}
@@ -0,0 +1,628 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.repositories;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import uga.menik.csx370.models.ExpandedPost;
+import uga.menik.csx370.models.FeedPost;
+import uga.menik.csx370.models.Post;
+import uga.menik.csx370.models.User;
+import uga.menik.csx370.services.ArchiveService;
+import uga.menik.csx370.services.OutboxEvent;
+import uga.menik.csx370.services.OutboxService;
+
+/**
+ * Stores posts in MySQL. Writes append their outbox event in the same
+ * transaction. Profiles list the archived posts of a user after the ones
+ * in the hot tier.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcPostRepository implements PostRepository {
+
+    // Viewer state of a post the viewer has not engaged with.
+    private static final boolean[] NO_VIEWER_STATE = new boolean[3];
+
+    private final DataSource dataSource;
+    private final ArchiveService archiveService;
+    private final OutboxService outboxService;
+
+    @Autowired
+    public JdbcPostRepository(DataSource dataSource, ArchiveService archiveService,
+            OutboxService outboxService) {
+        this.dataSource = dataSource;
+        this.archiveService = archiveService;
+        this.outboxService = outboxService;
+    }
+
+    @Override
+    public String create(String authorId, String content, Collection<String> hashtags,
+            Collection<String> mentions) throws SQLException {
+        return outboxService.inTransaction(conn -> insert(conn, authorId, content, hashtags, mentions, null));
+    }
+
+    /**
+     * Creates a post that was accepted while the database was unavailable,
+     * see WriteSpool. The post keeps the time it was written. writeId is
+     * recorded in spooled_writes in the same transaction, so a post that
+     * was already replayed is skipped. Returns the new post id, or null if
+     * it was skipped.
+     */
+    public String createSpooled(String writeId, String authorId, String content,
+            Collection<String> hashtags, Collection<String> mentions, long createdAt) throws SQLException {
+        return outboxService.inTransaction(conn -> {
+            if (!markSpooledWrite(conn, writeId)) return null;
+            return insert(conn, authorId, content, hashtags, mentions, new Timestamp(createdAt));
+        });
+    }
+
+    /**
+     * Records a replayed write in conn's transaction. Returns false if it
+     * was recorded before.
+     */
+    static boolean markSpooledWrite(Connection conn, String writeId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT IGNORE INTO spooled_writes (writeId) VALUES (?)")) {
+            pstmt.setString(1, writeId);
+            return pstmt.executeUpdate() == 1;
+        }
+    }
+
+    /**
+     * Inserts a post, its hashtags and its mentions in conn's transaction.
+     * createdAt, null for now, is used for the row and its outbox event.
+     */
+    private String insert(Connection conn, String authorId, String content, Collection<String> hashtags,
+            Collection<String> mentions, Timestamp createdAt) throws SQLException {
+        final String insertPostSql = """
+                INSERT INTO posts (authorId, body, createdAt)
+                VALUES (?, ?, COALESCE(?, CURRENT_TIMESTAMP))
+                """;
+
+        final String insertTagSql = """
+                INSERT INTO hashtags (postId, tag)
+                VALUES (?, ?)
+                """;
+
+        // Names that are not users are skipped.
+        final String insertMentionSql = """
+                INSERT IGNORE INTO mentions (userId, postId)
+                SELECT userId, ? FROM user WHERE username = ?
+                """;
+
+        // Insert the post into the posts table.
+        int postId = -1;
+        try (PreparedStatement pstmt = conn.prepareStatement(insertPostSql, PreparedStatement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, authorId);
+            pstmt.setString(2, content);
+            pstmt.setTimestamp(3, createdAt);
+            pstmt.executeUpdate();
+
+            // Retrieve the generated postId.
+            try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                if (rs.next()) {
+                    postId = rs.getInt(1);
+                }
+            }
+        }
+
+        // Insert each hashtag.
+        try (PreparedStatement tagStmt = conn.prepareStatement(insertTagSql)) {
+            for (String tag : hashtags) {
+                tagStmt.setInt(1, postId);
+                tagStmt.setString(2, tag);
+                tagStmt.executeUpdate();
+            }
+        }
+
+        if (!mentions.isEmpty()) {
+            try (PreparedStatement mentionStmt = conn.prepareStatement(insertMentionSql)) {
+                for (String username : mentions) {
+                    mentionStmt.setInt(1, postId);
+                    mentionStmt.setString(2, username);
+                    mentionStmt.addBatch();
+                }
+                mentionStmt.executeBatch();
+            }
+        }
+
+        outboxService.append(conn, OutboxEvent.Type.POST_CREATED, String.valueOf(postId), authorId,
+                String.join(" ", hashtags), createdAt);
+        return String.valueOf(postId);
+    }
+
+    /**
+     * The post is only marked as deleted here, which hides it from all
+     * queries at once. PurgeService removes it and its comments, likes and
+     * other rows later in small chunks.
+     */
+    @Override
+    public boolean delete(String postId, String userId) throws SQLException {
+        final String deleteSql = """
+            UPDATE posts
+            SET deletedAt = NOW()
+            WHERE postId = ? AND authorId = ? AND deletedAt IS NULL
+        """;
+
+        final String tagsSql = "SELECT tag FROM hashtags WHERE postId = ?";
+
+        return outboxService.inTransaction(conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement(deleteSql)) {
+                pstmt.setString(1, postId);
+                pstmt.setString(2, userId);
+                if (pstmt.executeUpdate() == 0) return false;
+            }
+
+            List<String> tags = new ArrayList<>();
+            try (PreparedStatement tagStmt = conn.prepareStatement(tagsSql)) {
+                tagStmt.setString(1, postId);
+                try (ResultSet rs = tagStmt.executeQuery()) {
+                    while (rs.next()) {
+                        tags.add(rs.getString("tag"));
+                    }
+                }
+            }
+
+            outboxService.append(conn, OutboxEvent.Type.POST_DELETED, postId, userId, String.join(" ", tags));
+            return true;
+        });
+    }
+
+    @Override
+    public Post findById(String postId, String viewerId) throws SQLException {
+        final String sql = """
+            SELECT p.postId, p.body AS content,
+                p.createdAt,
+                u.userId, u.firstName, u.lastName,
+                (SELECT COUNT(*) FROM likes l WHERE l.postId = p.postId) AS heartsCount,
+                (SELECT COUNT(*) FROM comments c WHERE c.postId = p.postId AND c.deletedAt IS NULL) AS commentsCount
+            FROM posts p
+            JOIN user u ON u.userId = p.authorId
+            WHERE p.postId = ?
+            AND p.deletedAt IS NULL
+        """;
+
+        try (
+            Connection conn = dataSource.getConnection();
+            PreparedStatement pstmt = conn.prepareStatement(sql)
+        ) {
+            pstmt.setString(1, postId);
+            List<Post> posts = getPostsFromSet(conn, pstmt, viewerId);
+            return posts.isEmpty() ? null : posts.get(0);
+        }
+    }
+
+    @Override
+    public List<Post> findByIds(List<String> postIds, String viewerId) throws SQLException {
+        if (postIds.isEmpty()) return new ArrayList<>();
+
+        String placeholders = String.join(", ", Collections.nCopies(postIds.size(), "?"));
+        final String sql = """
+            SELECT p.postId, p.body AS content,
+                p.createdAt,
+                u.userId, u.firstName, u.lastName,
+                (SELECT COUNT(*) FROM likes l WHERE l.postId = p.postId) AS heartsCount,
+                (SELECT COUNT(*) FROM comments c WHERE c.postId = p.postId AND c.deletedAt IS NULL) AS commentsCount
+            FROM posts p
+            JOIN user u ON u.userId = p.authorId
+            WHERE p.deletedAt IS NULL
+            AND p.postId IN (%s)""".formatted(placeholders);
+
+        try (
+            Connection conn = dataSource.getConnection();
+            PreparedStatement pstmt = conn.prepareStatement(sql)
+        ) {
+            for (int i = 0; i < postIds.size(); i++) {
+                pstmt.setString(i + 1, postIds.get(i));
+            }
+            Map<String, Post> byId = new HashMap<>();
+            for (Post post : getPostsFromSet(conn, pstmt, viewerId)) {
+                byId.put(post.getPostId(), post);
+            }
+
+            List<Post> posts = new ArrayList<>(byId.size());
+            for (String postId : postIds) {
+                Post post = byId.get(postId);
+                if (post != null) posts.add(post);
+            }
+            return posts;
+        }
+    }
+
+    /**
+     * The page comes from one query. Each post has a single entry: the
+     * newest repost by a followed user (repost_user_created, checked
+     * against newer ones with repost_post_user) or else the post itself
+     * (posts_author_created). Every branch of the UNION starts at the
+     * cursor and stops after the page, and so does the whole query. The
+     * viewer state of the page is read with one more query.
+     */
+    @Override
+    public Page findHomeFeed(String viewerId, Cursor after, int limit) throws SQLException {
+        // Reposts of a post by the users the viewer follows.
+        final String followedReposts = """
+            FROM repost fr
+            JOIN follows ff ON ff.userIdFollowed = fr.userId
+            WHERE ff.userId = ? AND fr.userId <> ?
+            """;
+
+        final String sql = """
+            SELECT p.postId, p.body AS content,
+                p.createdAt, e.activityAt,
+                u.userId, u.firstName, u.lastName,
+                (SELECT COUNT(*) FROM likes l WHERE l.postId = p.postId) AS heartsCount,
+                (SELECT COUNT(*) FROM comments c WHERE c.postId = p.postId AND c.deletedAt IS NULL) AS commentsCount,
+                (SELECT COUNT(*) %1$s AND fr.originalPostId = p.postId) AS repostCount,
+                ru.userId AS reposterId, ru.firstName AS reposterFirstName, ru.lastName AS reposterLastName
+            FROM (
+                (SELECT p.postId, p.createdAt AS activityAt, NULL AS reposterId
+                FROM follows f
+                JOIN posts p ON p.authorId = f.userIdFollowed
+                WHERE f.userId = ? AND f.userIdFollowed <> ?
+                AND (p.createdAt < ? OR (p.createdAt = ? AND p.postId < ?))
+                AND p.deletedAt IS NULL
+                AND NOT EXISTS (SELECT 1 %1$s AND fr.originalPostId = p.postId)
+                ORDER BY p.createdAt DESC, p.postId DESC
+                LIMIT ?)
+                UNION ALL
+                (SELECT p.postId, p.createdAt, NULL
+                FROM posts p
+                WHERE p.authorId = ?
+                AND (p.createdAt < ? OR (p.createdAt = ? AND p.postId < ?))
+                AND p.deletedAt IS NULL
+                AND NOT EXISTS (SELECT 1 %1$s AND fr.originalPostId = p.postId)
+                ORDER BY p.createdAt DESC, p.postId DESC
+                LIMIT ?)
+                UNION ALL
+                (SELECT r.originalPostId, r.createdAt, r.userId
+                FROM follows f
+                JOIN repost r ON r.userId = f.userIdFollowed
+                JOIN posts p ON p.postId = r.originalPostId
+                WHERE f.userId = ? AND r.userId <> ?
+                AND (r.createdAt < ? OR (r.createdAt = ? AND r.originalPostId < ?))
+                AND p.deletedAt IS NULL
+                AND NOT EXISTS (SELECT 1 %1$s AND fr.originalPostId = r.originalPostId
+                    AND (fr.createdAt > r.createdAt OR (fr.createdAt = r.createdAt AND fr.userId > r.userId)))
+                ORDER BY r.createdAt DESC, r.originalPostId DESC
+                LIMIT ?)
+            ) e
+            JOIN posts p ON p.postId = e.postId
+            JOIN user u ON u.userId = p.authorId
+            LEFT JOIN user ru ON ru.userId = e.reposterId
+            ORDER BY e.activityAt DESC, e.postId DESC
+            LIMIT ?
+        """.formatted(followedReposts);
+
+        List<PostRow> rows = new ArrayList<>();
+        List<Long> activityTimes = new ArrayList<>();
+        List<User> reposters = new ArrayList<>();
+        List<Integer> repostCounts = new ArrayList<>();
+        Map<Long, boolean[]> viewerStates;
+        try (
+            Connection conn = dataSource.getConnection();
+            PreparedStatement pstmt = conn.prepareStatement(sql)
+        ) {
+            pstmt.setString(1, viewerId); // repostCount
+            pstmt.setString(2, viewerId);
+            pstmt.setString(3, viewerId); // posts of followed users
+            pstmt.setString(4, viewerId);
+            setCursor(pstmt, 5, after);
+            pstmt.setString(8, viewerId);
+            pstmt.setString(9, viewerId);
+            pstmt.setInt(10, limit + 1);
+            pstmt.setString(11, viewerId); // own posts
+            setCursor(pstmt, 12, after);
+            pstmt.setString(15, viewerId);
+            pstmt.setString(16, viewerId);
+            pstmt.setInt(17, limit + 1);
+            pstmt.setString(18, viewerId); // reposts by followed users
+            pstmt.setString(19, viewerId);
+            setCursor(pstmt, 20, after);
+            pstmt.setString(23, viewerId);
+            pstmt.setString(24, viewerId);
+            pstmt.setInt(25, limit + 1);
+            pstmt.setInt(26, limit + 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(toRow(rs));
+                    activityTimes.add(rs.getTimestamp("activityAt").getTime());
+                    reposters.add(rs.getString("reposterId") == null ? null
+                            : User.of(rs.getLong("reposterId"), rs.getString("reposterFirstName"),
+                                    rs.getString("reposterLastName")));
+                    repostCounts.add(rs.getInt("repostCount"));
+                }
+            }
+            if (rows.size() > limit) rows.remove(limit);
+            viewerStates = findViewerStates(conn, rows, viewerId);
+        }
+
+        List<Post> posts = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Post post = toPost(rows.get(i), viewerStates, viewerId);
+            posts.add(new FeedPost(post.getId(), post.getContent(), post.getCreatedAt(),
+                    post.getUser(), post.getHeartsCount(), post.getCommentsCount(), post.getHearted(),
+                    post.isBookmarked(), post.isReposted(), post.isDeletable(),
+                    reposters.get(i), repostCounts.get(i)));
+        }
+        Cursor next = activityTimes.size() > limit
+                ? Cursor.after(posts.get(limit - 1), activityTimes.get(limit - 1), false)
+                : null;
+        return new Page(posts, next);
+    }
+
+    /**
+     * Reads one more post than the page holds to learn whether there is a
+     * next page. The posts in cold storage are only read once the ones in
+     * the hot tier run out.
+     */
+    @Override
+    public Page findByAuthor(String authorId, String viewerId, Cursor after, int limit) throws SQLException {
+        final String sql = """
+            SELECT p.postId, p.body AS content,
+                p.createdAt,
+                u.userId, u.firstName, u.lastName,
+                (SELECT COUNT(*) FROM likes l WHERE l.postId = p.postId) AS heartsCount,
+                (SELECT COUNT(*) FROM comments c WHERE c.postId = p.postId AND c.deletedAt IS NULL) AS commentsCount
+            FROM posts p
+            JOIN user u ON u.userId = p.authorId
+            WHERE p.authorId = ?
+            AND (p.createdAt < ? OR (p.createdAt = ? AND p.postId < ?))
+            AND p.deletedAt IS NULL
+            ORDER BY p.createdAt DESC, p.postId DESC
+            LIMIT ?
+        """;
+
+        List<Post> posts = new ArrayList<>();
+        if (!after.archived()) {
+            try (
+                Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)
+            ) {
+                pstmt.setString(1, authorId);
+                setCursor(pstmt, 2, after);
+                pstmt.setInt(5, limit + 1);
+                posts = getPostsFromSet(conn, pstmt, viewerId);
+            }
+            if (posts.size() > limit) {
+                Post last = posts.get(limit - 1);
+                return new Page(new ArrayList<>(posts.subList(0, limit)),
+                        Cursor.after(last, last.getCreatedAt(), false));
+            }
+            after = Cursor.FIRST_ARCHIVED;
+        }
+
+        // The hot tier ran out, the rest of the page comes from cold storage.
+        int hot = posts.size();
+        posts.addAll(archiveService.getArchivedPostsByUserId(authorId, viewerId, after, limit - hot + 1));
+        if (posts.size() <= limit) return new Page(posts, null);
+        Post last = posts.get(limit - 1);
+        // Archived posts may be newer than the last one of the hot tier.
+        Cursor next = hot == limit ? Cursor.FIRST_ARCHIVED : Cursor.after(last, last.getCreatedAt(), true);
+        return new Page(new ArrayList<>(posts.subList(0, limit)), next);
+    }
+
+    /**
+     * Sets the three parameters of "(time < ? OR (time = ? AND postId < ?))"
+     * from index on.
+     */
+    private static void setCursor(PreparedStatement pstmt, int index, Cursor cursor) throws SQLException {
+        Timestamp time = new Timestamp(cursor.time());
+        pstmt.setTimestamp(index, time);
+        pstmt.setTimestamp(index + 1, time);
+        pstmt.setLong(index + 2, cursor.postId());
+    }
+
+    @Override
+    public List<Post> findBookmarked(String viewerId) throws SQLException {
+        final String sql = """
+            SELECT p.postId, p.body AS content,
+                p.createdAt,
+                u.userId, u.firstName, u.lastName,
+                (SELECT COUNT(*) FROM likes l WHERE l.postId = p.postId) AS heartsCount,
+                (SELECT COUNT(*) FROM comments c WHERE c.postId = p.postId AND c.deletedAt IS NULL) AS commentsCount
+            FROM posts p
+            JOIN user u ON u.userId = p.authorId
+            JOIN bookmarks b ON b.postId = p.postId
+            WHERE b.userId = ?
+            AND p.deletedAt IS NULL
+            ORDER BY p.createdAt DESC
+        """;
+
+        try (
+            Connection conn = dataSource.getConnection();
+            PreparedStatement pstmt = conn.prepareStatement(sql)
+        ) {
+            pstmt.setString(1, viewerId);
+            return getPostsFromSet(conn, pstmt, viewerId);
+        }
+    }
+
+    /**
+     * Mentions of archived posts stay in place but are not listed until
+     * the post is restored.
+     */
+    @Override
+    public List<Post> findMentioning(String userId, String viewerId) throws SQLException {
+        final String sql = """
+            SELECT p.postId, p.body AS content,
+                p.createdAt,
+                u.userId, u.firstName, u.lastName,
+                (SELECT COUNT(*) FROM likes l WHERE l.postId = p.postId) AS heartsCount,
+                (SELECT COUNT(*) FROM comments c WHERE c.postId = p.postId AND c.deletedAt IS NULL) AS commentsCount
+            FROM mentions m
+            JOIN posts p ON p.postId = m.postId
+            JOIN user u ON u.userId = p.authorId
+            WHERE m.userId = ?
+            AND p.deletedAt IS NULL
+            ORDER BY p.createdAt DESC
+        """;
+
+        try (
+            Connection conn = dataSource.getConnection();
+            PreparedStatement pstmt = conn.prepareStatement(sql)
+        ) {
+            pstmt.setString(1, userId);
+            return getPostsFromSet(conn, pstmt, viewerId);
+        }
+    }
+
+    @Override
+    public List<Post> findByHashtags(String[] tags, String viewerId) throws SQLException {
+
+        // Build the "?, ?, ?" clause with the correct number of placeholders
+        StringBuilder inClause = new StringBuilder();
+        for (int i = 0; i < tags.length; i++) {
+            if (i > 0) inClause.append(",");
+            inClause.append("?");
+        }
+
+        // use string concatenation to insert the inClause into the SQL query instead
+        final String sql = "SELECT p.postId, p.body AS content, "
+                + "p.createdAt, "
+                + "u.userId, u.firstName, u.lastName, "
+                + "(SELECT COUNT(*) FROM likes l WHERE l.postId = p.postId) AS heartsCount, "
+                + "(SELECT COUNT(*) FROM comments c WHERE c.postId = p.postId AND c.deletedAt IS NULL) AS commentsCount "
+                + "FROM posts p "
+                + "JOIN user u ON u.userId = p.authorId "
+                + "JOIN hashtags h ON h.postId = p.postId "
+                + "WHERE h.tag IN (" + inClause.toString() + ") "
+                + "AND p.deletedAt IS NULL "
+                + "GROUP BY p.postId "
+                + "ORDER BY p.createdAt DESC";
+
+        try (
+            Connection conn = dataSource.getConnection();
+            PreparedStatement pstmt = conn.prepareStatement(sql)
+        ) {
+            // set cleaned tags parameters
+            for (int i = 0; i < tags.length; i++) {
+                pstmt.setString(i + 1, tags[i]);
+            }
+            return getPostsFromSet(conn, pstmt, viewerId);
+        }
+    }
+
+    @Override
+    public boolean hashtagExists(String tag) throws SQLException {
+        final String sql = "SELECT 1 FROM hashtags WHERE tag = ? LIMIT 1";
+
+        try (
+            Connection conn = dataSource.getConnection();
+            PreparedStatement pstmt = conn.prepareStatement(sql)
+        ) {
+            pstmt.setString(1, tag);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Long> countHashtags() throws SQLException {
+        final String sql = """
+            SELECT tag, COUNT(*) AS uses
+            FROM (
+                SELECT tag FROM hashtags
+                UNION ALL
+                SELECT tag FROM hashtags_archive
+            ) t
+            GROUP BY tag
+        """;
+
+        Map<String, Long> counts = new HashMap<>();
+        try (
+            Connection conn = dataSource.getConnection();
+            PreparedStatement pstmt = conn.prepareStatement(sql);
+            ResultSet rs = pstmt.executeQuery()
+        ) {
+            while (rs.next()) {
+                counts.put(rs.getString("tag"), rs.getLong("uses"));
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public List<ExpandedPost> findArchived(String postId, String viewerId) throws SQLException {
+        return archiveService.getArchivedExpandedPostsById(postId, viewerId);
+    }
+
+    /**
+     * Reads the posts of a query, then the viewer state of all of them
+     * with one more query.
+     */
+    private List<Post> getPostsFromSet(Connection conn, PreparedStatement pstmt, String viewerId)
+            throws SQLException {
+        List<PostRow> rows = new ArrayList<>();
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                rows.add(toRow(rs));
+            }
+        }
+
+        Map<Long, boolean[]> viewerStates = findViewerStates(conn, rows, viewerId);
+        List<Post> output = new ArrayList<>(rows.size());
+        for (PostRow row : rows) {
+            output.add(toPost(row, viewerStates, viewerId));
+        }
+        return output;
+    }
+
+    /**
+     * Reads the post in the current row.
+     */
+    private PostRow toRow(ResultSet rs) throws SQLException {
+        // Authors are shared between rows and requests.
+        User author = User.of(rs.getLong("userId"), rs.getString("firstName"), rs.getString("lastName"));
+        return new PostRow(rs.getLong("postId"), rs.getString("content"), rs.getTimestamp("createdAt").getTime(),
+                author, rs.getInt("heartsCount"), rs.getInt("commentsCount"));
+    }
+
+    private Map<Long, boolean[]> findViewerStates(Connection conn, List<PostRow> rows, String viewerId)
+            throws SQLException {
+        if (viewerId == null || rows.isEmpty()) return Map.of();
+        List<Long> postIds = new ArrayList<>(rows.size());
+        for (PostRow row : rows) {
+            postIds.add(row.postId());
+        }
+        return JdbcEngagementRepository.findViewerStates(conn, postIds, viewerId);
+    }
+
+    /**
+     * Creates a Post as seen by the viewer, whether they have hearted,
+     * bookmarked or reposted it taken from viewerStates.
+     */
+    private Post toPost(PostRow row, Map<Long, boolean[]> viewerStates, String viewerId) {
+        boolean[] viewerState = viewerStates.getOrDefault(row.postId(), NO_VIEWER_STATE);
+        return new Post(row.postId(), row.content(), row.createdAt(), row.author(), row.heartsCount(),
+                row.commentsCount(), viewerState[0], viewerState[1], viewerState[2],
+                row.author().getUserId().equals(viewerId));
+    }
+
+    /**
+     * A post as every viewer sees it.
+     */
+    private record PostRow(long postId, String content, long createdAt, User author, int heartsCount,
+            int commentsCount) {
+    }
+}
@@ -0,0 +1,70 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.repositories;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import uga.menik.csx370.models.User;
+
+/**
+ * Stores user accounts in MySQL.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcUserRepository implements UserRepository {
+
+    private final DataSource dataSource;
+
+    @Autowired
+    public JdbcUserRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public Credentials findCredentials(String username) throws SQLException {
+        // Note the ? mark in the query. It is a place holder that we will later replace.
+        final String sql = "select * from user where username = ?";
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            // Following line replaces the first place holder with username.
+            pstmt.setString(1, username);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                // Note: This will only find at most one row since username is unique.
+                if (!rs.next()) return null;
+                User user = User.of(rs.getLong("userId"), rs.getString("firstName"), rs.getString("lastName"));
+                return new Credentials(user, rs.getString("password"));
+            }
+        }
+    }
+
+    @Override
+    public void create(String username, String passwordHash, String firstName, String lastName)
+            throws SQLException {
+        // Note the ? marks in the SQL statement. They are placeholders like mentioned above.
+        final String registerSql = "insert into user (username, password, firstName, lastName) values (?, ?, ?, ?)";
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement registerStmt = conn.prepareStatement(registerSql)) {
+            // Following lines replace the placeholders 1-4 with values.
+            registerStmt.setString(1, username);
+            registerStmt.setString(2, passwordHash);
+            registerStmt.setString(3, firstName);
+            registerStmt.setString(4, lastName);
+            registerStmt.executeUpdate();
+        }
+    }
+}
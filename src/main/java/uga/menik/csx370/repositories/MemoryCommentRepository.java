@@ -0,0 +1,147 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.repositories;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import uga.menik.csx370.repositories.MemoryStore.StoredComment;
+import uga.menik.csx370.repositories.MemoryStore.StoredPost;
+import uga.menik.csx370.services.OutboxEvent;
+import uga.menik.csx370.utility.IntList;
+
+/**
+ * Stores comments in MemoryStore. Every comment keeps the ids of its
+ * replies in order, so a thread is read by walking the tree depth first,
+ * which gives the same order as sorting by path in MySQL.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "memory")
+public class MemoryCommentRepository implements CommentRepository {
+
+    private final MemoryStore store;
+
+    @Autowired
+    public MemoryCommentRepository(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public String add(String postId, String authorId, String body, String parentCommentId, int maxDepth)
+            throws SQLException {
+        return store.write(() -> {
+            MemoryStore.checkLength("body", body, 1);
+            StoredPost post = store.post(postId);
+            if (post == null || store.user(authorId) == null) {
+                throw new SQLIntegrityConstraintViolationException("Post " + postId + " not found");
+            }
+
+            int parentId = 0;
+            if (parentCommentId != null) {
+                StoredComment parent = store.comment(parentCommentId);
+                if (parent == null || parent.postId != post.postId) {
+                    throw new SQLIntegrityConstraintViolationException(
+                            "Comment " + parentCommentId + " not found on post " + postId);
+                }
+                parentId = parent.depth >= maxDepth ? parent.parentId : parent.commentId;
+            }
+
+            StoredComment comment = store.addComment(post.postId, parentId, Integer.parseInt(authorId), body,
+                    System.currentTimeMillis());
+            store.event(OutboxEvent.Type.COMMENT_ADDED, post.postId, comment.authorId,
+                    String.valueOf(comment.commentId));
+            return String.valueOf(comment.commentId);
+        });
+    }
+
+    @Override
+    public String delete(String commentId, String userId) throws SQLException {
+        return store.write(() -> {
+            StoredComment comment = store.comment(commentId);
+            if (comment == null) return null;
+            StoredPost post = store.posts.get(comment.postId - 1);
+            if (!String.valueOf(comment.authorId).equals(userId)
+                    && !String.valueOf(post.authorId).equals(userId)) {
+                return null;
+            }
+
+            post.liveComments -= markDeleted(comment);
+            store.event(OutboxEvent.Type.COMMENT_DELETED, post.postId, Integer.parseInt(userId), commentId);
+            return String.valueOf(post.postId);
+        });
+    }
+
+    @Override
+    public List<CommentRow> findThread(String postId, int levels) {
+        return store.read(() -> {
+            List<CommentRow> rows = new ArrayList<>();
+            StoredPost post = store.post(postId);
+            if (post != null) collect(post.comments, levels, rows);
+            return rows;
+        });
+    }
+
+    @Override
+    public Replies findReplies(String commentId, int levels) {
+        return store.read(() -> {
+            StoredComment comment = store.comment(commentId);
+            if (comment == null) return null;
+            List<CommentRow> rows = new ArrayList<>();
+            collect(comment.replies, levels, rows);
+            StoredPost post = store.posts.get(comment.postId - 1);
+            return new Replies(String.valueOf(post.postId), String.valueOf(post.authorId), rows);
+        });
+    }
+
+    /**
+     * Adds the live comments of an id list and their replies, down to
+     * levels levels, in display order. Comments at the last level get the
+     * number of replies below them instead.
+     */
+    private void collect(IntList commentIds, int levels, List<CommentRow> rows) {
+        if (levels <= 0) return;
+        for (int i = 0; i < commentIds.size(); i++) {
+            StoredComment comment = store.comments.get(commentIds.get(i) - 1);
+            if (comment.deleted) continue;
+            int hiddenReplies = levels == 1 ? countLive(comment.replies) : 0;
+            rows.add(new CommentRow(comment.commentId, comment.depth, comment.body, comment.createdAt,
+                    store.toUser(comment.authorId), hiddenReplies));
+            collect(comment.replies, levels - 1, rows);
+        }
+    }
+
+    /**
+     * Counts the live comments of an id list and all replies below them.
+     */
+    private int countLive(IntList commentIds) {
+        int count = 0;
+        for (int i = 0; i < commentIds.size(); i++) {
+            StoredComment comment = store.comments.get(commentIds.get(i) - 1);
+            if (!comment.deleted) count += 1 + countLive(comment.replies);
+        }
+        return count;
+    }
+
+    /**
+     * Marks a comment and the live replies below it as deleted and returns
+     * how many were marked.
+     */
+    private int markDeleted(StoredComment comment) {
+        if (comment.deleted) return 0;
+        comment.deleted = true;
+        int count = 1;
+        for (int i = 0; i < comment.replies.size(); i++) {
+            count += markDeleted(store.comments.get(comment.replies.get(i) - 1));
+        }
+        return count;
+    }
+}
@@ -0,0 +1,116 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.repositories;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import uga.menik.csx370.repositories.MemoryStore.StoredPost;
+import uga.menik.csx370.repositories.MemoryStore.StoredRepost;
+import uga.menik.csx370.repositories.MemoryStore.StoredUser;
+import uga.menik.csx370.services.OutboxEvent;
+import uga.menik.csx370.utility.IntList;
+
+/**
+ * Stores likes, bookmarks and reposts in MemoryStore. Likes and reposts
+ * are kept on the post, bookmarks on the user, reposts also in the
+ * repost log for the home feed.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "memory")
+public class MemoryEngagementRepository implements EngagementRepository {
+
+    private final MemoryStore store;
+
+    @Autowired
+    public MemoryEngagementRepository(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void add(Kind kind, String userId, String postId) throws SQLException {
+        store.write(() -> {
+            StoredUser user = store.user(userId);
+            StoredPost post = store.post(postId);
+            if (user == null || post == null) {
+                throw new SQLIntegrityConstraintViolationException("Post " + postId + " not found");
+            }
+            int id = Integer.parseInt(userId);
+            boolean added = switch (kind) {
+                case LIKE -> post.likes.add(id);
+                case BOOKMARK -> user.bookmarks.add(post.postId);
+                case REPOST -> !post.reposters.contains(id);
+            };
+            if (!added) {
+                throw new SQLIntegrityConstraintViolationException(
+                        "Duplicate " + kind + " of post " + postId + " by user " + userId);
+            }
+            if (kind == Kind.REPOST) store.addRepost(id, post.postId, System.currentTimeMillis());
+            store.event(addedType(kind), post.postId, id, "");
+            return null;
+        });
+    }
+
+    @Override
+    public boolean remove(Kind kind, String userId, String postId) throws SQLException {
+        return store.write(() -> {
+            StoredUser user = store.user(userId);
+            StoredPost post = store.post(postId);
+            if (user == null || post == null) return false;
+            int id = Integer.parseInt(userId);
+            boolean removed = switch (kind) {
+                case LIKE -> post.likes.remove(id);
+                case BOOKMARK -> user.bookmarks.remove(post.postId);
+                case REPOST -> post.reposters.remove(id) && removeRepost(user, post.postId);
+            };
+            if (removed) store.event(removedType(kind), post.postId, id, "");
+            return removed;
+        });
+    }
+
+    @Override
+    public boolean[] findViewerState(String postId, String userId) {
+        return store.read(() -> {
+            StoredPost post = store.post(postId);
+            return post == null ? new boolean[3] : store.viewerState(post, userId);
+        });
+    }
+
+    /**
+     * Marks the user's repost of the post in the repost log as removed.
+     */
+    private boolean removeRepost(StoredUser user, int postId) {
+        IntList positions = user.reposts;
+        for (int i = positions.size() - 1; i >= 0; i--) {
+            StoredRepost repost = store.reposts.get(positions.get(i));
+            if (repost.postId == postId && !repost.removed) {
+                repost.removed = true;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static OutboxEvent.Type addedType(Kind kind) {
+        return switch (kind) {
+            case LIKE -> OutboxEvent.Type.LIKE_ADDED;
+            case BOOKMARK -> OutboxEvent.Type.BOOKMARK_ADDED;
+            case REPOST -> OutboxEvent.Type.REPOST_ADDED;
+        };
+    }
+
+    private static OutboxEvent.Type removedType(Kind kind) {
+        return switch (kind) {
+            case LIKE -> OutboxEvent.Type.LIKE_REMOVED;
+            case BOOKMARK -> OutboxEvent.Type.BOOKMARK_REMOVED;
+            case REPOST -> OutboxEvent.Type.REPOST_REMOVED;
+        };
+    }
+}
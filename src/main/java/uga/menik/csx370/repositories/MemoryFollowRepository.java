@@ -0,0 +1,105 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.repositories;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import uga.menik.csx370.models.FollowableUser;
+import uga.menik.csx370.repositories.MemoryStore.StoredUser;
+import uga.menik.csx370.services.OutboxEvent;
+import uga.menik.csx370.utility.Dates;
+
+/**
+ * Stores follows in MemoryStore, on both the follower and the followed
+ * user.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "memory")
+public class MemoryFollowRepository implements FollowRepository {
+
+    private final MemoryStore store;
+
+    @Autowired
+    public MemoryFollowRepository(MemoryStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Users who posted most recently come first, those who never posted
+     * last.
+     */
+    @Override
+    public List<FollowableUser> findFollowableUsers(String userIdToExclude) {
+        return store.read(() -> {
+            StoredUser viewer = store.user(userIdToExclude);
+            List<long[]> lastPosts = new ArrayList<>();
+            for (int userId = 1; userId <= store.users.size(); userId++) {
+                if (String.valueOf(userId).equals(userIdToExclude)) continue;
+                StoredUser user = store.users.get(userId - 1);
+                long lastPostAt = user.posts.isEmpty() ? Long.MIN_VALUE
+                        : store.posts.get(user.posts.get(user.posts.size() - 1) - 1).createdAt;
+                lastPosts.add(new long[] { userId, lastPostAt });
+            }
+            lastPosts.sort(Comparator.comparingLong((long[] entry) -> entry[1]).reversed());
+
+            List<FollowableUser> output = new ArrayList<>(lastPosts.size());
+            for (long[] entry : lastPosts) {
+                int userId = (int) entry[0];
+                StoredUser user = store.users.get(userId - 1);
+                // Same text as the JDBC repository for users who never posted.
+                String lastPostDate = entry[1] == Long.MIN_VALUE ? ": Never" : Dates.format(entry[1]);
+                boolean isFollowed = viewer != null && viewer.following.contains(userId);
+                output.add(new FollowableUser(userId, user.firstName, user.lastName,
+                        isFollowed, lastPostDate));
+            }
+            return output;
+        });
+    }
+
+    @Override
+    public boolean follow(String userId, String targetUserId) throws SQLException {
+        return store.write(() -> {
+            if (store.user(userId) == null || store.user(targetUserId) == null) return false;
+            int id = Integer.parseInt(userId);
+            int targetId = Integer.parseInt(targetUserId);
+            if (!store.follow(id, targetId)) return false;
+            store.event(OutboxEvent.Type.FOLLOW_ADDED, targetId, id, "");
+            return true;
+        });
+    }
+
+    @Override
+    public boolean unfollow(String userId, String targetUserId) throws SQLException {
+        return store.write(() -> {
+            StoredUser user = store.user(userId);
+            StoredUser target = store.user(targetUserId);
+            if (user == null || target == null) return false;
+            int id = Integer.parseInt(userId);
+            int targetId = Integer.parseInt(targetUserId);
+            if (!user.following.remove(targetId)) return false;
+            target.followers.remove(id);
+            store.event(OutboxEvent.Type.FOLLOW_REMOVED, targetId, id, "");
+            return true;
+        });
+    }
+
+    @Override
+    public List<String> findFollowerIds(String userId) {
+        return store.read(() -> {
+            List<String> followerIds = new ArrayList<>();
+            StoredUser user = store.user(userId);
+            if (user != null) user.followers.forEach(id -> followerIds.add(String.valueOf(id)));
+            return followerIds;
+        });
+    }
+}
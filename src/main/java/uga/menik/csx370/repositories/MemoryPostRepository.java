@@ -0,0 +1,300 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.repositories;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import uga.menik.csx370.models.ExpandedPost;
+import uga.menik.csx370.models.FeedPost;
+import uga.menik.csx370.models.Post;
+import uga.menik.csx370.repositories.MemoryStore.StoredPost;
+import uga.menik.csx370.repositories.MemoryStore.StoredRepost;
+import uga.menik.csx370.repositories.MemoryStore.StoredUser;
+import uga.menik.csx370.services.OutboxEvent;
+import uga.menik.csx370.utility.IntHashSet;
+import uga.menik.csx370.utility.IntList;
+
+/**
+ * Stores posts in MemoryStore. Lists are built by walking the per-user
+ * and per-tag id lists, which are in creation order, from the end.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "memory")
+public class MemoryPostRepository implements PostRepository {
+
+    // Newest first, then by id like ORDER BY createdAt DESC, postId DESC.
+    private static final Comparator<StoredPost> NEWEST_FIRST =
+            Comparator.comparingLong((StoredPost post) -> post.createdAt).thenComparingInt(post -> post.postId)
+                    .reversed();
+
+    private final MemoryStore store;
+
+    @Autowired
+    public MemoryPostRepository(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public String create(String authorId, String content, Collection<String> hashtags,
+            Collection<String> mentions) throws SQLException {
+        return store.write(() -> {
+            MemoryStore.checkLength("body", content, 1);
+            if (store.user(authorId) == null) {
+                throw new SQLIntegrityConstraintViolationException("User " + authorId + " not found");
+            }
+            String[] tags = hashtags.toArray(new String[0]);
+            IntList mentionedIds = new IntList();
+            for (String username : mentions) {
+                Integer userId = store.userIdsByUsername.get(username);
+                if (userId != null) mentionedIds.add(userId);
+            }
+            StoredPost post = store.addPost(Integer.parseInt(authorId), content, tags, mentionedIds.toArray(),
+                    System.currentTimeMillis());
+            store.event(OutboxEvent.Type.POST_CREATED, post.postId, post.authorId, String.join(" ", tags));
+            return String.valueOf(post.postId);
+        });
+    }
+
+    @Override
+    public boolean delete(String postId, String userId) throws SQLException {
+        return store.write(() -> {
+            StoredPost post = store.post(postId);
+            if (post == null || !String.valueOf(post.authorId).equals(userId)) return false;
+            post.deleted = true;
+            store.event(OutboxEvent.Type.POST_DELETED, post.postId, post.authorId, String.join(" ", post.tags));
+            return true;
+        });
+    }
+
+    @Override
+    public Post findById(String postId, String viewerId) {
+        return store.read(() -> {
+            StoredPost post = store.post(postId);
+            return post == null ? null : store.toPost(post, viewerId);
+        });
+    }
+
+    @Override
+    public List<Post> findByIds(List<String> postIds, String viewerId) {
+        return store.read(() -> {
+            List<Post> posts = new ArrayList<>(postIds.size());
+            for (String postId : postIds) {
+                StoredPost post = store.post(postId);
+                if (post != null) posts.add(store.toPost(post, viewerId));
+            }
+            return posts;
+        });
+    }
+
+    /**
+     * Collects the same entries as the JDBC query: posts of followed
+     * users, the viewer's own posts and reposts by followed users, grouped
+     * by post at the time of the newest entry.
+     */
+    @Override
+    public Page findHomeFeed(String viewerId, Cursor after, int limit) {
+        return store.read(() -> {
+            StoredUser viewer = store.user(viewerId);
+            if (viewer == null) return new Page(new ArrayList<>(), null);
+            int viewerUserId = Integer.parseInt(viewerId);
+
+            Map<Integer, FeedEntry> entries = new HashMap<>();
+            IntList authors = new IntList();
+            viewer.following.forEach(authors::add);
+            authors.add(viewerUserId);
+            for (int i = 0; i < authors.size(); i++) {
+                IntList postIds = store.users.get(authors.get(i) - 1).posts;
+                for (int j = 0; j < postIds.size(); j++) {
+                    StoredPost post = store.posts.get(postIds.get(j) - 1);
+                    entries.computeIfAbsent(post.postId, k -> new FeedEntry(post)).add(post.createdAt, 0);
+                }
+            }
+            viewer.following.forEach(followedId -> {
+                if (followedId == viewerUserId) return;
+                IntList positions = store.users.get(followedId - 1).reposts;
+                for (int j = 0; j < positions.size(); j++) {
+                    StoredRepost repost = store.reposts.get(positions.get(j));
+                    if (repost.removed) continue;
+                    StoredPost post = store.posts.get(repost.postId - 1);
+                    entries.computeIfAbsent(post.postId, k -> new FeedEntry(post))
+                            .add(repost.createdAt, repost.userId);
+                }
+            });
+
+            List<FeedEntry> feed = new ArrayList<>();
+            for (FeedEntry entry : entries.values()) {
+                if (!entry.post.deleted && after.precedes(entry.activityAt, entry.post.postId)) feed.add(entry);
+            }
+            feed.sort(Comparator.comparingLong((FeedEntry entry) -> entry.activityAt)
+                    .thenComparingInt(entry -> entry.post.postId).reversed());
+
+            List<Post> posts = new ArrayList<>(Math.min(limit, feed.size()));
+            for (FeedEntry entry : feed.subList(0, Math.min(limit, feed.size()))) {
+                Post post = store.toPost(entry.post, viewerId);
+                posts.add(new FeedPost(post.getId(), post.getContent(), post.getCreatedAt(),
+                        post.getUser(), post.getHeartsCount(), post.getCommentsCount(), post.getHearted(),
+                        post.isBookmarked(), post.isReposted(), post.isDeletable(),
+                        entry.reposterId == 0 ? null : store.toUser(entry.reposterId), entry.repostCount));
+            }
+            if (feed.size() <= limit) return new Page(posts, null);
+            return new Page(posts, Cursor.after(posts.get(limit - 1), feed.get(limit - 1).activityAt, false));
+        });
+    }
+
+    /**
+     * The memory engine has no cold tier, so the pages end with the
+     * user's first post.
+     */
+    @Override
+    public Page findByAuthor(String authorId, String viewerId, Cursor after, int limit) {
+        return store.read(() -> {
+            StoredUser author = store.user(authorId);
+            if (author == null || after.archived()) return new Page(new ArrayList<>(), null);
+
+            List<Post> posts = new ArrayList<>();
+            for (int i = author.posts.size() - 1; i >= 0; i--) {
+                StoredPost post = store.posts.get(author.posts.get(i) - 1);
+                if (post.deleted || !after.precedes(post.createdAt, post.postId)) continue;
+                if (posts.size() == limit) {
+                    Post last = posts.get(limit - 1);
+                    return new Page(posts, Cursor.after(last, last.getCreatedAt(), false));
+                }
+                posts.add(store.toPost(post, viewerId));
+            }
+            return new Page(posts, null);
+        });
+    }
+
+    @Override
+    public List<Post> findBookmarked(String viewerId) {
+        return store.read(() -> {
+            StoredUser viewer = store.user(viewerId);
+            if (viewer == null) return new ArrayList<>();
+            return sorted(viewer.bookmarks, viewerId);
+        });
+    }
+
+    @Override
+    public List<Post> findMentioning(String userId, String viewerId) {
+        return store.read(() -> {
+            StoredUser user = store.user(userId);
+            if (user == null) return new ArrayList<>();
+            return newestFirst(user.mentions, viewerId);
+        });
+    }
+
+    @Override
+    public List<Post> findByHashtags(String[] tags, String viewerId) {
+        return store.read(() -> {
+            IntHashSet postIds = new IntHashSet();
+            for (String tag : tags) {
+                IntList tagged = store.postIdsByTag.get(tag);
+                if (tagged == null) continue;
+                for (int i = 0; i < tagged.size(); i++) postIds.add(tagged.get(i));
+            }
+            return sorted(postIds, viewerId);
+        });
+    }
+
+    @Override
+    public boolean hashtagExists(String tag) {
+        return store.read(() -> store.postIdsByTag.containsKey(tag));
+    }
+
+    /**
+     * Deleted posts are not counted.
+     */
+    @Override
+    public Map<String, Long> countHashtags() {
+        return store.read(() -> {
+            Map<String, Long> counts = new HashMap<>();
+            store.postIdsByTag.forEach((tag, postIds) -> {
+                long uses = 0;
+                for (int i = 0; i < postIds.size(); i++) {
+                    if (!store.posts.get(postIds.get(i) - 1).deleted) uses++;
+                }
+                if (uses > 0) counts.put(tag, uses);
+            });
+            return counts;
+        });
+    }
+
+    /**
+     * The memory engine has no cold tier.
+     */
+    @Override
+    public List<ExpandedPost> findArchived(String postId, String viewerId) {
+        return new ArrayList<>();
+    }
+
+    /**
+     * Returns the posts of an id list in creation order, newest first.
+     */
+    private List<Post> newestFirst(IntList postIds, String viewerId) {
+        List<Post> posts = new ArrayList<>();
+        for (int i = postIds.size() - 1; i >= 0; i--) {
+            StoredPost post = store.posts.get(postIds.get(i) - 1);
+            if (!post.deleted) posts.add(store.toPost(post, viewerId));
+        }
+        return posts;
+    }
+
+    /**
+     * Returns the posts of an id set, newest first.
+     */
+    private List<Post> sorted(IntHashSet postIds, String viewerId) {
+        List<StoredPost> found = new ArrayList<>(postIds.size());
+        postIds.forEach(postId -> {
+            StoredPost post = store.posts.get(postId - 1);
+            if (!post.deleted) found.add(post);
+        });
+        found.sort(NEWEST_FIRST);
+
+        List<Post> posts = new ArrayList<>(found.size());
+        for (StoredPost post : found) {
+            posts.add(store.toPost(post, viewerId));
+        }
+        return posts;
+    }
+
+    /**
+     * The entries of one post in the home feed.
+     */
+    private static final class FeedEntry {
+        final StoredPost post;
+        long activityAt = Long.MIN_VALUE;
+        // The followed user who reposted the post last, or 0. Of two
+        // reposts at the same time the one with the higher user id counts.
+        int reposterId;
+        long repostedAt = Long.MIN_VALUE;
+        int repostCount;
+
+        FeedEntry(StoredPost post) {
+            this.post = post;
+        }
+
+        void add(long at, int reposterId) {
+            activityAt = Math.max(activityAt, at);
+            if (reposterId == 0) return;
+            repostCount++;
+            if (at > repostedAt || at == repostedAt && reposterId > this.reposterId) {
+                repostedAt = at;
+                this.reposterId = reposterId;
+            }
+        }
+    }
+}
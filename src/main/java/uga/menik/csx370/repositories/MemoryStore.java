@@ -0,0 +1,590 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.repositories;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import uga.menik.csx370.models.Post;
+import uga.menik.csx370.models.User;
+import uga.menik.csx370.services.OutboxEvent;
+import uga.menik.csx370.services.Projection;
+import uga.menik.csx370.utility.EventLog;
+import uga.menik.csx370.utility.IntHashSet;
+import uga.menik.csx370.utility.IntList;
+
+/**
+ * Keeps all data of the memory storage engine, selected with
+ * app.storage.engine=memory. Rows live in append-only lists indexed by
+ * id - 1, so ids are never reused and a lookup is an array access.
+ * Relations are kept on both sides as sets of int ids, which avoids
+ * boxing. Deleted posts and comments are only marked, as in MySQL.
+ * One read-write lock guards everything; the Memory repositories take it
+ * through read and write.
+ * The data is written to app.storage.memory.snapshot-path every
+ * app.storage.memory.snapshot-ms if it changed, and on shutdown, and read
+ * back on startup. Changes made after the last snapshot are lost if the
+ * process is killed.
+ * There is no outbox: the events of a write are handed to the
+ * projections that keep local state once the write is done. Checkpointed
+ * projections, which keep their state in MySQL, do not get them.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "memory")
+public class MemoryStore implements DisposableBean {
+
+    // Changes to the snapshot layout must change this.
+    // Version 2 added the mentions of each post.
+    private static final int SNAPSHOT_VERSION = 2;
+
+    final List<StoredUser> users = new ArrayList<>();
+    final List<StoredPost> posts = new ArrayList<>();
+    final List<StoredComment> comments = new ArrayList<>();
+    final List<StoredRepost> reposts = new ArrayList<>();
+    final Map<String, Integer> userIdsByUsername = new HashMap<>();
+    final Map<String, IntList> postIdsByTag = new HashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ObjectProvider<Projection> projectionProvider;
+    private final Path snapshotPath;
+    private final AtomicLong eventIds = new AtomicLong();
+    // Events of the write in progress, published once it is done.
+    private final List<OutboxEvent> pendingEvents = new ArrayList<>();
+    // Set under the write lock; cleared by snapshot, which writes outside it.
+    private volatile boolean dirty;
+
+    @Autowired
+    public MemoryStore(ObjectProvider<Projection> projectionProvider,
+            @Value("${app.storage.memory.snapshot-path:data/memory-snapshot.bin}") String snapshotPath)
+            throws IOException {
+        this.projectionProvider = projectionProvider;
+        this.snapshotPath = Path.of(snapshotPath);
+        load();
+    }
+
+    /**
+     * Runs a read under the read lock.
+     */
+    <T> T read(Supplier<T> read) {
+        lock.readLock().lock();
+        try {
+            return read.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs a write under the write lock, then publishes its events.
+     * A write that throws must not have changed anything.
+     */
+    <T> T write(Write<T> write) throws SQLException {
+        List<OutboxEvent> events;
+        T result;
+        lock.writeLock().lock();
+        try {
+            pendingEvents.clear();
+            result = write.run();
+            dirty = true;
+            events = List.copyOf(pendingEvents);
+        } finally {
+            pendingEvents.clear();
+            lock.writeLock().unlock();
+        }
+        publish(events);
+        return result;
+    }
+
+    /**
+     * Records an event of the write in progress.
+     */
+    void event(OutboxEvent.Type type, int aggregateId, int actorId, String payload) {
+        pendingEvents.add(new OutboxEvent(eventIds.incrementAndGet(), type,
+                String.valueOf(aggregateId), String.valueOf(actorId), payload, System.currentTimeMillis()));
+    }
+
+    /**
+     * Returns the user with the id, or null. Ids that are not numbers do
+     * not exist.
+     */
+    StoredUser user(String userId) {
+        int id = parseId(userId);
+        return id > 0 && id <= users.size() ? users.get(id - 1) : null;
+    }
+
+    /**
+     * Returns the post with the id if it is not deleted, or null.
+     */
+    StoredPost post(String postId) {
+        int id = parseId(postId);
+        if (id <= 0 || id > posts.size()) return null;
+        StoredPost post = posts.get(id - 1);
+        return post.deleted ? null : post;
+    }
+
+    /**
+     * Returns the comment with the id if neither it nor its post is
+     * deleted, or null.
+     */
+    StoredComment comment(String commentId) {
+        int id = parseId(commentId);
+        if (id <= 0 || id > comments.size()) return null;
+        StoredComment comment = comments.get(id - 1);
+        return comment.deleted || posts.get(comment.postId - 1).deleted ? null : comment;
+    }
+
+    /**
+     * Returns the user as a model, shared with other callers.
+     */
+    User toUser(int userId) {
+        StoredUser user = users.get(userId - 1);
+        return User.of(userId, user.firstName, user.lastName);
+    }
+
+    /**
+     * Returns the post as a model as seen by the viewer, who may be null.
+     */
+    Post toPost(StoredPost post, String viewerId) {
+        boolean[] viewerState = viewerState(post, viewerId);
+        return new Post(post.postId, post.body, post.createdAt, toUser(post.authorId),
+                post.likes.size(), post.liveComments, viewerState[0], viewerState[1], viewerState[2],
+                String.valueOf(post.authorId).equals(viewerId));
+    }
+
+    /**
+     * Returns whether the viewer has liked, bookmarked and reposted the
+     * post, in that order.
+     */
+    boolean[] viewerState(StoredPost post, String viewerId) {
+        StoredUser viewer = user(viewerId);
+        if (viewer == null) return new boolean[3];
+        int userId = Integer.parseInt(viewerId);
+        return new boolean[] {
+            post.likes.contains(userId), viewer.bookmarks.contains(post.postId), post.reposters.contains(userId)
+        };
+    }
+
+    /**
+     * Fails like a CHECK (char_length(trim(value)) >= minLength) constraint.
+     */
+    static void checkLength(String column, String value, int minLength) throws SQLException {
+        if (value == null || value.trim().length() < minLength) {
+            throw new SQLException("Check constraint '" + column + "_min_length' is violated.", "HY000", 3819);
+        }
+    }
+
+    private static int parseId(String id) {
+        if (id == null) return 0;
+        try {
+            return Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void publish(List<OutboxEvent> events) {
+        if (events.isEmpty()) return;
+        for (Projection projection : projectionProvider) {
+            if (projection.isCheckpointed()) continue;
+            try {
+                projection.apply(null, events);
+            } catch (SQLException | RuntimeException e) {
+                EventLog.warn("memory-store", "Projection failed", "projection", projection.getName(), "error", e);
+            }
+        }
+    }
+
+    /**
+     * Writes a snapshot if anything changed. Runs every
+     * app.storage.memory.snapshot-ms. The rows are copied into a buffer
+     * under the read lock and written to disk after it is released, so
+     * writes only wait for the copy, not for the disk.
+     */
+    @Scheduled(fixedDelayString = "${app.storage.memory.snapshot-ms:30000}",
+            initialDelayString = "${app.storage.memory.snapshot-ms:30000}")
+    public synchronized void snapshot() {
+        byte[] snapshot;
+        lock.readLock().lock();
+        try {
+            if (!dirty) return;
+            snapshot = encode();
+            dirty = false;
+        } catch (IOException e) {
+            EventLog.warn("memory-store", "Failed to encode snapshot", "error", e);
+            return;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        try {
+            save(snapshot);
+        } catch (IOException e) {
+            // Try again on the next run.
+            dirty = true;
+            EventLog.warn("memory-store", "Failed to write snapshot", "path", snapshotPath, "error", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        snapshot();
+    }
+
+    /**
+     * Writes the snapshot to a temporary file, forces it to disk and moves
+     * it over the snapshot, so a crash while writing leaves the previous
+     * snapshot intact.
+     */
+    private void save(byte[] snapshot) throws IOException {
+        Path parent = snapshotPath.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Path temp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(snapshot);
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(true);
+        }
+        Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        EventLog.debug("memory-store", "Wrote snapshot", "path", snapshotPath, "bytes", snapshot.length);
+    }
+
+    /**
+     * Encodes all rows in the snapshot layout. Deleted posts and comments
+     * are written too since ids are positions. Called under the read lock.
+     */
+    private byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(SNAPSHOT_VERSION);
+
+            out.writeInt(users.size());
+            for (StoredUser user : users) {
+                out.writeUTF(user.username);
+                out.writeUTF(user.passwordHash);
+                out.writeUTF(user.firstName);
+                out.writeUTF(user.lastName);
+            }
+
+            out.writeInt(posts.size());
+            for (StoredPost post : posts) {
+                out.writeInt(post.authorId);
+                out.writeLong(post.createdAt);
+                out.writeBoolean(post.deleted);
+                writeString(out, post.body);
+                out.writeInt(post.tags.length);
+                for (String tag : post.tags) out.writeUTF(tag);
+                writeIds(out, post.mentions);
+            }
+
+            out.writeInt(comments.size());
+            for (StoredComment comment : comments) {
+                out.writeInt(comment.postId);
+                out.writeInt(comment.parentId);
+                out.writeInt(comment.authorId);
+                out.writeLong(comment.createdAt);
+                out.writeBoolean(comment.deleted);
+                writeString(out, comment.body);
+            }
+
+            // Relations, as pairs of ids after their count.
+            for (StoredUser user : users) {
+                writeIds(out, user.following.toSortedArray());
+                writeIds(out, user.bookmarks.toSortedArray());
+            }
+            for (StoredPost post : posts) {
+                writeIds(out, post.likes.toSortedArray());
+            }
+
+            // Reposts in the order they were made; removed ones are left out.
+            int live = 0;
+            for (StoredRepost repost : reposts) {
+                if (!repost.removed) live++;
+            }
+            out.writeInt(live);
+            for (StoredRepost repost : reposts) {
+                if (repost.removed) continue;
+                out.writeInt(repost.userId);
+                out.writeInt(repost.postId);
+                out.writeLong(repost.createdAt);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private void load() throws IOException {
+        if (!Files.exists(snapshotPath)) return;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            int version = in.readInt();
+            if (version < 1 || version > SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + snapshotPath);
+            }
+
+            int userCount = in.readInt();
+            for (int i = 0; i < userCount; i++) {
+                StoredUser user = new StoredUser(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF());
+                users.add(user);
+                userIdsByUsername.put(user.username, i + 1);
+            }
+
+            int postCount = in.readInt();
+            for (int i = 0; i < postCount; i++) {
+                int authorId = in.readInt();
+                long createdAt = in.readLong();
+                boolean deleted = in.readBoolean();
+                String body = readString(in);
+                String[] tags = new String[in.readInt()];
+                for (int t = 0; t < tags.length; t++) tags[t] = in.readUTF();
+                int[] mentions = version >= 2 ? readIds(in) : new int[0];
+                addPost(authorId, body, tags, mentions, createdAt).deleted = deleted;
+            }
+
+            int commentCount = in.readInt();
+            for (int i = 0; i < commentCount; i++) {
+                int postId = in.readInt();
+                int parentId = in.readInt();
+                int authorId = in.readInt();
+                long createdAt = in.readLong();
+                boolean deleted = in.readBoolean();
+                StoredComment comment = addComment(postId, parentId, authorId, readString(in), createdAt);
+                if (deleted) {
+                    comment.deleted = true;
+                    posts.get(postId - 1).liveComments--;
+                }
+            }
+
+            for (int userId = 1; userId <= userCount; userId++) {
+                for (int followedId : readIds(in)) follow(userId, followedId);
+                for (int postId : readIds(in)) users.get(userId - 1).bookmarks.add(postId);
+            }
+            for (int postId = 1; postId <= postCount; postId++) {
+                for (int userId : readIds(in)) posts.get(postId - 1).likes.add(userId);
+            }
+
+            int repostCount = in.readInt();
+            for (int i = 0; i < repostCount; i++) {
+                addRepost(in.readInt(), in.readInt(), in.readLong());
+            }
+        }
+        EventLog.info("memory-store", "Loaded snapshot", "path", snapshotPath, "users", users.size(),
+                "posts", posts.size(), "comments", comments.size());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        // writeUTF is limited to 64 KB, which a post body may exceed.
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeIds(DataOutputStream out, int[] ids) throws IOException {
+        out.writeInt(ids.length);
+        for (int id : ids) out.writeInt(id);
+    }
+
+    private static int[] readIds(DataInputStream in) throws IOException {
+        int[] ids = new int[in.readInt()];
+        for (int i = 0; i < ids.length; i++) ids[i] = in.readInt();
+        return ids;
+    }
+
+    /**
+     * Appends a user and returns its id.
+     */
+    int addUser(String username, String passwordHash, String firstName, String lastName) {
+        users.add(new StoredUser(username, passwordHash, firstName, lastName));
+        userIdsByUsername.put(username, users.size());
+        return users.size();
+    }
+
+    /**
+     * Appends a post and indexes it by author, hashtag and mentioned user.
+     */
+    StoredPost addPost(int authorId, String body, String[] tags, int[] mentions, long createdAt) {
+        StoredPost post = new StoredPost(posts.size() + 1, authorId, body, tags, mentions, createdAt);
+        posts.add(post);
+        users.get(authorId - 1).posts.add(post.postId);
+        for (String tag : tags) {
+            postIdsByTag.computeIfAbsent(tag, k -> new IntList()).add(post.postId);
+        }
+        for (int userId : mentions) {
+            users.get(userId - 1).mentions.add(post.postId);
+        }
+        return post;
+    }
+
+    /**
+     * Appends a comment below its parent, or on the post if parentId is 0.
+     */
+    StoredComment addComment(int postId, int parentId, int authorId, String body, long createdAt) {
+        int depth = parentId == 0 ? 0 : comments.get(parentId - 1).depth + 1;
+        StoredComment comment = new StoredComment(comments.size() + 1, postId, parentId, authorId, depth,
+                body, createdAt);
+        comments.add(comment);
+        StoredPost post = posts.get(postId - 1);
+        (parentId == 0 ? post.comments : comments.get(parentId - 1).replies).add(comment.commentId);
+        post.liveComments++;
+        return comment;
+    }
+
+    /**
+     * Appends a repost.
+     */
+    void addRepost(int userId, int postId, long createdAt) {
+        reposts.add(new StoredRepost(userId, postId, createdAt));
+        users.get(userId - 1).reposts.add(reposts.size() - 1);
+        posts.get(postId - 1).reposters.add(userId);
+    }
+
+    /**
+     * Adds a follow on both sides. Returns false if it existed.
+     */
+    boolean follow(int userId, int followedId) {
+        if (!users.get(userId - 1).following.add(followedId)) return false;
+        users.get(followedId - 1).followers.add(userId);
+        return true;
+    }
+
+    /**
+     * A write to the store.
+     */
+    @FunctionalInterface
+    interface Write<T> {
+        T run() throws SQLException;
+    }
+
+    /**
+     * A row of the user table, with the relations of the user.
+     */
+    static final class StoredUser {
+        final String username;
+        final String passwordHash;
+        final String firstName;
+        final String lastName;
+        final IntHashSet following = new IntHashSet();
+        final IntHashSet followers = new IntHashSet();
+        final IntHashSet bookmarks = new IntHashSet();
+        // Post ids in the order they were created.
+        final IntList posts = new IntList();
+        // Ids of the posts that mention the user, in the order they were created.
+        final IntList mentions = new IntList();
+        // Positions in reposts in the order they were made.
+        final IntList reposts = new IntList();
+
+        StoredUser(String username, String passwordHash, String firstName, String lastName) {
+            this.username = username;
+            this.passwordHash = passwordHash;
+            this.firstName = firstName;
+            this.lastName = lastName;
+        }
+    }
+
+    /**
+     * A row of the posts table, with its likes, reposts and comments.
+     */
+    static final class StoredPost {
+        final int postId;
+        final int authorId;
+        final String body;
+        final String[] tags;
+        // Ids of the mentioned users.
+        final int[] mentions;
+        final long createdAt;
+        boolean deleted;
+        final IntHashSet likes = new IntHashSet();
+        final IntHashSet reposters = new IntHashSet();
+        // Ids of the comments on the post itself, oldest first.
+        final IntList comments = new IntList();
+        int liveComments;
+
+        StoredPost(int postId, int authorId, String body, String[] tags, int[] mentions, long createdAt) {
+            this.postId = postId;
+            this.authorId = authorId;
+            this.body = body;
+            this.tags = tags;
+            this.mentions = mentions;
+            this.createdAt = createdAt;
+        }
+    }
+
+    /**
+     * A row of the comments table, with the ids of its replies.
+     */
+    static final class StoredComment {
+        final int commentId;
+        final int postId;
+        final int parentId;
+        final int authorId;
+        final int depth;
+        final String body;
+        final long createdAt;
+        boolean deleted;
+        // Ids of the replies, oldest first.
+        final IntList replies = new IntList();
+
+        StoredComment(int commentId, int postId, int parentId, int authorId, int depth, String body,
+                long createdAt) {
+            this.commentId = commentId;
+            this.postId = postId;
+            this.parentId = parentId;
+            this.authorId = authorId;
+            this.depth = depth;
+            this.body = body;
+            this.createdAt = createdAt;
+        }
+    }
+
+    /**
+     * A row of the repost table. Removed reposts stay in place so that
+     * the positions in StoredUser.reposts hold.
+     */
+    static final class StoredRepost {
+        final int userId;
+        final int postId;
+        final long createdAt;
+        boolean removed;
+
+        StoredRepost(int userId, int postId, long createdAt) {
+            this.userId = userId;
+            this.postId = postId;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.repositories;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import uga.menik.csx370.repositories.MemoryStore.StoredUser;
+
+/**
+ * Stores user accounts in MemoryStore.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "memory")
+public class MemoryUserRepository implements UserRepository {
+
+    private final MemoryStore store;
+
+    @Autowired
+    public MemoryUserRepository(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Credentials findCredentials(String username) {
+        return store.read(() -> {
+            Integer userId = store.userIdsByUsername.get(username);
+            if (userId == null) return null;
+            StoredUser user = store.users.get(userId - 1);
+            return new Credentials(store.toUser(userId), user.passwordHash);
+        });
+    }
+
+    /**
+     * Checks the same constraints as the user table.
+     */
+    @Override
+    public void create(String username, String passwordHash, String firstName, String lastName)
+            throws SQLException {
+        store.write(() -> {
+            MemoryStore.checkLength("username", username, 2);
+            MemoryStore.checkLength("firstName", firstName, 2);
+            MemoryStore.checkLength("lastName", lastName, 2);
+            if (store.userIdsByUsername.containsKey(username)) {
+                throw new SQLIntegrityConstraintViolationException("Duplicate entry '" + username + "' for key 'username'");
+            }
+            return store.addUser(username, passwordHash, firstName, lastName);
+        });
+    }
+}
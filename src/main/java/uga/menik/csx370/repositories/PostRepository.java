@@ -0,0 +1,164 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.repositories;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import uga.menik.csx370.models.ExpandedPost;
+import uga.menik.csx370.models.Post;
+
+/**
+ * Stores posts and their hashtags. Posts are returned as seen by a
+ * viewer, who may be null. See PostService.
+ */
+public interface PostRepository {
+
+    /**
+     * Where a page of a list that is newest first ended. The next page
+     * has the entries below time, in epoch milliseconds, and postId.
+     * archived is set once a profile has gone past its posts in the hot
+     * tier and continues with the ones in cold storage.
+     */
+    record Cursor(long time, long postId, boolean archived) {
+
+        /**
+         * Where the first page starts.
+         */
+        public static final Cursor FIRST =
+                new Cursor(Timestamp.valueOf("9999-12-31 00:00:00").getTime(), Integer.MAX_VALUE, false);
+
+        /**
+         * Where the posts in cold storage start.
+         */
+        public static final Cursor FIRST_ARCHIVED = new Cursor(FIRST.time(), FIRST.postId(), true);
+
+        /**
+         * Returns the cursor after a post that was listed at time.
+         */
+        public static Cursor after(Post post, long time, boolean archived) {
+            return new Cursor(time, post.getId(), archived);
+        }
+
+        /**
+         * Returns the cursor written by toString, or FIRST if text is null
+         * or not a cursor.
+         */
+        public static Cursor parse(String text) {
+            if (text == null) return FIRST;
+            boolean archived = text.startsWith("a");
+            String[] parts = text.substring(archived ? 1 : 0).split("_");
+            try {
+                if (parts.length == 2) {
+                    return new Cursor(Long.parseLong(parts[0]), Long.parseLong(parts[1]), archived);
+                }
+            } catch (NumberFormatException e) {
+                // Same as a missing cursor.
+            }
+            return FIRST;
+        }
+
+        /**
+         * Returns the cursor as a URL parameter, such as 1700000000000_42.
+         */
+        @Override
+        public String toString() {
+            return (archived ? "a" : "") + time + "_" + postId;
+        }
+
+        /**
+         * Returns whether an entry listed at time goes on a page after the
+         * cursor.
+         */
+        public boolean precedes(long time, long postId) {
+            return time < this.time || time == this.time && postId < this.postId;
+        }
+    }
+
+    /**
+     * A page of posts and where the next page starts, which is null on
+     * the last page.
+     */
+    record Page(List<Post> posts, Cursor next) {
+    }
+
+    /**
+     * Creates a post with its hashtags and the mentions of the usernames
+     * that exist, and returns the new post id.
+     */
+    String create(String authorId, String content, Collection<String> hashtags, Collection<String> mentions)
+            throws SQLException;
+
+    /**
+     * Deletes a post of the user. Returns false if the post does not
+     * exist or belongs to someone else.
+     */
+    boolean delete(String postId, String userId) throws SQLException;
+
+    /**
+     * Returns a post, or null.
+     */
+    Post findById(String postId, String viewerId) throws SQLException;
+
+    /**
+     * Returns the posts with the given ids in the given order, leaving out
+     * posts that do not exist.
+     */
+    List<Post> findByIds(List<String> postIds, String viewerId) throws SQLException;
+
+    /**
+     * Returns a page of at most limit posts of the home feed of the viewer
+     * after the cursor, newest first: posts of followed users, posts they
+     * reposted and the viewer's own posts. Each post appears once, as a
+     * FeedPost, at the time of its newest repost by a followed user or
+     * else of the post itself, and the cursor holds that time.
+     * Posts in cold storage are not part of the feed.
+     */
+    Page findHomeFeed(String viewerId, Cursor after, int limit) throws SQLException;
+
+    /**
+     * Returns a page of at most limit posts of a user after the cursor,
+     * newest first. Once the posts in the hot tier run out, the pages go
+     * on with the user's posts in cold storage.
+     */
+    Page findByAuthor(String authorId, String viewerId, Cursor after, int limit) throws SQLException;
+
+    /**
+     * Returns the posts bookmarked by the viewer, newest first.
+     */
+    List<Post> findBookmarked(String viewerId) throws SQLException;
+
+    /**
+     * Returns the posts that mention the user, newest first.
+     */
+    List<Post> findMentioning(String userId, String viewerId) throws SQLException;
+
+    /**
+     * Returns the posts with any of the hashtags, newest first.
+     */
+    List<Post> findByHashtags(String[] tags, String viewerId) throws SQLException;
+
+    /**
+     * Returns whether any post has the hashtag.
+     */
+    boolean hashtagExists(String tag) throws SQLException;
+
+    /**
+     * Returns the number of posts using each hashtag, including posts in
+     * cold storage.
+     */
+    Map<String, Long> countHashtags() throws SQLException;
+
+    /**
+     * Returns a post that findById does not have because it was moved to
+     * cold storage, with its comments, or an empty list. Storage without a
+     * cold tier always returns an empty list.
+     */
+    List<ExpandedPost> findArchived(String postId, String viewerId) throws SQLException;
+}
@@ -0,0 +1,33 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.repositories;
+
+import java.sql.SQLException;
+
+import uga.menik.csx370.models.User;
+
+/**
+ * Stores user accounts. See UserService.
+ */
+public interface UserRepository {
+
+    /**
+     * A user and the hash of their password.
+     */
+    record Credentials(User user, String passwordHash) {
+    }
+
+    /**
+     * Returns the user with the username, or null.
+     */
+    Credentials findCredentials(String username) throws SQLException;
+
+    /**
+     * Creates a user. Fails with SQLIntegrityConstraintViolationException
+     * if the username is taken.
+     */
+    void create(String username, String passwordHash, String firstName, String lastName) throws SQLException;
+}
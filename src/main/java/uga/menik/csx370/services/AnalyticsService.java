@@ -0,0 +1,443 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.services;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import uga.menik.csx370.models.ActivityRollup;
+import uga.menik.csx370.models.TagCount;
+import uga.menik.csx370.utility.EventLog;
+
+/**
+ * This service keeps the activity rollups of the analytics page: posts,
+ * likes and comments per hour and per day, the users who posted each day
+ * and the posts per hashtag per day (see V14__analytics_rollups.sql).
+ * The rollups are updated from the outbox in batches, once per event
+ * across all nodes. A deleted post is taken off the hour, day and
+ * hashtags it was counted in, if it was created within
+ * app.analytics.post-retention-days (see V17__analytics_post_times.sql).
+ * The checkpoint of the projection is the watermark:
+ * it moves in the same transaction as the counts, so running a batch
+ * again after a failure does not count it twice. The page only reads the
+ * rollups, never the posts, likes or hashtags tables.
+ * The in-memory storage engine has no outbox and so no analytics.
+ */
+@Service
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class AnalyticsService implements Projection {
+
+    private static final DateTimeFormatter HOUR_FORMAT = DateTimeFormatter.ofPattern("MMM d, h a");
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("EEE, MMM d");
+
+    private final DataSource dataSource;
+    private final int posterRetentionDays;
+    private final int postRetentionDays;
+    private final int pruneBatchSize;
+
+    @Autowired
+    public AnalyticsService(DataSource dataSource,
+            @Value("${app.analytics.poster-retention-days:7}") int posterRetentionDays,
+            @Value("${app.analytics.post-retention-days:30}") int postRetentionDays,
+            @Value("${app.analytics.prune-batch-size:1000}") int pruneBatchSize) {
+        this.dataSource = dataSource;
+        this.posterRetentionDays = posterRetentionDays;
+        this.postRetentionDays = postRetentionDays;
+        this.pruneBatchSize = pruneBatchSize;
+    }
+
+    /**
+     * Returns the activity of the last hours, newest first. Hours without
+     * activity are included with zero counts.
+     */
+    public List<ActivityRollup> getHourlyActivity(int hours) throws SQLException {
+        final String sql = """
+            SELECT hour, posts, likes, comments
+            FROM analytics_hourly
+            WHERE hour >= ?
+        """;
+
+        LocalDateTime newest = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime oldest = newest.minusHours(hours - 1);
+        Map<LocalDateTime, int[]> counts = new HashMap<>();
+        try (Connection conn = dataSource.getConnection();
+            PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setTimestamp(1, Timestamp.valueOf(oldest));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    counts.put(rs.getTimestamp("hour").toLocalDateTime(),
+                            new int[] { rs.getInt("posts"), rs.getInt("likes"), rs.getInt("comments") });
+                }
+            }
+        }
+
+        List<ActivityRollup> activity = new ArrayList<>();
+        for (LocalDateTime hour = newest; !hour.isBefore(oldest); hour = hour.minusHours(1)) {
+            int[] count = counts.getOrDefault(hour, new int[3]);
+            // Users who posted are only counted per day.
+            activity.add(new ActivityRollup(hour.format(HOUR_FORMAT), count[0], count[1], count[2], -1));
+        }
+        return activity;
+    }
+
+    /**
+     * Returns the activity of the last days, newest first. Days without
+     * activity are included with zero counts.
+     */
+    public List<ActivityRollup> getDailyActivity(int days) throws SQLException {
+        final String sql = """
+            SELECT day, posts, likes, comments, activePosters
+            FROM analytics_daily
+            WHERE day >= ?
+        """;
+
+        LocalDate newest = LocalDate.now();
+        LocalDate oldest = newest.minusDays(days - 1);
+        Map<LocalDate, int[]> counts = new HashMap<>();
+        try (Connection conn = dataSource.getConnection();
+            PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setDate(1, Date.valueOf(oldest));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    counts.put(rs.getDate("day").toLocalDate(), new int[] { rs.getInt("posts"),
+                            rs.getInt("likes"), rs.getInt("comments"), rs.getInt("activePosters") });
+                }
+            }
+        }
+
+        List<ActivityRollup> activity = new ArrayList<>();
+        for (LocalDate day = newest; !day.isBefore(oldest); day = day.minusDays(1)) {
+            int[] count = counts.getOrDefault(day, new int[4]);
+            activity.add(new ActivityRollup(day.format(DAY_FORMAT), count[0], count[1], count[2], count[3]));
+        }
+        return activity;
+    }
+
+    /**
+     * Returns the hashtags used by the most posts over the last days.
+     */
+    public List<TagCount> getTopTags(int days, int limit) throws SQLException {
+        final String sql = """
+            SELECT tag, SUM(posts) AS posts
+            FROM analytics_daily_tags
+            WHERE day >= ?
+            GROUP BY tag
+            HAVING posts > 0
+            ORDER BY posts DESC, tag
+            LIMIT ?
+        """;
+
+        List<TagCount> tags = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+            PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setDate(1, Date.valueOf(LocalDate.now().minusDays(days - 1)));
+            pstmt.setInt(2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    tags.add(new TagCount(rs.getString("tag"), rs.getInt("posts")));
+                }
+            }
+        }
+        return tags;
+    }
+
+    @Override
+    public String getName() {
+        return "analytics";
+    }
+
+    @Override
+    public boolean isCheckpointed() {
+        return true;
+    }
+
+    /**
+     * Sums the events of the batch by hour, day and hashtag, and adds the
+     * sums to the rollups. Deleted posts count as -1 on the hour and day
+     * they were created.
+     */
+    @Override
+    public void apply(Connection conn, List<OutboxEvent> events) throws SQLException {
+        Map<LocalDateTime, int[]> hourly = new HashMap<>();
+        Map<LocalDate, int[]> daily = new HashMap<>();
+        Set<Poster> posters = new HashSet<>();
+        Map<DayTag, Integer> tags = new HashMap<>();
+        Map<String, LocalDateTime> createdPosts = new HashMap<>();
+        Map<String, String> deletedPosts = new HashMap<>();
+
+        for (OutboxEvent event : events) {
+            // Index of the count in the rollup rows: posts, likes, comments.
+            int column;
+            int delta = 1;
+            switch (event.type()) {
+                case POST_CREATED -> column = 0;
+                case LIKE_ADDED -> column = 1;
+                case LIKE_REMOVED -> {
+                    column = 1;
+                    delta = -1;
+                }
+                case COMMENT_ADDED -> column = 2;
+                case POST_DELETED -> {
+                    // Counted once the creation time is known.
+                    deletedPosts.put(event.aggregateId(), event.payload());
+                    continue;
+                }
+                default -> {
+                    continue;
+                }
+            }
+
+            LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(event.createdAt()),
+                    ZoneId.systemDefault());
+            LocalDate day = time.toLocalDate();
+            count(hourly, daily, time, column, delta);
+            if (event.type() == OutboxEvent.Type.POST_CREATED) {
+                createdPosts.put(event.aggregateId(), time);
+                posters.add(new Poster(day, event.actorId()));
+                countTags(tags, day, event.payload(), 1);
+            }
+        }
+
+        // A post created earlier in the batch is deleted like any other.
+        writePostTimes(conn, createdPosts);
+        Map<String, LocalDateTime> deletedTimes = takePostTimes(conn, deletedPosts.keySet());
+        for (Map.Entry<String, LocalDateTime> entry : deletedTimes.entrySet()) {
+            LocalDateTime time = entry.getValue();
+            count(hourly, daily, time, 0, -1);
+            countTags(tags, time.toLocalDate(), deletedPosts.get(entry.getKey()), -1);
+        }
+        if (hourly.isEmpty()) return;
+
+        writeHourly(conn, hourly);
+        writeDaily(conn, daily, countNewPosters(conn, posters));
+        writeTags(conn, tags);
+    }
+
+    private static void count(Map<LocalDateTime, int[]> hourly, Map<LocalDate, int[]> daily, LocalDateTime time,
+            int column, int delta) {
+        hourly.computeIfAbsent(time.truncatedTo(ChronoUnit.HOURS), hour -> new int[3])[column] += delta;
+        daily.computeIfAbsent(time.toLocalDate(), d -> new int[3])[column] += delta;
+    }
+
+    private static void countTags(Map<DayTag, Integer> tags, LocalDate day, String payload, int delta) {
+        if (payload.isEmpty()) return;
+        for (String tag : payload.split(" ")) {
+            tags.merge(new DayTag(day, tag), delta, Integer::sum);
+        }
+    }
+
+    /**
+     * Records when the posts were created. A post seen again, which the
+     * checkpoint should prevent, keeps its first time.
+     */
+    private void writePostTimes(Connection conn, Map<String, LocalDateTime> posts) throws SQLException {
+        if (posts.isEmpty()) return;
+        final String sql = "INSERT IGNORE INTO analytics_post_times (postId, createdAt) VALUES (?, ?)";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<String, LocalDateTime> entry : posts.entrySet()) {
+                pstmt.setString(1, entry.getKey());
+                pstmt.setTimestamp(2, Timestamp.valueOf(entry.getValue()));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * Removes the creation times of the posts and returns the ones that
+     * were recorded. A post created before V17__analytics_post_times.sql
+     * or longer than app.analytics.post-retention-days ago has none, and
+     * stays counted.
+     */
+    private Map<String, LocalDateTime> takePostTimes(Connection conn, Set<String> postIds) throws SQLException {
+        Map<String, LocalDateTime> times = new HashMap<>();
+        if (postIds.isEmpty()) return times;
+        String placeholders = String.join(", ", Collections.nCopies(postIds.size(), "?"));
+        final String selectSql = """
+            SELECT postId, createdAt
+            FROM analytics_post_times
+            WHERE postId IN (%s)
+            FOR UPDATE
+        """.formatted(placeholders);
+        final String deleteSql = "DELETE FROM analytics_post_times WHERE postId IN (%s)".formatted(placeholders);
+
+        List<String> ids = new ArrayList<>(postIds);
+        try (PreparedStatement pstmt = conn.prepareStatement(selectSql)) {
+            for (int i = 0; i < ids.size(); i++) pstmt.setString(i + 1, ids.get(i));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    times.put(rs.getString("postId"), rs.getTimestamp("createdAt").toLocalDateTime());
+                }
+            }
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(deleteSql)) {
+            for (int i = 0; i < ids.size(); i++) pstmt.setString(i + 1, ids.get(i));
+            pstmt.executeUpdate();
+        }
+        return times;
+    }
+
+    private void writeHourly(Connection conn, Map<LocalDateTime, int[]> hourly) throws SQLException {
+        final String sql = """
+            INSERT INTO analytics_hourly (hour, posts, likes, comments)
+            VALUES (?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                posts = posts + VALUES(posts),
+                likes = likes + VALUES(likes),
+                comments = comments + VALUES(comments)
+        """;
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<LocalDateTime, int[]> entry : hourly.entrySet()) {
+                pstmt.setTimestamp(1, Timestamp.valueOf(entry.getKey()));
+                pstmt.setInt(2, entry.getValue()[0]);
+                pstmt.setInt(3, entry.getValue()[1]);
+                pstmt.setInt(4, entry.getValue()[2]);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * Records who posted on which day and returns, per day, how many of
+     * them had not posted that day before.
+     * Each insert runs on its own since a batch may not report which rows
+     * were new.
+     */
+    private Map<LocalDate, Integer> countNewPosters(Connection conn, Set<Poster> posters) throws SQLException {
+        final String sql = "INSERT IGNORE INTO analytics_daily_posters (day, userId) VALUES (?, ?)";
+
+        Map<LocalDate, Integer> newPosters = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (Poster poster : posters) {
+                pstmt.setDate(1, Date.valueOf(poster.day()));
+                pstmt.setString(2, poster.userId());
+                if (pstmt.executeUpdate() > 0) newPosters.merge(poster.day(), 1, Integer::sum);
+            }
+        }
+        return newPosters;
+    }
+
+    private void writeDaily(Connection conn, Map<LocalDate, int[]> daily, Map<LocalDate, Integer> newPosters)
+            throws SQLException {
+        final String sql = """
+            INSERT INTO analytics_daily (day, posts, likes, comments, activePosters)
+            VALUES (?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                posts = posts + VALUES(posts),
+                likes = likes + VALUES(likes),
+                comments = comments + VALUES(comments),
+                activePosters = activePosters + VALUES(activePosters)
+        """;
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<LocalDate, int[]> entry : daily.entrySet()) {
+                pstmt.setDate(1, Date.valueOf(entry.getKey()));
+                pstmt.setInt(2, entry.getValue()[0]);
+                pstmt.setInt(3, entry.getValue()[1]);
+                pstmt.setInt(4, entry.getValue()[2]);
+                pstmt.setInt(5, newPosters.getOrDefault(entry.getKey(), 0));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    private void writeTags(Connection conn, Map<DayTag, Integer> tags) throws SQLException {
+        if (tags.isEmpty()) return;
+        final String sql = """
+            INSERT INTO analytics_daily_tags (day, tag, posts)
+            VALUES (?, ?, ?)
+            ON DUPLICATE KEY UPDATE posts = posts + VALUES(posts)
+        """;
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<DayTag, Integer> entry : tags.entrySet()) {
+                pstmt.setDate(1, Date.valueOf(entry.getKey().day()));
+                pstmt.setString(2, entry.getKey().tag());
+                pstmt.setInt(3, entry.getValue());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * Deletes who posted on days older than
+     * app.analytics.poster-retention-days, and the creation times of posts
+     * older than app.analytics.post-retention-days, in chunks. The counts of
+     * those days are final by then. Runs on the app.analytics.prune-cron
+     * schedule.
+     */
+    @Scheduled(cron = "${app.analytics.prune-cron:-}")
+    public void prune() {
+        pruneBefore("analytics_daily_posters", "day", LocalDate.now().minusDays(posterRetentionDays));
+        pruneBefore("analytics_post_times", "createdAt", LocalDate.now().minusDays(postRetentionDays));
+    }
+
+    private void pruneBefore(String table, String column, LocalDate day) {
+        final String sql = "DELETE FROM " + table + " WHERE " + column + " < ? LIMIT ?";
+
+        Date before = Date.valueOf(day);
+        int total = 0;
+        int deleted;
+        try {
+            do {
+                try (Connection conn = dataSource.getConnection();
+                    PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setDate(1, before);
+                    pstmt.setInt(2, pruneBatchSize);
+                    deleted = pstmt.executeUpdate();
+                }
+                total += deleted;
+            } while (deleted == pruneBatchSize);
+        } catch (SQLException e) {
+            EventLog.warn("analytics", "Failed to prune rollup rows", "table", table, "error", e);
+        }
+        if (total > 0) {
+            EventLog.info("analytics", "Pruned rollup rows", "table", table, "rows", total, "before", before);
+        }
+    }
+
+    /**
+     * A user who posted on a day.
+     */
+    private record Poster(LocalDate day, String userId) {
+    }
+
+    /**
+     * A hashtag used on a day.
+     */
+    private record DayTag(LocalDate day, String tag) {
+    }
+}
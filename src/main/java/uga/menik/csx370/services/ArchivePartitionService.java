@@ -0,0 +1,351 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import uga.menik.csx370.utility.EventLog;
+
+/**
+ * This service maintains the monthly partitions of the archive tables.
+ * The tables are partitioned by range of postId (see
+ * V13__archive_partitions.sql): the partition p202609 holds the posts
+ * created before October 2026, and pmax holds the rest.
+ * Once a month has ended, its partition is split off pmax at the id of
+ * the first post of the new month; a month cannot be split earlier since
+ * that id does not exist yet. Every ended month without a partition is
+ * split, so months missed by earlier runs are caught up. Posts only reach
+ * the archive after app.archive.after-days, so each partition is in place
+ * long before its rows arrive and the split moves nothing. A split that
+ * would move rows is logged.
+ * Post ids grow with createdAt except for posts replayed from WriteSpool,
+ * which keep the time they were written but get an id when they are
+ * replayed. Such a post lands in the partition of the month it was
+ * replayed in, and is detached with that month.
+ * Partitions of months older than app.archive.partitions.retention-months
+ * are detached: their rows are swapped into a standalone table such as
+ * posts_archive_p202301 and the partition is dropped, leaving the table
+ * to be exported or dropped by hand. A retention of 0 keeps everything.
+ */
+@Service
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class ArchivePartitionService {
+
+    // Partitioned together, so a month of posts is detached with its comments, likes and hashtags.
+    private static final String[] TABLES = {
+        "posts_archive", "comments_archive", "likes_archive", "hashtags_archive",
+    };
+    private static final String MAX_PARTITION = "pmax";
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    // Named lock so that only one app node changes partitions at a time.
+    private static final String LOCK_NAME = "csx370_archive_partitions";
+
+    private final DataSource dataSource;
+    private final int retentionMonths;
+
+    @Autowired
+    public ArchivePartitionService(DataSource dataSource,
+            @Value("${app.archive.partitions.retention-months:0}") int retentionMonths) {
+        this.dataSource = dataSource;
+        this.retentionMonths = retentionMonths;
+    }
+
+    /**
+     * Adds the partitions of the months that have ended and detaches
+     * expired ones. Runs on the app.archive.partitions.cron schedule.
+     */
+    @Scheduled(cron = "${app.archive.partitions.cron:-}")
+    public void maintainPartitions() throws SQLException {
+        maintainPartitions(YearMonth.now());
+    }
+
+    void maintainPartitions(YearMonth current) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            if (!acquireLock(conn)) return;
+            try {
+                // Computed once so that every table splits at the same post.
+                Map<YearMonth, Long> boundaries = new HashMap<>();
+                YearMonth oldest = null;
+                for (String table : TABLES) {
+                    List<Partition> partitions = getPartitions(conn, table);
+                    if (partitions.isEmpty()) {
+                        EventLog.warn("archive", "Archive table is not partitioned", "table", table);
+                        continue;
+                    }
+                    YearMonth month = lastMonth(partitions);
+                    if (month != null) {
+                        month = month.plusMonths(1);
+                    } else {
+                        if (oldest == null) oldest = oldestPostMonth(conn);
+                        month = oldest;
+                    }
+                    Map<String, Long> added = new LinkedHashMap<>();
+                    for (; month.isBefore(current); month = month.plusMonths(1)) {
+                        Long boundary = boundaries.get(month);
+                        if (boundary == null) {
+                            boundary = firstPostIdOf(conn, month.plusMonths(1));
+                            boundaries.put(month, boundary);
+                        }
+                        added.put(month.format(PARTITION_NAME), boundary);
+                    }
+                    addPartitions(conn, table, partitions, added);
+                    if (retentionMonths > 0) {
+                        for (Partition partition : getPartitions(conn, table)) {
+                            YearMonth partitionMonth = partition.month();
+                            if (partitionMonth != null
+                                    && partitionMonth.isBefore(current.minusMonths(retentionMonths))) {
+                                detachPartition(conn, table, partition.name());
+                            }
+                        }
+                    }
+                }
+            } finally {
+                releaseLock(conn);
+            }
+        }
+    }
+
+    /**
+     * Returns the latest month that has a partition, or null.
+     */
+    private static YearMonth lastMonth(List<Partition> partitions) {
+        YearMonth last = null;
+        for (Partition partition : partitions) {
+            YearMonth month = partition.month();
+            if (month != null && (last == null || month.isAfter(last))) last = month;
+        }
+        return last;
+    }
+
+    /**
+     * Splits the partitions in added, by name and the postId each ends
+     * before, off pmax in one statement, so that pmax is copied once
+     * however many months are added. A month without posts of its own
+     * is left to the partition before it.
+     */
+    private void addPartitions(Connection conn, String table, List<Partition> partitions,
+            Map<String, Long> added) throws SQLException {
+        long lastBoundary = 0;
+        for (Partition partition : partitions) {
+            if (partition.month() != null) lastBoundary = Math.max(lastBoundary, partition.boundary());
+        }
+        long firstBoundary = lastBoundary;
+        StringBuilder definitions = new StringBuilder();
+        for (Map.Entry<String, Long> partition : added.entrySet()) {
+            // No posts since the last partition; its range already covers the month.
+            if (partition.getValue() <= lastBoundary) continue;
+            lastBoundary = partition.getValue();
+            definitions.append("PARTITION ").append(partition.getKey())
+                    .append(" VALUES LESS THAN (").append(lastBoundary).append("), ");
+        }
+        if (definitions.isEmpty()) return;
+
+        long moved = countRows(conn, table, firstBoundary, lastBoundary);
+        if (moved > 0) {
+            EventLog.warn("archive", "Splitting archive rows out of pmax", "table", table, "rows", moved);
+        }
+        execute(conn, "ALTER TABLE " + table + " REORGANIZE PARTITION " + MAX_PARTITION + " INTO ("
+                + definitions + "PARTITION " + MAX_PARTITION + " VALUES LESS THAN MAXVALUE)");
+        EventLog.info("archive", "Added archive partitions", "table", table, "partitions", added.keySet(),
+                "lastBoundary", lastBoundary);
+    }
+
+    /**
+     * Returns the id of the first post created in month or later. If
+     * there is none, every later post gets an id above the current ones.
+     * The archive is only checked in pmax, which is where such posts
+     * would be. A replayed post created before month has a higher id
+     * than posts created in month, so it does not move the boundary.
+     */
+    private long firstPostIdOf(Connection conn, YearMonth month) throws SQLException {
+        final String sql = """
+            SELECT MIN(firstPostId) AS firstPostId, MAX(lastPostId) AS lastPostId
+            FROM (
+                SELECT (SELECT MIN(postId) FROM posts WHERE createdAt >= ?) AS firstPostId,
+                    (SELECT MAX(postId) FROM posts) AS lastPostId
+                UNION ALL
+                SELECT (SELECT MIN(postId) FROM posts_archive PARTITION (pmax) WHERE createdAt >= ?),
+                    (SELECT MAX(postId) FROM posts_archive PARTITION (pmax))
+            ) ids
+        """;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            Timestamp start = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+            pstmt.setTimestamp(1, start);
+            pstmt.setTimestamp(2, start);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                long first = rs.getLong("firstPostId");
+                return first > 0 ? first : rs.getLong("lastPostId") + 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the month of the oldest post, hot or in pmax, or the current
+     * month if there are none.
+     */
+    private YearMonth oldestPostMonth(Connection conn) throws SQLException {
+        final String sql = """
+            SELECT LEAST(COALESCE((SELECT MIN(createdAt) FROM posts), NOW()),
+                COALESCE((SELECT MIN(createdAt) FROM posts_archive PARTITION (pmax)), NOW())) AS oldest
+        """;
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return YearMonth.from(rs.getTimestamp("oldest").toLocalDateTime());
+        }
+    }
+
+    /**
+     * Counts the rows of pmax with a postId in [from, to).
+     */
+    private long countRows(Connection conn, String table, long from, long to) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT COUNT(*) FROM " + table
+                + " PARTITION (" + MAX_PARTITION + ") WHERE postId >= ? AND postId < ?")) {
+            pstmt.setLong(1, from);
+            pstmt.setLong(2, to);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    /**
+     * Moves the rows of a partition into a table of their own and drops
+     * the partition. Each step checks what is left to do, so a run that
+     * stopped halfway is finished by the next one.
+     */
+    private void detachPartition(Connection conn, String table, String partition) throws SQLException {
+        String detached = table + "_" + partition;
+        if (!tableExists(conn, detached)) {
+            execute(conn, "CREATE TABLE " + detached + " LIKE " + table);
+            execute(conn, "ALTER TABLE " + detached + " REMOVE PARTITIONING");
+        }
+        boolean partitionHasRows = hasRows(conn, table + " PARTITION (" + partition + ")");
+        if (partitionHasRows && hasRows(conn, detached)) {
+            // Exchanging would swap the detached rows back in.
+            EventLog.warn("archive", "Detached table is not empty, keeping partition",
+                    "table", table, "partition", partition, "detachedTable", detached);
+            return;
+        }
+        if (partitionHasRows) {
+            execute(conn, "ALTER TABLE " + table + " EXCHANGE PARTITION " + partition + " WITH TABLE " + detached);
+        }
+        execute(conn, "ALTER TABLE " + table + " DROP PARTITION " + partition);
+        EventLog.info("archive", "Detached archive partition", "table", table, "partition", partition,
+                "detachedTable", detached);
+    }
+
+    /**
+     * Returns the partitions of a table in range order, or an empty list
+     * if it is not partitioned.
+     */
+    private List<Partition> getPartitions(Connection conn, String table) throws SQLException {
+        final String sql = """
+            SELECT partition_name, partition_description
+            FROM information_schema.partitions
+            WHERE table_schema = DATABASE()
+            AND table_name = ?
+            AND partition_name IS NOT NULL
+            ORDER BY partition_ordinal_position
+        """;
+        List<Partition> partitions = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, table);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    partitions.add(new Partition(rs.getString("partition_name"),
+                            rs.getString("partition_description")));
+                }
+            }
+        }
+        return partitions;
+    }
+
+    private boolean tableExists(Connection conn, String table) throws SQLException {
+        final String sql = """
+            SELECT 1 FROM information_schema.tables
+            WHERE table_schema = DATABASE() AND table_name = ?
+        """;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, table);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private boolean hasRows(Connection conn, String from) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT 1 FROM " + from + " LIMIT 1")) {
+            return rs.next();
+        }
+    }
+
+    private void execute(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    private boolean acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+            pstmt.setString(1, LOCK_NAME);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                // Another node is already at it.
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private void releaseLock(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.execute();
+        }
+    }
+
+    /**
+     * A partition and the postId its range ends before, as the text
+     * MySQL reports (MAXVALUE for pmax).
+     */
+    private record Partition(String name, String description) {
+
+        /**
+         * Returns the month the partition holds, or null for pmax and
+         * partitions added by hand.
+         */
+        YearMonth month() {
+            if (!name.matches("p\\d{6}")) return null;
+            return YearMonth.parse(name, PARTITION_NAME);
+        }
+
+        long boundary() {
+            return Long.parseLong(description);
+        }
+    }
+}
@@ -0,0 +1,379 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import uga.menik.csx370.models.Comment;
+import uga.menik.csx370.models.ExpandedPost;
+import uga.menik.csx370.models.Post;
+import uga.menik.csx370.models.User;
+import uga.menik.csx370.repositories.PostRepository.Cursor;
+import uga.menik.csx370.utility.EventLog;
+
+/**
+ * This service keeps old posts in a compressed cold tier.
+ * Posts older than app.archive.after-days are moved with their comments,
+ * likes and hashtags from the hot tables into the *_archive tables so that
+ * the indexes used by the feed stay small. Bookmarked and reposted posts
+ * are left in the hot tier.
+ * The JDBC repositories read archived posts through this service, and any
+ * write to an archived post moves it back to the hot tier first (see
+ * writeToPost). The in-memory storage engine has no archive.
+ */
+@Service
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class ArchiveService {
+    private final DataSource dataSource;
+    private final int afterDays;
+    private final int batchSize;
+
+    @Autowired
+    public ArchiveService(DataSource dataSource,
+            @Value("${app.archive.after-days:365}") int afterDays,
+            @Value("${app.archive.batch-size:200}") int batchSize) {
+        this.dataSource = dataSource;
+        this.afterDays = afterDays;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Moves posts older than the configured threshold to the archive.
+     * Works in batches so that each transaction holds few locks.
+     * Runs on the app.archive.cron schedule.
+     */
+    @Scheduled(cron = "${app.archive.cron:-}")
+    public void archiveOldPosts() throws SQLException {
+        LocalDateTime threshold = LocalDateTime.now().minusDays(afterDays);
+        int total = 0;
+        int moved;
+        do {
+            moved = archiveBatch(threshold);
+            total += moved;
+        } while (moved == batchSize);
+
+        if (total > 0) EventLog.info("archive", "Archived old posts", "count", total, "olderThan", threshold);
+    }
+
+    private int archiveBatch(LocalDateTime threshold) throws SQLException {
+        final String selectSql = """
+            SELECT p.postId
+            FROM posts p
+            WHERE p.createdAt < ?
+            AND p.deletedAt IS NULL
+            AND NOT EXISTS (SELECT 1 FROM bookmarks b WHERE b.postId = p.postId)
+            AND NOT EXISTS (SELECT 1 FROM repost r WHERE r.originalPostId = p.postId)
+            ORDER BY p.createdAt
+            LIMIT ?
+        """;
+
+        try (Connection conn = dataSource.getConnection()) {
+            List<Integer> postIds = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(selectSql)) {
+                pstmt.setTimestamp(1, Timestamp.valueOf(threshold));
+                pstmt.setInt(2, batchSize);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) postIds.add(rs.getInt("postId"));
+                }
+            }
+            if (postIds.isEmpty()) return 0;
+
+            String in = placeholders(postIds.size());
+            // Copy everything first, then delete children before the posts themselves.
+            String[] statements = {
+                "INSERT IGNORE INTO posts_archive (postId, authorId, body, createdAt) "
+                    + "SELECT postId, authorId, body, createdAt FROM posts WHERE postId IN " + in,
+                "INSERT IGNORE INTO comments_archive (commentId, postId, authorId, body, createdAt, path) "
+                    + "SELECT commentId, postId, authorId, body, createdAt, path FROM comments WHERE postId IN " + in
+                    + " AND deletedAt IS NULL",
+                "INSERT IGNORE INTO likes_archive (userId, postId, createdAt) "
+                    + "SELECT userId, postId, createdAt FROM likes WHERE postId IN " + in,
+                "INSERT IGNORE INTO hashtags_archive (postId, tag) "
+                    + "SELECT postId, tag FROM hashtags WHERE postId IN " + in,
+                "DELETE FROM comments WHERE postId IN " + in,
+                "DELETE FROM likes WHERE postId IN " + in,
+                "DELETE FROM hashtags WHERE postId IN " + in,
+                "DELETE FROM post_engagement WHERE postId IN " + in,
+                "DELETE FROM posts WHERE postId IN " + in,
+            };
+            runInTransaction(conn, statements, postIds);
+            return postIds.size();
+        }
+    }
+
+    /**
+     * Moves an archived post back to the hot tier.
+     * Returns false if the post is not in the archive.
+     */
+    public boolean restorePost(String postId) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            int archivedPostId;
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT postId FROM posts_archive WHERE postId = ?")) {
+                pstmt.setString(1, postId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) return false;
+                    archivedPostId = rs.getInt("postId");
+                }
+            }
+
+            // Parents are restored before their children.
+            String[] statements = {
+                "INSERT IGNORE INTO posts (postId, authorId, body, createdAt) "
+                    + "SELECT postId, authorId, body, createdAt FROM posts_archive WHERE postId IN (?)",
+                "INSERT IGNORE INTO comments (commentId, postId, authorId, body, createdAt, path) "
+                    + "SELECT commentId, postId, authorId, body, createdAt, path FROM comments_archive WHERE postId IN (?)",
+                "INSERT IGNORE INTO likes (userId, postId, createdAt) "
+                    + "SELECT userId, postId, createdAt FROM likes_archive WHERE postId IN (?)",
+                "INSERT IGNORE INTO hashtags (postId, tag) "
+                    + "SELECT postId, tag FROM hashtags_archive WHERE postId IN (?)",
+                "DELETE FROM comments_archive WHERE postId IN (?)",
+                "DELETE FROM likes_archive WHERE postId IN (?)",
+                "DELETE FROM hashtags_archive WHERE postId IN (?)",
+                "DELETE FROM posts_archive WHERE postId IN (?)",
+            };
+            runInTransaction(conn, statements, List.of(archivedPostId));
+            return true;
+        }
+    }
+
+    /**
+     * Returns at most limit archived posts made by a specific user after
+     * the cursor, newest first. The page is read in order from
+     * posts_archive_author_created.
+     * The counts are read for the listed post ids rather than per row in
+     * a correlated subquery, so MySQL only reads the partitions of the
+     * likes and comments archive that hold those posts (see
+     * V13__archive_partitions.sql).
+     */
+    public List<Post> getArchivedPostsByUserId(String userId, String loggedInUserId, Cursor after, int limit)
+            throws SQLException {
+        final String sql = """
+            SELECT a.postId, a.body AS content,
+                a.createdAt,
+                u.userId, u.firstName, u.lastName
+            FROM posts_archive a
+            JOIN user u ON u.userId = a.authorId
+            WHERE a.authorId = ?
+            AND (a.createdAt < ? OR (a.createdAt = ? AND a.postId < ?))
+            ORDER BY a.createdAt DESC, a.postId DESC
+            LIMIT ?
+        """;
+
+        List<Post> output = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection()) {
+            List<ArchivedPost> archived = new ArrayList<>();
+            List<Integer> postIds = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                Timestamp time = new Timestamp(after.time());
+                pstmt.setString(1, userId);
+                pstmt.setTimestamp(2, time);
+                pstmt.setTimestamp(3, time);
+                pstmt.setLong(4, after.postId());
+                pstmt.setInt(5, limit);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        User author = User.of(rs.getLong("userId"), rs.getString("firstName"),
+                                rs.getString("lastName"));
+                        archived.add(new ArchivedPost(rs.getInt("postId"), rs.getString("content"),
+                                rs.getTimestamp("createdAt").getTime(), author));
+                        postIds.add(rs.getInt("postId"));
+                    }
+                }
+            }
+            if (postIds.isEmpty()) return output;
+
+            String in = placeholders(postIds.size());
+            Map<Integer, Integer> hearts = new HashMap<>();
+            Set<Integer> hearted = new HashSet<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT postId, COUNT(*) AS heartsCount, MAX(userId = ?) AS isHearted "
+                    + "FROM likes_archive WHERE postId IN " + in + " GROUP BY postId")) {
+                pstmt.setString(1, loggedInUserId);
+                for (int i = 0; i < postIds.size(); i++) {
+                    pstmt.setInt(i + 2, postIds.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        hearts.put(rs.getInt("postId"), rs.getInt("heartsCount"));
+                        if (rs.getBoolean("isHearted")) hearted.add(rs.getInt("postId"));
+                    }
+                }
+            }
+            Map<Integer, Integer> comments = new HashMap<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT postId, COUNT(*) AS commentsCount "
+                    + "FROM comments_archive WHERE postId IN " + in + " GROUP BY postId")) {
+                for (int i = 0; i < postIds.size(); i++) {
+                    pstmt.setInt(i + 1, postIds.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) comments.put(rs.getInt("postId"), rs.getInt("commentsCount"));
+                }
+            }
+
+            for (ArchivedPost post : archived) {
+                int postId = post.postId();
+                // Archived posts are never bookmarked or reposted.
+                output.add(new Post(postId, post.content(), post.createdAt(), post.author(),
+                        hearts.getOrDefault(postId, 0), comments.getOrDefault(postId, 0),
+                        hearted.contains(postId), false, false));
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Returns an archived post with all its comments.
+     * The list is empty if the post is not in the archive.
+     */
+    public List<ExpandedPost> getArchivedExpandedPostsById(String postId, String loggedInUserId) throws SQLException {
+        final String postSql = """
+            SELECT a.postId, a.body AS content,
+                a.createdAt,
+                u.userId, u.firstName, u.lastName,
+                (SELECT COUNT(*) FROM likes_archive l WHERE l.postId = ?) AS heartsCount,
+                EXISTS (SELECT 1 FROM likes_archive l WHERE l.postId = ? AND l.userId = ?) AS isHearted
+            FROM posts_archive a
+            JOIN user u ON u.userId = a.authorId
+            WHERE a.postId = ?
+        """;
+
+        final String commentSql = """
+            SELECT c.commentId, c.path, c.body AS content,
+                c.createdAt,
+                u.userId, u.firstName, u.lastName
+            FROM comments_archive c
+            JOIN user u ON u.userId = c.authorId
+            WHERE c.postId = ?
+            ORDER BY c.path
+        """;
+
+        List<ExpandedPost> expandedPosts = new ArrayList<>();
+        try (
+            Connection conn = dataSource.getConnection();
+            PreparedStatement postStmt = conn.prepareStatement(postSql)
+        ) {
+            // The subqueries name the post id itself so that they are pruned too.
+            postStmt.setString(1, postId);
+            postStmt.setString(2, postId);
+            postStmt.setString(3, loggedInUserId);
+            postStmt.setString(4, postId);
+            try (ResultSet rs = postStmt.executeQuery()) {
+                if (!rs.next()) return expandedPosts;
+                long id = rs.getLong("postId");
+
+                List<Comment> comments = new ArrayList<>();
+                try (PreparedStatement commentStmt = conn.prepareStatement(commentSql)) {
+                    commentStmt.setString(1, postId);
+                    try (ResultSet rs2 = commentStmt.executeQuery()) {
+                        while (rs2.next()) {
+                            User commentAuthor = User.of(rs2.getLong("userId"),
+                                    rs2.getString("firstName"), rs2.getString("lastName"));
+                            // Archived threads are small, so all levels are shown. Each
+                            // level of the path is 11 characters, see V7__comment_threads.sql.
+                            int depth = rs2.getString("path").length() / 11 - 1;
+                            comments.add(new Comment(rs2.getLong("commentId"), rs2.getString("content"),
+                                    rs2.getTimestamp("createdAt").getTime(), commentAuthor, false, id, depth, 0));
+                        }
+                    }
+                }
+
+                User author = User.of(rs.getLong("userId"), rs.getString("firstName"),
+                        rs.getString("lastName"));
+                expandedPosts.add(new ExpandedPost(id, rs.getString("content"),
+                        rs.getTimestamp("createdAt").getTime(), author, rs.getInt("heartsCount"), comments.size(),
+                        rs.getBoolean("isHearted"), false, false, comments));
+            }
+        }
+        return expandedPosts;
+    }
+
+    /**
+     * Runs a write that references a post. If the write fails because the
+     * post has been moved to the archive, the post is restored to the hot
+     * tier and the write is retried once. Returns the result of the write.
+     */
+    public <T> T writeToPost(String postId, PostWrite<T> write) throws SQLException {
+        try {
+            return write.run();
+        } catch (SQLIntegrityConstraintViolationException e) {
+            if (!restorePost(postId)) throw e;
+            return write.run();
+        }
+    }
+
+    /**
+     * A database write that may throw SQLException.
+     */
+    @FunctionalInterface
+    public interface PostWrite<T> {
+        T run() throws SQLException;
+    }
+
+    /**
+     * A row of posts_archive before its counts are read.
+     */
+    private record ArchivedPost(int postId, String content, long createdAt, User author) {
+    }
+
+    /**
+     * Runs the statements in one transaction. Each statement has a single
+     * IN list that is filled with the given post ids.
+     */
+    private void runInTransaction(Connection conn, String[] statements, List<Integer> postIds)
+            throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            for (String sql : statements) {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < postIds.size(); i++) {
+                        pstmt.setInt(i + 1, postIds.get(i));
+                    }
+                    pstmt.executeUpdate();
+                }
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Builds "(?, ?, ?)" with count placeholders.
+     */
+    private static String placeholders(int count) {
+        StringBuilder in = new StringBuilder("(");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) in.append(", ");
+            in.append("?");
+        }
+        return in.append(")").toString();
+    }
+}
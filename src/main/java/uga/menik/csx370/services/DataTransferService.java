@@ -0,0 +1,400 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import uga.menik.csx370.utility.EventLog;
+
+/**
+ * This service exports and imports platform data as gzip compressed NDJSON.
+ * Each line of a dump looks like {"table":"posts","row":{...}}.
+ * Tables are written in foreign key order so a dump can be imported as is.
+ * Exports stream rows from MySQL one at a time so memory use does not
+ * depend on table size. Imports run in batched chunks on several threads
+ * and can be resumed after a failure.
+ */
+@Service
+public class DataTransferService {
+
+    // Size of the buffers between the result set and the file channel.
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Tables in foreign key order, each with the filter used for single user exports.
+    private static final List<TableSpec> TABLES = List.of(
+        new TableSpec("user", "userId = ?"),
+        new TableSpec("posts", "authorId = ?"),
+        new TableSpec("hashtags", "postId IN (SELECT postId FROM posts WHERE authorId = ?)"),
+        new TableSpec("mentions", "postId IN (SELECT postId FROM posts WHERE authorId = ?)"),
+        new TableSpec("comments", "authorId = ?"),
+        new TableSpec("likes", "userId = ?"),
+        new TableSpec("bookmarks", "userId = ?"),
+        new TableSpec("follows", "userId = ?"),
+        new TableSpec("repost", "userId = ?"),
+        // The cold tier, see ArchiveService. It has no foreign keys.
+        new TableSpec("posts_archive", "authorId = ?"),
+        new TableSpec("hashtags_archive", "postId IN (SELECT postId FROM posts_archive WHERE authorId = ?)"),
+        new TableSpec("comments_archive", "authorId = ?"),
+        new TableSpec("likes_archive", "userId = ?")
+    );
+
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    public DataTransferService(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Exports all platform data to the given file.
+     * Returns the number of rows written.
+     */
+    public long exportAll(Path file) throws SQLException, IOException {
+        return export(file, null);
+    }
+
+    /**
+     * Exports the posts, comments, likes, bookmarks, follows and reposts
+     * made by a single user to the given file, archived ones included.
+     * Returns the number of rows written.
+     */
+    public long exportUser(String userId, Path file) throws SQLException, IOException {
+        return export(file, userId);
+    }
+
+    private long export(Path file, String userId) throws SQLException, IOException {
+        long rowCount = 0;
+        JsonFactory jsonFactory = objectMapper.getFactory();
+
+        try (
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            OutputStream out = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            JsonGenerator json = jsonFactory.createGenerator(out);
+            Connection conn = dataSource.getConnection()
+        ) {
+            json.setRootValueSeparator(null);
+            for (TableSpec spec : TABLES) {
+                String sql = "SELECT * FROM " + spec.table()
+                        + (userId == null ? "" : " WHERE " + spec.userFilter());
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    // Makes the MySQL driver stream rows instead of buffering the result.
+                    pstmt.setFetchSize(Integer.MIN_VALUE);
+                    if (userId != null) pstmt.setString(1, userId);
+
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        rowCount += writeRows(spec.table(), rs, json);
+                    }
+                }
+            }
+            json.flush();
+        }
+
+        return rowCount;
+    }
+
+    private long writeRows(String table, ResultSet rs, JsonGenerator json) throws SQLException, IOException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int columnCount = meta.getColumnCount();
+        long rowCount = 0;
+
+        while (rs.next()) {
+            json.writeStartObject();
+            json.writeStringField("table", table);
+            json.writeObjectFieldStart("row");
+            for (int i = 1; i <= columnCount; i++) {
+                json.writeFieldName(meta.getColumnLabel(i));
+                switch (meta.getColumnType(i)) {
+                    case Types.INTEGER, Types.BIGINT, Types.SMALLINT, Types.TINYINT -> {
+                        long value = rs.getLong(i);
+                        if (rs.wasNull()) json.writeNull();
+                        else json.writeNumber(value);
+                    }
+                    default -> {
+                        String value = rs.getString(i);
+                        if (value == null) json.writeNull();
+                        else json.writeString(value);
+                    }
+                }
+            }
+            json.writeEndObject();
+            json.writeEndObject();
+            json.writeRaw('\n');
+            rowCount++;
+        }
+
+        return rowCount;
+    }
+
+    /**
+     * Imports a dump written by one of the export functions.
+     * Rows are upserted in chunks of batchSize rows, with up to threads
+     * chunks in flight. Chunks of a table are only started once all chunks
+     * of the previous table are done, so foreign keys are satisfied.
+     * A row that breaks a foreign key or another constraint is logged and
+     * rejected while the rest of its chunk is imported.
+     * Finished chunks are recorded in a .progress file next to the dump, and
+     * running the import again skips them.
+     */
+    public ImportResult importFile(Path file, int batchSize, int threads)
+            throws SQLException, IOException, InterruptedException {
+        Path progressFile = file.resolveSibling(file.getFileName() + ".progress");
+        Set<Long> doneChunks = readProgress(progressFile, batchSize);
+        AtomicLong rejected = new AtomicLong();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        // Bounds the number of chunks held in memory at once.
+        Semaphore inFlight = new Semaphore(threads * 2);
+        List<Future<?>> pending = new ArrayList<>();
+        long rowCount = 0;
+        long chunkNo = 0;
+
+        try (
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Channels.newInputStream(channel), BUFFER_SIZE),
+                    StandardCharsets.UTF_8));
+            Writer progress = Files.newBufferedWriter(progressFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+        ) {
+            if (doneChunks.isEmpty()) {
+                progress.write("batchSize=" + batchSize + "\n");
+                progress.flush();
+            }
+
+            String table = null;
+            List<JsonNode> chunk = new ArrayList<>(batchSize);
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                JsonNode entry = objectMapper.readTree(line);
+                String rowTable = entry.get("table").asText();
+
+                if (!rowTable.equals(table) || chunk.size() == batchSize) {
+                    if (!chunk.isEmpty()) {
+                        submitChunk(executor, inFlight, pending, progress, doneChunks,
+                                chunkNo++, table, chunk, rejected);
+                        chunk = new ArrayList<>(batchSize);
+                    }
+                    if (!rowTable.equals(table)) {
+                        // Foreign key barrier between tables.
+                        awaitAll(pending);
+                        table = checkTable(rowTable);
+                    }
+                }
+                chunk.add(entry.get("row"));
+                rowCount++;
+            }
+
+            if (!chunk.isEmpty()) {
+                submitChunk(executor, inFlight, pending, progress, doneChunks, chunkNo, table, chunk,
+                        rejected);
+            }
+            awaitAll(pending);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Import finished, so there is nothing left to resume.
+        Files.deleteIfExists(progressFile);
+        return new ImportResult(rowCount - rejected.get(), rejected.get());
+    }
+
+    private void submitChunk(ExecutorService executor, Semaphore inFlight, List<Future<?>> pending,
+            Writer progress, Set<Long> doneChunks, long chunkNo, String table, List<JsonNode> rows,
+            AtomicLong rejected) throws InterruptedException {
+        if (doneChunks.contains(chunkNo)) return;
+
+        inFlight.acquire();
+        pending.add(executor.submit(() -> {
+            try {
+                rejected.addAndGet(insertChunk(table, rows));
+                synchronized (progress) {
+                    progress.write(chunkNo + "\n");
+                    progress.flush();
+                }
+                return null;
+            } finally {
+                inFlight.release();
+            }
+        }));
+    }
+
+    /**
+     * Upserts a chunk in one transaction. If the batch fails, the chunk is
+     * inserted again row by row so that only the rows MySQL refuses are
+     * left out. Returns the number of rejected rows.
+     */
+    private int insertChunk(String table, List<JsonNode> rows) throws SQLException {
+        // Column names come from the dump, so check them against the table.
+        List<String> columns = new ArrayList<>();
+        Iterator<String> names = rows.get(0).fieldNames();
+        names.forEachRemaining(columns::add);
+
+        try (Connection conn = dataSource.getConnection()) {
+            Set<String> tableColumns = getColumns(conn, table);
+            for (String column : columns) {
+                if (!tableColumns.contains(column.toLowerCase())) {
+                    throw new SQLException("Unknown column " + column + " in table " + table);
+                }
+            }
+
+            // Rows that already exist, from a resumed import, are overwritten.
+            String placeholders = String.join(", ", columns.stream().map(c -> "?").toList());
+            String updates = String.join(", ", columns.stream().map(c -> c + " = VALUES(" + c + ")").toList());
+            String sql = "INSERT INTO " + table + " (" + String.join(", ", columns)
+                    + ") VALUES (" + placeholders + ") ON DUPLICATE KEY UPDATE " + updates;
+
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                int rejected = 0;
+                try {
+                    for (JsonNode row : rows) {
+                        bindRow(pstmt, columns, row);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                } catch (BatchUpdateException e) {
+                    conn.rollback();
+                    pstmt.clearBatch();
+                    // A failed statement only undoes its own row.
+                    for (JsonNode row : rows) {
+                        bindRow(pstmt, columns, row);
+                        try {
+                            pstmt.executeUpdate();
+                        } catch (SQLException rowError) {
+                            rejected++;
+                            EventLog.warn("transfer", "Rejected row", "table", table, "row", row,
+                                    "error", rowError.getMessage());
+                        }
+                    }
+                }
+                conn.commit();
+                return rejected;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private void bindRow(PreparedStatement pstmt, List<String> columns, JsonNode row) throws SQLException {
+        for (int i = 0; i < columns.size(); i++) {
+            JsonNode value = row.get(columns.get(i));
+            if (value == null || value.isNull()) pstmt.setObject(i + 1, null);
+            else if (value.isIntegralNumber()) pstmt.setLong(i + 1, value.asLong());
+            else pstmt.setString(i + 1, value.asText());
+        }
+    }
+
+    private Set<String> getColumns(Connection conn, String table) throws SQLException {
+        Set<String> columns = new HashSet<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM " + table + " LIMIT 0");
+                ResultSet rs = pstmt.executeQuery()) {
+            ResultSetMetaData meta = rs.getMetaData();
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                columns.add(meta.getColumnLabel(i).toLowerCase());
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Only tables known to the exporter may be imported.
+     */
+    private String checkTable(String table) throws SQLException {
+        for (TableSpec spec : TABLES) {
+            if (spec.table().equals(table)) return table;
+        }
+        throw new SQLException("Unknown table in dump: " + table);
+    }
+
+    private Set<Long> readProgress(Path progressFile, int batchSize) throws IOException {
+        Set<Long> done = new HashSet<>();
+        if (!Files.exists(progressFile)) return done;
+
+        for (String line : Files.readAllLines(progressFile, StandardCharsets.UTF_8)) {
+            if (line.startsWith("batchSize=")) {
+                String previous = line.substring("batchSize=".length());
+                if (Integer.parseInt(previous) != batchSize) {
+                    throw new IOException("Resumed import must use batch size " + previous);
+                }
+            } else if (!line.isBlank()) {
+                done.add(Long.parseLong(line.trim()));
+            }
+        }
+        return done;
+    }
+
+    private void awaitAll(List<Future<?>> pending) throws SQLException, InterruptedException {
+        try {
+            for (Future<?> future : pending) future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) throw sqlException;
+            throw new SQLException("Import chunk failed.", e.getCause());
+        } finally {
+            pending.clear();
+        }
+    }
+
+    /**
+     * Outcome of an import: rows imported and rows MySQL rejected.
+     */
+    public record ImportResult(long rows, long rejected) {
+    }
+
+    /**
+     * A table and the WHERE clause selecting the rows of one user.
+     */
+    private record TableSpec(String table, String userFilter) {
+    }
+}
@@ -0,0 +1,273 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * This service ranks the home feed. A post scores higher the more the
+ * viewer engages with its author (affinity), the faster it is picking up
+ * likes, comments and reposts (velocity), and the newer it is.
+ * Affinity and velocity are kept in the author_affinity and
+ * post_engagement tables. They are updated from the outbox in batches,
+ * once per event across all nodes, so a feed request only reads them.
+ * Both decay over time, see V8__feed_scores.sql.
+ * A feed request scores a bounded set of candidates: the newest posts of
+ * followed users, the newest posts they reposted and the viewer's own
+ * newest posts, app.feed.ranked.candidates of each.
+ * Scores are only kept with the jdbc storage engine.
+ */
+@Service
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class FeedRankingService implements Projection {
+
+    /**
+     * Kinds of engagement and how much they count.
+     */
+    private enum Engagement {
+        LIKE(1.0, 1.0),
+        COMMENT(3.0, 2.0),
+        REPOST(5.0, 2.0);
+
+        // Added to the velocity of the post.
+        private final double velocity;
+        // Added to the affinity of the user to the author of the post.
+        private final double affinity;
+
+        Engagement(double velocity, double affinity) {
+            this.velocity = velocity;
+            this.affinity = affinity;
+        }
+    }
+
+    private final DataSource dataSource;
+    private final int candidates;
+    private final int feedSize;
+    private final double affinityWeight;
+    private final double velocityWeight;
+    private final double recencySeconds;
+    private final double affinityDecaySeconds;
+    private final double velocityDecaySeconds;
+
+    @Autowired
+    public FeedRankingService(DataSource dataSource,
+            @Value("${app.feed.ranked.candidates:200}") int candidates,
+            @Value("${app.feed.ranked.size:50}") int feedSize,
+            @Value("${app.feed.ranked.affinity-weight:1.0}") double affinityWeight,
+            @Value("${app.feed.ranked.velocity-weight:1.0}") double velocityWeight,
+            @Value("${app.feed.ranked.recency-hours:12}") double recencyHours,
+            @Value("${app.feed.ranked.affinity-decay-days:30}") double affinityDecayDays,
+            @Value("${app.feed.ranked.velocity-decay-hours:2}") double velocityDecayHours) {
+        this.dataSource = dataSource;
+        this.candidates = candidates;
+        this.feedSize = feedSize;
+        this.affinityWeight = affinityWeight;
+        this.velocityWeight = velocityWeight;
+        this.recencySeconds = recencyHours * 3600;
+        this.affinityDecaySeconds = affinityDecayDays * 86400;
+        this.velocityDecaySeconds = velocityDecayHours * 3600;
+    }
+
+    /**
+     * Returns the ids of the top posts for the user, best first.
+     * The score is
+     *   affinity-weight * ln(1 + affinity) + velocity-weight * ln(1 + velocity) - age / recency
+     * so a post loses a factor of e in rank every app.feed.ranked.recency-hours.
+     */
+    public List<String> getRankedPostIds(String userId) throws SQLException {
+        final String sql = """
+            SELECT c.postId,
+                ? * LN(1 + COALESCE(a.score * EXP(-TIMESTAMPDIFF(SECOND, a.updatedAt, NOW()) / ?), 0))
+                + ? * LN(1 + COALESCE(e.velocity * EXP(-TIMESTAMPDIFF(SECOND, e.updatedAt, NOW()) / ?), 0))
+                - TIMESTAMPDIFF(SECOND, c.createdAt, NOW()) / ? AS score
+            FROM (
+                (SELECT p.postId, p.authorId, p.createdAt
+                FROM follows f
+                JOIN posts p ON p.authorId = f.userIdFollowed
+                WHERE f.userId = ? AND p.deletedAt IS NULL
+                ORDER BY p.createdAt DESC
+                LIMIT ?)
+                UNION
+                (SELECT p.postId, p.authorId, p.createdAt
+                FROM follows f
+                JOIN repost r ON r.userId = f.userIdFollowed
+                JOIN posts p ON p.postId = r.originalPostId
+                WHERE f.userId = ? AND p.authorId <> ? AND p.deletedAt IS NULL
+                ORDER BY r.createdAt DESC
+                LIMIT ?)
+                UNION
+                (SELECT p.postId, p.authorId, p.createdAt
+                FROM posts p
+                WHERE p.authorId = ? AND p.deletedAt IS NULL
+                ORDER BY p.createdAt DESC
+                LIMIT ?)
+            ) c
+            LEFT JOIN author_affinity a ON a.userId = ? AND a.authorId = c.authorId
+            LEFT JOIN post_engagement e ON e.postId = c.postId
+            ORDER BY score DESC
+            LIMIT ?
+        """;
+
+        List<String> postIds = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+            PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            pstmt.setDouble(i++, affinityWeight);
+            pstmt.setDouble(i++, affinityDecaySeconds);
+            pstmt.setDouble(i++, velocityWeight);
+            pstmt.setDouble(i++, velocityDecaySeconds);
+            pstmt.setDouble(i++, recencySeconds);
+            pstmt.setString(i++, userId);
+            pstmt.setInt(i++, candidates);
+            pstmt.setString(i++, userId);
+            pstmt.setString(i++, userId);
+            pstmt.setInt(i++, candidates);
+            pstmt.setString(i++, userId);
+            pstmt.setInt(i++, candidates);
+            pstmt.setString(i++, userId);
+            pstmt.setInt(i++, feedSize);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    postIds.add(rs.getString("postId"));
+                }
+            }
+        }
+        return postIds;
+    }
+
+    @Override
+    public String getName() {
+        return "feed-ranking";
+    }
+
+    @Override
+    public boolean isCheckpointed() {
+        return true;
+    }
+
+    @Override
+    public void apply(Connection conn, List<OutboxEvent> events) throws SQLException {
+        List<Event> engagements = new ArrayList<>();
+        for (OutboxEvent event : events) {
+            Engagement engagement = switch (event.type()) {
+                case LIKE_ADDED -> Engagement.LIKE;
+                case COMMENT_ADDED -> Engagement.COMMENT;
+                case REPOST_ADDED -> Engagement.REPOST;
+                default -> null;
+            };
+            if (engagement != null) {
+                engagements.add(new Event(engagement, event.actorId(), event.aggregateId()));
+            }
+        }
+        if (!engagements.isEmpty()) write(conn, engagements);
+    }
+
+    /**
+     * Sums the events by post and by user and author, and adds the sums
+     * to the decayed values in two batches.
+     * MySQL applies the assignments of ON DUPLICATE KEY UPDATE in order,
+     * so the decay uses the old updatedAt.
+     */
+    private void write(Connection conn, List<Event> events) throws SQLException {
+        final String velocitySql = """
+            INSERT INTO post_engagement (postId, velocity, updatedAt)
+            VALUES (?, ?, NOW())
+            ON DUPLICATE KEY UPDATE
+                velocity = velocity * EXP(-TIMESTAMPDIFF(SECOND, updatedAt, NOW()) / ?) + VALUES(velocity),
+                updatedAt = NOW()
+        """;
+
+        final String affinitySql = """
+            INSERT INTO author_affinity (userId, authorId, score, updatedAt)
+            VALUES (?, ?, ?, NOW())
+            ON DUPLICATE KEY UPDATE
+                score = score * EXP(-TIMESTAMPDIFF(SECOND, updatedAt, NOW()) / ?) + VALUES(score),
+                updatedAt = NOW()
+        """;
+
+        Map<String, String> authors = getPostAuthors(conn, events);
+
+        Map<String, Double> velocities = new HashMap<>();
+        Map<List<String>, Double> affinities = new HashMap<>();
+        for (Event event : events) {
+            String authorId = authors.get(event.postId());
+            if (authorId == null) continue;
+            velocities.merge(event.postId(), event.engagement().velocity, Double::sum);
+            // Engaging with your own posts says nothing about your taste.
+            if (!authorId.equals(event.userId())) {
+                affinities.merge(List.of(event.userId(), authorId), event.engagement().affinity, Double::sum);
+            }
+        }
+
+        try (PreparedStatement pstmt = conn.prepareStatement(velocitySql)) {
+            for (Map.Entry<String, Double> entry : velocities.entrySet()) {
+                pstmt.setString(1, entry.getKey());
+                pstmt.setDouble(2, entry.getValue());
+                pstmt.setDouble(3, velocityDecaySeconds);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+
+        try (PreparedStatement pstmt = conn.prepareStatement(affinitySql)) {
+            for (Map.Entry<List<String>, Double> entry : affinities.entrySet()) {
+                pstmt.setString(1, entry.getKey().get(0));
+                pstmt.setString(2, entry.getKey().get(1));
+                pstmt.setDouble(3, entry.getValue());
+                pstmt.setDouble(4, affinityDecaySeconds);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * Looks up the authors of the posts of the events in one query.
+     */
+    private Map<String, String> getPostAuthors(Connection conn, List<Event> events) throws SQLException {
+        List<String> postIds = new ArrayList<>();
+        for (Event event : events) {
+            if (!postIds.contains(event.postId())) postIds.add(event.postId());
+        }
+
+        String placeholders = String.join(", ", Collections.nCopies(postIds.size(), "?"));
+        final String sql = "SELECT postId, authorId FROM posts WHERE postId IN (" + placeholders + ") AND deletedAt IS NULL";
+
+        Map<String, String> authors = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < postIds.size(); i++) {
+                pstmt.setString(i + 1, postIds.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    authors.put(rs.getString("postId"), rs.getString("authorId"));
+                }
+            }
+        }
+        return authors;
+    }
+
+    /**
+     * Engagement of a user with a post.
+     */
+    private record Event(Engagement engagement, String userId, String postId) {
+    }
+}
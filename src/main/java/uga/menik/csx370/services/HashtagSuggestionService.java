@@ -0,0 +1,87 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.services;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import uga.menik.csx370.repositories.PostRepository;
+import uga.menik.csx370.utility.EventLog;
+import uga.menik.csx370.utility.PrefixIndex;
+
+/**
+ * This service suggests hashtags for what the user has typed so far.
+ * All tags are kept in memory in a PrefixIndex weighted by the number of
+ * posts using them. The index is loaded at startup and updated as posts
+ * are created and deleted on any node, so suggestions never query the
+ * database.
+ */
+@Service
+public class HashtagSuggestionService implements InitializingBean, Projection {
+
+    private final PostRepository postRepository;
+    private final PrefixIndex index;
+
+    @Autowired
+    public HashtagSuggestionService(PostRepository postRepository,
+            @Value("${app.hashtag-suggestions.count:8}") int count) {
+        this.postRepository = postRepository;
+        this.index = new PrefixIndex(count);
+    }
+
+    /**
+     * Loads the usage count of every tag, including archived posts.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        try {
+            Map<String, Long> counts = postRepository.countHashtags();
+            counts.forEach(index::add);
+            EventLog.info("hashtag", "Loaded hashtag suggestions", "tags", counts.size());
+        } catch (SQLException e) {
+            // Suggestions start empty and fill up as posts are created.
+            EventLog.warn("hashtag", "Failed to load hashtag suggestions", "error", e);
+        }
+    }
+
+    /**
+     * Returns the most used tags starting with prefix.
+     * A leading # is ignored.
+     */
+    public List<String> suggest(String prefix) {
+        String normalized = prefix.trim().toLowerCase();
+        if (normalized.startsWith("#")) normalized = normalized.substring(1);
+        if (normalized.isEmpty()) return List.of();
+        return index.complete(normalized);
+    }
+
+    @Override
+    public String getName() {
+        return "hashtag-suggestions";
+    }
+
+    @Override
+    public void apply(Connection conn, List<OutboxEvent> events) {
+        for (OutboxEvent event : events) {
+            int uses = switch (event.type()) {
+                case POST_CREATED -> 1;
+                case POST_DELETED -> -1;
+                default -> 0;
+            };
+            if (uses == 0 || event.payload().isEmpty()) continue;
+            for (String tag : event.payload().split(" ")) {
+                index.add(tag, uses);
+            }
+        }
+    }
+}
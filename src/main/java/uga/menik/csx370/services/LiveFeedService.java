@@ -0,0 +1,233 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.services;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import uga.menik.csx370.components.PostFragmentCache;
+import uga.menik.csx370.models.Post;
+import uga.menik.csx370.utility.EventLog;
+
+/**
+ * This service pushes new posts to the home pages that are open.
+ * Each open page holds a server-sent events connection (see
+ * LiveFeedController). Connections are async servlet requests, so an idle
+ * connection holds no thread.
+ * When a post is created, the followers of its author who are connected
+ * get the rendered post. Every node reads new posts from the outbox, so
+ * followers connected to any node get them. The fan-out runs on its own
+ * thread so that the outbox is not held up by it.
+ * Every connection has a small bounded queue. A client that is too slow
+ * to keep it from filling up is disconnected and reloads the page to
+ * catch up.
+ */
+@Service
+public class LiveFeedService implements DisposableBean, Projection {
+
+    private final PostService postService;
+    private final PeopleService peopleService;
+    private final PostFragmentCache postFragmentCache;
+    private final long timeoutMillis;
+    private final int queueCapacity;
+
+    // Open connections by user id.
+    private final Map<String, Set<Connection>> connections = new ConcurrentHashMap<>();
+    // Resolves followers and renders posts.
+    private final ExecutorService fanOutExecutor = Executors.newSingleThreadExecutor(
+            runnable -> newDaemonThread(runnable, "live-feed-fan-out"));
+    // Writes queued events to the connections.
+    private final ExecutorService sendExecutor = Executors.newFixedThreadPool(4,
+            runnable -> newDaemonThread(runnable, "live-feed-send"));
+
+    @Autowired
+    public LiveFeedService(PostService postService, PeopleService peopleService,
+            PostFragmentCache postFragmentCache,
+            @Value("${app.live-feed.timeout-minutes:30}") long timeoutMinutes,
+            @Value("${app.live-feed.queue-capacity:32}") int queueCapacity) {
+        this.postService = postService;
+        this.peopleService = peopleService;
+        this.postFragmentCache = postFragmentCache;
+        this.timeoutMillis = TimeUnit.MINUTES.toMillis(timeoutMinutes);
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Opens a connection for the user. The browser reconnects by itself
+     * when the connection times out.
+     */
+    public SseEmitter subscribe(String userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Connection connection = new Connection(userId, emitter, new ArrayBlockingQueue<>(queueCapacity));
+        connections.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(connection);
+
+        emitter.onCompletion(() -> remove(connection));
+        emitter.onTimeout(() -> remove(connection));
+        emitter.onError(e -> remove(connection));
+        return emitter;
+    }
+
+    @Override
+    public String getName() {
+        return "live-feed";
+    }
+
+    @Override
+    public void apply(java.sql.Connection conn, List<OutboxEvent> events) {
+        if (connections.isEmpty()) return;
+        for (OutboxEvent event : events) {
+            if (event.type() != OutboxEvent.Type.POST_CREATED) continue;
+            fanOutExecutor.execute(() -> {
+                try {
+                    fanOut(event.aggregateId(), event.actorId());
+                } catch (Exception e) {
+                    EventLog.warn("live-feed", "Failed to push post", "postId", event.aggregateId(), "error", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Sends a comment line to every connection so that closed connections
+     * are noticed and proxies do not time them out.
+     */
+    @Scheduled(fixedDelay = 30_000)
+    public void sendHeartbeats() {
+        for (Set<Connection> userConnections : connections.values()) {
+            for (Connection connection : userConnections) {
+                enqueue(connection, SseEmitter.event().comment("heartbeat"));
+            }
+        }
+    }
+
+    /**
+     * Returns the number of open connections.
+     */
+    public int getConnectionCount() {
+        int count = 0;
+        for (Set<Connection> userConnections : connections.values()) {
+            count += userConnections.size();
+        }
+        return count;
+    }
+
+    @Override
+    public void destroy() {
+        fanOutExecutor.shutdownNow();
+        sendExecutor.shutdownNow();
+        for (Set<Connection> userConnections : connections.values()) {
+            for (Connection connection : userConnections) {
+                connection.emitter().complete();
+            }
+        }
+    }
+
+    private void fanOut(String postId, String authorId) throws Exception {
+        List<Connection> targets = new ArrayList<>();
+        addConnections(targets, authorId);
+
+        // Only ask the database when someone other than the author is
+        // connected. connections is keyed by user, the author may have
+        // several tabs open.
+        if (connections.size() > (connections.containsKey(authorId) ? 1 : 0)) {
+            for (String followerId : peopleService.getFollowerIds(authorId)) {
+                addConnections(targets, followerId);
+            }
+        }
+        if (targets.isEmpty()) return;
+
+        // A new post has no hearts, bookmarks or reposts yet, so it looks
+        // the same to every viewer. It is loaded without a viewer so that
+        // followers do not get the author's delete button.
+        Post post = postService.getPostById(postId, null);
+        if (post == null) return;
+        String html = postFragmentCache.render(post);
+
+        for (Connection connection : targets) {
+            enqueue(connection, SseEmitter.event().name("post").id(post.getPostId()).data(html));
+        }
+    }
+
+    private void addConnections(List<Connection> targets, String userId) {
+        Set<Connection> userConnections = connections.get(userId);
+        if (userConnections != null) targets.addAll(userConnections);
+    }
+
+    private void enqueue(Connection connection, SseEmitter.SseEventBuilder event) {
+        if (!connection.queue().offer(event)) {
+            EventLog.info("live-feed", "Dropping slow connection", "userId", connection.userId());
+            remove(connection);
+            connection.emitter().complete();
+            return;
+        }
+        if (connection.sending().compareAndSet(false, true)) {
+            sendExecutor.execute(() -> send(connection));
+        }
+    }
+
+    /**
+     * Writes the queued events of a connection. At most one thread sends
+     * to a connection at a time.
+     */
+    private void send(Connection connection) {
+        do {
+            SseEmitter.SseEventBuilder event;
+            while ((event = connection.queue().poll()) != null) {
+                try {
+                    connection.emitter().send(event);
+                } catch (IOException | IllegalStateException e) {
+                    // The client went away.
+                    remove(connection);
+                    connection.queue().clear();
+                    break;
+                }
+            }
+            connection.sending().set(false);
+            // An event may have been queued after the last poll.
+        } while (!connection.queue().isEmpty() && connection.sending().compareAndSet(false, true));
+    }
+
+    private void remove(Connection connection) {
+        connections.computeIfPresent(connection.userId(), (userId, userConnections) -> {
+            userConnections.remove(connection);
+            return userConnections.isEmpty() ? null : userConnections;
+        });
+    }
+
+    private static Thread newDaemonThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * An open connection and the events waiting to be sent to it.
+     */
+    private record Connection(String userId, SseEmitter emitter,
+            Queue<SseEmitter.SseEventBuilder> queue, AtomicBoolean sending) {
+
+        Connection(String userId, SseEmitter emitter, Queue<SseEmitter.SseEventBuilder> queue) {
+            this(userId, emitter, queue, new AtomicBoolean());
+        }
+    }
+}
@@ -0,0 +1,475 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import uga.menik.csx370.models.Notification;
+import uga.menik.csx370.models.User;
+import uga.menik.csx370.utility.EventLog;
+
+/**
+ * This service tells users when someone liked, commented on or reposted
+ * their post or followed them.
+ * Events are only queued in memory on the request path. A scheduled flush
+ * aggregates them by post and writes them in one batch. Events on a post
+ * are merged into its unread notification, so a popular post gives one
+ * "Alice and 41 others liked your post" instead of 42 rows. The actors of
+ * an unread notification are kept in notification_actors so that each
+ * is counted once.
+ * Unread counts for the top bar are kept in memory for up to
+ * app.notifications.max-cached-counts users and only read from the
+ * database the first time a user is seen. Every write and read of
+ * notifications appends a NOTIFICATIONS_CHANGED event to the outbox, and
+ * the count of its recipient is read again on every node that sees it.
+ * If that read fails, the last known count is shown and the database is
+ * not asked again for a while.
+ * Notifications are only kept with the jdbc storage engine.
+ */
+@Service
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class NotificationService implements Projection, DisposableBean {
+
+    /**
+     * Kinds of notifications and how they are shown.
+     */
+    public enum Type {
+        LIKE("liked your post"),
+        COMMENT("commented on your post"),
+        REPOST("reposted your post"),
+        FOLLOW("followed you");
+
+        private final String action;
+
+        Type(String action) {
+            this.action = action;
+        }
+    }
+
+    // Bounds of the wait after a failed unread count read, doubled on each failure.
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final DataSource dataSource;
+    private final OutboxService outboxService;
+    private final BlockingQueue<Event> pending;
+    // Number of unread notifications by user id.
+    private final Map<String, AtomicInteger> unreadCounts = new ConcurrentHashMap<>();
+    private final int maxCachedCounts;
+    // Users whose count in unreadCounts is out of date and read again when possible.
+    private final Set<String> staleCounts = ConcurrentHashMap.newKeySet();
+    // No unread count is read before this System.nanoTime() after a failure.
+    private volatile long unreadRetryAt;
+    private volatile long unreadBackoffNanos;
+
+    @Autowired
+    public NotificationService(DataSource dataSource, OutboxService outboxService,
+            @Value("${app.notifications.queue-capacity:10000}") int queueCapacity,
+            @Value("${app.notifications.max-cached-counts:10000}") int maxCachedCounts) {
+        this.dataSource = dataSource;
+        this.outboxService = outboxService;
+        this.pending = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxCachedCounts = maxCachedCounts;
+    }
+
+    /**
+     * Queues a notification for the author of postId.
+     */
+    public void notifyPostAuthor(Type type, String actorId, String postId) {
+        enqueue(new Event(type, actorId, postId, null));
+    }
+
+    /**
+     * Queues a notification that actorId followed recipientId.
+     */
+    public void notifyFollowed(String actorId, String recipientId) {
+        enqueue(new Event(Type.FOLLOW, actorId, null, recipientId));
+    }
+
+    /**
+     * Returns the number of unread notifications of the user, or the last
+     * known number, or 0, while the database cannot be read.
+     */
+    public int getUnreadCount(String userId) {
+        AtomicInteger count = unreadCounts.get(userId);
+        if (count != null && !staleCounts.contains(userId)) return count.get();
+        if (unreadBackoffNanos != 0 && System.nanoTime() - unreadRetryAt < 0) {
+            return count != null ? count.get() : 0;
+        }
+
+        final String sql = """
+            SELECT COUNT(*) AS unread
+            FROM notifications
+            WHERE recipientId = ? AND readSeq = 0
+        """;
+
+        try (Connection conn = dataSource.getConnection();
+            PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                int unread = rs.getInt("unread");
+                unreadBackoffNanos = 0;
+                staleCounts.remove(userId);
+                if (count != null) {
+                    count.set(unread);
+                    return unread;
+                }
+                evictIfFull();
+                AtomicInteger existing = unreadCounts.putIfAbsent(userId, new AtomicInteger(unread));
+                return existing == null ? unread : existing.get();
+            }
+        } catch (SQLException e) {
+            long backoff = Math.min(MAX_BACKOFF_NANOS, Math.max(MIN_BACKOFF_NANOS, unreadBackoffNanos * 2));
+            unreadRetryAt = System.nanoTime() + backoff;
+            unreadBackoffNanos = backoff;
+            EventLog.warn("notifications", "Failed to load unread count", "userId", userId,
+                    "retryInMs", TimeUnit.NANOSECONDS.toMillis(backoff), "error", e);
+            return count != null ? count.get() : 0;
+        }
+    }
+
+    /**
+     * Returns the latest notifications of the user, newest first.
+     */
+    public List<Notification> getNotifications(String userId) throws SQLException {
+        final String sql = """
+            SELECT n.type, n.postId, n.actorCount, n.readSeq,
+                DATE_FORMAT(n.updatedAt, '%b %d, %Y, %l:%i %p') AS date,
+                u.userId, u.firstName, u.lastName
+            FROM notifications n
+            JOIN user u ON u.userId = n.actorId
+            WHERE n.recipientId = ?
+            ORDER BY n.updatedAt DESC
+            LIMIT 50
+        """;
+
+        List<Notification> notifications = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+            PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Type type = Type.valueOf(rs.getString("type").toUpperCase());
+                    User actor = User.of(rs.getLong("userId"), rs.getString("firstName"),
+                            rs.getString("lastName"));
+                    notifications.add(new Notification(actor, rs.getInt("actorCount") - 1, type.action,
+                            type == Type.FOLLOW ? null : rs.getString("postId"),
+                            rs.getString("date"), rs.getInt("readSeq") == 0));
+                }
+            }
+        }
+        return notifications;
+    }
+
+    /**
+     * Marks all notifications of the user as read. The next event on the
+     * same post starts a new notification with its own actors.
+     */
+    public void markAllRead(String userId) throws SQLException {
+        final String sql = """
+            UPDATE notifications
+            SET readSeq = notificationId
+            WHERE recipientId = ? AND readSeq = 0
+        """;
+
+        final String actorsSql = "DELETE FROM notification_actors WHERE recipientId = ?";
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql);
+                PreparedStatement actorsStmt = conn.prepareStatement(actorsSql)) {
+                pstmt.setString(1, userId);
+                pstmt.executeUpdate();
+                actorsStmt.setString(1, userId);
+                actorsStmt.executeUpdate();
+                outboxService.append(conn, OutboxEvent.Type.NOTIFICATIONS_CHANGED, userId, userId);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        if (!unreadCounts.containsKey(userId)) evictIfFull();
+        unreadCounts.put(userId, new AtomicInteger());
+        staleCounts.remove(userId);
+    }
+
+    @Override
+    public String getName() {
+        return "notification-counts";
+    }
+
+    /**
+     * Marks the cached counts of the recipients of the events as out of
+     * date. This includes the notifications written on this node, whose
+     * counts were already updated; they are read once more.
+     */
+    @Override
+    public void apply(Connection conn, List<OutboxEvent> events) {
+        for (OutboxEvent event : events) {
+            if (event.type() == OutboxEvent.Type.NOTIFICATIONS_CHANGED
+                    && unreadCounts.containsKey(event.aggregateId())) {
+                staleCounts.add(event.aggregateId());
+            }
+        }
+    }
+
+    /**
+     * Writes the queued events. Runs every app.notifications.flush-ms.
+     */
+    @Scheduled(fixedDelayString = "${app.notifications.flush-ms:1000}")
+    public void flush() {
+        // Most runs find nothing to do.
+        if (pending.isEmpty()) return;
+        List<Event> events = new ArrayList<>();
+        pending.drainTo(events);
+        if (events.isEmpty()) return;
+
+        try {
+            write(aggregate(events));
+        } catch (SQLException e) {
+            EventLog.warn("notifications", "Failed to write notifications",
+                    "count", events.size(), "error", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        flush();
+    }
+
+    private void enqueue(Event event) {
+        if (!pending.offer(event)) {
+            EventLog.warn("notifications", "Queue full, dropping notification",
+                    "type", event.type(), "actorId", event.actorId());
+        }
+    }
+
+    /**
+     * Merges events of the same type on the same post or recipient.
+     */
+    private Collection<Group> aggregate(List<Event> events) {
+        Map<String, Group> groups = new LinkedHashMap<>();
+        for (Event event : events) {
+            String key = event.type() + ":" + (event.postId() != null ? event.postId() : event.recipientId());
+            Group group = groups.computeIfAbsent(key,
+                    k -> new Group(event.type(), event.postId(), event.recipientId()));
+            // Keep the latest actor last.
+            group.actorIds.remove(event.actorId());
+            group.actorIds.add(event.actorId());
+        }
+        return groups.values();
+    }
+
+    /**
+     * Writes the groups in one transaction. Their actors are added to
+     * notification_actors first and each notification takes its
+     * actorCount from there, so an actor is only counted once. Groups
+     * whose actors were all counted before are not written again.
+     */
+    private void write(Collection<Group> groups) throws SQLException {
+        final String actorSql = """
+            INSERT IGNORE INTO notification_actors (recipientId, type, postId, actorId)
+            VALUES (?, ?, ?, ?)
+        """;
+
+        final String insertSql = """
+            INSERT INTO notifications (recipientId, type, postId, actorId, actorCount)
+            SELECT ?, ?, ?, ?, COUNT(*)
+            FROM notification_actors
+            WHERE recipientId = ? AND type = ? AND postId = ?
+            ON DUPLICATE KEY UPDATE
+                actorCount = VALUES(actorCount),
+                actorId = VALUES(actorId),
+                updatedAt = CURRENT_TIMESTAMP
+        """;
+
+        try (Connection conn = dataSource.getConnection()) {
+            Map<String, String> authors = getPostAuthors(conn, groups);
+
+            List<Group> toWrite = new ArrayList<>();
+            for (Group group : groups) {
+                if (group.postId != null) group.recipientId = authors.get(group.postId);
+                // Nobody is told about their own actions.
+                group.actorIds.remove(group.recipientId);
+                if (group.recipientId != null && !group.actorIds.isEmpty()) toWrite.add(group);
+            }
+            if (toWrite.isEmpty()) return;
+
+            List<String> recipients = new ArrayList<>();
+            int[] results;
+            conn.setAutoCommit(false);
+            try (PreparedStatement actorStmt = conn.prepareStatement(actorSql);
+                PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
+                for (Group group : toWrite) {
+                    for (String actorId : group.actorIds) {
+                        actorStmt.setString(1, group.recipientId);
+                        actorStmt.setString(2, group.getTypeName());
+                        actorStmt.setString(3, group.getPostIdOrZero());
+                        actorStmt.setString(4, actorId);
+                        actorStmt.addBatch();
+                    }
+                }
+                int[] added = actorStmt.executeBatch();
+
+                int row = 0;
+                for (Group group : toWrite) {
+                    // MySQL reports 0 for an actor that was already there.
+                    boolean hasNewActor = false;
+                    for (int i = 0; i < group.actorIds.size(); i++) {
+                        if (added[row++] != 0) hasNewActor = true;
+                    }
+                    if (!hasNewActor) continue;
+
+                    List<String> actorIds = new ArrayList<>(group.actorIds);
+                    pstmt.setString(1, group.recipientId);
+                    pstmt.setString(2, group.getTypeName());
+                    pstmt.setString(3, group.getPostIdOrZero());
+                    pstmt.setString(4, actorIds.get(actorIds.size() - 1));
+                    pstmt.setString(5, group.recipientId);
+                    pstmt.setString(6, group.getTypeName());
+                    pstmt.setString(7, group.getPostIdOrZero());
+                    pstmt.addBatch();
+                    recipients.add(group.recipientId);
+                }
+                results = recipients.isEmpty() ? new int[0] : pstmt.executeBatch();
+                for (String recipientId : new LinkedHashSet<>(recipients)) {
+                    outboxService.append(conn, OutboxEvent.Type.NOTIFICATIONS_CHANGED, recipientId, recipientId);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+            for (int i = 0; i < results.length; i++) {
+                updateUnreadCount(recipients.get(i), results[i]);
+            }
+        }
+    }
+
+    /**
+     * Keeps the cached unread count in step with a write. MySQL reports 1
+     * for a new row and 2 for a merge into an existing unread row.
+     */
+    private void updateUnreadCount(String recipientId, int result) {
+        if (result == 1) {
+            unreadCounts.computeIfPresent(recipientId, (userId, count) -> {
+                count.incrementAndGet();
+                return count;
+            });
+        } else if (result == Statement.SUCCESS_NO_INFO && unreadCounts.containsKey(recipientId)) {
+            staleCounts.add(recipientId);
+        }
+    }
+
+    /**
+     * Keeps the cached counts bounded by dropping about a tenth of them
+     * once it is full. Dropped counts are read again on the next visit.
+     */
+    private void evictIfFull() {
+        if (unreadCounts.size() < maxCachedCounts) return;
+        int toRemove = Math.max(1, maxCachedCounts / 10);
+        Iterator<String> userIds = unreadCounts.keySet().iterator();
+        while (toRemove-- > 0 && userIds.hasNext()) {
+            staleCounts.remove(userIds.next());
+            userIds.remove();
+        }
+    }
+
+    /**
+     * Looks up the authors of the posts of the groups in one query.
+     */
+    private Map<String, String> getPostAuthors(Connection conn, Collection<Group> groups) throws SQLException {
+        List<String> postIds = new ArrayList<>();
+        for (Group group : groups) {
+            if (group.postId != null) postIds.add(group.postId);
+        }
+        if (postIds.isEmpty()) return Map.of();
+
+        String placeholders = String.join(", ", Collections.nCopies(postIds.size(), "?"));
+        final String sql = "SELECT postId, authorId FROM posts WHERE postId IN (" + placeholders + ") AND deletedAt IS NULL";
+
+        Map<String, String> authors = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < postIds.size(); i++) {
+                pstmt.setString(i + 1, postIds.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    authors.put(rs.getString("postId"), rs.getString("authorId"));
+                }
+            }
+        }
+        return authors;
+    }
+
+    /**
+     * An event waiting to be written. Either postId or recipientId is set.
+     */
+    private record Event(Type type, String actorId, String postId, String recipientId) {
+    }
+
+    /**
+     * Events of one type on one post or recipient.
+     */
+    private static final class Group {
+        private final Type type;
+        private final String postId;
+        // For events on a post, set to its author before writing.
+        private String recipientId;
+        // Distinct actors, the latest last.
+        private final Set<String> actorIds = new LinkedHashSet<>();
+
+        Group(Type type, String postId, String recipientId) {
+            this.type = type;
+            this.postId = postId;
+            this.recipientId = recipientId;
+        }
+
+        String getTypeName() {
+            return type.name().toLowerCase();
+        }
+
+        // Follows are stored with postId 0.
+        String getPostIdOrZero() {
+            return postId != null ? postId : "0";
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.services;
+
+/**
+ * A change read from the outbox. See OutboxService.
+ *
+ * @param eventId     the position of the event in the outbox
+ * @param type        what changed
+ * @param aggregateId the post, or for follows the followed user, or for
+ *                    notifications their recipient
+ * @param actorId     the user who made the change
+ * @param payload     details of the change, depending on the type
+ * @param createdAt   when the change was made, in epoch milliseconds
+ */
+public record OutboxEvent(long eventId, Type type, String aggregateId, String actorId, String payload,
+        long createdAt) {
+
+    /**
+     * Kinds of changes and what their payload holds.
+     */
+    public enum Type {
+        // Payload: the hashtags of the post, separated by spaces.
+        POST_CREATED,
+        // Payload: the hashtags of the post, separated by spaces.
+        POST_DELETED,
+        // Payload: the comment id.
+        COMMENT_ADDED,
+        // Payload: the comment id.
+        COMMENT_DELETED,
+        LIKE_ADDED,
+        LIKE_REMOVED,
+        BOOKMARK_ADDED,
+        BOOKMARK_REMOVED,
+        REPOST_ADDED,
+        REPOST_REMOVED,
+        FOLLOW_ADDED,
+        FOLLOW_REMOVED,
+        // Notifications of the recipient were written or read.
+        NOTIFICATIONS_CHANGED
+    }
+}
@@ -0,0 +1,357 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import uga.menik.csx370.utility.EventLog;
+
+/**
+ * This service keeps the outbox: every write of the JDBC repositories
+ * appends an OutboxEvent in the same transaction, so an event exists if
+ * and only if its change was committed.
+ * Every node tails the outbox and feeds the events to the Projection beans
+ * in batches of app.outbox.batch-size. Checkpointed projections share one
+ * position in projection_checkpoints; the others, which keep local caches,
+ * follow the outbox from where the node started. No broker is needed for
+ * the nodes to see each other's changes.
+ * Event ids are assigned on insert but transactions commit in any order,
+ * so a missing id may still show up. Tailing stops before such a gap for
+ * up to app.outbox.gap-wait-ms before assuming the transaction rolled back.
+ */
+@Service
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class OutboxService {
+
+    private final DataSource dataSource;
+    private final ObjectProvider<Projection> projectionProvider;
+    private final int batchSize;
+    private final long gapWaitMillis;
+    private final int retentionHours;
+
+    // Loaded on first dispatch since projections may depend on this service.
+    private List<Projection> checkpointed;
+    private List<Projection> local;
+    // Position of the local projections on this node, -1 until started.
+    private long localPosition = -1;
+    // Gaps being waited on, by projection name or "" for the local projections.
+    private final Map<String, Gap> gaps = new ConcurrentHashMap<>();
+
+    @Autowired
+    public OutboxService(DataSource dataSource, ObjectProvider<Projection> projectionProvider,
+            @Value("${app.outbox.batch-size:500}") int batchSize,
+            @Value("${app.outbox.gap-wait-ms:5000}") long gapWaitMillis,
+            @Value("${app.outbox.retention-hours:24}") int retentionHours) {
+        this.dataSource = dataSource;
+        this.projectionProvider = projectionProvider;
+        this.batchSize = batchSize;
+        this.gapWaitMillis = gapWaitMillis;
+        this.retentionHours = retentionHours;
+    }
+
+    /**
+     * Runs work in one transaction on one connection. Changes made with
+     * the connection and the events appended with it commit together.
+     */
+    public <T> T inTransaction(Work<T> work) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                T result = work.run(conn);
+                conn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Appends an event in the transaction of conn.
+     */
+    public void append(Connection conn, OutboxEvent.Type type, String aggregateId, String actorId,
+            String payload) throws SQLException {
+        append(conn, type, aggregateId, actorId, payload, null);
+    }
+
+    /**
+     * Appends an event for a change made at createdAt, such as a write
+     * replayed from WriteSpool, in the transaction of conn. createdAt
+     * null means now.
+     */
+    public void append(Connection conn, OutboxEvent.Type type, String aggregateId, String actorId,
+            String payload, Timestamp createdAt) throws SQLException {
+        final String sql = """
+            INSERT INTO outbox (type, aggregateId, actorId, payload, createdAt)
+            VALUES (?, ?, ?, ?, COALESCE(?, CURRENT_TIMESTAMP))
+        """;
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, type.name());
+            pstmt.setString(2, aggregateId);
+            pstmt.setString(3, actorId);
+            pstmt.setString(4, payload);
+            pstmt.setTimestamp(5, createdAt);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Appends an event without a payload.
+     */
+    public void append(Connection conn, OutboxEvent.Type type, String aggregateId, String actorId)
+            throws SQLException {
+        append(conn, type, aggregateId, actorId, "");
+    }
+
+    /**
+     * Feeds new events to the projections. Runs every app.outbox.poll-ms.
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.poll-ms:200}")
+    public void dispatch() {
+        if (checkpointed == null) loadProjections();
+
+        for (Projection projection : checkpointed) {
+            try {
+                while (dispatchCheckpointed(projection) == batchSize) {
+                    // Keep going while there is a backlog.
+                }
+            } catch (SQLException | RuntimeException e) {
+                EventLog.warn("outbox", "Projection failed", "projection", projection.getName(), "error", e);
+            }
+        }
+
+        if (local.isEmpty()) return;
+        try {
+            while (dispatchLocal() == batchSize) {
+                // Keep going while there is a backlog.
+            }
+        } catch (SQLException e) {
+            EventLog.warn("outbox", "Failed to read outbox", "error", e);
+        }
+    }
+
+    /**
+     * Deletes events older than app.outbox.retention-hours that all
+     * checkpointed projections have applied, in chunks.
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.prune-interval-ms:600000}")
+    public void prune() {
+        final String sql = """
+            DELETE FROM outbox
+            WHERE createdAt < NOW() - INTERVAL ? HOUR
+            AND eventId <= (SELECT COALESCE(MIN(lastEventId), 0) FROM projection_checkpoints)
+            LIMIT ?
+        """;
+
+        int total = 0;
+        int deleted;
+        try {
+            do {
+                try (Connection conn = dataSource.getConnection();
+                    PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, retentionHours);
+                    pstmt.setInt(2, batchSize);
+                    deleted = pstmt.executeUpdate();
+                }
+                total += deleted;
+            } while (deleted == batchSize);
+        } catch (SQLException e) {
+            EventLog.warn("outbox", "Failed to prune outbox", "error", e);
+        }
+        if (total > 0) EventLog.info("outbox", "Pruned outbox", "events", total);
+    }
+
+    private synchronized void loadProjections() {
+        if (checkpointed != null) return;
+        List<Projection> checkpointedProjections = new ArrayList<>();
+        List<Projection> localProjections = new ArrayList<>();
+        for (Projection projection : projectionProvider) {
+            (projection.isCheckpointed() ? checkpointedProjections : localProjections).add(projection);
+        }
+        local = localProjections;
+        checkpointed = checkpointedProjections;
+    }
+
+    /**
+     * Applies the next batch to a checkpointed projection. The checkpoint
+     * row is locked for the transaction, so nodes take turns.
+     * Returns the number of events read.
+     */
+    private int dispatchCheckpointed(Projection projection) throws SQLException {
+        final String createSql = "INSERT IGNORE INTO projection_checkpoints (name) VALUES (?)";
+        final String lockSql = "SELECT lastEventId FROM projection_checkpoints WHERE name = ? FOR UPDATE";
+        final String updateSql = """
+            UPDATE projection_checkpoints
+            SET lastEventId = ?, updatedAt = NOW()
+            WHERE name = ?
+        """;
+
+        return inTransaction(conn -> {
+            long position;
+            try (PreparedStatement pstmt = conn.prepareStatement(createSql)) {
+                pstmt.setString(1, projection.getName());
+                pstmt.executeUpdate();
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(lockSql)) {
+                pstmt.setString(1, projection.getName());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    position = rs.getLong("lastEventId");
+                }
+            }
+
+            List<OutboxEvent> read = read(conn, position);
+            List<OutboxEvent> events = untilGap(conn, projection.getName(), position, read);
+            if (events.isEmpty()) return 0;
+
+            projection.apply(conn, events);
+            try (PreparedStatement pstmt = conn.prepareStatement(updateSql)) {
+                pstmt.setLong(1, events.get(events.size() - 1).eventId());
+                pstmt.setString(2, projection.getName());
+                pstmt.executeUpdate();
+            }
+            return events.size() == read.size() ? read.size() : 0;
+        });
+    }
+
+    /**
+     * Applies the next batch to the local projections.
+     * Returns the number of events read.
+     */
+    private int dispatchLocal() throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            if (localPosition < 0) {
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "SELECT COALESCE(MAX(eventId), 0) AS position FROM outbox");
+                    ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    localPosition = rs.getLong("position");
+                }
+            }
+
+            List<OutboxEvent> read = read(conn, localPosition);
+            List<OutboxEvent> events = untilGap(conn, "", localPosition, read);
+            if (events.isEmpty()) return 0;
+
+            for (Projection projection : local) {
+                try {
+                    projection.apply(conn, events);
+                } catch (SQLException | RuntimeException e) {
+                    // Local caches are best effort; one failing does not hold up the others.
+                    EventLog.warn("outbox", "Projection failed", "projection", projection.getName(), "error", e);
+                }
+            }
+            localPosition = events.get(events.size() - 1).eventId();
+            return events.size() == read.size() ? read.size() : 0;
+        }
+    }
+
+    private List<OutboxEvent> read(Connection conn, long position) throws SQLException {
+        final String sql = """
+            SELECT eventId, type, aggregateId, actorId, payload, createdAt
+            FROM outbox
+            WHERE eventId > ?
+            ORDER BY eventId
+            LIMIT ?
+        """;
+
+        List<OutboxEvent> events = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, position);
+            pstmt.setInt(2, batchSize);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    events.add(new OutboxEvent(rs.getLong("eventId"),
+                            OutboxEvent.Type.valueOf(rs.getString("type")),
+                            rs.getString("aggregateId"), rs.getString("actorId"), rs.getString("payload"),
+                            rs.getTimestamp("createdAt").getTime()));
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Returns the events before the first missing id, unless that id has
+     * been missing for longer than app.outbox.gap-wait-ms. A skipped event
+     * that commits later is never applied, so skips are logged as
+     * warnings and recorded in outbox_skipped with the connection of the
+     * batch; a long transaction that writes to the outbox shows up here.
+     */
+    private List<OutboxEvent> untilGap(Connection conn, String cursor, long position, List<OutboxEvent> events)
+            throws SQLException {
+        long expected = position + 1;
+        for (int i = 0; i < events.size(); i++) {
+            long eventId = events.get(i).eventId();
+            if (eventId != expected && position > 0) {
+                long now = System.currentTimeMillis();
+                Gap gap = gaps.get(cursor);
+                if (gap == null || gap.eventId() != expected) {
+                    gaps.put(cursor, new Gap(expected, now));
+                    return events.subList(0, i);
+                }
+                if (now - gap.since() < gapWaitMillis) return events.subList(0, i);
+                String projection = cursor.isEmpty() ? "local" : cursor;
+                EventLog.warn("outbox", "Skipping missing events", "projection", projection,
+                        "from", expected, "to", eventId - 1, "waitedMs", now - gap.since());
+                recordSkip(conn, projection, expected, eventId - 1, now - gap.since());
+            }
+            expected = eventId + 1;
+        }
+        return events;
+    }
+
+    private void recordSkip(Connection conn, String projection, long fromEventId, long toEventId, long waitedMs)
+            throws SQLException {
+        final String sql = """
+            INSERT INTO outbox_skipped (projection, fromEventId, toEventId, waitedMs)
+            VALUES (?, ?, ?, ?)
+        """;
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, projection);
+            pstmt.setLong(2, fromEventId);
+            pstmt.setLong(3, toEventId);
+            pstmt.setLong(4, waitedMs);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Database work that may throw SQLException.
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+        T run(Connection conn) throws SQLException;
+    }
+
+    /**
+     * A missing event id and when it was first seen missing.
+     */
+    private record Gap(long eventId, long since) {
+    }
+}
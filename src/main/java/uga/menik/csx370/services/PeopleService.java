@@ -5,30 +5,30 @@ This is a project developed by Dr. Menik to give the students an opportunity to
 */
 package uga.menik.csx370.services;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.List;
 
-import javax.sql.DataSource;
-
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import uga.menik.csx370.models.FollowableUser;
+import uga.menik.csx370.repositories.FollowRepository;
 
 /**
  * This service contains people related functions.
  */
 @Service
 public class PeopleService {
-    private final DataSource dataSource;
+    private final FollowRepository followRepository;
+    // Null with the in-memory storage engine, which has no notifications.
+    private final NotificationService notificationService;
 
     @Autowired
-    public PeopleService(DataSource dataSource) {
-        this.dataSource = dataSource;
+    public PeopleService(FollowRepository followRepository,
+            ObjectProvider<NotificationService> notificationServiceProvider) {
+        this.followRepository = followRepository;
+        this.notificationService = notificationServiceProvider.getIfAvailable();
     }
 
     /**
@@ -37,70 +37,16 @@ public class PeopleService {
      * with id userIdToExclude.
      */
     public List<FollowableUser> getFollowableUsers(String userIdToExclude) throws SQLException {
-        // The output list of people.
-        List<FollowableUser> output = new ArrayList<>();
-        // Note the ? placeholder, filled in later, used to avoid problems such as SQL injection.
-        final String sql = """
-            SELECT u.userId, u.firstName, u.lastName, 
-                DATE_FORMAT(MAX(p.createdAt), '%b %d, %Y, %l:%i %p') AS lastPostDate,
-                EXISTS (
-                    SELECT 1
-                    FROM follows f
-                    WHERE f.userId = ?
-                    AND f.useridFollowed = u.userId
-                ) as isFollowed
-            FROM user u
-            LEFT JOIN posts p ON p.authorId = u.userId
-            WHERE u.userId != ?
-            GROUP BY u.userId, u.firstName, u.lastName
-            ORDER BY lastPostDate DESC
-        """;
-        
-        try (
-            // Connect to database
-            Connection conn = dataSource.getConnection();
-            // Prepare statement
-            PreparedStatement pstmt = conn.prepareStatement(sql)
-        ) {
-            pstmt.setString(1, userIdToExclude);
-            pstmt.setString(2, userIdToExclude);
-            // The results of the query
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    // Extracting data from the result set.
-                    String userId = rs.getString("userId");
-                    String firstName = rs.getString("firstName");
-                    String lastName = rs.getString("lastName");
-                    String lastPostDate = rs.getString("lastPostDate");
-                    Boolean isFollowed = rs.getBoolean("isFollowed");
-
-                    // If the user has never posted, lastPostDate will be null.
-                    if (lastPostDate == null) lastPostDate = ": Never";
-
-                    // Create FollowableUser object and add to output list.
-                    FollowableUser user = new FollowableUser(userId, firstName, lastName, isFollowed, lastPostDate);
-                    output.add(user);
-                }
-            }
-
-            return output;
-        }
+        return followRepository.findFollowableUsers(userIdToExclude);
     }
 
     /**
      * Make loggedInUserId follow targetUserId.
+     * The followed user is notified if they were not followed yet.
      */
     public void followUser(String loggedInUserId, String targetUserId) throws SQLException {
-        final String sql = """
-            INSERT INTO follows (userId, userIdFollowed)
-            VALUES (?, ?)
-        """;
-
-        try (Connection conn = dataSource.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, loggedInUserId);
-            pstmt.setString(2, targetUserId);
-            pstmt.executeUpdate();
+        if (followRepository.follow(loggedInUserId, targetUserId) && notificationService != null) {
+            notificationService.notifyFollowed(loggedInUserId, targetUserId);
         }
     }
 
@@ -108,17 +54,14 @@ public class PeopleService {
      * Make loggedInUserId unfollow targetUserId.
      */
     public void unfollowUser(String loggedInUserId, String targetUserId) throws SQLException {
-        final String sql = """
-            DELETE FROM follows
-            WHERE userId = ? AND userIdFollowed = ?
-        """;
+        followRepository.unfollow(loggedInUserId, targetUserId);
+    }
 
-        try (Connection conn = dataSource.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, loggedInUserId);
-            pstmt.setString(2, targetUserId);
-            pstmt.executeUpdate();
-        }
+    /**
+     * Returns the ids of the users following userId.
+     */
+    public List<String> getFollowerIds(String userId) throws SQLException {
+        return followRepository.findFollowerIds(userId);
     }
 
 
@@ -1,128 +1,107 @@
 package uga.menik.csx370.services;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
-
-import javax.sql.DataSource;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import uga.menik.csx370.models.Comment;
 import uga.menik.csx370.models.ExpandedPost;
 import uga.menik.csx370.models.Post;
 import uga.menik.csx370.models.User;
+import uga.menik.csx370.repositories.CommentRepository;
+import uga.menik.csx370.repositories.CommentRepository.CommentRow;
+import uga.menik.csx370.repositories.EngagementRepository;
+import uga.menik.csx370.repositories.PostRepository;
+import uga.menik.csx370.repositories.PostRepository.Cursor;
+import uga.menik.csx370.repositories.PostRepository.Page;
+import uga.menik.csx370.utility.EventLog;
+import uga.menik.csx370.utility.SingleFlight;
+import uga.menik.csx370.utility.TextTokens;
 
 @Service
 public class PostService {
-    private final DataSource dataSource;
+    // Deepest comment path the comments table can hold. See V7__comment_threads.sql.
+    private static final int MAX_PATH_DEPTH = 32;
+
+    private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+    private final EngagementRepository engagementRepository;
+    // Null with the memory storage engine, like writeSpool.
+    private final NotificationService notificationService;
+    // Null with the memory storage engine.
+    private final WriteSpool writeSpool;
+    private final int maxCommentDepth;
+    private final int inlineCommentLevels;
+    private final int pageSize;
+    // Concurrent loads of the same post page share one fetch.
+    private final SingleFlight<String, PostThread> postThreadLoads = new SingleFlight<>();
 
     @Autowired
-    public PostService(DataSource dataSource) {
-        this.dataSource = dataSource;
+    public PostService(PostRepository postRepository, CommentRepository commentRepository,
+            EngagementRepository engagementRepository, ObjectProvider<NotificationService> notificationServiceProvider,
+            ObjectProvider<WriteSpool> writeSpoolProvider,
+            @Value("${app.comments.max-depth:8}") int maxCommentDepth,
+            @Value("${app.comments.inline-levels:3}") int inlineCommentLevels,
+            @Value("${app.posts.page-size:20}") int pageSize) {
+        this.postRepository = postRepository;
+        this.commentRepository = commentRepository;
+        this.engagementRepository = engagementRepository;
+        this.notificationService = notificationServiceProvider.getIfAvailable();
+        this.writeSpool = writeSpoolProvider.getIfAvailable();
+        this.maxCommentDepth = Math.min(maxCommentDepth, MAX_PATH_DEPTH - 1);
+        this.inlineCommentLevels = inlineCommentLevels;
+        this.pageSize = pageSize;
     }
 
     /**
-     * Get all posts from users followed by the logged in user.
+     * Returns a page of app.posts.page-size posts of the home feed of the
+     * logged in user, starting after the cursor "after" of the previous
+     * page, or with the newest post if it is null. The feed has the posts
+     * of followed users, posts they reposted and the user's own posts,
+     * newest first. Each post appears once, at the time of its newest
+     * post or repost. A reposted post names the followed user who
+     * reposted it last and how many others did.
      */
-    public List<Post> getPostsFromFollowedUsers(String loggedInUserId) throws SQLException {
-        final String sql = """
-        
-            (SELECT p.postId, p.body AS content,
-                DATE_FORMAT(p.createdAt, '%b %d, %Y, %l:%i %p') AS postDate,
-                u.userId, u.firstName, u.lastName,
-                (SELECT COUNT(*) FROM likes l WHERE l.postId = p.postId) AS heartsCount,
-                (SELECT COUNT(*) FROM comments c WHERE c.postId = p.postId) AS commentsCount
-            FROM posts p
-            JOIN user u ON u.userId = p.authorId
-            JOIN follows f ON f.userIdFollowed = p.authorId
-            WHERE f.userId = ?
-            ORDER BY p.createdAt DESC)
-            UNION ALL
-            (SELECT 2p.postId, 2p.body AS content,
-                DATE_FORMAT(2p.createdAt, '%b %d, %Y, %l:%i %p') AS postDate,
-                2u.userId, 2u.firstName, 2u.lastName,
-                (SELECT COUNT(*) FROM likes l WHERE l.postId = 2p.postId) AS heartsCount,
-                (SELECT COUNT(*) FROM comments c WHERE c.postId = 2p.postId) AS commentsCount
-            FROM repost r
-            JOIN posts 2p ON 2p.postId = r.originalPostId
-            JOIN user 2u ON 2u.userId = 2p.authorId
-            JOIN follows f ON f.userIdFollowed = r.userId
-            WHERE f.userId = ?
-            AND r.userId <> ?
-            ORDER BY 2p.createdAt DESC)   
-        """;
-        
-        try (
-            Connection conn = dataSource.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql)
-        ) {
-            pstmt.setString(1, loggedInUserId);
-            pstmt.setString(2, loggedInUserId); // reposts: follows
-            pstmt.setString(3, loggedInUserId);
-            return getPostsFromSet(pstmt, loggedInUserId);
-        }
+    public Page getHomeFeed(String loggedInUserId, String after) throws SQLException {
+        return postRepository.findHomeFeed(loggedInUserId, Cursor.parse(after), pageSize);
     }
 
     /**
-     * Returns posts made by a specific user.
+     * Returns the posts with the given ids in the given order.
+     * Posts that were deleted in the meantime are left out.
      */
-    public List<Post> getPostsByUserId(String userId, String userIdOfLoggedIn) throws SQLException {
-        final String sql = """
-            SELECT p.postId, p.body AS content,
-                DATE_FORMAT(p.createdAt, '%b %d, %Y, %l:%i %p') AS postDate,
-                u.userId, u.firstName, u.lastName,
-                (SELECT COUNT(*) FROM likes l WHERE l.postId = p.postId) AS heartsCount,
-                (SELECT COUNT(*) FROM comments c WHERE c.postId = p.postId) AS commentsCount
-            FROM posts p
-            JOIN user u ON u.userId = p.authorId
-            WHERE u.userId = ?
-            ORDER BY p.createdAt DESC
-        """;
-        
-        try (
-            Connection conn = dataSource.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql)
-        ) {
-            pstmt.setString(1, userId);
-            return getPostsFromSet(pstmt, userIdOfLoggedIn);
-
-
-
+    public List<Post> getPostsByIds(List<String> postIds, String loggedInUserId) throws SQLException {
+        if (postIds.isEmpty()) return new ArrayList<>();
+        return postRepository.findByIds(postIds, loggedInUserId);
+    }
 
-        }
+    /**
+     * Returns a page of app.posts.page-size posts made by a specific user,
+     * starting after the cursor "after" of the previous page, or with the
+     * newest post if it is null.
+     * Archived posts of the user follow the ones in the hot tier.
+     */
+    public Page getPostsByUserId(String userId, String userIdOfLoggedIn, String after) throws SQLException {
+        return postRepository.findByAuthor(userId, userIdOfLoggedIn, Cursor.parse(after), pageSize);
     }
 
     /**
      * Returns bookmarked posts of the logged in user.
      */
     public List<Post> getBookmarkedPosts(String loggedInUserId) throws SQLException {
-        final String sql = """
-            SELECT p.postId, p.body AS content,
-                DATE_FORMAT(p.createdAt, '%b %d, %Y, %l:%i %p') AS postDate,
-                u.userId, u.firstName, u.lastName,
-                (SELECT COUNT(*) FROM likes l WHERE l.postId = p.postId) AS heartsCount,
-                (SELECT COUNT(*) FROM comments c WHERE c.postId = p.postId) AS commentsCount
-            FROM posts p
-            JOIN user u ON u.userId = p.authorId
-            JOIN bookmarks b ON b.postId = p.postId
-            WHERE b.userId = ?
-            ORDER BY p.createdAt DESC
-        """;
-
-        try (
-            Connection conn = dataSource.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql)
-        ) {
-            pstmt.setString(1, loggedInUserId);
-            return getPostsFromSet(pstmt, loggedInUserId);
-        }
+        return postRepository.findBookmarked(loggedInUserId);
+    }
+
+    /**
+     * Returns the posts that mention the user, newest first.
+     */
+    public List<Post> getMentioningPosts(String userId) throws SQLException {
+        return postRepository.findMentioning(userId, userId);
     }
 
     /**
@@ -130,404 +109,239 @@ public class PostService {
      * If tags is empty returns an empty list.
      */
     public List<Post> getPostsByHashtags(String[] tags, String loggedInUserId) throws SQLException {
-        
-        // Build the "?, ?, ?" clause with the correct number of placeholders
-        StringBuilder inClause = new StringBuilder();
-        for (int i = 0; i < tags.length; i++) {
-            if (i > 0) inClause.append(",");
-            inClause.append("?");
-        } 
-
-        // use string concatenation to insert the inClause into the SQL query instead
-        final String sql = "SELECT p.postId, p.body AS content, "
-                + "DATE_FORMAT(p.createdAt, '%b %d, %Y, %l:%i %p') AS postDate, "
-                + "u.userId, u.firstName, u.lastName, "
-                + "(SELECT COUNT(*) FROM likes l WHERE l.postId = p.postId) AS heartsCount, "
-                + "(SELECT COUNT(*) FROM comments c WHERE c.postId = p.postId) AS commentsCount "
-                + "FROM posts p "
-                + "JOIN user u ON u.userId = p.authorId "
-                + "JOIN hashtags h ON h.postId = p.postId "
-                + "WHERE h.tag IN (" + inClause.toString() + ") "
-                + "GROUP BY p.postId "
-                + "ORDER BY p.createdAt DESC";
-
-        try (
-            Connection conn = dataSource.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql)
-        ) {
-            // set cleaned tags parameters
-            for (int i = 0; i < tags.length; i++) {
-                pstmt.setString(i + 1, tags[i]);
-            }
-            return getPostsFromSet(pstmt, loggedInUserId);
-        }
+        if (tags.length == 0) return new ArrayList<>();
+        return postRepository.findByHashtags(tags, loggedInUserId);
     }
 
-    /*
-     * Checks if the searched hashtag exists in the hashtags table.
+    /**
+     * Creates a post with its hashtags and mentions and returns the new
+     * post id. See TextTokens for what counts as a hashtag or mention;
+     * mentions of users that do not exist are dropped.
+     * If the database is unavailable the post is spooled (see WriteSpool)
+     * and null is returned; it is created once the database is back.
      */
-    public boolean isHashtagInTable(String tag) throws SQLException {
-        final String sql = "SELECT 1 FROM hashtags WHERE tag = ? LIMIT 1";
-
-        try (
-            Connection conn = dataSource.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql)
-        ) {
-            pstmt.setString(1, tag);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                return rs.next();
-            }
+    public String createPost(String content, String authorId) throws SQLException {
+        TextTokens.Tokens tokens = TextTokens.scan(content);
+
+        if (writeSpool != null && writeSpool.hasPending(authorId)) {
+            // Keep the author's posts in order.
+            writeSpool.spoolPost(authorId, content, tokens.hashtags());
+            return null;
         }
-    }   
-
-    private List<Post> getPostsFromSet(PreparedStatement pstmt, String loggedInUserId) throws SQLException {
-        List<Post> output = new ArrayList<>();
-        
-        try (ResultSet rs = pstmt.executeQuery()) {
-            while (rs.next()) {
-                // Extracting data from the result set.
-                String authorId = rs.getString("userId");
-                String firstName = rs.getString("firstName");
-                String lastName = rs.getString("lastName");
-                String postDate = rs.getString("postDate");
-                String postId = rs.getString("postId");
-                String content = rs.getString("content");
-                int heartsCount = rs.getInt("heartsCount");
-                int commentsCount = rs.getInt("commentsCount");
-
-                // Create User object of author.
-                User author = new User(authorId, firstName, lastName);
-
-                // Check if the logged in user has hearted or bookmarked this post.
-                boolean isHearted = isPostLikedByUser(loggedInUserId, postId);
-                boolean isBookmarked = isPostBookmarkedByUser(loggedInUserId, postId);
-                boolean isReposted = isPostRepostedByUser(loggedInUserId, postId);
-
-                // Create Post object and add to output list.
-                Post post = new Post(postId, content, postDate, author, heartsCount, commentsCount, isHearted, isBookmarked, isReposted );
-                output.add(post);
-            }
+        try {
+            return postRepository.create(authorId, content, tokens.hashtags(), tokens.mentions());
+        } catch (SQLException e) {
+            if (writeSpool == null || !WriteSpool.isUnavailable(e)) throw e;
+            EventLog.warn("post", "Database unavailable, spooling post", "authorId", authorId, "error", e);
+            writeSpool.spoolPost(authorId, content, tokens.hashtags());
+            return null;
         }
+    }
 
-        return output;
+    /**
+     * Returns a single post as seen by the logged in user, or null.
+     */
+    public Post getPostById(String postId, String loggedInUserId) throws SQLException {
+        return postRepository.findById(postId, loggedInUserId);
     }
 
-    public void createPost(String content, String authorId) throws SQLException {
-        final String insertPostSql = """
-                INSERT INTO posts (authorId, body)
-                VALUES (?, ?)
-                """;
-
-        final String insertTagSql = """
-                INSERT INTO hashtags (postId, tag)
-                VALUES (?, ?)
-                """;
-
-        try (
-            Connection conn = dataSource.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(insertPostSql, PreparedStatement.RETURN_GENERATED_KEYS);
-        ) {
-            // Insert the post into the posts table.
-            pstmt.setString(1, authorId);
-            pstmt.setString(2, content);
-            pstmt.executeUpdate();
-
-            // Retrieve the generated postId.
-            int postId = -1;
-            try (ResultSet rs = pstmt.getGeneratedKeys()) {
-                if (rs.next()) {
-                    postId = rs.getInt(1);
-                }
-            }
-
-            // Parse hashtags from content and insert into hashtags table.
-            String[] all_words = content.split("\\s+");
-            Set<String> all_tags = new HashSet<>();
-
-            // Insert each unique hashtag.
-            PreparedStatement tagStmt = conn.prepareStatement(insertTagSql);
-            for (String word : all_words) {
-                if (word.startsWith("#") && word.length() > 1) {
-                    String tag = word.substring(1).toLowerCase();
-                    if (all_tags.add(tag)) {
-                        tagStmt.setInt(1, postId);
-                        tagStmt.setString(2, tag);
-                        tagStmt.executeUpdate();
-                    }
-                }
-            }
-        }
+    /**
+     * Deletes a post of the user. The post is only marked as deleted here,
+     * which hides it from all queries at once. PurgeService removes it and
+     * its comments, likes and other rows later in small chunks.
+     * Returns false if the post does not exist or belongs to someone else.
+     */
+    public boolean deletePost(String postId, String userId) throws SQLException {
+        return postRepository.delete(postId, userId);
+    }
+
+    /**
+     * Deletes a comment if the user wrote it or wrote the post. Like posts,
+     * comments are only marked as deleted and purged later.
+     * The replies below the comment are deleted with it.
+     * Returns the id of the post of the comment, or null if the comment
+     * does not exist or the user may not delete it.
+     */
+    public String deleteComment(String commentId, String userId) throws SQLException {
+        return commentRepository.delete(commentId, userId);
     }
 
     /*
      *  Shows a single post with all its comments.
+     *  Reads through to the archive if the post is not in the hot tier.
+     *  The post and its comments look the same to every viewer, so
+     *  concurrent requests for the same post share one load of them
+     *  (see SingleFlight). Only the viewer's own state is queried per request.
+     *  Replies more than app.comments.inline-levels deep are loaded on
+     *  demand with getCommentReplies.
      */
     public List<ExpandedPost> getExpandedPostsById(String postId, String loggedInUserId) throws SQLException {
-        final String postSql = """
-            SELECT p.postId, p.body AS content,
-                DATE_FORMAT(p.createdAt, '%b %d, %Y, %l:%i %p') AS postDate,
-                u.userId, u.firstName, u.lastName,
-                (SELECT COUNT(*) FROM likes l WHERE l.postId = p.postId) AS heartsCount
-            FROM posts p
-            JOIN user u ON p.authorId = u.userId
-            WHERE p.postId = ?
-        """;
-
-        final String commentSql = """
-            SELECT c.commentId, c.body AS content, 
-                DATE_FORMAT(c.createdAt, '%b %d, %Y, %l:%i %p') AS commentDate,
-                u.userId, u.firstName, u.lastName
-            FROM comments c, user u
-            WHERE c.postId = ?
-            AND c.authorId = u.userId
-            ORDER BY c.createdAt ASC
-        """;
+        PostThread thread = postThreadLoads.load(postId, () -> loadPostThread(postId));
+        if (thread == null) {
+            return postRepository.findArchived(postId, loggedInUserId);
+        }
 
-        // The list of expanded posts to return (should be one or zero).
-        List<ExpandedPost> expandedPosts = new ArrayList<>();
+        String authorId = thread.author().getUserId();
+        boolean isPostAuthor = authorId.equals(loggedInUserId);
+        List<Comment> comments = toComments(postId, thread.comments(), isPostAuthor, loggedInUserId);
 
-        try (
-            Connection conn = dataSource.getConnection();
-            PreparedStatement postStmt = conn.prepareStatement(postSql)
-        ) {
-            // Get the post details.
-            postStmt.setString(1, postId);
-            try (ResultSet rs = postStmt.executeQuery()) {
-                if (rs.next()) {
-                    // Extracting data from the result set.
-                    String content = rs.getString("content");
-                    String postDate = rs.getString("postDate");
-                    int heartsCount = rs.getInt("heartsCount");
-
-                    String authorId = rs.getString("userId");
-                    String firstName = rs.getString("firstName");
-                    String lastName = rs.getString("lastName");
-
-                    // Create User object of author.
-                    User author = new User(authorId, firstName, lastName);
-
-                    // Get comments for the post.
-                    List<Comment> comments = new ArrayList<>();
-
-                    try (PreparedStatement commentStmt = conn.prepareStatement(commentSql)) {
-                        // Get the comments.
-                        commentStmt.setString(1, postId);
-
-                        try (ResultSet rs2 = commentStmt.executeQuery()) {
-                            while (rs2.next()) {
-                                // Extracting data from the result set.
-                                String commentAuthorId = rs2.getString("userId");
-                                String commentFirst = rs2.getString("firstName");
-                                String commentLast = rs2.getString("lastName");
-
-                                // Create User object of comment author.
-                                User commentAuthor = new User(commentAuthorId, commentFirst, commentLast);
-
-                                String commentId = rs2.getString("commentId");
-                                String commentBody = rs2.getString("content");
-                                String commentDate = rs2.getString("commentDate");
-
-                                // Create Comment object and add to comments list.
-                                Comment comment = new Comment(commentId, commentBody, commentDate, commentAuthor);
-                                comments.add(comment);
-                            }
-                        }
-                    }
-
-                    // Check if the logged in user has hearted or bookmarked this post.
-                    boolean isHearted = isPostLikedByUser(loggedInUserId, postId);
-                    boolean isBookmarked = isPostBookmarkedByUser(loggedInUserId, postId);
-                    boolean isReposted = isPostRepostedByUser(loggedInUserId, postId); // new
-
-                    // Create ExpandedPost object and add to output list.
-                    ExpandedPost expandedPost = new ExpandedPost(
-                        postId,
-                        content,
-                        postDate,
-                        author,
-                        heartsCount,
-                        comments.size(),
-                        isHearted,
-                        isBookmarked,
-                        isReposted, // new
-                        comments
-
-                    );
-                    expandedPosts.add(expandedPost);
-                }
-            }
+        int commentsCount = comments.size();
+        for (CommentRow row : thread.comments()) {
+            commentsCount += row.hiddenReplies();
         }
 
+        // Check if the logged in user has hearted, bookmarked or reposted this post.
+        boolean[] viewerState = engagementRepository.findViewerState(postId, loggedInUserId);
+
+        // The list of expanded posts to return (should be one or zero).
+        List<ExpandedPost> expandedPosts = new ArrayList<>();
+        expandedPosts.add(new ExpandedPost(
+            thread.postId(),
+            thread.content(),
+            thread.createdAt(),
+            thread.author(),
+            thread.heartsCount(),
+            commentsCount,
+            viewerState[0],
+            viewerState[1],
+            viewerState[2],
+            isPostAuthor,
+            comments
+        ));
         return expandedPosts;
     }
 
+    /**
+     * Returns the replies below a comment in display order, down to
+     * app.comments.inline-levels levels below it.
+     * The list is empty if the comment does not exist.
+     */
+    public List<Comment> getCommentReplies(String commentId, String loggedInUserId) throws SQLException {
+        CommentRepository.Replies replies = commentRepository.findReplies(commentId, inlineCommentLevels);
+        if (replies == null) return new ArrayList<>();
+        return toComments(replies.postId(), replies.comments(),
+                replies.postAuthorId().equals(loggedInUserId), loggedInUserId);
+    }
+
+    /**
+     * Loads the parts of a post page that do not depend on the viewer.
+     * Returns null if the post is not in the hot tier.
+     */
+    private PostThread loadPostThread(String postId) throws SQLException {
+        Post post = postRepository.findById(postId, null);
+        if (post == null) return null;
+
+        // Get comments for the post.
+        List<CommentRow> comments = commentRepository.findThread(postId, inlineCommentLevels);
+        return new PostThread(post.getId(), post.getContent(), post.getCreatedAt(), post.getUser(),
+                post.getHeartsCount(), List.copyOf(comments));
+    }
+
+    /**
+     * Builds the comments as the viewer sees them.
+     * Comments can be deleted by their author and by the author of the post.
+     */
+    private static List<Comment> toComments(String postId, List<CommentRow> rows,
+            boolean isPostAuthor, String loggedInUserId) {
+        long threadPostId = Long.parseLong(postId);
+        List<Comment> comments = new ArrayList<>(rows.size());
+        for (CommentRow row : rows) {
+            comments.add(new Comment(row.commentId(), row.content(), row.createdAt(), row.author(),
+                    isPostAuthor || row.author().getUserId().equals(loggedInUserId),
+                    threadPostId, row.depth(), row.hiddenReplies()));
+        }
+        return comments;
+    }
+
     /**
      * Adds a comment to a post.
      */
-    public void addComment(String postId, String authorId, String body) throws SQLException {
-        System.out.println("Adding comment to postId: " + postId + " by authorId: " + authorId);
-        
-        final String sql = """
-            INSERT INTO comments (postId, authorId, body)
-            VALUES (?, ?, ?)
-        """;
-
-        try (
-            Connection conn = dataSource.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql);
-        ) {
-            pstmt.setString(1, postId);
-            pstmt.setString(2, authorId);
-            pstmt.setString(3, body);
-            pstmt.executeUpdate();
+    public boolean addComment(String postId, String authorId, String body) throws SQLException {
+        return addComment(postId, authorId, body, null);
+    }
+
+    /**
+     * Adds a comment to a post, as a reply to parentCommentId if it is not null.
+     * A reply to a comment at app.comments.max-depth becomes a reply to
+     * that comment's parent instead, so threads do not get deeper.
+     * Like posts, comments are spooled if the database is unavailable.
+     * Returns false if the comment was spooled.
+     */
+    public boolean addComment(String postId, String authorId, String body, String parentCommentId)
+            throws SQLException {
+        EventLog.debug("post", "Adding comment", "postId", postId, "authorId", authorId,
+                "parentCommentId", parentCommentId);
+
+        if (writeSpool != null && writeSpool.hasPending(authorId)) {
+            writeSpool.spoolComment(postId, authorId, body, parentCommentId, maxCommentDepth);
+            return false;
         }
+        try {
+            commentRepository.add(postId, authorId, body, parentCommentId, maxCommentDepth);
+        } catch (SQLException e) {
+            if (writeSpool == null || !WriteSpool.isUnavailable(e)) throw e;
+            EventLog.warn("post", "Database unavailable, spooling comment", "postId", postId, "error", e);
+            writeSpool.spoolComment(postId, authorId, body, parentCommentId, maxCommentDepth);
+            return false;
+        }
+        notifyPostAuthor(NotificationService.Type.COMMENT, authorId, postId);
+        return true;
     }
 
-    
     /**
-     * Adds a like (heart) for a post by a user. Returns true if inserted, false if it already existed.
+     * Adds a like (heart) for a post by a user.
      */
     public void addLike(String userId, String postId) throws SQLException {
-        final String sql = """
-            INSERT INTO likes (userId, postId)
-            VALUES (?, ?)
-        """;
-
-        try (
-            Connection conn = dataSource.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql);
-        ) {
-            pstmt.setString(1, userId);
-            pstmt.setString(2, postId);
-            pstmt.executeUpdate();
-        }
+        engagementRepository.add(EngagementRepository.Kind.LIKE, userId, postId);
+        notifyPostAuthor(NotificationService.Type.LIKE, userId, postId);
     }
 
     /**
-     * Removes a like (heart) for a post by a user. Returns true if a row was deleted.
+     * Removes a like (heart) for a post by a user.
      */
     public void removeLike(String userId, String postId) throws SQLException {
-        final String sql = """
-            DELETE FROM likes
-            WHERE userId = ? AND postId = ?
-        """;
-
-        try (
-            Connection conn = dataSource.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql);
-        ) {
-            pstmt.setString(1, userId);
-            pstmt.setString(2, postId);
-            pstmt.executeUpdate();
-        } 
+        engagementRepository.remove(EngagementRepository.Kind.LIKE, userId, postId);
     }
 
     /**
      * Adds a bookmark for a post by a user.
      */
     public void addBookmark(String userId, String postId) throws SQLException {
-        final String sql = """
-            INSERT INTO bookmarks (userId, postId)
-            VALUES (?, ?)
-        """;
-
-        try (
-            Connection conn = dataSource.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql);
-        ) {
-            pstmt.setString(1, userId);
-            pstmt.setString(2, postId);
-            pstmt.executeUpdate();
-        }
+        engagementRepository.add(EngagementRepository.Kind.BOOKMARK, userId, postId);
     }
 
     /**
      * Removes a bookmark for a post by a user.
      */
     public void removeBookmark(String userId, String postId) throws SQLException {
-        final String sql = """
-            DELETE FROM bookmarks
-            WHERE userId = ? AND postId = ?
-        """;
-
-        try (
-            Connection conn = dataSource.getConnection();
-            PreparedStatement pstmt = conn.prepareStatement(sql);
-        ) {
-            pstmt.setString(1, userId);
-            pstmt.setString(2, postId);
-            pstmt.executeUpdate();
-        }
+        engagementRepository.remove(EngagementRepository.Kind.BOOKMARK, userId, postId);
     }
 
-    public boolean isPostLikedByUser(String loggedInUserId, String postId) throws SQLException {
-        final String sql = """
-            SELECT 1 FROM likes 
-            WHERE userId = ? AND postId = ?
-        """;
-
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, loggedInUserId);
-            pstmt.setString(2, postId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                return rs.next();
-            }
-        }
+    /**
+     * Adds a repost of a post by a user.
+     */
+    public void addRepost(String userId, String postId) throws SQLException {
+        engagementRepository.add(EngagementRepository.Kind.REPOST, userId, postId);
+        notifyPostAuthor(NotificationService.Type.REPOST, userId, postId);
     }
 
-    public boolean isPostBookmarkedByUser(String loggedInUserId, String postId) throws SQLException {
-        final String sql = """
-            SELECT 1 FROM bookmarks 
-            WHERE userId = ? AND postId = ?
-        """;
-
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, loggedInUserId);
-            pstmt.setString(2, postId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                return rs.next();
-            }
-        }
+    private void notifyPostAuthor(NotificationService.Type type, String actorId, String postId) {
+        if (notificationService != null) notificationService.notifyPostAuthor(type, actorId, postId);
     }
 
-           // Repost service methods can be added here.
-            public boolean isPostRepostedByUser(String userId, String postId) throws SQLException {
-            final String sql = "SELECT 1 FROM repost WHERE userId = ? AND originalPostId = ? ";
-            try (Connection conn = dataSource.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, userId);
-                ps.setString(2, postId);
-                try (ResultSet rs = ps.executeQuery()) {
-                    return rs.next();
-                }
-            }
-        }
+    /**
+     * Removes a repost of a post by a user.
+     */
+    public void removeRepost(String userId, String postId) throws SQLException {
+        engagementRepository.remove(EngagementRepository.Kind.REPOST, userId, postId);
+    }
 
-        public void addRepost(String userId, String postId) throws SQLException {
-            final String sql = """
-                INSERT INTO repost (userId, originalPostId, createdAt)
-                VALUES (?, ?, NOW())
-            """;
-            try (Connection conn = dataSource.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, userId);
-                ps.setString(2, postId);
-                ps.executeUpdate();
-            }
-        }
-        public void removeRepost(String userId, String postId) throws SQLException {
-            final String sql = """
-                DELETE FROM repost
-                WHERE userId = ? AND originalPostId = ?
-            """;
-            try (Connection conn = dataSource.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, userId);
-                ps.setString(2, postId);
-                ps.executeUpdate();
-            }
-        }   
-
-}
\ No newline at end of file
+    /**
+     * A post and its comments as every viewer sees them.
+     * Shared between concurrent requests, so it is never modified.
+     */
+    private record PostThread(long postId, String content, long createdAt, User author,
+            int heartsCount, List<CommentRow> comments) {
+    }
+
+}
@@ -0,0 +1,42 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.services;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Something derived from the changes in the outbox, such as a cache or a
+ * table of counters. Projections are Spring beans; OutboxService finds
+ * them and feeds them the outbox in order.
+ */
+public interface Projection {
+
+    /**
+     * Returns the name of the projection, used for its checkpoint.
+     */
+    String getName();
+
+    /**
+     * Returns whether the projection keeps its position in
+     * projection_checkpoints. A checkpointed projection is applied in the
+     * same transaction as its checkpoint, so each event is applied once
+     * across all nodes, including events written while no node was running.
+     * Other projections keep local state: every node applies every event,
+     * starting from the end of the outbox when the node starts.
+     */
+    default boolean isCheckpointed() {
+        return false;
+    }
+
+    /**
+     * Applies a batch of events. For a checkpointed projection conn is in
+     * the transaction that moves the checkpoint; if this throws, the batch
+     * is rolled back and retried.
+     */
+    void apply(Connection conn, List<OutboxEvent> events) throws SQLException;
+}
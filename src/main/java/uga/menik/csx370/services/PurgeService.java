@@ -0,0 +1,131 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import uga.menik.csx370.utility.EventLog;
+
+/**
+ * This service removes posts and comments that were deleted by their
+ * users (see PostService.deletePost). Those rows are already hidden, so
+ * there is no hurry: rows are deleted in chunks of app.purge.chunk-size,
+ * each in its own short transaction, with a pause in between. This keeps
+ * row locks short and gives replicas time to keep up.
+ */
+@Service
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class PurgeService {
+
+    // Rows that reference a post, deleted before the post itself.
+    private static final String[] POST_CHILDREN = {
+        "DELETE FROM hashtags WHERE postId = ? LIMIT ?",
+        "DELETE FROM mentions WHERE postId = ? LIMIT ?",
+        "DELETE FROM likes WHERE postId = ? LIMIT ?",
+        "DELETE FROM bookmarks WHERE postId = ? LIMIT ?",
+        "DELETE FROM repost WHERE originalPostId = ? LIMIT ?",
+        "DELETE FROM comments WHERE postId = ? LIMIT ?",
+        "DELETE FROM notifications WHERE postId = ? AND type <> 'follow' LIMIT ?",
+        "DELETE FROM notification_actors WHERE postId = ? AND type <> 'follow' LIMIT ?",
+        "DELETE FROM post_engagement WHERE postId = ? LIMIT ?",
+    };
+
+    private final DataSource dataSource;
+    private final int chunkSize;
+    private final long pauseMillis;
+
+    @Autowired
+    public PurgeService(DataSource dataSource,
+            @Value("${app.purge.chunk-size:500}") int chunkSize,
+            @Value("${app.purge.pause-ms:20}") long pauseMillis) {
+        this.dataSource = dataSource;
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pauseMillis;
+    }
+
+    /**
+     * Removes deleted comments and posts. Runs every app.purge.interval-ms.
+     * A post that gets a new like while it is purged is picked up again
+     * on the next run.
+     */
+    @Scheduled(fixedDelayString = "${app.purge.interval-ms:60000}")
+    public void purge() throws SQLException, InterruptedException {
+        int comments = deleteInChunks("DELETE FROM comments WHERE deletedAt IS NOT NULL LIMIT ?", null);
+
+        int posts = 0;
+        for (String postId : getDeletedPostIds()) {
+            for (String sql : POST_CHILDREN) {
+                deleteInChunks(sql, postId);
+            }
+            try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(
+                    "DELETE FROM posts WHERE postId = ? AND deletedAt IS NOT NULL")) {
+                pstmt.setString(1, postId);
+                posts += pstmt.executeUpdate();
+            } catch (SQLException e) {
+                EventLog.warn("purge", "Failed to purge post", "postId", postId, "error", e);
+            }
+        }
+
+        if (comments > 0 || posts > 0) {
+            EventLog.info("purge", "Purged deleted rows", "posts", posts, "comments", comments);
+        }
+    }
+
+    private List<String> getDeletedPostIds() throws SQLException {
+        final String sql = """
+            SELECT postId
+            FROM posts
+            WHERE deletedAt IS NOT NULL
+            ORDER BY deletedAt
+            LIMIT 100
+        """;
+
+        List<String> postIds = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+            PreparedStatement pstmt = conn.prepareStatement(sql);
+            ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                postIds.add(rs.getString("postId"));
+            }
+        }
+        return postIds;
+    }
+
+    /**
+     * Runs a DELETE ... LIMIT ? until it deletes less than a full chunk.
+     * postId is bound before the limit if given. Returns the rows deleted.
+     */
+    private int deleteInChunks(String sql, String postId) throws SQLException, InterruptedException {
+        int total = 0;
+        int deleted;
+        do {
+            try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                int index = 1;
+                if (postId != null) pstmt.setString(index++, postId);
+                pstmt.setInt(index, chunkSize);
+                deleted = pstmt.executeUpdate();
+            }
+            total += deleted;
+            if (deleted == chunkSize) Thread.sleep(pauseMillis);
+        } while (deleted == chunkSize);
+        return total;
+    }
+}
@@ -5,24 +5,23 @@ This is a project developed by Dr. Menik to give the students an opportunity to
 */
 package uga.menik.csx370.services;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-
-import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.context.annotation.SessionScope;
 
 import uga.menik.csx370.models.User;
+import uga.menik.csx370.repositories.UserRepository;
 
 /**
  * This is a service class that enables user related functions.
- * The class interacts with the database through a dataSource instance.
- * See authenticate and registerUser functions for examples.
+ * The class reads and stores accounts through a UserRepository.
  * This service object is spcial. It's lifetime is limited to a user session.
  * Usual services generally have application lifetime.
  */
@@ -30,10 +29,12 @@ import uga.menik.csx370.models.User;
 @SessionScope
 public class UserService {
 
-    // dataSource enables talking to the database.
-    private final DataSource dataSource;
+    // userRepository stores the accounts.
+    private final UserRepository userRepository;
     // passwordEncoder is used for password security.
     private final BCryptPasswordEncoder passwordEncoder;
+    // Users who may see admin pages such as /analytics.
+    private final Set<String> adminUserIds;
     // This holds 
     private User loggedInUser = null;
 
@@ -42,9 +43,14 @@ public class UserService {
      * inversion of control.
      */
     @Autowired
-    public UserService(DataSource dataSource) {
-        this.dataSource = dataSource;
+    public UserService(UserRepository userRepository,
+            @Value("${app.admin.user-ids:}") String adminUserIds) {
+        this.userRepository = userRepository;
         this.passwordEncoder = new BCryptPasswordEncoder();
+        this.adminUserIds = Arrays.stream(adminUserIds.split(","))
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .collect(Collectors.toSet());
     }
 
     /**
@@ -53,36 +59,15 @@ public class UserService {
      * Returns true if authentication is succesful. False otherwise.
      */
     public boolean authenticate(String username, String password) throws SQLException {
-        // Note the ? mark in the query. It is a place holder that we will later replace.
-        final String sql = "select * from user where username = ?";
-        try (Connection conn = dataSource.getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            // Following line replaces the first place holder with username.
-            pstmt.setString(1, username);
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                // Traverse the result rows one at a time.
-                // Note: This specific while loop will only run at most once 
-                // since username is unique.
-                while (rs.next()) {
-                    // Note: rs.get.. functions access attributes of the current row.
-                    String storedPasswordHash = rs.getString("password");
-                    boolean isPassMatch = passwordEncoder.matches(password, storedPasswordHash);
-                    // Note: 
-                    if (isPassMatch) {
-                        String userId = rs.getString("userId");
-                        String firstName = rs.getString("firstName");
-                        String lastName = rs.getString("lastName");
+        UserRepository.Credentials credentials = userRepository.findCredentials(username);
+        if (credentials == null) return false;
 
-                        // Initialize and retain the logged in user.
-                        loggedInUser = new User(userId, firstName, lastName);
-                    }
-                    return isPassMatch;
-                }
-            }
+        boolean isPassMatch = passwordEncoder.matches(password, credentials.passwordHash());
+        if (isPassMatch) {
+            // Initialize and retain the logged in user.
+            loggedInUser = credentials.user();
         }
-        return false;
+        return isPassMatch;
     }
 
     /**
@@ -106,6 +91,13 @@ public class UserService {
         return loggedInUser;
     }
 
+    /**
+     * Checks if the logged-in user is listed in app.admin.user-ids.
+     */
+    public boolean isAdmin() {
+        return loggedInUser != null && adminUserIds.contains(loggedInUser.getUserId());
+    }
+
     /**
      * Registers a new user with the given details.
      * Returns true if registration is successful. If the username already exists,
@@ -114,21 +106,8 @@ public class UserService {
      */
     public boolean registerUser(String username, String password, String firstName, String lastName)
             throws SQLException {
-        // Note the ? marks in the SQL statement. They are placeholders like mentioned above.
-        final String registerSql = "insert into user (username, password, firstName, lastName) values (?, ?, ?, ?)";
-
-        try (Connection conn = dataSource.getConnection();
-                PreparedStatement registerStmt = conn.prepareStatement(registerSql)) {
-            // Following lines replace the placeholders 1-4 with values.
-            registerStmt.setString(1, username);
-            registerStmt.setString(2, passwordEncoder.encode(password));
-            registerStmt.setString(3, firstName);
-            registerStmt.setString(4, lastName);
-
-            // Execute the statement and check if rows are affected.
-            int rowsAffected = registerStmt.executeUpdate();
-            return rowsAffected > 0;
-        }
+        userRepository.create(username, passwordEncoder.encode(password), firstName, lastName);
+        return true;
     }
 
 }
@@ -0,0 +1,451 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.services;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLNonTransientException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import uga.menik.csx370.repositories.JdbcCommentRepository;
+import uga.menik.csx370.repositories.JdbcPostRepository;
+import uga.menik.csx370.utility.EventLog;
+import uga.menik.csx370.utility.TextTokens;
+
+/**
+ * This service keeps posts and comments that could not be written because
+ * MySQL was unavailable, so that users do not lose what they typed.
+ * Such writes are appended to a memory-mapped log at app.spool.path and
+ * acknowledged once the log has been forced to disk. Writers that arrive
+ * while the log is being forced wait for the next force and share it, so
+ * a burst of writes costs few fsyncs. Every record carries a CRC32 of its
+ * contents; on startup the log is read up to the first record that is
+ * incomplete or does not match its checksum.
+ * Every app.spool.replay-ms the records are written to the database in the
+ * order they were accepted, which keeps the order of each author's posts
+ * and comments. While an author has records waiting, their new posts and
+ * comments are spooled too so they cannot overtake them (see PostService).
+ * Every record has a write id that is stored with its post or comment, see
+ * V11__spooled_writes.sql, so a record replayed again after a crash is
+ * skipped. Once every record has been replayed the log starts over.
+ * A write id is only needed until head has moved past its record, so the
+ * ids are deleted after app.spool.retention-days.
+ */
+@Service
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class WriteSpool implements DisposableBean {
+    // The header holds a magic number, the format version and the offset
+    // of the first record that has not been replayed.
+    private static final int MAGIC = 0x53504f4c;
+    private static final int VERSION = 1;
+    private static final int HEAD_OFFSET = 8;
+    private static final int HEADER_SIZE = 16;
+    // Each record is the length of its body, the CRC32 of the body and the body.
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final byte POST = 1;
+    private static final byte COMMENT = 2;
+
+    private final DataSource dataSource;
+    private final JdbcPostRepository postRepository;
+    private final JdbcCommentRepository commentRepository;
+    private final NotificationService notificationService;
+    private final int maxAttempts;
+    private final int retentionDays;
+    private final int pruneBatchSize;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    // Start of the first record not replayed and end of the last record.
+    // Guarded by this.
+    private int head;
+    private int tail;
+    // Records waiting per author. Guarded by this.
+    private final Map<String, Integer> pendingByAuthor = new HashMap<>();
+    // End of the records known to be on disk. Guarded by forceLock, which
+    // is always taken before this.
+    private volatile int forced;
+    private final Object forceLock = new Object();
+    // Failed attempts to replay the record at head. Used by replay only.
+    private int headFailures;
+
+    @Autowired
+    public WriteSpool(DataSource dataSource, JdbcPostRepository postRepository,
+            JdbcCommentRepository commentRepository, NotificationService notificationService,
+            @Value("${app.spool.path:data/write-spool.log}") String path,
+            @Value("${app.spool.size-mb:16}") int sizeMb,
+            @Value("${app.spool.max-attempts:10}") int maxAttempts,
+            @Value("${app.spool.retention-days:7}") int retentionDays,
+            @Value("${app.spool.prune-batch-size:1000}") int pruneBatchSize) throws IOException {
+        this.dataSource = dataSource;
+        this.postRepository = postRepository;
+        this.commentRepository = commentRepository;
+        this.notificationService = notificationService;
+        this.maxAttempts = maxAttempts;
+        this.retentionDays = retentionDays;
+        this.pruneBatchSize = pruneBatchSize;
+
+        Path file = Path.of(path);
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long size = Math.max(channel.size(), (long) sizeMb * 1024 * 1024);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        recover();
+    }
+
+    /**
+     * Returns true if a failed write may succeed once the database is
+     * reachable again.
+     */
+    public static boolean isUnavailable(SQLException e) {
+        if (e instanceof SQLTransientConnectionException || e instanceof SQLNonTransientConnectionException
+                || e instanceof SQLRecoverableException) {
+            return true;
+        }
+        String state = e.getSQLState();
+        if (state != null && state.startsWith("08")) return true;
+        return e.getCause() instanceof SQLException cause && isUnavailable(cause);
+    }
+
+    /**
+     * Returns true if the author has posts or comments waiting to be replayed.
+     */
+    public synchronized boolean hasPending(String authorId) {
+        return pendingByAuthor.containsKey(authorId);
+    }
+
+    /**
+     * Spools a post and returns once it is on disk.
+     */
+    public void spoolPost(String authorId, String content, Collection<String> hashtags) throws SQLException {
+        append(new Record(POST, UUID.randomUUID().toString(), System.currentTimeMillis(), authorId,
+                "", "", 0, content, String.join(" ", hashtags)));
+    }
+
+    /**
+     * Spools a comment and returns once it is on disk. parentCommentId may
+     * be null.
+     */
+    public void spoolComment(String postId, String authorId, String body, String parentCommentId,
+            int maxDepth) throws SQLException {
+        append(new Record(COMMENT, UUID.randomUUID().toString(), System.currentTimeMillis(), authorId,
+                postId, parentCommentId == null ? "" : parentCommentId, maxDepth, body, ""));
+    }
+
+    /**
+     * Writes the spooled records to the database, oldest first.
+     * Stops at the first record that fails because the database is still
+     * unavailable. A record that fails for another reason is retried on
+     * later runs and dropped after app.spool.max-attempts failures, as
+     * is a record whose post was deleted in the meantime.
+     */
+    @Scheduled(fixedDelayString = "${app.spool.replay-ms:1000}")
+    public void replay() {
+        int replayed = 0;
+        int dropped = 0;
+        Record record;
+        while ((record = next()) != null) {
+            try {
+                apply(record);
+                replayed++;
+            } catch (SQLException e) {
+                if (isUnavailable(e)) break;
+                if (!(e instanceof SQLNonTransientException) && ++headFailures < maxAttempts) {
+                    EventLog.warn("spool", "Failed to replay write", "writeId", record.writeId(),
+                            "attempt", headFailures, "error", e);
+                    break;
+                }
+                EventLog.warn("spool", "Dropping spooled write", "writeId", record.writeId(),
+                        "authorId", record.authorId(), "postId", record.postId(), "error", e);
+                dropped++;
+            }
+            headFailures = 0;
+            advance(record);
+        }
+
+        if (replayed > 0 || dropped > 0) {
+            EventLog.info("spool", "Replayed spooled writes", "replayed", replayed, "dropped", dropped);
+            saveHead();
+        }
+    }
+
+    /**
+     * Deletes the write ids of records replayed more than
+     * app.spool.retention-days ago, in chunks.
+     */
+    @Scheduled(fixedDelayString = "${app.spool.prune-interval-ms:3600000}")
+    public void prune() {
+        final String sql = """
+            DELETE FROM spooled_writes
+            WHERE appliedAt < NOW() - INTERVAL ? DAY
+            LIMIT ?
+        """;
+
+        int total = 0;
+        int deleted;
+        try {
+            do {
+                try (Connection conn = dataSource.getConnection();
+                    PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, retentionDays);
+                    pstmt.setInt(2, pruneBatchSize);
+                    deleted = pstmt.executeUpdate();
+                }
+                total += deleted;
+            } while (deleted == pruneBatchSize);
+        } catch (SQLException e) {
+            EventLog.warn("spool", "Failed to prune spooled write ids", "error", e);
+        }
+        if (total > 0) EventLog.info("spool", "Pruned spooled write ids", "writeIds", total);
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        synchronized (forceLock) {
+            buffer.force();
+        }
+        channel.close();
+    }
+
+    private void apply(Record record) throws SQLException {
+        if (record.kind() == POST) {
+            Collection<String> tags = record.hashtags().isEmpty()
+                    ? List.of() : Arrays.asList(record.hashtags().split(" "));
+            // Mentions are not spooled; they are found again in the content.
+            postRepository.createSpooled(record.writeId(), record.authorId(), record.content(), tags,
+                    TextTokens.scan(record.content()).mentions(), record.createdAt());
+        } else {
+            String parentId = record.parentId().isEmpty() ? null : record.parentId();
+            String commentId = commentRepository.addSpooled(record.writeId(), record.postId(),
+                    record.authorId(), record.content(), parentId, record.maxDepth(), record.createdAt());
+            if (commentId != null) {
+                notificationService.notifyPostAuthor(NotificationService.Type.COMMENT, record.authorId(),
+                        record.postId());
+            }
+        }
+    }
+
+    /**
+     * Appends a record and waits until it is on disk.
+     */
+    private void append(Record record) throws SQLException {
+        byte[] body = record.toBytes();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+
+        int end;
+        synchronized (this) {
+            if (tail + RECORD_HEADER_SIZE + body.length > buffer.capacity()) {
+                throw new SQLException("The write spool is full");
+            }
+            buffer.putInt(tail + 4, (int) crc.getValue());
+            buffer.put(tail + RECORD_HEADER_SIZE, body);
+            // The length goes last so a record is never seen half written.
+            buffer.putInt(tail, body.length);
+            tail += RECORD_HEADER_SIZE + body.length;
+            end = tail;
+            pendingByAuthor.merge(record.authorId(), 1, Integer::sum);
+        }
+        EventLog.info("spool", "Spooled write", "writeId", record.writeId(), "authorId", record.authorId());
+        awaitForced(end);
+    }
+
+    /**
+     * Forces the log to disk up to at least end. Writers that call this
+     * while another one is forcing wait, and usually find their record
+     * forced with the other one's.
+     */
+    private void awaitForced(int end) {
+        synchronized (forceLock) {
+            if (forced >= end) return;
+            int from;
+            int to;
+            synchronized (this) {
+                from = Math.min(forced, tail);
+                to = tail;
+            }
+            buffer.force(from, to - from);
+            forced = to;
+        }
+    }
+
+    /**
+     * Returns the record at head if it is on disk, or null.
+     */
+    private Record next() {
+        synchronized (this) {
+            if (head >= forced) return null;
+            return read(head);
+        }
+    }
+
+    /**
+     * Moves head past a record. Starts the log over once every record has
+     * been replayed: the records are zeroed before head is reset, so a
+     * crash in between leaves an empty log either way.
+     */
+    private void advance(Record record) {
+        synchronized (forceLock) {
+            synchronized (this) {
+                head += RECORD_HEADER_SIZE + buffer.getInt(head);
+                pendingByAuthor.computeIfPresent(record.authorId(), (author, count) -> count > 1 ? count - 1 : null);
+                if (head < tail) return;
+
+                zero(HEADER_SIZE, tail);
+                buffer.force(HEADER_SIZE, tail - HEADER_SIZE);
+                head = HEADER_SIZE;
+                tail = HEADER_SIZE;
+                forced = HEADER_SIZE;
+                writeHeader();
+            }
+        }
+    }
+
+    private void zero(int from, int to) {
+        byte[] zeros = new byte[4096];
+        for (int offset = from; offset < to; offset += zeros.length) {
+            buffer.put(offset, zeros, 0, Math.min(zeros.length, to - offset));
+        }
+    }
+
+    private synchronized void saveHead() {
+        writeHeader();
+    }
+
+    private void writeHeader() {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(HEAD_OFFSET, head);
+        buffer.force(0, HEADER_SIZE);
+    }
+
+    /**
+     * Reads the header and the records after head. A torn or corrupt
+     * record ends the log; it and anything after it are zeroed so that
+     * new records cannot be mistaken for old ones.
+     */
+    private synchronized void recover() {
+        if (buffer.getInt(0) == 0) {
+            head = HEADER_SIZE;
+        } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException("Unknown write spool format");
+        } else {
+            head = buffer.getInt(HEAD_OFFSET);
+        }
+
+        tail = head;
+        Record record;
+        while ((record = read(tail)) != null) {
+            pendingByAuthor.merge(record.authorId(), 1, Integer::sum);
+            tail += RECORD_HEADER_SIZE + buffer.getInt(tail);
+        }
+        if (tail + 4 <= buffer.capacity() && buffer.getInt(tail) != 0) {
+            EventLog.warn("spool", "Discarding torn write spool record", "offset", tail);
+            zero(tail, buffer.capacity());
+        }
+        forced = tail;
+        writeHeader();
+        if (tail > head) {
+            EventLog.info("spool", "Found spooled writes", "authors", pendingByAuthor.size());
+        }
+    }
+
+    /**
+     * Reads the record at offset, or returns null if there is no complete
+     * record there.
+     */
+    private Record read(int offset) {
+        if (offset + RECORD_HEADER_SIZE > buffer.capacity()) return null;
+        int length = buffer.getInt(offset);
+        if (length <= 0 || offset + RECORD_HEADER_SIZE + length > buffer.capacity()) return null;
+
+        byte[] body = new byte[length];
+        buffer.get(offset + RECORD_HEADER_SIZE, body);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        if ((int) crc.getValue() != buffer.getInt(offset + 4)) return null;
+        try {
+            return Record.fromBytes(body);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A spooled post or comment. postId, parentId and maxDepth are only
+     * used by comments, hashtags only by posts.
+     */
+    private record Record(byte kind, String writeId, long createdAt, String authorId, String postId,
+            String parentId, int maxDepth, String content, String hashtags) {
+
+        byte[] toBytes() {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeByte(kind);
+                out.writeUTF(writeId);
+                out.writeLong(createdAt);
+                out.writeUTF(authorId);
+                out.writeUTF(postId);
+                out.writeUTF(parentId);
+                out.writeInt(maxDepth);
+                writeString(out, content);
+                writeString(out, hashtags);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return bytes.toByteArray();
+        }
+
+        static Record fromBytes(byte[] body) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+            return new Record(in.readByte(), in.readUTF(), in.readLong(), in.readUTF(), in.readUTF(),
+                    in.readUTF(), in.readInt(), readString(in), readString(in));
+        }
+
+        // writeUTF is limited to 64 KB, which a long post could exceed.
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private static String readString(DataInputStream in) throws IOException {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.utility;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Formats timestamps for display. Models keep epoch milliseconds and
+ * format them only when a template asks for the date.
+ */
+public final class Dates {
+
+    // Same format as DATE_FORMAT(..., '%b %d, %Y, %l:%i %p') in MySQL.
+    private static final DateTimeFormatter DISPLAY =
+            DateTimeFormatter.ofPattern("MMM dd, yyyy, h:mm a", Locale.US).withZone(ZoneId.systemDefault());
+
+    private Dates() {
+    }
+
+    /**
+     * Formats epoch milliseconds such as "Mar 07, 2024, 10:54 PM".
+     */
+    public static String format(long epochMillis) {
+        return DISPLAY.format(Instant.ofEpochMilli(epochMillis));
+    }
+
+    /**
+     * Parses a date in the display format back to epoch milliseconds.
+     */
+    public static long parse(String date) {
+        return DISPLAY.parse(date, Instant::from).toEpochMilli();
+    }
+}
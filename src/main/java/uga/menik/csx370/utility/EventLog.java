@@ -0,0 +1,256 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.utility;
+
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This is the application log. Calls only put an event into a lock-free
+ * ring buffer; a background thread formats the events as JSON lines and
+ * writes them to stdout. Example:
+ *
+ * EventLog.info("post", "Creating post", "postId", postId, "content", content);
+ *
+ * Each category has a level and a sample rate (see EventLogConfigurer).
+ * Values are truncated, and values of sensitive keys such as content or
+ * password are replaced by their length, so the cost of a log line does
+ * not depend on the size of a post. When the buffer is full new events
+ * are dropped and counted instead of blocking the request.
+ */
+public final class EventLog {
+
+    /**
+     * Log levels in increasing order of severity.
+     */
+    public enum Level { DEBUG, INFO, WARN, ERROR }
+
+    // Must be a power of two.
+    private static final int CAPACITY = 8192;
+
+    private static final AtomicReferenceArray<Event> ring = new AtomicReferenceArray<>(CAPACITY);
+    // Next slot to be claimed by a producer.
+    private static final AtomicLong tail = new AtomicLong();
+    // Next slot to be read by the writer thread.
+    private static final AtomicLong head = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+
+    private static final Writer out = new BufferedWriter(new OutputStreamWriter(
+            new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), 64 * 1024);
+
+    private static volatile Settings settings = new Settings(Level.INFO, Map.of(), Map.of(),
+            Set.of("content", "comment", "body", "password", "posttext"), 200);
+
+    static {
+        Thread writer = new Thread(EventLog::writeLoop, "event-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(EventLog::drain, "event-log-flush"));
+    }
+
+    private EventLog() {
+    }
+
+    public static void debug(String category, String message, Object... keyValues) {
+        log(Level.DEBUG, category, message, keyValues);
+    }
+
+    public static void info(String category, String message, Object... keyValues) {
+        log(Level.INFO, category, message, keyValues);
+    }
+
+    public static void warn(String category, String message, Object... keyValues) {
+        log(Level.WARN, category, message, keyValues);
+    }
+
+    public static void error(String category, String message, Object... keyValues) {
+        log(Level.ERROR, category, message, keyValues);
+    }
+
+    /**
+     * Replaces the logging settings.
+     *
+     * @param defaultLevel   level of categories without their own level
+     * @param levels         level by category
+     * @param sampleRates    fraction of events kept by category, 1 keeps all
+     * @param redactedKeys   keys whose values are replaced by their length
+     * @param maxValueLength values longer than this are truncated
+     */
+    public static void configure(Level defaultLevel, Map<String, Level> levels,
+            Map<String, Double> sampleRates, Set<String> redactedKeys, int maxValueLength) {
+        settings = new Settings(defaultLevel, Map.copyOf(levels), Map.copyOf(sampleRates),
+                Set.copyOf(redactedKeys), maxValueLength);
+    }
+
+    /**
+     * Returns whether events of the level are written for the category.
+     */
+    public static boolean isEnabled(Level level, String category) {
+        Settings current = settings;
+        return level.compareTo(current.levels().getOrDefault(category, current.defaultLevel())) >= 0;
+    }
+
+    private static void log(Level level, String category, String message, Object[] keyValues) {
+        Settings current = settings;
+        if (!isEnabled(level, category)) return;
+
+        // Warnings and errors are never sampled out.
+        Double rate = current.sampleRates().get(category);
+        if (rate != null && level.compareTo(Level.WARN) < 0
+                && ThreadLocalRandom.current().nextDouble() >= rate) {
+            return;
+        }
+
+        Event event = new Event(System.currentTimeMillis(), level, category, message,
+                Thread.currentThread().getName(), keyValues);
+
+        long slot;
+        do {
+            slot = tail.get();
+            if (slot - head.get() >= CAPACITY) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!tail.compareAndSet(slot, slot + 1));
+        ring.set((int) (slot & (CAPACITY - 1)), event);
+    }
+
+    private static void writeLoop() {
+        StringBuilder line = new StringBuilder(512);
+
+        while (true) {
+            try {
+                if (!writeAvailable(line)) {
+                    LockSupport.parkNanos(1_000_000);
+                }
+            } catch (IOException | RuntimeException e) {
+                // Logging must never take the application down.
+                line.setLength(0);
+            }
+        }
+    }
+
+    /**
+     * Writes all published events and flushes them.
+     * Returns false if there were none.
+     */
+    private static synchronized boolean writeAvailable(StringBuilder line) throws IOException {
+        boolean wrote = false;
+        long droppedCount = dropped.getAndSet(0);
+        if (droppedCount > 0) {
+            out.write("{\"level\":\"WARN\",\"category\":\"log\",\"message\":\"Dropped events\",\"count\":"
+                    + droppedCount + "}\n");
+            wrote = true;
+        }
+
+        while (true) {
+            long slot = head.get();
+            int index = (int) (slot & (CAPACITY - 1));
+            Event event = ring.get(index);
+            // Null means the slot is not claimed yet or not published yet.
+            if (event == null) {
+                if (wrote) out.flush();
+                return wrote;
+            }
+
+            ring.set(index, null);
+            head.lazySet(slot + 1);
+
+            line.setLength(0);
+            format(event, line);
+            out.append(line);
+            wrote = true;
+        }
+    }
+
+    private static void drain() {
+        try {
+            writeAvailable(new StringBuilder());
+        } catch (IOException e) {
+            // Nothing left to report to.
+        }
+    }
+
+    private static void format(Event event, StringBuilder line) {
+        Settings current = settings;
+        line.append("{\"time\":\"").append(Instant.ofEpochMilli(event.time())).append('"');
+        line.append(",\"level\":\"").append(event.level()).append('"');
+        line.append(",\"category\":");
+        appendJson(line, event.category(), Integer.MAX_VALUE);
+        line.append(",\"thread\":");
+        appendJson(line, event.thread(), Integer.MAX_VALUE);
+        line.append(",\"message\":");
+        appendJson(line, event.message(), current.maxValueLength());
+
+        Object[] keyValues = event.keyValues();
+        for (int i = 0; i + 1 < keyValues.length; i += 2) {
+            String key = String.valueOf(keyValues[i]);
+            Object value = keyValues[i + 1];
+            line.append(',');
+            appendJson(line, key, Integer.MAX_VALUE);
+            line.append(':');
+
+            if (value == null) {
+                line.append("null");
+            } else if (value instanceof Number || value instanceof Boolean) {
+                line.append(value);
+            } else if (current.redactedKeys().contains(key.toLowerCase())) {
+                line.append("\"<redacted length=").append(String.valueOf(value).length()).append(">\"");
+            } else {
+                String text = value instanceof Throwable t ? t.toString() : String.valueOf(value);
+                appendJson(line, text, current.maxValueLength());
+            }
+        }
+        line.append("}\n");
+    }
+
+    private static void appendJson(StringBuilder line, String text, int maxLength) {
+        line.append('"');
+        int length = Math.min(text.length(), maxLength);
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) line.append(String.format("\\u%04x", (int) c));
+                    else line.append(c);
+                }
+            }
+        }
+        if (length < text.length()) line.append("...(").append(text.length()).append(" chars)");
+        line.append('"');
+    }
+
+    /**
+     * A log call waiting to be written.
+     */
+    private record Event(long time, Level level, String category, String message,
+            String thread, Object[] keyValues) {
+    }
+
+    /**
+     * Current logging settings. Replaced as a whole when reconfigured.
+     */
+    private record Settings(Level defaultLevel, Map<String, Level> levels,
+            Map<String, Double> sampleRates, Set<String> redactedKeys, int maxValueLength) {
+    }
+}
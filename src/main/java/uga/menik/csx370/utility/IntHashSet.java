@@ -0,0 +1,124 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.utility;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * This is a hash set of ints without boxing. Values are kept in one array
+ * with open addressing and linear probing; a removal shifts the following
+ * entries of its run back so lookups never need tombstones.
+ * 0 is used to mark empty slots and cannot be stored, which suits ids
+ * that start at 1. Not thread safe.
+ */
+public class IntHashSet {
+
+    private int[] slots;
+    private int size;
+
+    public IntHashSet() {
+        this.slots = new int[8];
+    }
+
+    /**
+     * Adds a value. Returns false if it was already there.
+     */
+    public boolean add(int value) {
+        if (value == 0) throw new IllegalArgumentException("0 cannot be stored");
+        // Keep the load factor at most a half.
+        if ((size + 1) * 2 > slots.length) rehash(slots.length * 2);
+        int mask = slots.length - 1;
+        int i = mix(value) & mask;
+        while (slots[i] != 0) {
+            if (slots[i] == value) return false;
+            i = (i + 1) & mask;
+        }
+        slots[i] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes a value. Returns false if it was not there.
+     */
+    public boolean remove(int value) {
+        int mask = slots.length - 1;
+        int i = mix(value) & mask;
+        while (slots[i] != value) {
+            if (slots[i] == 0) return false;
+            i = (i + 1) & mask;
+        }
+        // Move later entries of the run into the gap if their home slot
+        // does not lie between the gap and them.
+        int gap = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (slots[j] == 0) break;
+            int home = mix(slots[j]) & mask;
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                slots[gap] = slots[j];
+                gap = j;
+            }
+        }
+        slots[gap] = 0;
+        size--;
+        return true;
+    }
+
+    public boolean contains(int value) {
+        if (value == 0) return false;
+        int mask = slots.length - 1;
+        int i = mix(value) & mask;
+        while (slots[i] != 0) {
+            if (slots[i] == value) return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Calls action for every value, in no particular order.
+     */
+    public void forEach(IntConsumer action) {
+        for (int value : slots) {
+            if (value != 0) action.accept(value);
+        }
+    }
+
+    /**
+     * Returns the values in ascending order.
+     */
+    public int[] toSortedArray() {
+        int[] values = new int[size];
+        int n = 0;
+        for (int value : slots) {
+            if (value != 0) values[n++] = value;
+        }
+        Arrays.sort(values);
+        return values;
+    }
+
+    private void rehash(int capacity) {
+        int[] old = slots;
+        slots = new int[capacity];
+        size = 0;
+        for (int value : old) {
+            if (value != 0) add(value);
+        }
+    }
+
+    // Sequential ids would otherwise fill runs of neighbouring slots.
+    private static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,58 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.utility;
+
+import java.util.Arrays;
+
+/**
+ * This is a growable list of ints without boxing. Elements are appended
+ * and read by index; the backing array doubles when it is full.
+ * Not thread safe.
+ */
+public class IntList {
+
+    private int[] elements;
+    private int size;
+
+    public IntList() {
+        this(8);
+    }
+
+    public IntList(int capacity) {
+        this.elements = new int[Math.max(1, capacity)];
+    }
+
+    /**
+     * Appends a value.
+     */
+    public void add(int value) {
+        if (size == elements.length) elements = Arrays.copyOf(elements, size * 2);
+        elements[size++] = value;
+    }
+
+    /**
+     * Returns the value at index.
+     */
+    public int get(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException(index);
+        return elements[index];
+    }
+
+    /**
+     * Returns a copy of the values.
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -0,0 +1,170 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.utility;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This is a weighted prefix index for autocompletion. Words are stored in
+ * a compressed trie where each edge holds a run of characters, and every
+ * node keeps the k heaviest words below it. A lookup walks at most one
+ * node per edge of the prefix and returns that node's list, so it does
+ * not depend on how many words share the prefix.
+ * Changing a weight updates the lists along the path of the word.
+ */
+public class PrefixIndex {
+
+    private final int k;
+    private final Node root = new Node("");
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param k the number of completions kept for every prefix
+     */
+    public PrefixIndex(int k) {
+        this.k = k;
+    }
+
+    /**
+     * Adds delta to the weight of the word, adding the word if needed.
+     * Words with a weight of zero or less are not suggested.
+     */
+    public void add(String word, long delta) {
+        if (word.isEmpty()) return;
+        lock.writeLock().lock();
+        try {
+            List<Node> path = new ArrayList<>();
+            Node node = root;
+            path.add(node);
+
+            int i = 0;
+            while (i < word.length()) {
+                Node child = node.children.get(word.charAt(i));
+                if (child == null) {
+                    child = new Node(word.substring(i));
+                    node.children.put(word.charAt(i), child);
+                    node = child;
+                    path.add(node);
+                    break;
+                }
+
+                int common = commonPrefixLength(child.label, word, i);
+                if (common < child.label.length()) {
+                    // Split the edge where the word leaves it.
+                    Node middle = new Node(child.label.substring(0, common));
+                    child.label = child.label.substring(common);
+                    middle.children.put(child.label.charAt(0), child);
+                    middle.top = child.top;
+                    node.children.put(middle.label.charAt(0), middle);
+                    child = middle;
+                }
+                node = child;
+                path.add(node);
+                i += common;
+            }
+
+            if (node.word == null) node.word = new Word(word);
+            node.word.weight += delta;
+
+            for (int j = path.size() - 1; j >= 0; j--) {
+                updateTop(path.get(j));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to k words starting with prefix, heaviest first.
+     */
+    public List<String> complete(String prefix) {
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int i = 0;
+            while (i < prefix.length()) {
+                Node child = node.children.get(prefix.charAt(i));
+                if (child == null) return List.of();
+
+                int common = commonPrefixLength(child.label, prefix, i);
+                // The prefix may end in the middle of an edge.
+                if (i + common == prefix.length()) {
+                    node = child;
+                    break;
+                }
+                if (common < child.label.length()) return List.of();
+                node = child;
+                i += common;
+            }
+
+            List<String> words = new ArrayList<>(node.top.length);
+            for (Word word : node.top) {
+                words.add(word.text);
+            }
+            return words;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Recomputes the heaviest words below a node from its own word and
+     * the lists of its children.
+     */
+    private void updateTop(Node node) {
+        List<Word> candidates = new ArrayList<>();
+        if (node.word != null && node.word.weight > 0) candidates.add(node.word);
+        for (Node child : node.children.values()) {
+            for (Word word : child.top) {
+                candidates.add(word);
+            }
+        }
+        candidates.sort((a, b) -> a.weight != b.weight
+                ? Long.compare(b.weight, a.weight)
+                : a.text.compareTo(b.text));
+        node.top = candidates.subList(0, Math.min(k, candidates.size())).toArray(new Word[0]);
+    }
+
+    private static int commonPrefixLength(String label, String text, int offset) {
+        int max = Math.min(label.length(), text.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == text.charAt(offset + i)) i++;
+        return i;
+    }
+
+    /**
+     * A trie node. label is the run of characters on the edge to it.
+     */
+    private static final class Node {
+        private String label;
+        private final Map<Character, Node> children = new HashMap<>(4);
+        // The word ending at this node, if any.
+        private Word word;
+        // The heaviest words at or below this node.
+        private Word[] top = new Word[0];
+
+        Node(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * A word and its weight.
+     */
+    private static final class Word {
+        private final String text;
+        private long weight;
+
+        Word(String text) {
+            this.text = text;
+        }
+    }
+}
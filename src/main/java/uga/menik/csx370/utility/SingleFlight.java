@@ -0,0 +1,72 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.utility;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * This coalesces concurrent loads of the same key. The first caller for a
+ * key runs the load; callers that arrive while it is running wait for it
+ * and get the same result instead of running their own.
+ * Nothing is cached: once a load finishes, the next caller loads again.
+ * The result is shared between callers, so it must not be modified.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Loads a value that may need the database.
+     */
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load() throws SQLException;
+    }
+
+    /**
+     * Returns the result of the load running for key, starting one with
+     * loader if there is none. A failed load fails all its callers.
+     */
+    public V load(K key, Loader<V> loader) throws SQLException {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, call);
+        if (running != null) return await(running);
+
+        try {
+            call.complete(loader.load());
+        } catch (SQLException | RuntimeException e) {
+            call.completeExceptionally(e);
+        } finally {
+            inFlight.remove(key, call);
+        }
+        return await(call);
+    }
+
+    /**
+     * Returns the number of loads running right now.
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> call) throws SQLException {
+        try {
+            return call.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a shared load", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sqlException) throw sqlException;
+            if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new SQLException(cause);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.utility;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Finds the hashtags and @mentions of post text in one pass over its
+ * characters, allocating only the tokens it returns.
+ * A token starts with # or @ at the start of the text or after a
+ * character that cannot be part of a word, so e-mail addresses and "C#"
+ * are not tokens. It ends at the first character that cannot be part of
+ * it, so "#java," is the hashtag java. Hashtags are letters, digits and
+ * underscores, lowercased. Mentions are usernames as written and may also
+ * have . and - between other characters, as in @jane.doe.
+ */
+public final class TextTokens {
+
+    // Longest hashtag and username the tables hold. Longer tokens are ignored.
+    public static final int MAX_HASHTAG_LENGTH = 100;
+    public static final int MAX_USERNAME_LENGTH = 255;
+
+    private static final boolean[] ASCII_WORD = new boolean[128];
+    static {
+        for (char c = 0; c < 128; c++) {
+            ASCII_WORD[c] = c == '_' || (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+        }
+    }
+
+    /**
+     * The distinct hashtags and mentions of a text in the order they appear.
+     */
+    public record Tokens(Set<String> hashtags, Set<String> mentions) {
+    }
+
+    private TextTokens() {
+    }
+
+    /**
+     * Returns the hashtags and mentions of post text.
+     */
+    public static Tokens scan(String text) {
+        Set<String> hashtags = Collections.emptySet();
+        Set<String> mentions = Collections.emptySet();
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if ((c != '#' && c != '@') || (i > 0 && isWordChar(text.charAt(i - 1)))) {
+                i++;
+                continue;
+            }
+
+            boolean mention = c == '@';
+            int start = i + 1;
+            int end = start;
+            boolean upper = false;
+            while (end < length) {
+                char t = text.charAt(end);
+                if (isWordChar(t)) {
+                    upper |= Character.isUpperCase(t);
+                } else if (!mention || (t != '.' && t != '-')
+                        || end + 1 >= length || !isWordChar(text.charAt(end + 1))) {
+                    break;
+                }
+                end++;
+            }
+
+            int tokenLength = end - start;
+            if (mention && tokenLength > 0 && tokenLength <= MAX_USERNAME_LENGTH) {
+                if (mentions.isEmpty()) mentions = new LinkedHashSet<>();
+                mentions.add(text.substring(start, end));
+            } else if (!mention && tokenLength > 0 && tokenLength <= MAX_HASHTAG_LENGTH) {
+                if (hashtags.isEmpty()) hashtags = new LinkedHashSet<>();
+                hashtags.add(word(text, start, end, upper));
+            }
+            i = end;
+        }
+        return new Tokens(hashtags, mentions);
+    }
+
+    /**
+     * Returns the hashtags of a search such as "#java, #Spring boot": every
+     * run of word characters, with or without a leading #, lowercased and
+     * each once.
+     */
+    public static List<String> searchTerms(String query) {
+        List<String> terms = new ArrayList<>();
+        int length = query.length();
+        int i = 0;
+        while (i < length) {
+            if (!isWordChar(query.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            boolean upper = false;
+            while (i < length && isWordChar(query.charAt(i))) {
+                upper |= Character.isUpperCase(query.charAt(i));
+                i++;
+            }
+            String term = word(query, start, i, upper);
+            if (i - start <= MAX_HASHTAG_LENGTH && !terms.contains(term)) terms.add(term);
+        }
+        return terms;
+    }
+
+    private static String word(String text, int start, int end, boolean upper) {
+        String word = text.substring(start, end);
+        return upper ? word.toLowerCase(Locale.ROOT) : word;
+    }
+
+    private static boolean isWordChar(char c) {
+        return c < 128 ? ASCII_WORD[c] : Character.isLetterOrDigit(c);
+    }
+}
@@ -0,0 +1,15 @@
+-- The home feed orders reposts by when they were made, so every repost
+-- needs a time. Rows from before createdAt had a default get the time of
+-- the post.
+update repost r
+join posts p on p.postId = r.originalPostId
+set r.createdAt = p.createdAt
+where r.createdAt is null;
+
+alter table repost modify createdAt datetime not null default current_timestamp;
+
+-- The home feed reads the reposts of each followed user, newest first.
+create index repost_user_created on repost (userId, createdAt, originalPostId);
+
+-- Reposts of a post are counted and removed with the post.
+create index repost_post_user on repost (originalPostId, userId);
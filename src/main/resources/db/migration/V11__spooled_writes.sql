@@ -0,0 +1,9 @@
+-- Ids of the posts and comments replayed from the write spool (see
+-- WriteSpool). A write id is inserted in the same transaction as the post
+-- or comment, so a write that is replayed twice is only applied once.
+create table if not exists spooled_writes (
+    writeId char(36) not null,
+    appliedAt datetime not null default current_timestamp,
+    primary key (writeId),
+    index spooled_writes_applied (appliedAt)
+);
@@ -0,0 +1,11 @@
+-- Users mentioned in posts as @username, see TextTokens. Mentions of names
+-- that are not users are not stored. There is no foreign key to posts:
+-- archiving a post leaves its mentions for when it is restored, and
+-- PurgeService removes the mentions of deleted posts.
+create table if not exists mentions (
+    userId int not null,
+    postId int not null,
+    primary key (userId, postId),
+    index mentions_post (postId),
+    foreign key (userId) references user(userId)
+);
@@ -0,0 +1,17 @@
+-- Partitions the archive tables by range of postId, one partition per
+-- month of posts. Post ids grow with creation time, so the partition
+-- p202609 holds the posts created before October 2026 together with
+-- their comments, likes and hashtags, and lookups by postId only touch
+-- one partition. ArchivePartitionService adds the partition of each month
+-- when the next one starts, long before its posts are archived, and
+-- detaches partitions past app.archive.partitions.retention-months.
+-- Partitioned tables need the partitioning column in every unique key.
+alter table comments_archive drop primary key, add primary key (commentId, postId);
+
+-- Everything archived so far starts out in pmax. The first maintenance
+-- run splits it once; after that pmax only holds posts of the current
+-- month, which are not archived yet, so splitting it moves no rows.
+alter table posts_archive partition by range (postId) (partition pmax values less than maxvalue);
+alter table comments_archive partition by range (postId) (partition pmax values less than maxvalue);
+alter table likes_archive partition by range (postId) (partition pmax values less than maxvalue);
+alter table hashtags_archive partition by range (postId) (partition pmax values less than maxvalue);
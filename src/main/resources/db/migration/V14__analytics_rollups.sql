@@ -0,0 +1,41 @@
+-- Activity rollups for the analytics page, kept by AnalyticsService from
+-- the outbox. Each event is counted once: the rollups are updated in the
+-- transaction that moves the projection's checkpoint, so a batch that
+-- fails is rolled back and read again from the same position. Counts
+-- start when this migration is applied; earlier activity is not
+-- backfilled. likes is the net of likes given and taken back.
+
+-- Activity per hour. hour is the start of the hour.
+create table if not exists analytics_hourly (
+    hour datetime not null,
+    posts int not null default 0,
+    likes int not null default 0,
+    comments int not null default 0,
+    primary key (hour)
+);
+
+-- Activity per day. activePosters is the number of users who posted.
+create table if not exists analytics_daily (
+    day date not null,
+    posts int not null default 0,
+    likes int not null default 0,
+    comments int not null default 0,
+    activePosters int not null default 0,
+    primary key (day)
+);
+
+-- Who posted on each day, so each poster is counted once per day.
+-- Days older than app.analytics.poster-retention-days are pruned.
+create table if not exists analytics_daily_posters (
+    day date not null,
+    userId int not null,
+    primary key (day, userId)
+);
+
+-- Posts per hashtag per day.
+create table if not exists analytics_daily_tags (
+    day date not null,
+    tag varchar(100) not null,
+    posts int not null default 0,
+    primary key (day, tag)
+);
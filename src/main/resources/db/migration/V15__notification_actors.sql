@@ -0,0 +1,15 @@
+-- Who acted on each unread notification, so that an actor whose events
+-- arrive in several flushes is counted once. A row belongs to the unread
+-- notification of the same recipient, type and post, and is removed when
+-- the recipient reads their notifications.
+create table if not exists notification_actors (
+    recipientId int not null,
+    type varchar(16) not null,
+    postId int not null default 0,
+    actorId int not null,
+    primary key (recipientId, type, postId, actorId)
+);
+
+-- Only the latest actor of the existing unread notifications is known.
+insert ignore into notification_actors (recipientId, type, postId, actorId)
+select recipientId, type, postId, actorId from notifications where readSeq = 0;
@@ -0,0 +1,16 @@
+-- Ranges of event ids that OutboxService stopped waiting for and skipped.
+-- An event in a range that commits after all is never applied by the
+-- projection, so the range is kept here to be checked against the outbox.
+-- projection is the checkpointed projection, or 'local' for the local
+-- projections of a node. Checkpointed skips are written in the
+-- transaction that moves the checkpoint past them.
+create table if not exists outbox_skipped (
+    skipId bigint auto_increment,
+    projection varchar(64) not null,
+    fromEventId bigint not null,
+    toEventId bigint not null,
+    waitedMs bigint not null,
+    skippedAt datetime not null default current_timestamp,
+    primary key (skipId),
+    index outbox_skipped_projection (projection, fromEventId)
+);
@@ -0,0 +1,12 @@
+-- When each post counted by AnalyticsService was created, so that deleting
+-- it takes it off the hour and day it was counted in. A row is added with
+-- POST_CREATED and removed with POST_DELETED. Rows older than
+-- app.analytics.post-retention-days are pruned; a post deleted after that
+-- stays counted. Posts created before this migration are not listed and
+-- stay counted when deleted.
+create table if not exists analytics_post_times (
+    postId int not null,
+    createdAt datetime not null,
+    primary key (postId),
+    index analytics_post_times_created (createdAt)
+);
@@ -0,0 +1,9 @@
+-- Create repost table used by PostService for reposts.
+create table if not exists repost (
+    userId int not null,
+    originalPostId int not null,
+    createdAt datetime default current_timestamp,
+    primary key (userId, originalPostId),
+    foreign key (userId) references user(userId),
+    foreign key (originalPostId) references posts(postId)
+);
@@ -0,0 +1,8 @@
+-- Home feed and profile pages look up posts by author, newest first.
+create index posts_author_created on posts (authorId, createdAt);
+
+-- The post page lists comments of a post in creation order.
+create index comments_post_created on comments (postId, createdAt);
+
+-- Hashtag search looks up posts by tag.
+create index hashtags_tag_post on hashtags (tag, postId);
@@ -0,0 +1,41 @@
+-- Cold tier for old posts. ArchiveService moves posts older than
+-- app.archive.after-days here together with their comments, likes and
+-- hashtags. The tables are compressed and have no foreign keys since the
+-- archived rows no longer exist in the hot tables.
+create table if not exists posts_archive (
+    postId int not null,
+    authorId int not null,
+    body text not null,
+    createdAt datetime,
+    archivedAt datetime default current_timestamp,
+    primary key (postId),
+    index posts_archive_author_created (authorId, createdAt)
+) row_format=compressed;
+
+create table if not exists comments_archive (
+    commentId int not null,
+    postId int not null,
+    authorId int not null,
+    body text not null,
+    createdAt datetime,
+    primary key (commentId),
+    index comments_archive_post_created (postId, createdAt)
+) row_format=compressed;
+
+create table if not exists likes_archive (
+    userId int not null,
+    postId int not null,
+    createdAt datetime,
+    primary key (userId, postId),
+    index likes_archive_post (postId)
+) row_format=compressed;
+
+create table if not exists hashtags_archive (
+    postId int not null,
+    tag varchar(100) not null,
+    primary key (postId, tag),
+    index hashtags_archive_tag_post (tag, postId)
+) row_format=compressed;
+
+-- The archiver picks the oldest posts first.
+create index posts_created on posts (createdAt);
@@ -0,0 +1,22 @@
+-- Notifications about likes, comments, reposts and follows.
+-- Events of the same type on the same post are aggregated into one row
+-- while it is unread: actorCount grows and actorId is the latest actor.
+-- Unread rows have readSeq = 0, so the unique key allows one unread row
+-- per group. Marking a row read sets readSeq to its own id, which frees
+-- the group for a new unread row. postId is 0 for follows. There is no
+-- foreign key to posts so that posts can still be archived.
+create table if not exists notifications (
+    notificationId int auto_increment,
+    recipientId int not null,
+    type varchar(16) not null,
+    postId int not null default 0,
+    actorId int not null,
+    actorCount int not null default 1,
+    readSeq int not null default 0,
+    updatedAt datetime not null default current_timestamp,
+    primary key (notificationId),
+    unique key notifications_group (recipientId, type, postId, readSeq),
+    index notifications_recipient_updated (recipientId, updatedAt),
+    foreign key (recipientId) references user(userId),
+    foreign key (actorId) references user(userId)
+);
@@ -0,0 +1,8 @@
+-- Deleted posts and comments are marked with deletedAt and hidden by all
+-- queries right away. PurgeService removes them and their dependent rows
+-- later in small chunks.
+alter table posts add column deletedAt datetime null;
+alter table comments add column deletedAt datetime null;
+
+create index posts_deleted on posts (deletedAt);
+create index comments_deleted on comments (deletedAt);
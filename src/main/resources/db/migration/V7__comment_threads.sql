@@ -0,0 +1,15 @@
+-- Comments form threads of replies. path is the materialized path of a
+-- comment: the ids of its ancestors and its own id, each zero padded to
+-- ten digits and followed by '/'. Ordering by path lists a thread depth
+-- first with replies in the order they were made, and the replies below
+-- a comment are a single range scan of comments_post_path.
+-- Threads are at most 32 levels deep (32 * 11 characters).
+alter table comments add column path varchar(352) character set ascii collate ascii_bin not null default '';
+update comments set path = concat(lpad(commentId, 10, '0'), '/');
+
+create index comments_post_path on comments (postId, path, deletedAt);
+-- Comments are no longer listed in creation order.
+drop index comments_post_created on comments;
+
+alter table comments_archive add column path varchar(352) character set ascii collate ascii_bin not null default '';
+update comments_archive set path = concat(lpad(commentId, 10, '0'), '/');
@@ -0,0 +1,24 @@
+-- Inputs of the ranked home feed, kept up to date by FeedRankingService
+-- as likes, comments and reposts come in. Both values decay over time:
+-- a row holds the value as of updatedAt, and readers and writers scale it
+-- by exp(-(now - updatedAt) / tau) before using or adding to it.
+
+-- How fast a post is picking up engagement.
+-- There is no foreign key to posts so that posts can still be archived.
+create table if not exists post_engagement (
+    postId int not null,
+    velocity double not null default 0,
+    updatedAt datetime not null default current_timestamp,
+    primary key (postId)
+);
+
+-- How much userId engages with posts by authorId.
+create table if not exists author_affinity (
+    userId int not null,
+    authorId int not null,
+    score double not null default 0,
+    updatedAt datetime not null default current_timestamp,
+    primary key (userId, authorId),
+    foreign key (userId) references user(userId),
+    foreign key (authorId) references user(userId)
+);
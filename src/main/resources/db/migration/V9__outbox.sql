@@ -0,0 +1,24 @@
+-- Change events written in the same transaction as the change itself.
+-- OutboxService tails this table and feeds the events to projections.
+-- aggregateId is the post for post, comment, like, bookmark and repost
+-- events and the followed user for follow events. actorId is the user who
+-- made the change.
+create table if not exists outbox (
+    eventId bigint auto_increment,
+    type varchar(32) not null,
+    aggregateId int not null,
+    actorId int not null,
+    payload varchar(1000) not null default '',
+    createdAt datetime not null default current_timestamp,
+    primary key (eventId),
+    index outbox_created (createdAt)
+);
+
+-- The last event applied by each checkpointed projection. Projections
+-- that only keep local caches start at the end of the outbox instead.
+create table if not exists projection_checkpoints (
+    name varchar(64) not null,
+    lastEventId bigint not null default 0,
+    updatedAt datetime not null default current_timestamp,
+    primary key (name)
+);
@@ -20,4 +20,140 @@ document.addEventListener('DOMContentLoaded', function () {
             }
         });
     }
+
+    // Pages with data-live-feed get new posts pushed by the server.
+    // See LiveFeedController.java.
+    var liveFeedUrl = document.body.dataset.liveFeed;
+    var postsContainer = document.querySelector('.posts');
+    if (liveFeedUrl && postsContainer && window.EventSource) {
+        var liveFeed = new EventSource(liveFeedUrl);
+        liveFeed.addEventListener('post', function (e) {
+            postsContainer.insertAdjacentHTML('afterbegin', e.data);
+            var noContent = document.querySelector('.no-content-message');
+            if (noContent) noContent.parentElement.remove();
+        });
+    }
+
+    // Fields with data-hashtag-suggest get suggestions for the #hashtag
+    // being typed. See HashtagSearchController.java.
+    for (var field of document.querySelectorAll('[data-hashtag-suggest]')) {
+        attachHashtagSuggestions(field);
+    }
+
+    // Comments are a flat list in thread order, indented by their depth.
+    // See comment.mustache.
+    for (var comments of document.querySelectorAll('.comments')) {
+        attachCommentThreads(comments);
+    }
 });
+
+function attachCommentThreads(container) {
+    function depth(comment) {
+        return Number(comment.dataset.depth);
+    }
+
+    // Returns the loaded replies below a comment, which are the comments
+    // after it that are deeper than it.
+    function replies(comment) {
+        var result = [];
+        var next = comment.nextElementSibling;
+        while (next && next.classList.contains('comment') && depth(next) > depth(comment)) {
+            result.push(next);
+            next = next.nextElementSibling;
+        }
+        return result;
+    }
+
+    // Shows the collapse button of comments that have loaded replies.
+    function updateCollapseButtons() {
+        for (var comment of container.querySelectorAll('.comment')) {
+            comment.querySelector('.collapse-replies').hidden = replies(comment).length === 0;
+        }
+    }
+
+    container.addEventListener('click', function (e) {
+        var button = e.target.closest('button');
+        if (!button) return;
+        var comment = button.closest('.comment');
+
+        if (button.classList.contains('reply-toggle')) {
+            var form = comment.querySelector('.reply-form');
+            form.hidden = !form.hidden;
+            if (!form.hidden) form.elements.comment.focus();
+        } else if (button.classList.contains('collapse-replies')) {
+            var collapse = button.classList.contains('fa-minus-square');
+            for (var reply of replies(comment)) {
+                reply.hidden = collapse;
+            }
+            button.classList.toggle('fa-minus-square', !collapse);
+            button.classList.toggle('fa-plus-square', collapse);
+            button.title = collapse ? 'Show replies' : 'Hide replies';
+        } else if (button.classList.contains('show-replies')) {
+            button.disabled = true;
+            fetch(button.dataset.replies)
+                .then(function (response) { return response.text(); })
+                .then(function (html) {
+                    var template = document.createElement('template');
+                    template.innerHTML = html;
+                    comment.after(...template.content.querySelectorAll('.comment'));
+                    button.remove();
+                    updateCollapseButtons();
+                })
+                .catch(function () {
+                    button.disabled = false;
+                });
+        }
+    });
+
+    updateCollapseButtons();
+}
+
+function attachHashtagSuggestions(field) {
+    var list = document.createElement('div');
+    list.className = 'suggestions framed';
+    list.hidden = true;
+    field.insertAdjacentElement('afterend', list);
+    var timer = null;
+
+    // Returns the start of the #word ending at the cursor, or -1.
+    function tagStart() {
+        var before = field.value.substring(0, field.selectionStart);
+        var match = before.match(/#(\w+)$/);
+        return match ? before.length - match[0].length : -1;
+    }
+
+    field.addEventListener('input', function () {
+        clearTimeout(timer);
+        var start = tagStart();
+        if (start < 0) {
+            list.hidden = true;
+            return;
+        }
+        var prefix = field.value.substring(start + 1, field.selectionStart);
+        timer = setTimeout(function () {
+            fetch('/hashtagsearch/suggest?prefix=' + encodeURIComponent(prefix))
+                .then(function (response) { return response.json(); })
+                .then(function (tags) {
+                    list.replaceChildren();
+                    for (var tag of tags) {
+                        var item = document.createElement('div');
+                        item.textContent = '#' + tag;
+                        item.addEventListener('mousedown', function (e) {
+                            e.preventDefault(); // Keep the focus in the field.
+                            var at = tagStart();
+                            var end = field.selectionStart;
+                            field.value = field.value.substring(0, at) + this.textContent + ' '
+                                + field.value.substring(end);
+                            field.selectionStart = field.selectionEnd = at + this.textContent.length + 1;
+                            list.hidden = true;
+                        });
+                        list.appendChild(item);
+                    }
+                    list.hidden = tags.length === 0;
+                });
+        }, 100);
+    });
+    field.addEventListener('blur', function () {
+        list.hidden = true;
+    });
+}
@@ -0,0 +1,128 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import uga.menik.csx370.repositories.PostRepository;
+
+/**
+ * Renders the pages of the application against the seeded dataset with
+ * the test profile, in which QueryBudgetInterceptor fails every request
+ * over the database budget. A page that starts to run a query per post
+ * fails here.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class RequestBudgetTest {
+
+    private static final String PASSWORD = "budget-test";
+
+    @Autowired
+    private MockMvc mvc;
+
+    private MockHttpSession session;
+
+    @BeforeAll
+    static void seed() throws Exception {
+        DataSource ds = TestDatabase.seeded();
+        try (Connection conn = ds.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement("UPDATE user SET password = ? WHERE userId = 1")) {
+            pstmt.setString(1, new BCryptPasswordEncoder().encode(PASSWORD));
+            pstmt.executeUpdate();
+        }
+    }
+
+    @BeforeEach
+    void logIn() throws Exception {
+        MvcResult login = mvc.perform(post("/login").param("username", "seed1").param("password", PASSWORD))
+                .andReturn();
+        assertThat(login.getResponse().getRedirectedUrl()).isEqualTo("/");
+        session = (MockHttpSession) login.getRequest().getSession();
+    }
+
+    @Test
+    void pagesStayWithinTheBudget() throws Exception {
+        String[] pages = {
+            "/", "/?feed=ranked", "/profile", "/profile/2", "/bookmarks", "/mentions",
+            "/hashtagsearch?hashtags=%23tag1%20%23tag2", "/people", "/post/10", "/notifications",
+        };
+        for (String page : pages) {
+            MvcResult result = mvc.perform(get(page).session(session)).andReturn();
+
+            assertThat(result.getResponse().getStatus()).as(page).isEqualTo(200);
+            assertThat(result.getResponse().getHeader("X-DB-Statements")).as(page).isNotNull();
+        }
+    }
+
+    @Test
+    void queryPerPostFailsTheRequest() {
+        assertThatThrownBy(() -> mvc.perform(get("/test/posts-one-by-one").session(session)))
+                .rootCause().isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Database budget exceeded for /test/posts-one-by-one");
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        DataSource dataSource() throws Exception {
+            return TestDatabase.seeded();
+        }
+
+        @Bean
+        PostsOneByOneController postsOneByOneController(PostRepository postRepository) {
+            return new PostsOneByOneController(postRepository);
+        }
+    }
+
+    /**
+     * Reads five posts with a query each, the way the feed read the viewer
+     * state of its posts before it was batched.
+     */
+    @RestController
+    static class PostsOneByOneController {
+        private final PostRepository postRepository;
+
+        PostsOneByOneController(PostRepository postRepository) {
+            this.postRepository = postRepository;
+        }
+
+        @GetMapping("/test/posts-one-by-one")
+        public String posts() throws SQLException {
+            for (int postId = 1; postId <= 5; postId++) {
+                postRepository.findById(String.valueOf(postId), "1");
+            }
+            return "read";
+        }
+    }
+}
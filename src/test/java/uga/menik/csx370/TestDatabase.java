@@ -0,0 +1,176 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+import uga.menik.csx370.components.SchemaMigrator;
+
+/**
+ * This class gives tests a MySQL schema of their own. The schema is
+ * dropped, created and migrated once per test run. Tests that need it are
+ * skipped when no server is reachable.
+ * The server defaults to the one in application.properties and can be
+ * changed with -Dtest.db.url, -Dtest.db.user and -Dtest.db.password.
+ */
+public final class TestDatabase {
+
+    private static final String SERVER_URL = System.getProperty("test.db.url", "jdbc:mysql://localhost:33306/");
+    private static final String USER = System.getProperty("test.db.user", "root");
+    private static final String PASSWORD = System.getProperty("test.db.password", "mysqlpass");
+    private static final String SCHEMA = "csx370_test";
+
+    // Sizes of the seeded dataset. Large enough that a full scan or a
+    // filesort of a whole table costs more than an index lookup.
+    public static final int USERS = 200;
+    public static final int POSTS_PER_USER = 50;
+    public static final int FOLLOWS_PER_USER = 20;
+    public static final int TAGS = 100;
+
+    private static DataSource dataSource;
+    private static String unavailable;
+    private static boolean seeded;
+
+    private TestDatabase() {
+    }
+
+    /**
+     * Returns the migrated test schema, or skips the calling test if there
+     * is no server.
+     */
+    public static synchronized DataSource get() throws Exception {
+        if (dataSource == null) dataSource = create(SCHEMA);
+        return dataSource;
+    }
+
+    /**
+     * Drops, creates and migrates a schema of its own for a test that
+     * changes the structure of tables, or skips the calling test if there
+     * is no server.
+     */
+    public static synchronized DataSource create(String schema) throws Exception {
+        assumeTrue(unavailable == null, unavailable);
+
+        SimpleDriverDataSource server = new SimpleDriverDataSource(new com.mysql.cj.jdbc.Driver(),
+                SERVER_URL + "?connectTimeout=2000", USER, PASSWORD);
+        try (Connection conn = server.getConnection();
+                Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP DATABASE IF EXISTS " + schema);
+            stmt.execute("CREATE DATABASE " + schema);
+        } catch (SQLException e) {
+            unavailable = "No test database at " + SERVER_URL + ": " + e.getMessage();
+            assumeTrue(false, unavailable);
+        }
+
+        DataSource created = new SimpleDriverDataSource(new com.mysql.cj.jdbc.Driver(),
+                SERVER_URL + schema + "?rewriteBatchedStatements=true", USER, PASSWORD);
+        new SchemaMigrator(created, true).migrate();
+        return created;
+    }
+
+    /**
+     * Returns the test schema filled with the seeded dataset: users 1 to
+     * USERS with POSTS_PER_USER posts each, one hashtag, comment and like
+     * per post, and FOLLOWS_PER_USER follows, reposts and bookmarks per
+     * user. User 1 follows users 2 to FOLLOWS_PER_USER + 1.
+     */
+    public static synchronized DataSource seeded() throws Exception {
+        DataSource ds = get();
+        if (seeded) return ds;
+
+        try (Connection conn = ds.getConnection()) {
+            conn.setAutoCommit(false);
+            batch(conn, "INSERT INTO user (userId, username, password, firstName, lastName) VALUES (?, ?, 'x', ?, ?)",
+                    USERS, (pstmt, i) -> {
+                        pstmt.setInt(1, i + 1);
+                        pstmt.setString(2, "seed" + (i + 1));
+                        pstmt.setString(3, "First" + (i + 1));
+                        pstmt.setString(4, "Last" + (i + 1));
+                    });
+
+            // Posts are spread over the last year, newest last.
+            int posts = USERS * POSTS_PER_USER;
+            long now = System.currentTimeMillis();
+            batch(conn, "INSERT INTO posts (postId, authorId, body, createdAt) VALUES (?, ?, ?, ?)",
+                    posts, (pstmt, i) -> {
+                        pstmt.setInt(1, i + 1);
+                        pstmt.setInt(2, i % USERS + 1);
+                        pstmt.setString(3, "Post " + (i + 1) + " #tag" + i % TAGS);
+                        pstmt.setTimestamp(4, new Timestamp(now - (posts - i) * 3_000_000L));
+                    });
+            batch(conn, "INSERT INTO hashtags (postId, tag) VALUES (?, ?)", posts, (pstmt, i) -> {
+                pstmt.setInt(1, i + 1);
+                pstmt.setString(2, "tag" + i % TAGS);
+            });
+            batch(conn, """
+                    INSERT INTO comments (postId, authorId, body, createdAt, path)
+                    VALUES (?, ?, 'A comment', NOW(), CONCAT(LPAD(?, 10, '0'), '/'))
+                    """, posts, (pstmt, i) -> {
+                pstmt.setInt(1, i + 1);
+                pstmt.setInt(2, (i + 7) % USERS + 1);
+                pstmt.setInt(3, i + 1);
+            });
+            // Each post is liked by the user before its author, so user 1
+            // likes the posts of user 2.
+            batch(conn, "INSERT INTO likes (userId, postId) VALUES (?, ?)", posts, (pstmt, i) -> {
+                pstmt.setInt(1, (i + USERS - 1) % USERS + 1);
+                pstmt.setInt(2, i + 1);
+            });
+
+            int perUser = USERS * FOLLOWS_PER_USER;
+            batch(conn, "INSERT INTO follows (userId, userIdFollowed) VALUES (?, ?)", perUser, (pstmt, i) -> {
+                int userId = i / FOLLOWS_PER_USER + 1;
+                pstmt.setInt(1, userId);
+                pstmt.setInt(2, (userId + i % FOLLOWS_PER_USER) % USERS + 1);
+            });
+            batch(conn, "INSERT INTO repost (userId, originalPostId, createdAt) VALUES (?, ?, NOW())",
+                    perUser, (pstmt, i) -> {
+                        pstmt.setInt(1, i / FOLLOWS_PER_USER + 1);
+                        pstmt.setInt(2, i * 2 % posts + 1);
+                    });
+            batch(conn, "INSERT INTO bookmarks (userId, postId) VALUES (?, ?)", perUser, (pstmt, i) -> {
+                pstmt.setInt(1, i / FOLLOWS_PER_USER + 1);
+                pstmt.setInt(2, i * 3 % posts + 1);
+            });
+            batch(conn, "INSERT INTO mentions (userId, postId) VALUES (?, ?)", perUser, (pstmt, i) -> {
+                pstmt.setInt(1, i / FOLLOWS_PER_USER + 1);
+                pstmt.setInt(2, i * 5 % posts + 1);
+            });
+            conn.commit();
+
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("ANALYZE TABLE user, posts, hashtags, comments, likes, follows, repost, bookmarks, mentions");
+            }
+        }
+        seeded = true;
+        return ds;
+    }
+
+    private static void batch(Connection conn, String sql, int rows, RowBinder binder) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < rows; i++) {
+                binder.bind(pstmt, i);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowBinder {
+        void bind(PreparedStatement pstmt, int row) throws SQLException;
+    }
+}
@@ -0,0 +1,91 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.components;
+
+import java.io.Reader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.autoconfigure.mustache.MustacheResourceTemplateLoader;
+import org.springframework.web.servlet.resource.ResourceUrlProvider;
+
+import com.samskivert.mustache.Mustache;
+import com.samskivert.mustache.Template;
+
+import uga.menik.csx370.models.Post;
+import uga.menik.csx370.models.User;
+
+/**
+ * Renders a page of 20 posts with post.mustache and with PostFragmentCache
+ * once the cache is warm. Run with
+ * mvn -B -Pbenchmarks -DskipTests -Dbenchmark=PostFragmentCacheBenchmark test
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PostFragmentCacheBenchmark {
+
+    private Template postTemplate;
+    private Map<String, Object> pageContext;
+    private PostFragmentCache cache;
+    private List<Post> page;
+
+    @Setup
+    public void setUp() throws Exception {
+        Mustache.TemplateLoader loader = new MustacheResourceTemplateLoader("classpath:/templates/", ".mustache");
+        Mustache.Compiler compiler = Mustache.compiler().withLoader(loader);
+        DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("resourceUrlProvider", new ResourceUrlProvider());
+        AssetUrlLambda assetUrlLambda = new AssetUrlLambda(beans.getBeanProvider(ResourceUrlProvider.class));
+
+        try (Reader post = loader.getTemplate("fragments/post")) {
+            postTemplate = compiler.compile(post);
+        }
+        pageContext = Map.of("asset", assetUrlLambda);
+        cache = new PostFragmentCache(compiler, loader, assetUrlLambda, 10000);
+
+        page = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            User author = User.of(i % 5 + 1, "First" + i % 5, "Last" + i % 5);
+            page.add(new Post(i + 1, "Post number " + i + " about #databases and #java with some more words",
+                    1_700_000_000_000L + i * 60_000L, author, i, i / 2, i % 2 == 0, i % 3 == 0, false, i % 5 == 0));
+        }
+        cache.render(page);
+    }
+
+    @Benchmark
+    public List<String> template() {
+        List<String> output = new ArrayList<>(page.size());
+        for (Post post : page) {
+            StringWriter html = new StringWriter();
+            postTemplate.execute(post, pageContext, html);
+            output.add(html.toString());
+        }
+        return output;
+    }
+
+    @Benchmark
+    public List<String> cached() {
+        return cache.render(page);
+    }
+}
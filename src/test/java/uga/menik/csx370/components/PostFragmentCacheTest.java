@@ -0,0 +1,91 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.components;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.Reader;
+import java.io.StringWriter;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.autoconfigure.mustache.MustacheResourceTemplateLoader;
+import org.springframework.web.servlet.resource.ResourceUrlProvider;
+
+import com.samskivert.mustache.Mustache;
+import com.samskivert.mustache.Template;
+
+import uga.menik.csx370.models.Post;
+import uga.menik.csx370.models.User;
+
+/**
+ * Checks that cached post HTML is the same as rendering post.mustache
+ * directly.
+ */
+public class PostFragmentCacheTest {
+
+    private static final User AUTHOR = new User(7, "Ada", "Lovelace");
+
+    private AssetUrlLambda assetUrlLambda;
+    private PostFragmentCache cache;
+    private Template postTemplate;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Mustache.TemplateLoader loader = new MustacheResourceTemplateLoader("classpath:/templates/", ".mustache");
+        Mustache.Compiler compiler = Mustache.compiler().withLoader(loader);
+        DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("resourceUrlProvider", new ResourceUrlProvider());
+        assetUrlLambda = new AssetUrlLambda(beans.getBeanProvider(ResourceUrlProvider.class));
+        cache = new PostFragmentCache(compiler, loader, assetUrlLambda, 100);
+        try (Reader post = loader.getTemplate("fragments/post")) {
+            postTemplate = compiler.compile(post);
+        }
+    }
+
+    @Test
+    void rendersLikeTheTemplate() {
+        Post post = post(1, "Hello #world", false, false);
+
+        assertThat(cache.render(post)).isEqualTo(renderDirectly(post));
+        assertThat(cache.render(post)).isEqualTo(renderDirectly(post));
+    }
+
+    @Test
+    void contentCannotMoveTheToggles() {
+        Post post = post(2, "a\u0000toggle\u0000b {{#postFragmentCacheSlot}}{{/postFragmentCacheSlot}}", true, false);
+
+        assertThat(cache.render(post)).isEqualTo(renderDirectly(post));
+    }
+
+    @Test
+    void togglesFollowTheViewer() {
+        cache.render(post(3, "Shared", false, false));
+        Post hearted = post(3, "Shared", true, true);
+
+        assertThat(cache.render(hearted)).isEqualTo(renderDirectly(hearted));
+    }
+
+    @Test
+    void changedContentIsRenderedAgain() {
+        cache.render(post(4, "Before", false, false));
+        Post changed = post(4, "After", false, false);
+
+        assertThat(cache.render(changed)).isEqualTo(renderDirectly(changed)).contains("After");
+    }
+
+    private String renderDirectly(Post post) {
+        StringWriter html = new StringWriter();
+        postTemplate.execute(post, Map.of("asset", assetUrlLambda), html);
+        return html.toString();
+    }
+
+    private static Post post(long postId, String content, boolean hearted, boolean bookmarked) {
+        return new Post(postId, content, 1_700_000_000_000L, AUTHOR, 3, 2, hearted, bookmarked, false, false);
+    }
+}
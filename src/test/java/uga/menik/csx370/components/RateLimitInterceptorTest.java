@@ -0,0 +1,72 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.components;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import uga.menik.csx370.models.User;
+import uga.menik.csx370.services.UserService;
+
+/**
+ * Checks the per address and per user buckets of the post creation route,
+ * which allows a burst of 3.
+ */
+public class RateLimitInterceptorTest {
+
+    private static final User ALICE = new User(1, "Alice", "Adams");
+    private static final User BOB = new User(2, "Bob", "Brown");
+
+    private UserService userService;
+    private RateLimitInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        userService = mock(UserService.class);
+        interceptor = new RateLimitInterceptor(userService, 1, 3, 1, 5, 1, 20);
+    }
+
+    @Test
+    void userOverTheLimitIsRejectedFromAnyAddress() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertThat(createPost(ALICE, "10.0.0.1")).isTrue();
+        }
+
+        assertThat(createPost(ALICE, "10.0.0.2")).isFalse();
+    }
+
+    @Test
+    void rejectedRequestsDoNotUseUpTheAddress() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            createPost(ALICE, "10.0.0.1");
+        }
+        for (int i = 0; i < 3; i++) {
+            assertThat(createPost(ALICE, "10.0.0.2")).isFalse();
+        }
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(createPost(BOB, "10.0.0.2")).isTrue();
+        }
+        assertThat(createPost(BOB, "10.0.0.2")).isFalse();
+    }
+
+    private boolean createPost(User user, String address) throws Exception {
+        when(userService.getLoggedInUser()).thenReturn(user);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/createpost");
+        request.setRemoteAddr(address);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        boolean allowed = interceptor.preHandle(request, response, null);
+        assertThat(response.getStatus()).isEqualTo(allowed ? 200 : 429);
+        return allowed;
+    }
+}
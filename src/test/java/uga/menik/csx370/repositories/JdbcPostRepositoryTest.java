@@ -0,0 +1,149 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.repositories;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import uga.menik.csx370.TestDatabase;
+import uga.menik.csx370.models.Post;
+import uga.menik.csx370.repositories.PostRepository.Cursor;
+import uga.menik.csx370.repositories.PostRepository.Page;
+import uga.menik.csx370.services.ArchiveService;
+import uga.menik.csx370.services.OutboxService;
+import uga.menik.csx370.services.Projection;
+
+/**
+ * Reads post lists of the seeded dataset as user 1, and a profile with
+ * posts in both tiers.
+ */
+public class JdbcPostRepositoryTest {
+
+    // Posts this test puts in the archive, clear of the other tests' ids.
+    private static final int ARCHIVED_POST_IDS = 700000;
+
+    private static DataSource seeded;
+
+    @BeforeAll
+    static void seed() throws Exception {
+        seeded = TestDatabase.seeded();
+    }
+
+    @Test
+    void homeFeedViewerStateMatchesSinglePostLookup() throws Exception {
+        List<Post> feed = repository(seeded).findHomeFeed("1", Cursor.FIRST, 100_000).posts();
+
+        assertThat(feed).anyMatch(Post::getHearted).anyMatch(Post::isBookmarked).anyMatch(Post::isReposted);
+        try (Connection conn = seeded.getConnection()) {
+            for (Post post : feed) {
+                boolean[] expected = JdbcEngagementRepository.findViewerState(conn, post.getPostId(), "1");
+                assertThat(new boolean[] { post.getHearted(), post.isBookmarked(), post.isReposted() })
+                        .as("post %s", post.getPostId()).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void homeFeedPagesCoverTheFeedOnce() throws Exception {
+        JdbcPostRepository repository = repository(seeded);
+        List<String> listed = new ArrayList<>();
+        Cursor after = Cursor.FIRST;
+        Cursor previous = null;
+        while (after != null) {
+            Page page = repository.findHomeFeed("1", after, 100);
+            page.posts().forEach(post -> listed.add(post.getPostId()));
+            previous = after;
+            after = page.next();
+            if (after != null) assertThat(previous.precedes(after.time(), after.postId())).isTrue();
+        }
+
+        // Users 2 to 21 wrote 50 posts each, user 1 wrote 50 more.
+        assertThat(listed).doesNotHaveDuplicates().hasSizeGreaterThanOrEqualTo(21 * TestDatabase.POSTS_PER_USER);
+        assertThat(listed).isEqualTo(repository.findHomeFeed("1", Cursor.FIRST, 100_000).posts().stream()
+                .map(Post::getPostId).toList());
+    }
+
+    @Test
+    void postsWithoutViewerHaveNoViewerState() throws Exception {
+        List<Post> posts = repository(seeded).findByAuthor("1", null, Cursor.FIRST, 20).posts();
+
+        assertThat(posts).isNotEmpty().noneMatch(post -> post.getHearted() || post.isBookmarked()
+                || post.isReposted() || post.isDeletable());
+    }
+
+    @Test
+    void profilePagesContinueWithArchivedPosts() throws Exception {
+        // 25 posts in each tier, and the hot tier also has posts older than
+        // some archived ones, like a bookmarked post the archiver left.
+        long day = 86_400_000L;
+        long now = System.currentTimeMillis();
+        List<String> expected = new ArrayList<>();
+        String authorId;
+        try (Connection conn = seeded.getConnection()) {
+            authorId = String.valueOf(insert(conn,
+                    "INSERT INTO user (username, password, firstName, lastName) VALUES ('pager', 'x', 'Page', 'Turner')"));
+            for (int i = 1; i <= 25; i++) {
+                expected.add(String.valueOf(insert(conn, "INSERT INTO posts (authorId, body, createdAt) VALUES ("
+                        + authorId + ", 'Hot', '" + new Timestamp(now - i * day) + "')")));
+            }
+            for (int i = 1; i <= 25; i++) {
+                int postId = ARCHIVED_POST_IDS + i;
+                insert(conn, "INSERT INTO posts_archive (postId, authorId, body, createdAt) VALUES (" + postId + ", "
+                        + authorId + ", 'Cold', '" + new Timestamp(now - (i + 19) * day) + "')");
+                expected.add(String.valueOf(postId));
+            }
+        }
+
+        JdbcPostRepository repository = repository(seeded);
+        List<String> listed = new ArrayList<>();
+        List<Cursor> cursors = new ArrayList<>();
+        Cursor after = Cursor.FIRST;
+        while (after != null) {
+            Page page = repository.findByAuthor(authorId, authorId, after, 10);
+            page.posts().forEach(post -> listed.add(post.getPostId()));
+            after = page.next();
+            cursors.add(after);
+        }
+
+        assertThat(listed).isEqualTo(expected);
+        assertThat(cursors).hasSize(5).extracting(cursor -> cursor == null ? null : cursor.archived())
+                .containsExactly(false, false, true, true, null);
+    }
+
+    /**
+     * Runs an INSERT and returns the generated key, or 0.
+     */
+    private static long insert(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql, Statement.RETURN_GENERATED_KEYS);
+            try (ResultSet rs = stmt.getGeneratedKeys()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    private static JdbcPostRepository repository(DataSource ds) {
+        return new JdbcPostRepository(ds, new ArchiveService(ds, 365, 200), outboxService(ds));
+    }
+
+    private static OutboxService outboxService(DataSource ds) {
+        return new OutboxService(ds, new StaticListableBeanFactory().getBeanProvider(Projection.class),
+                500, 5000, 24);
+    }
+}
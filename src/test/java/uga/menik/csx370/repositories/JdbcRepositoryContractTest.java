@@ -0,0 +1,34 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.repositories;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import uga.menik.csx370.TestDatabase;
+import uga.menik.csx370.services.ArchiveService;
+import uga.menik.csx370.services.OutboxService;
+import uga.menik.csx370.services.Projection;
+
+/**
+ * Runs the repository contract against the test schema.
+ */
+public class JdbcRepositoryContractTest extends RepositoryContractTest {
+
+    @Override
+    protected Repositories open() throws Exception {
+        DataSource ds = TestDatabase.get();
+        ArchiveService archiveService = new ArchiveService(ds, 365, 200);
+        OutboxService outboxService = new OutboxService(ds,
+                new StaticListableBeanFactory().getBeanProvider(Projection.class), 500, 5000, 24);
+        return new Repositories(new JdbcUserRepository(ds),
+                new JdbcPostRepository(ds, archiveService, outboxService),
+                new JdbcCommentRepository(ds, archiveService, outboxService),
+                new JdbcEngagementRepository(ds, archiveService, outboxService),
+                new JdbcFollowRepository(ds, outboxService));
+    }
+}
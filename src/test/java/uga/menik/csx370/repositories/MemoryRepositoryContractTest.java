@@ -0,0 +1,61 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.repositories;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import uga.menik.csx370.services.Projection;
+
+/**
+ * Runs the repository contract against an empty memory store.
+ */
+public class MemoryRepositoryContractTest extends RepositoryContractTest {
+
+    @TempDir
+    Path dir;
+
+    @Override
+    protected Repositories open() throws Exception {
+        return open(store());
+    }
+
+    @Test
+    void snapshotsAreReadBackOnStartup() throws Exception {
+        MemoryStore store = store();
+        Repositories before = open(store);
+        before.users().create("alice", "hash", "Alice", "Smith");
+        String postId = before.posts().create("1", "Hello #snapshot", List.of("snapshot"), List.of());
+        before.engagements().add(EngagementRepository.Kind.LIKE, "1", postId);
+        store.snapshot();
+
+        assertThat(dir.resolve("snapshot.bin.tmp")).doesNotExist();
+        assertThat(Files.size(dir.resolve("snapshot.bin"))).isPositive();
+
+        Repositories after = open(store());
+        assertThat(after.users().findCredentials("alice").passwordHash()).isEqualTo("hash");
+        assertThat(after.posts().findById(postId, "1").getContent()).isEqualTo("Hello #snapshot");
+        assertThat(after.engagements().findViewerState(postId, "1")[0]).isTrue();
+    }
+
+    private MemoryStore store() throws Exception {
+        return new MemoryStore(new StaticListableBeanFactory().getBeanProvider(Projection.class),
+                dir.resolve("snapshot.bin").toString());
+    }
+
+    private static Repositories open(MemoryStore store) {
+        return new Repositories(new MemoryUserRepository(store), new MemoryPostRepository(store),
+                new MemoryCommentRepository(store), new MemoryEngagementRepository(store),
+                new MemoryFollowRepository(store));
+    }
+}
@@ -0,0 +1,441 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.repositories;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import uga.menik.csx370.TestDatabase;
+import uga.menik.csx370.repositories.PostRepository.Cursor;
+import uga.menik.csx370.repositories.PostRepository.Page;
+import uga.menik.csx370.services.ArchiveService;
+import uga.menik.csx370.services.FeedRankingService;
+import uga.menik.csx370.services.OutboxService;
+import uga.menik.csx370.services.Projection;
+
+/**
+ * Runs the read paths of the JDBC repositories against the seeded dataset,
+ * records every SELECT they execute and checks its EXPLAIN plan: no full
+ * scan of a large table and no filesort over more than a page of rows.
+ * The hot queries must use the indexes of V3 and V10, and reads of an
+ * archived post must only touch the partitions that hold it (V13). The
+ * ranked feed must stay within the cost of the chronological one.
+ */
+public class QueryPlanTest {
+
+    // Tables that grow with the number of posts.
+    private static final Set<String> LARGE_TABLES = Set.of("posts", "comments", "hashtags", "likes",
+            "bookmarks", "follows", "repost", "mentions");
+    // Rows a filesort may handle, about a page of a user's posts.
+    private static final int MAX_SORTED_ROWS = 500;
+    // Rows the ranked feed may read for each row read by the first page
+    // of the chronological feed. They read about the same today.
+    private static final double RANKED_ROWS_RATIO = 1.5;
+    // Archived posts get ids and authors of their own so that the seeded
+    // users' pages stay the same. Each partition holds ARCHIVE_PARTITION
+    // posts and each author ARCHIVE_RUN consecutive ones.
+    private static final int ARCHIVE_FIRST_POST = 100001;
+    private static final int ARCHIVE_POSTS = 8000;
+    private static final int ARCHIVE_PARTITION = 2000;
+    private static final int ARCHIVE_RUN = 200;
+    private static final int ARCHIVE_FIRST_USER = 800001;
+    private static final String[] ARCHIVE_TABLES = {
+        "posts_archive", "comments_archive", "likes_archive", "hashtags_archive",
+    };
+
+    private static DataSource dataSource;
+
+    @BeforeAll
+    static void seed() throws Exception {
+        dataSource = TestDatabase.seeded();
+        archive();
+    }
+
+    @Test
+    void homeFeedReadsAuthorAndRepostIndexes() throws Exception {
+        List<Plan> plans = explain(recording -> {
+            PostRepository posts = postRepository(recording);
+            Page first = posts.findHomeFeed("1", Cursor.FIRST, 20);
+            posts.findHomeFeed("1", first.next(), 20);
+        });
+
+        assertThat(keysOf(plans)).contains("posts_author_created");
+        // The repost branch of the UNION, which is the only one reading repost as r.
+        assertThat(plans).filteredOn(plan -> "r".equals(plan.table())).hasSize(2)
+                .allSatisfy(plan -> assertThat(plan.key()).as(plan.sql()).isEqualTo("repost_user_created"));
+    }
+
+    @Test
+    void rankedFeedReadsTheSameIndexes() throws Exception {
+        List<Plan> plans = explain(recording -> rankedFeed(recording, "1"));
+
+        assertThat(keysOf(plans)).contains("posts_author_created", "repost_user_created");
+        assertThat(plans).filteredOn(plan -> Set.of("a", "e").contains(plan.table()))
+                .hasSize(2).allSatisfy(plan -> assertThat(plan.type()).isEqualTo("eq_ref"));
+    }
+
+    /**
+     * The ranked feed scores app.feed.ranked.candidates posts instead of a
+     * page, so it must not read many more rows than the first page of the
+     * chronological feed.
+     */
+    @Test
+    void rankedFeedReadsAboutAsManyRowsAsTheChronologicalFeed() throws Exception {
+        for (String viewerId : List.of("1", "2", "50")) {
+            long chronological = rowsRead(one -> postRepository(one).findHomeFeed(viewerId, Cursor.FIRST, 20));
+            long ranked = rowsRead(one -> rankedFeed(one, viewerId));
+
+            assertThat(ranked).as("rows read by the ranked feed of %s, chronological %s", viewerId, chronological)
+                    .isLessThanOrEqualTo((long) (chronological * RANKED_ROWS_RATIO));
+        }
+    }
+
+    @Test
+    void profileReadsAuthorIndex() throws Exception {
+        List<Plan> plans = explain(recording -> {
+            PostRepository posts = postRepository(recording);
+            Page first = posts.findByAuthor("2", "1", Cursor.FIRST, 20);
+            posts.findByAuthor("2", "1", first.next(), 20);
+        });
+
+        assertThat(keysOf(plans)).contains("posts_author_created");
+    }
+
+    @Test
+    void hashtagSearchReadsTagIndex() throws Exception {
+        List<Plan> plans = explain(recording -> {
+            PostRepository posts = postRepository(recording);
+            posts.findByHashtags(new String[] { "tag1", "tag2" }, "1");
+            posts.hashtagExists("tag3");
+        });
+
+        assertThat(keysOf(plans)).contains("hashtags_tag_post");
+    }
+
+    @Test
+    void commentThreadReadsPathIndex() throws Exception {
+        List<Plan> plans = explain(recording -> {
+            CommentRepository comments = new JdbcCommentRepository(recording, archiveService(recording),
+                    outboxService(recording));
+            comments.findThread("10", 3);
+            comments.findReplies("10", 3);
+        });
+
+        assertThat(keysOf(plans)).contains("comments_post_path");
+    }
+
+    @Test
+    void otherReadsAvoidScans() throws Exception {
+        explain(recording -> {
+            PostRepository posts = postRepository(recording);
+            posts.findById("10", "1");
+            posts.findByIds(List.of("10", "20", "30"), "1");
+            posts.findBookmarked("1");
+            posts.findMentioning("1", "1");
+
+            FollowRepository follows = new JdbcFollowRepository(recording, outboxService(recording));
+            follows.findFollowerIds("1");
+        });
+    }
+
+    @Test
+    void archivedPostReadsItsPartitionOnly() throws Exception {
+        // Posts 102001 to 104000 are in p202602.
+        List<Plan> plans = explain(recording -> archiveService(recording).getArchivedExpandedPostsById("102500", "1"));
+
+        assertThat(plans).filteredOn(plan -> plan.partitions() != null).hasSizeGreaterThanOrEqualTo(3)
+                .allSatisfy(plan -> assertThat(plan.partitions())
+                        .as("partitions of %s in %s", plan.table(), plan.sql()).isEqualTo("p202602"));
+    }
+
+    @Test
+    void archivedCountsReadThePartitionsOfTheUsersPosts() throws Exception {
+        // The 12th archive author wrote posts 102201 to 102400, all in p202602.
+        String authorId = String.valueOf(ARCHIVE_FIRST_USER + 11);
+        List<Plan> plans = explain(recording -> archiveService(recording).getArchivedPostsByUserId(authorId, "1",
+                Cursor.FIRST_ARCHIVED, 20));
+
+        assertThat(keysOf(plans)).contains("posts_archive_author_created");
+        assertThat(plans).filteredOn(plan -> Set.of("likes_archive", "comments_archive").contains(plan.table()))
+                .hasSize(2)
+                .allSatisfy(plan -> assertThat(plan.partitions())
+                        .as("partitions of %s in %s", plan.table(), plan.sql()).isEqualTo("p202602"));
+    }
+
+    /**
+     * Reads the ranked feed the way HomeController does, with the default
+     * settings of FeedRankingService.
+     */
+    private static void rankedFeed(DataSource ds, String viewerId) throws SQLException {
+        FeedRankingService ranking = new FeedRankingService(ds, 200, 50, 1.0, 1.0, 12, 30, 2);
+        postRepository(ds).findByIds(ranking.getRankedPostIds(viewerId), viewerId);
+    }
+
+    /**
+     * Runs the reads on one connection and returns how many rows the
+     * server read for them, from its Handler_read counters.
+     */
+    private static long rowsRead(Reads reads) throws Exception {
+        try (Connection conn = dataSource.getConnection()) {
+            long before = handlerReads(conn);
+            reads.run(new SingleConnectionDataSource(conn, true));
+            return handlerReads(conn) - before;
+        }
+    }
+
+    private static long handlerReads(Connection conn) throws SQLException {
+        long rows = 0;
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SHOW SESSION STATUS LIKE 'Handler_read%'")) {
+            while (rs.next()) {
+                rows += rs.getLong(2);
+            }
+        }
+        return rows;
+    }
+
+    private static JdbcPostRepository postRepository(DataSource recording) {
+        return new JdbcPostRepository(recording, archiveService(recording), outboxService(recording));
+    }
+
+    private static ArchiveService archiveService(DataSource ds) {
+        return new ArchiveService(ds, 365, 200);
+    }
+
+    private static OutboxService outboxService(DataSource ds) {
+        return new OutboxService(ds, new StaticListableBeanFactory().getBeanProvider(Projection.class),
+                500, 5000, 24);
+    }
+
+    /**
+     * Splits the archive tables into the partitions p202601 to p202603
+     * and pmax, and fills them with ARCHIVE_POSTS posts of their own
+     * authors, each with a comment, two likes and a hashtag.
+     */
+    private static void archive() throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+                Statement stmt = conn.createStatement()) {
+            for (String table : ARCHIVE_TABLES) {
+                StringBuilder partitions = new StringBuilder();
+                for (int month = 1; month <= 3; month++) {
+                    partitions.append("PARTITION p20260").append(month).append(" VALUES LESS THAN (")
+                            .append(ARCHIVE_FIRST_POST + month * ARCHIVE_PARTITION).append("), ");
+                }
+                stmt.execute("ALTER TABLE " + table + " REORGANIZE PARTITION pmax INTO ("
+                        + partitions + "PARTITION pmax VALUES LESS THAN MAXVALUE)");
+            }
+
+            conn.setAutoCommit(false);
+            int authors = ARCHIVE_POSTS / ARCHIVE_RUN;
+            batch(conn, "INSERT INTO user (userId, username, password, firstName, lastName) VALUES (?, ?, 'x', 'Old', 'Author')",
+                    authors, (pstmt, i) -> {
+                        pstmt.setInt(1, ARCHIVE_FIRST_USER + i);
+                        pstmt.setString(2, "archived" + i);
+                    });
+            Timestamp createdAt = Timestamp.valueOf("2026-01-01 00:00:00");
+            batch(conn, "INSERT INTO posts_archive (postId, authorId, body, createdAt) VALUES (?, ?, 'Old post', ?)",
+                    ARCHIVE_POSTS, (pstmt, i) -> {
+                        pstmt.setInt(1, ARCHIVE_FIRST_POST + i);
+                        pstmt.setInt(2, ARCHIVE_FIRST_USER + i / ARCHIVE_RUN);
+                        pstmt.setTimestamp(3, createdAt);
+                    });
+            batch(conn, """
+                    INSERT INTO comments_archive (commentId, postId, authorId, body, createdAt, path)
+                    VALUES (?, ?, ?, 'Old comment', ?, CONCAT(LPAD(?, 10, '0'), '/'))
+                    """, ARCHIVE_POSTS, (pstmt, i) -> {
+                pstmt.setInt(1, ARCHIVE_FIRST_POST + i);
+                pstmt.setInt(2, ARCHIVE_FIRST_POST + i);
+                pstmt.setInt(3, i % TestDatabase.USERS + 1);
+                pstmt.setTimestamp(4, createdAt);
+                pstmt.setInt(5, ARCHIVE_FIRST_POST + i);
+            });
+            batch(conn, "INSERT INTO likes_archive (userId, postId) VALUES (?, ?)", ARCHIVE_POSTS * 2, (pstmt, i) -> {
+                pstmt.setInt(1, i % TestDatabase.USERS + 1);
+                pstmt.setInt(2, ARCHIVE_FIRST_POST + i / 2);
+            });
+            batch(conn, "INSERT INTO hashtags_archive (postId, tag) VALUES (?, 'old')", ARCHIVE_POSTS, (pstmt, i) -> {
+                pstmt.setInt(1, ARCHIVE_FIRST_POST + i);
+            });
+            conn.commit();
+            conn.setAutoCommit(true);
+
+            stmt.execute("ANALYZE TABLE " + String.join(", ", ARCHIVE_TABLES));
+        }
+    }
+
+    private static void batch(Connection conn, String sql, int rows, RowBinder binder) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < rows; i++) {
+                binder.bind(pstmt, i);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * Returns how to ask for the partitions column: MySQL 8 always shows
+     * it, MariaDB only with EXPLAIN PARTITIONS.
+     */
+    private static String explainPrefix(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("EXPLAIN SELECT 1")) {
+            ResultSetMetaData metaData = rs.getMetaData();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                if (metaData.getColumnLabel(i).equalsIgnoreCase("partitions")) return "EXPLAIN ";
+            }
+        }
+        return "EXPLAIN PARTITIONS ";
+    }
+
+    /**
+     * Runs the reads, then explains every SELECT they executed and checks
+     * each plan row.
+     */
+    private static List<Plan> explain(Reads reads) throws Exception {
+        List<Executed> executed = new ArrayList<>();
+        reads.run(new RecordingDataSource(dataSource, executed));
+        assertThat(executed).as("executed statements").isNotEmpty();
+
+        List<Plan> plans = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection()) {
+            String prefix = explainPrefix(conn);
+            for (Executed statement : executed) {
+                if (!statement.sql().trim().regionMatches(true, 0, "SELECT", 0, 6)) continue;
+
+                try (PreparedStatement pstmt = conn.prepareStatement(prefix + statement.sql())) {
+                    for (Map.Entry<Integer, Object> parameter : statement.parameters().entrySet()) {
+                        pstmt.setObject(parameter.getKey(), parameter.getValue());
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            Plan plan = new Plan(statement.sql(), rs.getString("table"), rs.getString("partitions"),
+                                    rs.getString("type"), rs.getString("key"), rs.getLong("rows"),
+                                    String.valueOf(rs.getString("Extra")));
+                            check(plan);
+                            plans.add(plan);
+                        }
+                    }
+                }
+            }
+        }
+        return plans;
+    }
+
+    private static void check(Plan plan) {
+        if (plan.table() == null || !LARGE_TABLES.contains(plan.table())) return;
+
+        assertThat(plan.type()).as("access to %s in %s", plan.table(), plan.sql())
+                .isNotIn("ALL", "index");
+        if (plan.extra().contains("filesort")) {
+            assertThat(plan.rows()).as("rows sorted from %s in %s", plan.table(), plan.sql())
+                    .isLessThanOrEqualTo(MAX_SORTED_ROWS);
+        }
+    }
+
+    private static List<String> keysOf(List<Plan> plans) {
+        return plans.stream().map(Plan::key).filter(key -> key != null).toList();
+    }
+
+    /**
+     * A row of an EXPLAIN result.
+     */
+    private record Plan(String sql, String table, String partitions, String type, String key, long rows,
+            String extra) {
+    }
+
+    /**
+     * A prepared statement that was executed and its parameters.
+     */
+    private record Executed(String sql, Map<Integer, Object> parameters) {
+    }
+
+    @FunctionalInterface
+    private interface Reads {
+        void run(DataSource recording) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface RowBinder {
+        void bind(PreparedStatement pstmt, int row) throws SQLException;
+    }
+
+    /**
+     * DataSource that records the prepared statements executed on its
+     * connections.
+     */
+    private static class RecordingDataSource extends DelegatingDataSource {
+
+        private final List<Executed> executed;
+
+        RecordingDataSource(DataSource target, List<Executed> executed) {
+            super(target);
+            this.executed = executed;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection conn = super.getConnection();
+            return proxy(conn, Connection.class, (proxy, method, args) -> {
+                Object result = invoke(conn, method, args);
+                if (result instanceof PreparedStatement pstmt) {
+                    return record(pstmt, (String) args[0]);
+                }
+                return result;
+            });
+        }
+
+        private PreparedStatement record(PreparedStatement pstmt, String sql) {
+            Map<Integer, Object> parameters = new TreeMap<>();
+            return proxy(pstmt, PreparedStatement.class, (proxy, method, args) -> {
+                String name = method.getName();
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                    parameters.put(index, args[1]);
+                } else if (name.startsWith("execute")) {
+                    executed.add(new Executed(sql, new TreeMap<>(parameters)));
+                }
+                return invoke(pstmt, method, args);
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(T target, Class<T> type, InvocationHandler handler) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler);
+        }
+
+        private static Object invoke(Object target, java.lang.reflect.Method method, Object[] args)
+                throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.repositories;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uga.menik.csx370.models.FeedPost;
+import uga.menik.csx370.models.FollowableUser;
+import uga.menik.csx370.models.Post;
+import uga.menik.csx370.repositories.CommentRepository.CommentRow;
+import uga.menik.csx370.repositories.EngagementRepository.Kind;
+import uga.menik.csx370.repositories.PostRepository.Cursor;
+import uga.menik.csx370.repositories.PostRepository.Page;
+import uga.menik.csx370.services.HashtagSuggestionService;
+
+/**
+ * Behavior that every storage engine must have. Each engine runs these
+ * tests through a subclass. The JDBC engine shares its schema with other
+ * tests, so every test makes its own users and hashtags.
+ */
+public abstract class RepositoryContractTest {
+
+    private static final AtomicInteger names = new AtomicInteger();
+
+    /**
+     * The repositories of one engine, on the same storage.
+     */
+    protected record Repositories(UserRepository users, PostRepository posts, CommentRepository comments,
+            EngagementRepository engagements, FollowRepository follows) {
+    }
+
+    private Repositories repositories;
+
+    /**
+     * Returns the repositories of the engine under test.
+     */
+    protected abstract Repositories open() throws Exception;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        repositories = open();
+    }
+
+    @Test
+    void usernamesAreUnique() throws Exception {
+        String username = name("user");
+        repositories.users().create(username, "hash", "First", "Last");
+
+        assertThat(repositories.users().findCredentials(username).passwordHash()).isEqualTo("hash");
+        assertThat(repositories.users().findCredentials(name("missing"))).isNull();
+        assertThatThrownBy(() -> repositories.users().create(username, "other", "First", "Last"))
+                .isInstanceOf(SQLIntegrityConstraintViolationException.class);
+    }
+
+    @Test
+    void postsAreFoundByIdAuthorAndHashtag() throws Exception {
+        String alice = user();
+        String tag = name("tag");
+        String postId = repositories.posts().create(alice, "Hello #" + tag, List.of(tag), List.of());
+
+        Post post = repositories.posts().findById(postId, alice);
+        assertThat(post.getContent()).isEqualTo("Hello #" + tag);
+        assertThat(post.getUser().getUserId()).isEqualTo(alice);
+        assertThat(post.isDeletable()).isTrue();
+        assertThat(repositories.posts().findByAuthor(alice, null, Cursor.FIRST, 10).posts())
+                .extracting(Post::getPostId).containsExactly(postId);
+        assertThat(repositories.posts().findByHashtags(new String[] { tag }, null))
+                .extracting(Post::getPostId).containsExactly(postId);
+        assertThat(repositories.posts().hashtagExists(tag)).isTrue();
+        assertThat(repositories.posts().countHashtags()).containsEntry(tag, 1L);
+    }
+
+    @Test
+    void profilePagesFollowEachOther() throws Exception {
+        String alice = user();
+        List<String> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(0, repositories.posts().create(alice, "Post " + i, List.of(), List.of()));
+        }
+
+        List<String> listed = new ArrayList<>();
+        Cursor after = Cursor.FIRST;
+        int pages = 0;
+        while (after != null) {
+            Page page = repositories.posts().findByAuthor(alice, alice, Cursor.parse(after.toString()), 2);
+            page.posts().forEach(post -> listed.add(post.getPostId()));
+            after = page.next();
+            pages++;
+        }
+
+        assertThat(listed).isEqualTo(created);
+        assertThat(pages).isEqualTo(3);
+    }
+
+    @Test
+    void onlyTheAuthorDeletesAPost() throws Exception {
+        String alice = user();
+        String bob = user();
+        String postId = repositories.posts().create(alice, "Mine", List.of(), List.of());
+
+        assertThat(repositories.posts().delete(postId, bob)).isFalse();
+        assertThat(repositories.posts().delete(postId, alice)).isTrue();
+        assertThat(repositories.posts().delete(postId, alice)).isFalse();
+        assertThat(repositories.posts().findById(postId, alice)).isNull();
+        assertThat(repositories.posts().findByAuthor(alice, alice, Cursor.FIRST, 10).posts()).isEmpty();
+    }
+
+    @Test
+    void homeFeedHasFollowedUsersAndOwnPosts() throws Exception {
+        String alice = user();
+        String bob = user();
+        String carol = user();
+        String own = repositories.posts().create(alice, "From Alice", List.of(), List.of());
+        String followed = repositories.posts().create(bob, "From Bob", List.of(), List.of());
+        repositories.posts().create(carol, "From Carol", List.of(), List.of());
+
+        assertThat(repositories.follows().follow(alice, bob)).isTrue();
+
+        assertThat(repositories.posts().findHomeFeed(alice, Cursor.FIRST, 10).posts()).extracting(Post::getPostId)
+                .containsExactlyInAnyOrder(own, followed);
+    }
+
+    @Test
+    void homeFeedPagesListEachPostOnce() throws Exception {
+        String alice = user();
+        String bob = user();
+        String carol = user();
+        String dave = user();
+        repositories.follows().follow(alice, bob);
+        repositories.follows().follow(alice, carol);
+        String byDave = repositories.posts().create(dave, "From Dave", List.of(), List.of());
+        String firstByBob = repositories.posts().create(bob, "From Bob", List.of(), List.of());
+        String secondByBob = repositories.posts().create(bob, "Again from Bob", List.of(), List.of());
+        String own = repositories.posts().create(alice, "From Alice", List.of(), List.of());
+        repositories.engagements().add(Kind.REPOST, carol, firstByBob);
+        repositories.engagements().add(Kind.REPOST, carol, byDave);
+        repositories.engagements().add(Kind.REPOST, bob, byDave);
+
+        List<Post> all = repositories.posts().findHomeFeed(alice, Cursor.FIRST, 10).posts();
+        List<Post> paged = new ArrayList<>();
+        Cursor after = Cursor.FIRST;
+        int pages = 0;
+        while (after != null) {
+            Page page = repositories.posts().findHomeFeed(alice, Cursor.parse(after.toString()), 1);
+            paged.addAll(page.posts());
+            after = page.next();
+            pages++;
+        }
+
+        assertThat(all).extracting(Post::getPostId)
+                .containsExactlyInAnyOrder(byDave, firstByBob, secondByBob, own);
+        assertThat(paged).extracting(Post::getPostId).isEqualTo(all.stream().map(Post::getPostId).toList());
+        assertThat(pages).isEqualTo(4);
+        FeedPost reposted = (FeedPost) all.stream().filter(post -> post.getPostId().equals(byDave)).findFirst()
+                .orElseThrow();
+        assertThat(reposted.getRepostedBy().getUserId()).isIn(bob, carol);
+        assertThat(reposted.getOtherReposts()).isEqualTo("1 other");
+    }
+
+    @Test
+    void followsAreSetOnce() throws Exception {
+        String alice = user();
+        String bob = user();
+
+        assertThat(repositories.follows().follow(alice, bob)).isTrue();
+        assertThat(repositories.follows().follow(alice, bob)).isFalse();
+        assertThat(repositories.follows().findFollowerIds(bob)).containsExactly(alice);
+        assertThat(repositories.follows().findFollowableUsers(alice))
+                .filteredOn(user -> user.getUserId().equals(bob)).singleElement()
+                .extracting(FollowableUser::isFollowed).isEqualTo(true);
+        assertThat(repositories.follows().findFollowableUsers(alice))
+                .noneMatch(user -> user.getUserId().equals(alice));
+
+        assertThat(repositories.follows().unfollow(alice, bob)).isTrue();
+        assertThat(repositories.follows().unfollow(alice, bob)).isFalse();
+        assertThat(repositories.follows().findFollowerIds(bob)).isEmpty();
+    }
+
+    @Test
+    void engagementsAreSeenByTheirUserOnly() throws Exception {
+        String alice = user();
+        String bob = user();
+        String postId = repositories.posts().create(alice, "Like me", List.of(), List.of());
+
+        repositories.engagements().add(Kind.LIKE, bob, postId);
+        repositories.engagements().add(Kind.BOOKMARK, bob, postId);
+
+        assertThat(repositories.engagements().findViewerState(postId, bob)).containsExactly(true, true, false);
+        assertThat(repositories.engagements().findViewerState(postId, alice)).containsExactly(false, false, false);
+        Post post = repositories.posts().findById(postId, bob);
+        assertThat(post.getHeartsCount()).isEqualTo(1);
+        assertThat(post.getHearted()).isTrue();
+        assertThat(repositories.posts().findBookmarked(bob)).extracting(Post::getPostId).containsExactly(postId);
+
+        assertThat(repositories.engagements().remove(Kind.LIKE, bob, postId)).isTrue();
+        assertThat(repositories.engagements().remove(Kind.LIKE, bob, postId)).isFalse();
+        assertThat(repositories.posts().findById(postId, bob).getHeartsCount()).isZero();
+    }
+
+    @Test
+    void mentionedUsersFindThePost() throws Exception {
+        String alice = user();
+        String bobName = name("user");
+        repositories.users().create(bobName, "hash", "Bob", "Brown");
+        String bob = repositories.users().findCredentials(bobName).user().getUserId();
+
+        String postId = repositories.posts().create(alice, "Hi @" + bobName, List.of(), List.of(bobName));
+
+        assertThat(repositories.posts().findMentioning(bob, null)).extracting(Post::getPostId).containsExactly(postId);
+    }
+
+    @Test
+    void repliesAreNestedUpToTheMaximumDepth() throws Exception {
+        String alice = user();
+        String bob = user();
+        String postId = repositories.posts().create(alice, "Discuss", List.of(), List.of());
+
+        String top = repositories.comments().add(postId, bob, "Top", null, 1);
+        String reply = repositories.comments().add(postId, alice, "Reply", top, 1);
+        repositories.comments().add(postId, bob, "Too deep", reply, 1);
+
+        assertThat(repositories.comments().findThread(postId, 3)).extracting(CommentRow::content, CommentRow::depth)
+                .containsExactly(tuple("Top", 0), tuple("Reply", 1), tuple("Too deep", 1));
+        assertThat(repositories.comments().findThread(postId, 1)).singleElement()
+                .extracting(CommentRow::hiddenReplies).isEqualTo(2);
+        assertThat(repositories.comments().findReplies(top, 1).comments()).hasSize(2);
+        assertThat(repositories.posts().findById(postId, null).getCommentsCount()).isEqualTo(3);
+        assertThatThrownBy(() -> repositories.comments().add(postId, bob, "Lost", "999999999", 1))
+                .isInstanceOf(SQLIntegrityConstraintViolationException.class);
+    }
+
+    @Test
+    void commentsAreDeletedByTheirAuthorOrThePostAuthor() throws Exception {
+        String alice = user();
+        String bob = user();
+        String carol = user();
+        String postId = repositories.posts().create(alice, "Discuss", List.of(), List.of());
+        String top = repositories.comments().add(postId, bob, "Top", null, 8);
+        repositories.comments().add(postId, carol, "Reply", top, 8);
+
+        assertThat(repositories.comments().delete(top, carol)).isNull();
+        assertThat(repositories.comments().delete(top, alice)).isEqualTo(postId);
+        assertThat(repositories.comments().findThread(postId, 3)).isEmpty();
+        assertThat(repositories.posts().findById(postId, null).getCommentsCount()).isZero();
+    }
+
+    @Test
+    void existingHashtagsAreSuggested() throws Exception {
+        String alice = user();
+        String tag = name("suggested");
+        repositories.posts().create(alice, "#" + tag, List.of(tag), List.of());
+
+        HashtagSuggestionService suggestions = new HashtagSuggestionService(repositories.posts(), 8);
+        suggestions.afterPropertiesSet();
+
+        assertThat(suggestions.suggest("#" + tag)).containsExactly(tag);
+    }
+
+    /**
+     * Creates a user and returns their id.
+     */
+    private String user() throws Exception {
+        String username = name("user");
+        repositories.users().create(username, "hash", "First", "Last");
+        return repositories.users().findCredentials(username).user().getUserId();
+    }
+
+    /**
+     * Returns a name no other test uses.
+     */
+    private static String name(String prefix) {
+        return "contract" + prefix + names.incrementAndGet();
+    }
+}
@@ -0,0 +1,213 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.repositories;
+
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.autoconfigure.mustache.MustacheResourceTemplateLoader;
+import org.springframework.web.servlet.resource.ResourceUrlProvider;
+
+import com.samskivert.mustache.Mustache;
+import com.samskivert.mustache.Template;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import uga.menik.csx370.TestDatabase;
+import uga.menik.csx370.components.AssetUrlLambda;
+import uga.menik.csx370.components.QueryTracker;
+import uga.menik.csx370.models.Post;
+import uga.menik.csx370.services.ArchiveService;
+import uga.menik.csx370.services.OutboxService;
+import uga.menik.csx370.services.Projection;
+
+/**
+ * Runs the same repository calls against both storage engines on the
+ * seeded dataset of TestDatabase: a page of the home feed, one post, and
+ * a like with its removal, and a page of the home feed rendered with
+ * post.mustache. The jdbc engine goes through a connection pool as in the
+ * application. The memory store is filled with the same users, posts,
+ * hashtags, likes and follows through its repositories.
+ * Besides the time, each benchmark reports allocatedKb: the memory the
+ * benchmark thread allocated per call, read through QueryTracker as in
+ * the access log. Run with
+ * mvn -B -Pbenchmarks -DskipTests -Dbenchmark=StorageEngineBenchmark test
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StorageEngineBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({ "memory", "jdbc" })
+    public String engine;
+
+    private PostRepository posts;
+    private EngagementRepository engagement;
+    private HikariDataSource pool;
+    private Path snapshotDir;
+    private Template postTemplate;
+    private Map<String, Object> pageContext;
+
+    /**
+     * The memory allocated per call. JMH adds up event counters over the
+     * measurement iterations, so each iteration reports its share of the
+     * mean.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Allocation {
+        private long bytes;
+        private long calls;
+        private int iterations;
+
+        @Setup(Level.Iteration)
+        public void reset(BenchmarkParams params) {
+            bytes = 0;
+            calls = 0;
+            iterations = params.getMeasurement().getCount();
+        }
+
+        public double allocatedKb() {
+            return calls == 0 ? 0 : bytes / 1024.0 / calls / iterations;
+        }
+
+        <T> T measure(Callable<T> call) throws Exception {
+            QueryTracker.Stats stats = QueryTracker.start();
+            try {
+                return call.call();
+            } finally {
+                bytes += stats.getAllocatedBytes();
+                calls++;
+                QueryTracker.stop();
+            }
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        Mustache.TemplateLoader loader = new MustacheResourceTemplateLoader("classpath:/templates/", ".mustache");
+        try (Reader post = loader.getTemplate("fragments/post")) {
+            postTemplate = Mustache.compiler().withLoader(loader).compile(post);
+        }
+        DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("resourceUrlProvider", new ResourceUrlProvider());
+        pageContext = Map.of("asset", new AssetUrlLambda(beans.getBeanProvider(ResourceUrlProvider.class)));
+
+        if (engine.equals("jdbc")) {
+            HikariConfig config = new HikariConfig();
+            config.setDataSource(TestDatabase.seeded());
+            config.setMaximumPoolSize(2);
+            pool = new HikariDataSource(config);
+            ArchiveService archiveService = new ArchiveService(pool, 365, 200);
+            OutboxService outboxService = new OutboxService(pool,
+                    new StaticListableBeanFactory().getBeanProvider(Projection.class), 500, 5000, 24);
+            posts = new JdbcPostRepository(pool, archiveService, outboxService);
+            engagement = new JdbcEngagementRepository(pool, archiveService, outboxService);
+        } else {
+            snapshotDir = Files.createTempDirectory("storage-engine-benchmark");
+            MemoryStore store = new MemoryStore(new StaticListableBeanFactory().getBeanProvider(Projection.class),
+                    snapshotDir.resolve("snapshot.bin").toString());
+            posts = new MemoryPostRepository(store);
+            engagement = new MemoryEngagementRepository(store);
+            seed(new MemoryUserRepository(store), new MemoryFollowRepository(store));
+        }
+    }
+
+    /**
+     * Creates the rows of TestDatabase.seeded that the benchmarks read.
+     */
+    private void seed(UserRepository users, FollowRepository follows) throws Exception {
+        for (int i = 1; i <= TestDatabase.USERS; i++) {
+            users.create("seed" + i, "x", "First" + i, "Last" + i);
+        }
+        int postCount = TestDatabase.USERS * TestDatabase.POSTS_PER_USER;
+        for (int i = 0; i < postCount; i++) {
+            String tag = "tag" + i % TestDatabase.TAGS;
+            posts.create(String.valueOf(i % TestDatabase.USERS + 1), "Post " + (i + 1) + " #" + tag,
+                    List.of(tag), List.of());
+        }
+        for (int i = 0; i < postCount; i++) {
+            engagement.add(EngagementRepository.Kind.LIKE, String.valueOf((i + TestDatabase.USERS - 1)
+                    % TestDatabase.USERS + 1), String.valueOf(i + 1));
+        }
+        for (int userId = 1; userId <= TestDatabase.USERS; userId++) {
+            for (int i = 0; i < TestDatabase.FOLLOWS_PER_USER; i++) {
+                follows.follow(String.valueOf(userId), String.valueOf((userId + i) % TestDatabase.USERS + 1));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (pool != null) pool.close();
+        if (snapshotDir != null) {
+            Files.deleteIfExists(snapshotDir.resolve("snapshot.bin"));
+            Files.deleteIfExists(snapshotDir);
+        }
+    }
+
+    @Benchmark
+    public PostRepository.Page homeFeed(Allocation allocation) throws Exception {
+        return allocation.measure(() -> posts.findHomeFeed("1", PostRepository.Cursor.FIRST, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public List<String> renderedHomeFeed(Allocation allocation) throws Exception {
+        return allocation.measure(() -> {
+            List<String> output = new ArrayList<>(PAGE_SIZE);
+            for (Post post : posts.findHomeFeed("1", PostRepository.Cursor.FIRST, PAGE_SIZE).posts()) {
+                StringWriter html = new StringWriter();
+                postTemplate.execute(post, pageContext, html);
+                output.add(html.toString());
+            }
+            return output;
+        });
+    }
+
+    @Benchmark
+    public Post post(Allocation allocation) throws Exception {
+        return allocation.measure(() -> posts.findById("10", "1"));
+    }
+
+    @Benchmark
+    public boolean likeAndUnlike(Allocation allocation) throws Exception {
+        return allocation.measure(() -> {
+            engagement.add(EngagementRepository.Kind.LIKE, "1", "10");
+            return engagement.remove(EngagementRepository.Kind.LIKE, "1", "10");
+        });
+    }
+}
@@ -0,0 +1,186 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import uga.menik.csx370.TestDatabase;
+import uga.menik.csx370.models.TagCount;
+
+/**
+ * Feeds the analytics projection from the outbox of a schema of its own,
+ * so that the rollups only hold the events of each test. The events are
+ * dated yesterday, half past the hour, and the outbox has no other
+ * projection.
+ */
+public class AnalyticsServiceTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.now().minusDays(1)
+            .truncatedTo(ChronoUnit.HOURS).plusMinutes(30);
+
+    private DataSource ds;
+    private AnalyticsService analytics;
+    private FailingOnce projection;
+    private OutboxService outbox;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ds = TestDatabase.create("csx370_analytics_test");
+        analytics = new AnalyticsService(ds, 7, 30, 1000);
+        projection = new FailingOnce(analytics);
+        StaticListableBeanFactory projections = new StaticListableBeanFactory();
+        projections.addBean(projection.getName(), projection);
+        outbox = new OutboxService(ds, projections.getBeanProvider(Projection.class), 500, 5000, 24);
+
+        outbox.inTransaction(conn -> {
+            append(conn, OutboxEvent.Type.POST_CREATED, "1", "1", "java sql");
+            append(conn, OutboxEvent.Type.POST_CREATED, "2", "2", "java");
+            append(conn, OutboxEvent.Type.LIKE_ADDED, "1", "2", "");
+            append(conn, OutboxEvent.Type.COMMENT_ADDED, "1", "2", "");
+            return null;
+        });
+    }
+
+    @Test
+    void aBatchThatFailsIsCountedOnceWhenRunAgain() throws Exception {
+        projection.failNext = true;
+        outbox.dispatch();
+
+        // The rollups were written before the failure and rolled back with it.
+        assertThat(count("analytics_daily")).isZero();
+        assertThat(count("analytics_hourly")).isZero();
+        assertThat(count("analytics_daily_tags")).isZero();
+        assertThat(count("analytics_post_times")).isZero();
+        assertThat(checkpoint()).isZero();
+
+        outbox.dispatch();
+        assertCounts();
+        assertThat(checkpoint()).isEqualTo(4);
+
+        outbox.dispatch();
+        assertCounts();
+    }
+
+    @Test
+    void aDeletedPostIsTakenOffTheDayItWasCreated() throws Exception {
+        outbox.dispatch();
+        outbox.inTransaction(conn -> {
+            append(conn, OutboxEvent.Type.POST_DELETED, "1", "1", "java sql", null);
+            return null;
+        });
+        outbox.dispatch();
+
+        assertThat(queryInts("SELECT posts, likes, comments, activePosters FROM analytics_daily"))
+                .containsExactly(1, 1, 1, 2);
+        assertThat(queryInts("SELECT posts, likes, comments FROM analytics_hourly")).containsExactly(1, 1, 1);
+        assertThat(analytics.getTopTags(7, 10)).extracting(TagCount::getTag).containsExactly("java");
+        assertThat(count("analytics_post_times")).isEqualTo(1);
+
+        // Deleting it again, or a post that was never counted, changes nothing.
+        outbox.inTransaction(conn -> {
+            append(conn, OutboxEvent.Type.POST_DELETED, "1", "1", "java sql", null);
+            append(conn, OutboxEvent.Type.POST_DELETED, "3", "1", "java", null);
+            return null;
+        });
+        outbox.dispatch();
+        assertThat(queryInts("SELECT posts FROM analytics_daily")).containsExactly(1);
+        assertThat(queryInts("SELECT posts FROM analytics_daily_tags WHERE tag = 'java'")).containsExactly(1);
+    }
+
+    private void assertCounts() throws Exception {
+        assertThat(queryInts("SELECT posts, likes, comments, activePosters FROM analytics_daily"))
+                .containsExactly(2, 1, 1, 2);
+        assertThat(queryInts("SELECT posts, likes, comments FROM analytics_hourly")).containsExactly(2, 1, 1);
+        assertThat(queryInts("SELECT posts FROM analytics_daily_tags ORDER BY tag")).containsExactly(2, 1);
+        assertThat(count("analytics_daily_posters")).isEqualTo(2);
+        assertThat(count("analytics_post_times")).isEqualTo(2);
+    }
+
+    private void append(Connection conn, OutboxEvent.Type type, String aggregateId, String actorId,
+            String payload) throws SQLException {
+        append(conn, type, aggregateId, actorId, payload, Timestamp.valueOf(TIME));
+    }
+
+    private void append(Connection conn, OutboxEvent.Type type, String aggregateId, String actorId,
+            String payload, Timestamp createdAt) throws SQLException {
+        outbox.append(conn, type, aggregateId, actorId, payload, createdAt);
+    }
+
+    private long checkpoint() throws SQLException {
+        List<Integer> checkpoint = queryInts(
+                "SELECT lastEventId FROM projection_checkpoints WHERE name = 'analytics'");
+        return checkpoint.isEmpty() ? 0 : checkpoint.get(0);
+    }
+
+    private int count(String table) throws SQLException {
+        return queryInts("SELECT COUNT(*) FROM " + table).get(0);
+    }
+
+    /**
+     * Returns the columns of every row of the query, row after row.
+     */
+    private List<Integer> queryInts(String sql) throws SQLException {
+        List<Integer> values = new ArrayList<>();
+        try (Connection conn = ds.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql);
+                ResultSet rs = pstmt.executeQuery()) {
+            int columns = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                for (int i = 1; i <= columns; i++) values.add(rs.getInt(i));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * The analytics projection, which fails once after applying its
+     * batch when told to, as if the connection dropped before the
+     * checkpoint moved.
+     */
+    private static class FailingOnce implements Projection {
+        private final AnalyticsService analytics;
+        private boolean failNext;
+
+        FailingOnce(AnalyticsService analytics) {
+            this.analytics = analytics;
+        }
+
+        @Override
+        public String getName() {
+            return analytics.getName();
+        }
+
+        @Override
+        public boolean isCheckpointed() {
+            return true;
+        }
+
+        @Override
+        public void apply(Connection conn, List<OutboxEvent> events) throws SQLException {
+            analytics.apply(conn, events);
+            if (failNext) {
+                failNext = false;
+                throw new SQLException("Connection lost");
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.services;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import uga.menik.csx370.TestDatabase;
+import uga.menik.csx370.models.ExpandedPost;
+import uga.menik.csx370.models.Post;
+import uga.menik.csx370.repositories.PostRepository.Cursor;
+
+/**
+ * Reads archived posts with the archive tables unpartitioned, as before
+ * V13__archive_partitions.sql, and split into monthly partitions by
+ * ArchivePartitionService. The archive holds the posts of the seeded
+ * dataset of TestDatabase older than 30 days, about eleven months of
+ * them, with their comments, likes and hashtags. Reads go through a
+ * connection pool as in the application. Run with
+ * mvn -B -Pbenchmarks -DskipTests -Dbenchmark=ArchivePartitionBenchmark test
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArchivePartitionBenchmark {
+
+    private static final String[] TABLES = {
+        "posts_archive", "comments_archive", "likes_archive", "hashtags_archive",
+    };
+
+    @Param({ "unpartitioned", "monthly" })
+    public String layout;
+
+    private ArchiveService archiveService;
+    private HikariDataSource pool;
+
+    @Setup
+    public void setUp() throws Exception {
+        DataSource ds = TestDatabase.seeded();
+        new ArchiveService(ds, 30, 1000).archiveOldPosts();
+
+        if (layout.equals("monthly")) {
+            new ArchivePartitionService(ds, 0).maintainPartitions();
+        } else {
+            try (Connection conn = ds.getConnection();
+                    Statement stmt = conn.createStatement()) {
+                for (String table : TABLES) {
+                    stmt.execute("ALTER TABLE " + table + " REMOVE PARTITIONING");
+                }
+            }
+        }
+        try (Connection conn = ds.getConnection();
+                Statement stmt = conn.createStatement()) {
+            stmt.execute("ANALYZE TABLE " + String.join(", ", TABLES));
+        }
+
+        HikariConfig config = new HikariConfig();
+        config.setDataSource(ds);
+        config.setMaximumPoolSize(2);
+        pool = new HikariDataSource(config);
+        archiveService = new ArchiveService(pool, 30, 1000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Benchmark
+    public List<ExpandedPost> archivedPost() throws Exception {
+        return archiveService.getArchivedExpandedPostsById("4001", "1");
+    }
+
+    @Benchmark
+    public List<Post> archivedProfile() throws Exception {
+        return archiveService.getArchivedPostsByUserId("5", "1", Cursor.FIRST_ARCHIVED, 20);
+    }
+}
@@ -0,0 +1,181 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uga.menik.csx370.TestDatabase;
+
+/**
+ * Runs the partition job on a schema of its own, since it changes the
+ * partitions of the archive tables that QueryPlanTest relies on. The
+ * archive holds two posts for each month from January to April 2025, each
+ * with a comment, a like and a hashtag, and the hot tier holds the posts
+ * of May.
+ */
+public class ArchivePartitionServiceTest {
+
+    private static final YearMonth JUNE = YearMonth.of(2025, 6);
+    private static final String[] TABLES = {
+        "posts_archive", "comments_archive", "likes_archive", "hashtags_archive",
+    };
+
+    private DataSource ds;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ds = TestDatabase.create("csx370_partitions_test");
+        try (Connection conn = ds.getConnection();
+                Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO user (userId, username, password, firstName, lastName) "
+                    + "VALUES (1, 'author', 'x', 'Old', 'Author')");
+        }
+        int postId = 1;
+        for (int month = 1; month <= 4; month++) {
+            for (int day = 10; day <= 20; day += 10) {
+                archive(postId++, LocalDateTime.of(2025, month, day, 12, 0));
+            }
+        }
+        post(9, LocalDateTime.of(2025, 5, 10, 12, 0));
+        post(10, LocalDateTime.of(2025, 5, 20, 12, 0));
+    }
+
+    @Test
+    void everyEndedMonthGetsAPartitionOnTheFirstRun() throws Exception {
+        new ArchivePartitionService(ds, 0).maintainPartitions(JUNE);
+
+        for (String table : TABLES) {
+            assertThat(partitions(table)).as(table)
+                    .containsExactly("p202501", "p202502", "p202503", "p202504", "p202505", "pmax");
+            for (String partition : List.of("p202501", "p202502", "p202503", "p202504")) {
+                assertThat(count(table + " PARTITION (" + partition + ")")).as(table + " " + partition)
+                        .isEqualTo(2);
+            }
+        }
+        assertThat(boundary("p202504")).isEqualTo(9);
+        assertThat(boundary("p202505")).isEqualTo(11);
+    }
+
+    @Test
+    void aSecondRunChangesNothing() throws Exception {
+        ArchivePartitionService service = new ArchivePartitionService(ds, 0);
+        service.maintainPartitions(YearMonth.of(2025, 5));
+        assertThat(partitions("posts_archive")).containsExactly("p202501", "p202502", "p202503", "p202504",
+                "pmax");
+
+        service.maintainPartitions(JUNE);
+        service.maintainPartitions(JUNE);
+
+        assertThat(partitions("posts_archive")).containsExactly("p202501", "p202502", "p202503", "p202504",
+                "p202505", "pmax");
+        assertThat(boundary("p202504")).isEqualTo(9);
+    }
+
+    @Test
+    void expiredMonthsAreDetachedWithTheirRows() throws Exception {
+        new ArchivePartitionService(ds, 3).maintainPartitions(JUNE);
+
+        for (String table : TABLES) {
+            assertThat(partitions(table)).as(table).containsExactly("p202503", "p202504", "p202505", "pmax");
+            assertThat(count(table + "_p202501")).as(table).isEqualTo(2);
+            assertThat(count(table + "_p202502")).as(table).isEqualTo(2);
+            assertThat(count(table)).as(table).isEqualTo(4);
+        }
+    }
+
+    @Test
+    void aReplayedPostStaysInTheMonthItWasReplayedIn() throws Exception {
+        // Written in April while the database was down, replayed in May.
+        post(11, LocalDateTime.of(2025, 4, 30, 23, 59));
+
+        new ArchivePartitionService(ds, 0).maintainPartitions(JUNE);
+
+        assertThat(boundary("p202504")).isEqualTo(9);
+        assertThat(boundary("p202505")).isEqualTo(12);
+    }
+
+    private void archive(int postId, LocalDateTime createdAt) throws Exception {
+        try (Connection conn = ds.getConnection()) {
+            Timestamp time = Timestamp.valueOf(createdAt);
+            execute(conn, "INSERT INTO posts_archive (postId, authorId, body, createdAt) VALUES (?, 1, 'Old', ?)",
+                    postId, time);
+            execute(conn, "INSERT INTO comments_archive (commentId, postId, authorId, body, createdAt, path) "
+                    + "VALUES (?, ?, 1, 'Old comment', ?, '')", postId, postId, time);
+            execute(conn, "INSERT INTO likes_archive (userId, postId, createdAt) VALUES (1, ?, ?)", postId, time);
+            execute(conn, "INSERT INTO hashtags_archive (postId, tag) VALUES (?, 'old')", postId);
+        }
+    }
+
+    private void post(int postId, LocalDateTime createdAt) throws Exception {
+        try (Connection conn = ds.getConnection()) {
+            execute(conn, "INSERT INTO posts (postId, authorId, body, createdAt) VALUES (?, 1, 'New', ?)",
+                    postId, Timestamp.valueOf(createdAt));
+        }
+    }
+
+    private static void execute(Connection conn, String sql, Object... params) throws Exception {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setObject(i + 1, params[i]);
+            }
+            pstmt.executeUpdate();
+        }
+    }
+
+    private List<String> partitions(String table) throws Exception {
+        List<String> partitions = new ArrayList<>();
+        try (Connection conn = ds.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement("""
+                    SELECT partition_name FROM information_schema.partitions
+                    WHERE table_schema = DATABASE() AND table_name = ?
+                    ORDER BY partition_ordinal_position
+                    """)) {
+            pstmt.setString(1, table);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) partitions.add(rs.getString(1));
+            }
+        }
+        return partitions;
+    }
+
+    private long boundary(String partition) throws Exception {
+        try (Connection conn = ds.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement("""
+                    SELECT partition_description FROM information_schema.partitions
+                    WHERE table_schema = DATABASE() AND table_name = 'posts_archive' AND partition_name = ?
+                    """)) {
+            pstmt.setString(1, partition);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return Long.parseLong(rs.getString(1));
+            }
+        }
+    }
+
+    private int count(String from) throws Exception {
+        try (Connection conn = ds.getConnection();
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + from)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.zip.GZIPOutputStream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import uga.menik.csx370.TestDatabase;
+
+/**
+ * Imports dumps into the test schema.
+ */
+public class DataTransferServiceTest {
+
+    private static DataSource dataSource;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void connect() throws Exception {
+        dataSource = TestDatabase.get();
+    }
+
+    @Test
+    void rowsBreakingForeignKeysAreRejectedAndCounted() throws Exception {
+        Path dump = dump("""
+                {"table":"user","row":{"userId":900001,"username":"import1","password":"x","firstName":"Import","lastName":"User"}}
+                {"table":"posts","row":{"postId":900001,"authorId":900001,"body":"Kept","createdAt":"2024-01-01 00:00:00"}}
+                {"table":"posts","row":{"postId":900002,"authorId":999999,"body":"No author","createdAt":"2024-01-01 00:00:00"}}
+                {"table":"posts","row":{"postId":900003,"authorId":900001,"body":"Also kept","createdAt":"2024-01-01 00:00:00"}}
+                """);
+
+        DataTransferService.ImportResult result = new DataTransferService(dataSource).importFile(dump, 10, 2);
+
+        assertThat(result.rows()).isEqualTo(3);
+        assertThat(result.rejected()).isEqualTo(1);
+        assertThat(count("SELECT COUNT(*) FROM posts WHERE postId IN (900001, 900002, 900003)")).isEqualTo(2);
+    }
+
+    @Test
+    void importingAgainUpdatesExistingRows() throws Exception {
+        DataTransferService service = new DataTransferService(dataSource);
+        service.importFile(dump("""
+                {"table":"user","row":{"userId":900011,"username":"import2","password":"x","firstName":"Before","lastName":"User"}}
+                """), 10, 1);
+
+        DataTransferService.ImportResult result = service.importFile(dump("""
+                {"table":"user","row":{"userId":900011,"username":"import2","password":"x","firstName":"After","lastName":"User"}}
+                """), 10, 1);
+
+        assertThat(result.rejected()).isZero();
+        assertThat(count("SELECT COUNT(*) FROM user WHERE userId = 900011 AND firstName = 'After'")).isEqualTo(1);
+    }
+
+    @Test
+    void archivedPostsAreExportedAndImported() throws Exception {
+        DataTransferService service = new DataTransferService(dataSource);
+        service.importFile(dump("""
+                {"table":"user","row":{"userId":900021,"username":"import3","password":"x","firstName":"Archived","lastName":"User"}}
+                {"table":"posts_archive","row":{"postId":900021,"authorId":900021,"body":"Old","createdAt":"2020-01-01 00:00:00","archivedAt":"2021-01-01 00:00:00"}}
+                {"table":"hashtags_archive","row":{"postId":900021,"tag":"old"}}
+                """), 10, 1);
+
+        Path export = dir.resolve("user.ndjson.gz");
+        service.exportUser("900021", export);
+        execute("DELETE FROM hashtags_archive WHERE postId = 900021");
+        execute("DELETE FROM posts_archive WHERE postId = 900021");
+        DataTransferService.ImportResult result = service.importFile(export, 10, 1);
+
+        assertThat(result.rows()).isEqualTo(3);
+        assertThat(count("SELECT COUNT(*) FROM posts_archive WHERE postId = 900021")).isEqualTo(1);
+        assertThat(count("SELECT COUNT(*) FROM hashtags_archive WHERE postId = 900021")).isEqualTo(1);
+    }
+
+    private Path dump(String lines) throws Exception {
+        Path file = Files.createTempFile(dir, "dump", ".ndjson.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file));
+                Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            writer.write(lines);
+        }
+        return file;
+    }
+
+    private static void execute(String sql) throws Exception {
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static long count(String sql) throws Exception {
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql);
+                ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
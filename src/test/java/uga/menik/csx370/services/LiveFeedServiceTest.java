@@ -0,0 +1,80 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.services;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uga.menik.csx370.components.PostFragmentCache;
+import uga.menik.csx370.models.Post;
+import uga.menik.csx370.models.User;
+
+/**
+ * Checks who a new post is pushed to.
+ */
+public class LiveFeedServiceTest {
+
+    private static final Post POST = new Post(10, "Hello", 0, new User(1, "Alice", "Adams"), 0, 0,
+            false, false, false, false);
+
+    private PostService postService;
+    private PeopleService peopleService;
+    private PostFragmentCache postFragmentCache;
+    private LiveFeedService liveFeedService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        postService = mock(PostService.class);
+        peopleService = mock(PeopleService.class);
+        postFragmentCache = mock(PostFragmentCache.class);
+        when(postService.getPostById("10", null)).thenReturn(POST);
+        when(peopleService.getFollowerIds("1")).thenReturn(List.of("2"));
+        when(postFragmentCache.render(any(Post.class))).thenReturn("<div></div>");
+        liveFeedService = new LiveFeedService(postService, peopleService, postFragmentCache, 30, 32);
+    }
+
+    @AfterEach
+    void tearDown() {
+        liveFeedService.destroy();
+    }
+
+    @Test
+    void followersGetPostsOfAnAuthorWithSeveralTabs() throws Exception {
+        liveFeedService.subscribe("1");
+        liveFeedService.subscribe("1");
+        liveFeedService.subscribe("2");
+
+        postCreated();
+
+        verify(peopleService, timeout(2000)).getFollowerIds("1");
+    }
+
+    @Test
+    void followersAreNotLookedUpWhenOnlyTheAuthorIsConnected() throws Exception {
+        liveFeedService.subscribe("1");
+        liveFeedService.subscribe("1");
+
+        postCreated();
+
+        verify(postService, timeout(2000)).getPostById("10", null);
+        verify(peopleService, never()).getFollowerIds("1");
+    }
+
+    private void postCreated() {
+        liveFeedService.apply(null, List.of(
+                new OutboxEvent(1, OutboxEvent.Type.POST_CREATED, "10", "1", "", 0)));
+    }
+}
@@ -0,0 +1,166 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import uga.menik.csx370.TestDatabase;
+import uga.menik.csx370.models.Notification;
+
+/**
+ * Writes notifications to the seeded dataset, where user n wrote post n
+ * for n up to TestDatabase.USERS.
+ */
+public class NotificationServiceTest {
+
+    private static DataSource seeded;
+
+    private FlakyDataSource dataSource;
+    private NotificationService notificationService;
+
+    @BeforeAll
+    static void seed() throws Exception {
+        seeded = TestDatabase.seeded();
+    }
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new FlakyDataSource(seeded);
+        notificationService = new NotificationService(dataSource, outboxService(dataSource), 100, 100);
+    }
+
+    @Test
+    void actorsAreCountedOnceAcrossFlushes() throws Exception {
+        notificationService.notifyPostAuthor(NotificationService.Type.LIKE, "5", "150");
+        notificationService.flush();
+        notificationService.notifyPostAuthor(NotificationService.Type.LIKE, "5", "150");
+        notificationService.flush();
+        notificationService.notifyPostAuthor(NotificationService.Type.LIKE, "6", "150");
+        notificationService.flush();
+
+        List<Notification> notifications = notificationService.getNotifications("150");
+        assertThat(notifications).hasSize(1);
+        assertThat(notifications.get(0).getActor().getUserId()).isEqualTo("6");
+        assertThat(notifications.get(0).getOthersCount()).isEqualTo(1);
+    }
+
+    @Test
+    void actorsAreCountedAgainAfterReading() throws Exception {
+        notificationService.notifyPostAuthor(NotificationService.Type.LIKE, "5", "151");
+        notificationService.flush();
+        notificationService.markAllRead("151");
+        notificationService.notifyPostAuthor(NotificationService.Type.LIKE, "5", "151");
+        notificationService.flush();
+
+        assertThat(notificationService.getUnreadCount("151")).isEqualTo(1);
+        assertThat(notificationService.getNotifications("151")).hasSize(2)
+                .allSatisfy(notification -> assertThat(notification.getOthersCount()).isZero());
+    }
+
+    @Test
+    void ownActionsAreNotWritten() throws Exception {
+        notificationService.notifyPostAuthor(NotificationService.Type.LIKE, "152", "152");
+        notificationService.flush();
+
+        assertThat(notificationService.getNotifications("152")).isEmpty();
+    }
+
+    @Test
+    void idleFlushDoesNotConnect() {
+        notificationService.flush();
+
+        assertThat(dataSource.connections.get()).isZero();
+    }
+
+    @Test
+    void unreadCountBacksOffAfterAFailure() throws Exception {
+        dataSource.down = true;
+
+        assertThat(notificationService.getUnreadCount("153")).isZero();
+        assertThat(notificationService.getUnreadCount("153")).isZero();
+        assertThat(dataSource.connections.get()).isEqualTo(1);
+
+        dataSource.down = false;
+        Thread.sleep(1100);
+        notificationService.getUnreadCount("153");
+        assertThat(dataSource.connections.get()).isEqualTo(2);
+    }
+
+    @Test
+    void unreadCountFollowsOtherNodes() throws Exception {
+        StaticListableBeanFactory projections = new StaticListableBeanFactory();
+        OutboxService outbox = new OutboxService(seeded, projections.getBeanProvider(Projection.class), 500, 0, 24);
+        NotificationService node = new NotificationService(seeded, outbox, 100, 100);
+        projections.addBean("notifications", node);
+        outbox.dispatch();
+
+        assertThat(node.getUnreadCount("154")).isZero();
+        notificationService.notifyPostAuthor(NotificationService.Type.LIKE, "5", "154");
+        notificationService.flush();
+        assertThat(node.getUnreadCount("154")).isZero();
+
+        // Twice, in case the first dispatch stops before a gap.
+        outbox.dispatch();
+        outbox.dispatch();
+        assertThat(node.getUnreadCount("154")).isEqualTo(1);
+
+        notificationService.markAllRead("154");
+        outbox.dispatch();
+        outbox.dispatch();
+        assertThat(node.getUnreadCount("154")).isZero();
+    }
+
+    @Test
+    void unreadCountsAreBounded() {
+        NotificationService small = new NotificationService(dataSource, outboxService(dataSource), 100, 2);
+        for (String userId : List.of("155", "156", "157")) {
+            small.getUnreadCount(userId);
+        }
+        assertThat(dataSource.connections.get()).isEqualTo(3);
+
+        for (String userId : List.of("155", "156", "157")) {
+            small.getUnreadCount(userId);
+        }
+        assertThat(dataSource.connections.get()).isGreaterThan(3);
+    }
+
+    private static OutboxService outboxService(DataSource ds) {
+        return new OutboxService(ds, new StaticListableBeanFactory().getBeanProvider(Projection.class),
+                500, 5000, 24);
+    }
+
+    /**
+     * DataSource that counts connections and fails while down.
+     */
+    private static class FlakyDataSource extends DelegatingDataSource {
+        private final AtomicInteger connections = new AtomicInteger();
+        private volatile boolean down;
+
+        FlakyDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            connections.incrementAndGet();
+            if (down) throw new SQLException("Communications link failure");
+            return super.getConnection();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import uga.menik.csx370.TestDatabase;
+
+/**
+ * Tails the outbox of the test schema with projections that only record
+ * the events appended for them, since other tests write to the outbox too.
+ */
+public class OutboxServiceTest {
+
+    // Aggregate ids of the events of this test, clear of real post ids.
+    private static final AtomicInteger aggregateIds = new AtomicInteger(990000);
+
+    private static DataSource seeded;
+
+    @BeforeAll
+    static void seed() throws Exception {
+        seeded = TestDatabase.seeded();
+    }
+
+    @Test
+    void checkpointedEventsAreAppliedOnceAcrossNodes() throws Exception {
+        Recorder recorder = new Recorder("outbox-test-checkpoint", true);
+        OutboxService first = outboxService(recorder, 5000);
+        OutboxService second = outboxService(recorder, 5000);
+        List<Integer> appended = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            appended.add(append(first, recorder));
+        }
+
+        first.dispatch();
+        second.dispatch();
+        appended.add(append(second, recorder));
+        second.dispatch();
+        first.dispatch();
+
+        assertThat(recorder.applied).containsExactlyElementsOf(appended);
+        assertThat(checkpoint(recorder.getName())).isEqualTo(lastEventId());
+    }
+
+    @Test
+    void tailingWaitsForATransactionThatCommitsLate() throws Exception {
+        Recorder recorder = new Recorder("outbox-test-wait", true);
+        OutboxService outbox = outboxService(recorder, 60_000);
+        int before = append(outbox, recorder);
+        outbox.dispatch();
+
+        int late;
+        int after;
+        try (Connection conn = seeded.getConnection()) {
+            conn.setAutoCommit(false);
+            late = append(outbox, recorder, conn);
+            after = append(outbox, recorder);
+            outbox.dispatch();
+            assertThat(recorder.applied).containsExactly(before);
+            conn.commit();
+        }
+        outbox.dispatch();
+
+        assertThat(recorder.applied).containsExactly(before, late, after);
+    }
+
+    @Test
+    void missingEventsAreSkippedAfterTheWait() throws Exception {
+        Recorder recorder = new Recorder("outbox-test-skip", false);
+        OutboxService outbox = outboxService(recorder, 200);
+        // Local projections start at the end of the outbox, which must not be empty.
+        append(outbox, new Recorder("outbox-test-other", false));
+        outbox.dispatch();
+
+        try (Connection conn = seeded.getConnection()) {
+            conn.setAutoCommit(false);
+            append(outbox, recorder, conn);
+            conn.rollback();
+        }
+        int after = append(outbox, recorder);
+        outbox.dispatch();
+        assertThat(recorder.applied).isEmpty();
+
+        Thread.sleep(300);
+        outbox.dispatch();
+        assertThat(recorder.applied).containsExactly(after);
+        assertThat(queryLong("""
+            SELECT COUNT(*) FROM outbox_skipped s
+            JOIN outbox o ON o.aggregateId = %d AND s.toEventId = o.eventId - 1
+            WHERE s.projection = 'local' AND s.fromEventId = s.toEventId
+            """.formatted(after))).isEqualTo(1);
+    }
+
+    /**
+     * Returns an outbox service that feeds the projection. A checkpointed
+     * one starts at the end of the outbox, clear of gaps other tests left.
+     */
+    private static OutboxService outboxService(Projection projection, long gapWaitMillis) throws SQLException {
+        if (projection.isCheckpointed()) {
+            try (Connection conn = seeded.getConnection();
+                    PreparedStatement pstmt = conn.prepareStatement("""
+                        INSERT IGNORE INTO projection_checkpoints (name, lastEventId)
+                        SELECT ?, COALESCE(MAX(eventId), 0) FROM outbox
+                        """)) {
+                pstmt.setString(1, projection.getName());
+                pstmt.executeUpdate();
+            }
+        }
+        StaticListableBeanFactory projections = new StaticListableBeanFactory();
+        projections.addBean(projection.getName(), projection);
+        return new OutboxService(seeded, projections.getBeanProvider(Projection.class), 500, gapWaitMillis, 24);
+    }
+
+    /**
+     * Appends and commits an event for the recorder with an aggregate id
+     * of its own and returns the id.
+     */
+    private static int append(OutboxService outbox, Recorder recorder) throws SQLException {
+        return outbox.inTransaction(conn -> append(outbox, recorder, conn));
+    }
+
+    private static int append(OutboxService outbox, Recorder recorder, Connection conn) throws SQLException {
+        int aggregateId = aggregateIds.incrementAndGet();
+        recorder.expected.add(aggregateId);
+        outbox.append(conn, OutboxEvent.Type.LIKE_ADDED, String.valueOf(aggregateId), "1");
+        return aggregateId;
+    }
+
+    private static long checkpoint(String name) throws SQLException {
+        return queryLong("SELECT lastEventId FROM projection_checkpoints WHERE name = '" + name + "'");
+    }
+
+    private static long lastEventId() throws SQLException {
+        return queryLong("SELECT MAX(eventId) FROM outbox");
+    }
+
+    private static long queryLong(String sql) throws SQLException {
+        try (Connection conn = seeded.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql);
+                ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Records the aggregate ids of the events appended for it that it is fed.
+     */
+    private static class Recorder implements Projection {
+        private final String name;
+        private final boolean checkpointed;
+        private final Set<Integer> expected = ConcurrentHashMap.newKeySet();
+        private final List<Integer> applied = new ArrayList<>();
+
+        Recorder(String name, boolean checkpointed) {
+            this.name = name;
+            this.checkpointed = checkpointed;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean isCheckpointed() {
+            return checkpointed;
+        }
+
+        @Override
+        public void apply(Connection conn, List<OutboxEvent> events) {
+            for (OutboxEvent event : events) {
+                int aggregateId = Integer.parseInt(event.aggregateId());
+                if (expected.contains(aggregateId)) applied.add(aggregateId);
+            }
+        }
+    }
+}
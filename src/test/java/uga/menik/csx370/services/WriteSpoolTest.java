@@ -0,0 +1,247 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import uga.menik.csx370.TestDatabase;
+import uga.menik.csx370.repositories.JdbcCommentRepository;
+import uga.menik.csx370.repositories.JdbcPostRepository;
+
+/**
+ * Spools posts to a log in a temporary directory, reopens it the way a
+ * restart would and replays it into the test schema. The posts are
+ * written by seeded users 170 to 172, whom the feed tests do not follow,
+ * and each test marks its posts with a prefix of its own.
+ */
+public class WriteSpoolTest {
+
+    private static final String ALICE = "170";
+    private static final String BOB = "171";
+    private static final String CAROL = "172";
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private static DataSource ds;
+
+    @TempDir
+    Path dir;
+
+    private Path path;
+    private String prefix;
+
+    @BeforeAll
+    static void seed() throws Exception {
+        ds = TestDatabase.seeded();
+    }
+
+    @BeforeEach
+    void setUp() {
+        path = dir.resolve("spool.log");
+        prefix = "spool-test " + UUID.randomUUID() + " ";
+    }
+
+    @Test
+    void eachAuthorsPostsAreReplayedInOrderWithTheirTime() throws Exception {
+        WriteSpool spool = open(path);
+        spool.spoolPost(ALICE, prefix + "a1", List.of());
+        spool.spoolPost(BOB, prefix + "b1", List.of());
+        spool.spoolPost(ALICE, prefix + "a2", List.of());
+        spool.spoolPost(BOB, prefix + "b2", List.of());
+        spool.spoolPost(ALICE, prefix + "a3", List.of());
+        assertThat(spool.hasPending(ALICE)).isTrue();
+
+        // Replay late enough that a fresh timestamp would differ.
+        Thread.sleep(2000);
+        spool.replay();
+        spool.destroy();
+
+        assertThat(bodies(ALICE)).containsExactly("a1", "a2", "a3");
+        assertThat(bodies(BOB)).containsExactly("b1", "b2");
+        assertThat(spool.hasPending(ALICE)).isFalse();
+        try (Connection conn = ds.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement("""
+                    SELECT COUNT(*) FROM posts p
+                    JOIN outbox o ON o.type = 'POST_CREATED' AND o.aggregateId = p.postId
+                    WHERE p.body LIKE ? AND o.createdAt = p.createdAt
+                    """)) {
+            pstmt.setString(1, prefix + "%");
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                assertThat(rs.getInt(1)).isEqualTo(5);
+            }
+        }
+    }
+
+    @Test
+    void aRecordReplayedTwiceIsAppliedOnce() throws Exception {
+        WriteSpool spool = open(path);
+        spool.spoolPost(ALICE, prefix + "once", List.of());
+        spool.destroy();
+        // A copy of the log as it was before the replay, as if the node
+        // crashed before it saved the new head.
+        Path copy = dir.resolve("copy.log");
+        Files.copy(path, copy);
+
+        WriteSpool first = open(path);
+        first.replay();
+        first.destroy();
+        WriteSpool second = open(copy);
+        assertThat(second.hasPending(ALICE)).isTrue();
+        second.replay();
+        second.destroy();
+
+        assertThat(bodies(ALICE)).containsExactly("once");
+        assertThat(second.hasPending(ALICE)).isFalse();
+    }
+
+    @Test
+    void recoveryStopsAtARecordThatFailsItsChecksum() throws Exception {
+        WriteSpool spool = open(path);
+        spool.spoolPost(ALICE, prefix + "first", List.of());
+        spool.spoolPost(BOB, prefix + "second", List.of());
+        spool.spoolPost(CAROL, prefix + "corrupt", List.of());
+        spool.destroy();
+
+        List<Integer> offsets = recordOffsets(path);
+        assertThat(offsets).hasSize(3);
+        // Flip the last byte of the third record.
+        int third = offsets.get(2);
+        int end = third + RECORD_HEADER_SIZE + readInt(path, third) - 1;
+        write(path, end, new byte[] { (byte) ~readBytes(path, end, 1)[0] });
+
+        WriteSpool recovered = open(path);
+        assertThat(recovered.hasPending(CAROL)).isFalse();
+        assertThat(readInt(path, third)).isZero();
+        recovered.replay();
+        recovered.destroy();
+
+        assertThat(bodies(ALICE)).containsExactly("first");
+        assertThat(bodies(BOB)).containsExactly("second");
+        assertThat(bodies(CAROL)).isEmpty();
+    }
+
+    @Test
+    void aTornRecordIsDiscardedAndTheLogKeepsWorking() throws Exception {
+        WriteSpool spool = open(path);
+        spool.spoolPost(ALICE, prefix + "before", List.of());
+        spool.destroy();
+
+        // A record whose length made it to disk but whose body did not.
+        int tail = HEADER_SIZE + RECORD_HEADER_SIZE + readInt(path, HEADER_SIZE);
+        write(path, tail, ByteBuffer.allocate(4).putInt(100).array());
+
+        WriteSpool recovered = open(path);
+        assertThat(readInt(path, tail)).isZero();
+        recovered.spoolPost(ALICE, prefix + "after", List.of());
+        recovered.replay();
+        recovered.destroy();
+
+        assertThat(bodies(ALICE)).containsExactly("before", "after");
+    }
+
+    @Test
+    void oldWriteIdsArePruned() throws Exception {
+        WriteSpool spool = open(path);
+        for (int i = 0; i < 3; i++) {
+            spool.spoolPost(ALICE, prefix + "pruned " + i, List.of());
+        }
+        spool.replay();
+        try (Connection conn = ds.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(
+                        "UPDATE spooled_writes SET appliedAt = NOW() - INTERVAL 8 DAY")) {
+            pstmt.executeUpdate();
+        }
+
+        spool.prune();
+        spool.destroy();
+
+        try (Connection conn = ds.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement("SELECT COUNT(*) FROM spooled_writes");
+                ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            assertThat(rs.getInt(1)).isZero();
+        }
+    }
+
+    private static WriteSpool open(Path path) throws Exception {
+        ArchiveService archiveService = new ArchiveService(ds, 365, 200);
+        OutboxService outboxService = new OutboxService(ds,
+                new StaticListableBeanFactory().getBeanProvider(Projection.class), 500, 5000, 24);
+        NotificationService notificationService = new NotificationService(ds, outboxService, 100, 100);
+        // A prune batch of 2 makes the prune run more than one chunk.
+        return new WriteSpool(ds, new JdbcPostRepository(ds, archiveService, outboxService),
+                new JdbcCommentRepository(ds, archiveService, outboxService), notificationService,
+                path.toString(), 1, 3, 7, 2);
+    }
+
+    /**
+     * Returns the bodies of the author's posts of this test, oldest
+     * first, without the prefix.
+     */
+    private List<String> bodies(String authorId) throws Exception {
+        List<String> bodies = new ArrayList<>();
+        try (Connection conn = ds.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(
+                        "SELECT body FROM posts WHERE authorId = ? AND body LIKE ? ORDER BY postId")) {
+            pstmt.setString(1, authorId);
+            pstmt.setString(2, prefix + "%");
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) bodies.add(rs.getString(1).substring(prefix.length()));
+            }
+        }
+        return bodies;
+    }
+
+    private static List<Integer> recordOffsets(Path path) throws Exception {
+        List<Integer> offsets = new ArrayList<>();
+        int offset = HEADER_SIZE;
+        int length;
+        while ((length = readInt(path, offset)) > 0) {
+            offsets.add(offset);
+            offset += RECORD_HEADER_SIZE + length;
+        }
+        return offsets;
+    }
+
+    private static int readInt(Path path, int offset) throws Exception {
+        return ByteBuffer.wrap(readBytes(path, offset, 4)).getInt();
+    }
+
+    private static byte[] readBytes(Path path, int offset, int length) throws Exception {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            channel.read(buffer, offset);
+            return buffer.array();
+        }
+    }
+
+    private static void write(Path path, int offset, byte[] bytes) throws Exception {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes), offset);
+        }
+    }
+}
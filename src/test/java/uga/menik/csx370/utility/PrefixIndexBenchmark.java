@@ -0,0 +1,79 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.utility;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Completes hashtag prefixes with PrefixIndex and by scanning the range
+ * of a sorted map of all tags, for 100,000 tags. Run with
+ * mvn -B -Pbenchmarks -DskipTests -Dbenchmark=PrefixIndexBenchmark test
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrefixIndexBenchmark {
+
+    private static final int TAGS = 100_000;
+    private static final int K = 8;
+
+    // A short prefix shared by many tags and a longer one shared by few.
+    @Param({"t", "tag1234"})
+    public String prefix;
+
+    private PrefixIndex index;
+    private TreeMap<String, Long> sorted;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(36);
+        index = new PrefixIndex(K);
+        sorted = new TreeMap<>();
+        for (int i = 0; i < TAGS; i++) {
+            String tag = "tag" + i;
+            long uses = 1 + random.nextInt(1000);
+            index.add(tag, uses);
+            sorted.put(tag, uses);
+        }
+    }
+
+    @Benchmark
+    public List<String> prefixIndex() {
+        return index.complete(prefix);
+    }
+
+    @Benchmark
+    public List<String> sortedMapScan() {
+        List<Map.Entry<String, Long>> matches = new ArrayList<>(
+                sorted.subMap(prefix, prefix + Character.MAX_VALUE).entrySet());
+        matches.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        List<String> tags = new ArrayList<>(K);
+        for (int i = 0; i < Math.min(K, matches.size()); i++) {
+            tags.add(matches.get(i).getKey());
+        }
+        return tags;
+    }
+}
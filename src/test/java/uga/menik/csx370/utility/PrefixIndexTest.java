@@ -0,0 +1,112 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.utility;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Builds small tries whose edges split and merge, and compares a larger
+ * random one against a scan of all its words.
+ */
+public class PrefixIndexTest {
+
+    @Test
+    void wordInsideAnEdgeSplitsIt() {
+        PrefixIndex index = new PrefixIndex(5);
+        index.add("javascript", 1);
+        index.add("java", 2);
+        index.add("javelin", 3);
+
+        assertThat(index.complete("java")).containsExactly("java", "javascript");
+        assertThat(index.complete("jav")).containsExactly("javelin", "java", "javascript");
+        assertThat(index.complete("javas")).containsExactly("javascript");
+    }
+
+    @Test
+    void prefixMayEndInsideAnEdge() {
+        PrefixIndex index = new PrefixIndex(5);
+        index.add("database", 1);
+
+        assertThat(index.complete("d")).containsExactly("database");
+        assertThat(index.complete("data")).containsExactly("database");
+        assertThat(index.complete("database")).containsExactly("database");
+        assertThat(index.complete("dato")).isEmpty();
+        assertThat(index.complete("databases")).isEmpty();
+    }
+
+    @Test
+    void wordsDownToZeroAreNotSuggested() {
+        PrefixIndex index = new PrefixIndex(5);
+        index.add("mysql", 2);
+        index.add("mysqldump", 1);
+        index.add("mysql", -2);
+
+        assertThat(index.complete("my")).containsExactly("mysqldump");
+        assertThat(index.complete("mysql")).containsExactly("mysqldump");
+
+        index.add("mysql", 1);
+        assertThat(index.complete("my")).containsExactly("mysql", "mysqldump");
+    }
+
+    @Test
+    void heaviestWordsComeFirstThenAlphabetically() {
+        PrefixIndex index = new PrefixIndex(3);
+        index.add("cat", 5);
+        index.add("car", 7);
+        index.add("cab", 5);
+        index.add("cap", 1);
+        index.add("cart", 9);
+
+        assertThat(index.complete("ca")).containsExactly("cart", "car", "cab");
+        index.add("cap", 10);
+        assertThat(index.complete("ca")).containsExactly("cap", "cart", "car");
+        assertThat(index.complete("car")).containsExactly("cart", "car");
+    }
+
+    @Test
+    void matchesAScanOfAllWords() {
+        Random random = new Random(36);
+        PrefixIndex index = new PrefixIndex(4);
+        Map<String, Long> weights = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            String word = randomWord(random);
+            long delta = random.nextInt(5) - 1;
+            index.add(word, delta);
+            weights.merge(word, delta, Long::sum);
+        }
+
+        for (int i = 0; i < 500; i++) {
+            String prefix = randomWord(random).substring(0, 1 + random.nextInt(2));
+            List<String> expected = new ArrayList<>();
+            weights.entrySet().stream()
+                    .filter(e -> e.getKey().startsWith(prefix) && e.getValue() > 0)
+                    .sorted(Comparator.<Map.Entry<String, Long>>comparingLong(e -> -e.getValue())
+                            .thenComparing(Map.Entry::getKey))
+                    .limit(4)
+                    .forEach(e -> expected.add(e.getKey()));
+            assertThat(index.complete(prefix)).as(prefix).isEqualTo(expected);
+        }
+    }
+
+    // Short words over a small alphabet, so that they share long prefixes.
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 2 + random.nextInt(5);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(3)));
+        }
+        return word.toString();
+    }
+}
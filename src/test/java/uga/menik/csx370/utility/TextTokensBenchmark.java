@@ -0,0 +1,58 @@
+/**
+Copyright (c) 2024 Sami Menik, PhD. All rights reserved.
+
+This is a project developed by Dr. Menik to give the students an opportunity to apply database concepts learned in the class in a real world project. Permission is granted to host a running version of this software and to use images or videos of this work solely for the purpose of demonstrating the work to potential employers. Any form of reproduction, distribution, or transmission of the software's source code, in part or whole, without the prior written consent of the copyright owner, is strictly prohibited.
+*/
+package uga.menik.csx370.utility;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Finds the hashtags of post text with TextTokens.scan and with the
+ * whitespace split PostService used before it. Run with
+ * mvn -B -Pbenchmarks -DskipTests -Dbenchmark=TextTokensBenchmark test
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextTokensBenchmark {
+
+    @Param({
+        "Just finished the lab, going to sleep now",
+        "Loving #Java and #SpringBoot for the #databases project with @jane.doe",
+        "Q3 roadmap: #perf #mysql #indexes #caching, ask @ops-team or @dba_lead (see #runbook) before Friday"
+    })
+    public String text;
+
+    @Benchmark
+    public TextTokens.Tokens scan() {
+        return TextTokens.scan(text);
+    }
+
+    @Benchmark
+    public Set<String> split() {
+        Set<String> tags = new LinkedHashSet<>();
+        for (String word : text.split("\\s+")) {
+            if (word.startsWith("#") && word.length() > 1) {
+                tags.add(word.substring(1).toLowerCase());
+            }
+        }
+        return tags;
+    }
+}